@@ -0,0 +1,132 @@
+package com.vizako.anonphobease.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link EncryptionService} with the previous implementation, which looked up a new
+ * {@link Cipher} and copied the IV and ciphertext on every call. Run with {@code -prof gc} to see
+ * bytes allocated per operation next to throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncryptionServiceBenchmark {
+
+    private static final String SECRET = "benchmark-encryption-secret";
+
+    @Param({"1000"})
+    private int batchSize;
+
+    private EncryptionService encryptionService;
+    private LegacyEncryption legacy;
+    private String plain;
+    private String encrypted;
+    private List<String> batch;
+
+    @Setup
+    public void setUp() {
+        encryptionService = new EncryptionService();
+        ReflectionTestUtils.setField(encryptionService, "secret", SECRET);
+        encryptionService.init();
+        legacy = new LegacyEncryption(SECRET);
+
+        plain = "A typical chat message of a sentence or two, long enough to be representative.";
+        encrypted = encryptionService.encrypt(plain);
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(encryptionService.encrypt(plain + " #" + i));
+        }
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return encryptionService.encrypt(plain);
+    }
+
+    @Benchmark
+    public String encryptLegacy() {
+        return legacy.encrypt(plain);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return encryptionService.decrypt(encrypted);
+    }
+
+    @Benchmark
+    public String decryptLegacy() {
+        return legacy.decrypt(encrypted);
+    }
+
+    @Benchmark
+    public List<String> decryptAll() {
+        return encryptionService.decryptAll(batch);
+    }
+
+    @Benchmark
+    public List<String> decryptAllLegacy() {
+        List<String> result = new ArrayList<>(batch.size());
+        for (String value : batch) {
+            result.add(legacy.decrypt(value));
+        }
+        return result;
+    }
+
+    /** The implementation this service replaced, kept verbatim as the baseline. */
+    static final class LegacyEncryption {
+
+        private final SecretKey secretKey;
+        private final SecureRandom secureRandom = new SecureRandom();
+
+        LegacyEncryption(String secret) {
+            secretKey = new SecretKeySpec(Arrays.copyOf(secret.getBytes(StandardCharsets.UTF_8), 32), "AES");
+        }
+
+        String encrypt(String plainText) {
+            try {
+                byte[] iv = new byte[12];
+                secureRandom.nextBytes(iv);
+                Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(128, iv));
+                byte[] cipherText = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
+                byte[] combined = new byte[iv.length + cipherText.length];
+                System.arraycopy(iv, 0, combined, 0, iv.length);
+                System.arraycopy(cipherText, 0, combined, iv.length, cipherText.length);
+                return Base64.getEncoder().encodeToString(combined);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        String decrypt(String encrypted) {
+            try {
+                byte[] combined = Base64.getDecoder().decode(encrypted);
+                byte[] iv = new byte[12];
+                byte[] cipherBytes = new byte[combined.length - 12];
+                System.arraycopy(combined, 0, iv, 0, 12);
+                System.arraycopy(combined, 12, cipherBytes, 0, cipherBytes.length);
+                Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(128, iv));
+                return new String(cipher.doFinal(cipherBytes), StandardCharsets.UTF_8);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -92,13 +92,13 @@ public class DataSeeder implements CommandLineRunner {
                 .build());
 
         // Chat
-        Chat chat = chatRepository.save(new Chat(new ObjectId(), est.getId(), spider.getId(), "(" + est.getCode().toUpperCase() + ") " + spider.getName(), new Date()));
+        Chat chat = chatRepository.save(new Chat(new ObjectId(), est.getId(), spider.getId(), "(" + est.getCode().toUpperCase() + ") " + spider.getName(), new Date(), null));
 
         // Add user to chat
         ChatUser chatUser = chatUserRepository.save(new ChatUser(new ObjectId(), chat.getId(), user1.getId(), new Date(), null));
 
         // Message
-        Message msg = messageRepository.save(new Message(new ObjectId(), user1.getId(), chat.getId(), "Hello! Anyone else afraid of spiders?", new Date()));
+        Message msg = messageRepository.save(new Message(new ObjectId(), user1.getId(), chat.getId(), "Hello! Anyone else afraid of spiders?", new Date(), null));
 
         // UserLog
         userLogRepository.save(new UserLog(new ObjectId(), user1.getId(), LogType.USER_LOGIN, new Date(), LogType.USER_LOGIN.getTemplate(), null, RelatedEntityType.USER));
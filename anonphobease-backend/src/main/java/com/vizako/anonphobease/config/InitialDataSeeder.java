@@ -139,7 +139,8 @@ public class InitialDataSeeder implements CommandLineRunner {
                                 lang.getId(),
                                 phobia.getId(),
                                 chatName,
-                                new Date()
+                                new Date(),
+                                null
                         );
                         chatRepository.save(chat);
                     }
@@ -0,0 +1,188 @@
+package com.vizako.anonphobease.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.CompoundIndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Declares the indexes every repository query relies on and reconciles them with the database
+ * in the background at startup. Index names match what {@code @Indexed}/{@code @CompoundIndex}
+ * generate, so auto-index-creation and this manager agree on the same definitions.
+ */
+@Slf4j
+@Component
+public class MongoIndexManager {
+
+    public record IndexSpec(String collection, String name, Map<String, Integer> keys, boolean unique) {
+
+        static IndexSpec of(String collection, String name, boolean unique, Object... keyAndDirection) {
+            Map<String, Integer> keys = new LinkedHashMap<>();
+            for (int i = 0; i < keyAndDirection.length; i += 2) {
+                keys.put((String) keyAndDirection[i], (Integer) keyAndDirection[i + 1]);
+            }
+            return new IndexSpec(collection, name, keys, unique);
+        }
+
+        /** Key pattern in declaration order, e.g. {@code [chatId:1, _id:1]}. */
+        List<String> keyPattern() {
+            return keys.entrySet().stream().map(e -> e.getKey() + ":" + e.getValue()).toList();
+        }
+    }
+
+    public record ReconcileReport(List<IndexSpec> created, List<String> drifted, List<String> unmanaged) {
+    }
+
+    public static final List<IndexSpec> DECLARED = List.of(
+            // BanRepository.findByUserId / existsByUserId, findByChatId
+            IndexSpec.of("bans", "userId", false, "userId", 1),
+            IndexSpec.of("bans", "chatId", false, "chatId", 1),
+            // ChatRepository.findByLanguageId / findByPhobiaId
+            IndexSpec.of("chats", "languageId", false, "languageId", 1),
+            IndexSpec.of("chats", "phobiaId", false, "phobiaId", 1),
+            // ChatUserRepository.findByChatId / findByUserId
+            IndexSpec.of("chat_users", "chatId", false, "chatId", 1),
+            IndexSpec.of("chat_users", "userId", false, "userId", 1),
+            // LanguageRepository.findByCode
+            IndexSpec.of("languages", "code", true, "code", 1),
+            // MessageRepository.findByChatId and keyset history pages, findByUserId
+            IndexSpec.of("messages", "chat_id_idx", false, "chatId", 1, "_id", 1),
+            IndexSpec.of("messages", "userId", false, "userId", 1),
+            // PhobiaRepository.findByName
+            IndexSpec.of("phobias", "name", true, "name", 1),
+            // ReportRepository.findByChatId / findByReportedUserId / findByIsResolved
+            IndexSpec.of("reports", "chatId", false, "chatId", 1),
+            IndexSpec.of("reports", "reportedUserId", false, "reportedUserId", 1),
+            // ReportService.findQueue keyset pages by status, countByStatus
+            IndexSpec.of("reports", "isResolved_createdAt_id", false, "isResolved", 1, "createdAt", 1, "_id", 1),
+            IndexSpec.of("reports", "actionTaken_createdAt_id", false, "actionTaken", 1, "createdAt", 1, "_id", 1),
+            // RoleRepository.findByName
+            IndexSpec.of("roles", "name", true, "name", 1),
+            // TokenRevocationRepository: startup load / cleanup by expiresAt, refresh by revokedAt
+            IndexSpec.of("token_revocations", "revokedAt", false, "revokedAt", 1),
+            IndexSpec.of("token_revocations", "expiresAt", false, "expiresAt", 1),
+            // UserLogRepository.findByUserId
+            IndexSpec.of("user_logs", "userId_createdAt", false, "userId", 1, "createdAt", -1),
+            // UserLogService.findPage: keyset pages filtered by user or log type
+            IndexSpec.of("user_logs", "userId_id", false, "userId", 1, "_id", -1),
+            IndexSpec.of("user_logs", "logType_id", false, "logType", 1, "_id", -1),
+            // UserLogService.exportLogs filtered by chat, in id order
+            IndexSpec.of("user_logs", "relatedEntityType_relatedEntityId_id", false, "relatedEntityType", 1, "relatedEntityId", 1, "_id", 1),
+            // UserRepository.findByUsername / findByUsernameAndIsActiveTrue, findByIsActive, findByRoleId
+            IndexSpec.of("users", "username", true, "username", 1),
+            IndexSpec.of("users", "isActive", false, "isActive", 1),
+            IndexSpec.of("users", "roleId", false, "roleId", 1)
+    );
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final Counter drift;
+
+    public MongoIndexManager(MongoTemplate mongoTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.mongo.indexes.reconcile-on-startup:true}") boolean enabled) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.drift = meterRegistry.counter("mongo.indexes.drift");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileInBackground() {
+        if (!enabled) return;
+        Thread.ofVirtual().name("mongo-index-manager").start(() -> {
+            try {
+                reconcile();
+            } catch (RuntimeException e) {
+                log.warn("Index reconciliation failed: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Creates missing declared indexes and reports drift: a declared name bound to different keys
+     * or options, and indexes nobody declared. Drifted indexes are left alone, since dropping
+     * them on a live collection is a decision for an operator.
+     */
+    public ReconcileReport reconcile() {
+        List<IndexSpec> created = new ArrayList<>();
+        List<String> drifted = new ArrayList<>();
+        List<String> unmanaged = new ArrayList<>();
+
+        Map<String, List<IndexSpec>> byCollection = DECLARED.stream()
+                .collect(Collectors.groupingBy(IndexSpec::collection, LinkedHashMap::new, Collectors.toList()));
+
+        byCollection.forEach((collection, specs) -> {
+            IndexOperations ops = mongoTemplate.indexOps(collection);
+            List<IndexInfo> existing = ops.getIndexInfo();
+
+            for (IndexSpec spec : specs) {
+                IndexInfo sameKeys = existing.stream()
+                        .filter(info -> keysOf(info).equals(spec.keyPattern()))
+                        .findFirst().orElse(null);
+                IndexInfo sameName = existing.stream()
+                        .filter(info -> info.getName().equals(spec.name()))
+                        .findFirst().orElse(null);
+
+                if (sameKeys != null) {
+                    if (sameKeys.isUnique() != spec.unique()) {
+                        drifted.add(collection + "." + sameKeys.getName() + " unique=" + sameKeys.isUnique()
+                                + ", declared unique=" + spec.unique());
+                    }
+                } else if (sameName != null) {
+                    drifted.add(collection + "." + spec.name() + " has keys " + keysOf(sameName)
+                            + ", declared " + spec.keyPattern());
+                } else {
+                    CompoundIndexDefinition index = new CompoundIndexDefinition(new Document(spec.keys()));
+                    index.named(spec.name());
+                    if (spec.unique()) {
+                        index.unique();
+                    }
+                    ops.ensureIndex(index);
+                    created.add(spec);
+                    log.info("Created index {}.{} on {}", collection, spec.name(), spec.keys());
+                }
+            }
+
+            Set<List<String>> declaredKeys = specs.stream().map(IndexSpec::keyPattern).collect(Collectors.toSet());
+            for (IndexInfo info : existing) {
+                if (!"_id_".equals(info.getName()) && !declaredKeys.contains(keysOf(info))) {
+                    unmanaged.add(collection + "." + info.getName());
+                }
+            }
+        });
+
+        if (!drifted.isEmpty()) {
+            drift.increment(drifted.size());
+            drifted.forEach(d -> log.warn("Index drift: {}", d));
+        }
+        if (!unmanaged.isEmpty()) {
+            log.info("Indexes not declared in MongoIndexManager: {}", unmanaged);
+        }
+        return new ReconcileReport(created, drifted, unmanaged);
+    }
+
+    static List<String> keysOf(IndexInfo info) {
+        List<String> keys = new ArrayList<>();
+        for (IndexField field : info.getIndexFields()) {
+            keys.add(field.getKey() + ":" + (field.getDirection() == Sort.Direction.DESC ? -1 : 1));
+        }
+        return keys;
+    }
+}
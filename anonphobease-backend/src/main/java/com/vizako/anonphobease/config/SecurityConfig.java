@@ -40,8 +40,9 @@ public class SecurityConfig {
                         .requestMatchers("/v1/auth/login", "/v1/auth/check","/v1/auth/user-left", "/v1/health").permitAll()
                         .requestMatchers("/v1/chats/**").hasAnyRole("USER", "MODERATOR", "ADMIN")
                         .requestMatchers(HttpMethod.POST, "/v1/reports/**").hasAnyRole("USER", "MODERATOR", "ADMIN")
-                        .requestMatchers(HttpMethod.GET, "/v1/reports/**", "/v1/bans/**").hasAnyRole("MODERATOR", "ADMIN")
-                        .requestMatchers("/v1/users/**", "/v1/roles/**", "/v1/phobias/**", "/v1/languages/**","/v1/logs/**").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/v1/reports/**", "/v1/bans/**", "/v1/messages/archive/**").hasAnyRole("MODERATOR", "ADMIN")
+                        .requestMatchers("/v1/users/**", "/v1/roles/**", "/v1/phobias/**", "/v1/languages/**","/v1/logs/**", "/v1/messages/export").hasRole("ADMIN")
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class);
@@ -54,7 +55,7 @@ public class SecurityConfig {
     @Order(0)
     public SecurityFilterChain websocketSecurity(HttpSecurity http) throws Exception {
         http
-                .securityMatcher("/ws")
+                .securityMatcher("/ws", "/ws/moderation")
                 .authorizeHttpRequests(auth -> auth.anyRequest().permitAll())
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(AbstractHttpConfigurer::disable);
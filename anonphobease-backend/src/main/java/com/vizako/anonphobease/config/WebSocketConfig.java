@@ -1,6 +1,9 @@
 package com.vizako.anonphobease.config;
 
 import com.vizako.anonphobease.websocket.ChatWebSocketHandler;
+import com.vizako.anonphobease.websocket.JwtHandshakeInterceptor;
+import com.vizako.anonphobease.websocket.ModerationHandshakeInterceptor;
+import com.vizako.anonphobease.websocket.ModerationWebSocketHandler;
 import jakarta.annotation.PostConstruct;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.*;
@@ -10,14 +13,27 @@ import org.springframework.web.socket.config.annotation.*;
 public class WebSocketConfig implements WebSocketConfigurer {
 
     private final ChatWebSocketHandler chatWebSocketHandler;
+    private final JwtHandshakeInterceptor jwtHandshakeInterceptor;
+    private final ModerationWebSocketHandler moderationWebSocketHandler;
+    private final ModerationHandshakeInterceptor moderationHandshakeInterceptor;
 
-    public WebSocketConfig(ChatWebSocketHandler chatWebSocketHandler) {
+    public WebSocketConfig(ChatWebSocketHandler chatWebSocketHandler,
+                           JwtHandshakeInterceptor jwtHandshakeInterceptor,
+                           ModerationWebSocketHandler moderationWebSocketHandler,
+                           ModerationHandshakeInterceptor moderationHandshakeInterceptor) {
         this.chatWebSocketHandler = chatWebSocketHandler;
+        this.jwtHandshakeInterceptor = jwtHandshakeInterceptor;
+        this.moderationWebSocketHandler = moderationWebSocketHandler;
+        this.moderationHandshakeInterceptor = moderationHandshakeInterceptor;
     }
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(chatWebSocketHandler, "/ws")
+                .addInterceptors(jwtHandshakeInterceptor)
+                .setAllowedOrigins("*");
+        registry.addHandler(moderationWebSocketHandler, "/ws/moderation")
+                .addInterceptors(moderationHandshakeInterceptor)
                 .setAllowedOrigins("*");
     }
 
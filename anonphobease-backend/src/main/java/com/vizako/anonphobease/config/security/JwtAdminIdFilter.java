@@ -1,5 +1,4 @@
 package com.vizako.anonphobease.config.security;
-import com.vizako.anonphobease.util.JwtUtil;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -12,18 +11,14 @@ import org.springframework.web.filter.OncePerRequestFilter;
 @Component
 @RequiredArgsConstructor
 public class JwtAdminIdFilter extends OncePerRequestFilter {
-    private final JwtUtil jwtUtil;
+    private final TokenVerifier tokenVerifier;
 
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, java.io.IOException {
-        String authHeader = request.getHeader("Authorization");
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            String token = authHeader.replace("Bearer ", "");
-            String adminId = jwtUtil.extractUserId(token);
-            request.setAttribute("adminId", adminId);
-        }
+        tokenVerifier.verify(request)
+                .ifPresent(token -> request.setAttribute("adminId", token.userId()));
         filterChain.doFilter(request, response);
     }
 }
@@ -1,26 +1,35 @@
 package com.vizako.anonphobease.config.security;
 
-import com.vizako.anonphobease.util.JwtUtil;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final JwtUtil jwtUtil;
+    private final TokenVerifier tokenVerifier;
     private final UserDetailsServiceImpl userDetailsService;
 
+    // Stateless: authorities come from the token's role claim, revocation is checked by the
+    // TokenVerifier. Otherwise the user and role are looked up for every request.
+    @Value("${app.auth.stateless:true}")
+    private boolean stateless;
+
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
         String path = request.getRequestURI();
@@ -40,22 +49,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
-        final String authHeader = request.getHeader("Authorization");
-        final String jwt;
-        final String username;
-
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+        var token = tokenVerifier.verify(request);
+        if (token.isEmpty()) {
             filterChain.doFilter(request, response);
             return;
         }
-
-        jwt = authHeader.substring(7);
-        username = jwtUtil.extractUsername(jwt);
+        String username = token.get().username();
 
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            var userDetails = userDetailsService.loadUserByUsername(username);
+            UserDetails userDetails = stateless
+                    ? fromClaims(token.get())
+                    : userDetailsService.loadUserByUsername(username);
 
-            if (jwtUtil.isTokenValid(jwt, userDetails.getUsername())) {
+            if (username.equals(userDetails.getUsername())) {
                 var authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
@@ -68,4 +74,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    private static UserDetails fromClaims(TokenVerifier.VerifiedToken token) {
+        String role = token.role() != null ? token.role() : "USER";
+        return new User(token.username(), "", List.of(new SimpleGrantedAuthority("ROLE_" + role)));
+    }
 }
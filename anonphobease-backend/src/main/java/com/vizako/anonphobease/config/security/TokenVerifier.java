@@ -0,0 +1,140 @@
+package com.vizako.anonphobease.config.security;
+
+import com.vizako.anonphobease.service.TokenRevocationService;
+import com.vizako.anonphobease.util.BoundedCache;
+import com.vizako.anonphobease.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * Verifies bearer tokens for the REST filters and {@code AuthService}. A token's signature is
+ * checked once; the claims that were read from it are then kept until the token expires, keyed
+ * by a SHA-256 digest so the cache never holds the token itself. Within a request the result is
+ * also kept as a request attribute, so every filter after the first gets it without a lookup.
+ * Revoked tokens are rejected on every call, cached or not.
+ */
+@Slf4j
+@Component
+public class TokenVerifier {
+
+    private static final String REQUEST_ATTRIBUTE = TokenVerifier.class.getName() + ".token";
+
+    public record VerifiedToken(String username, String userId, String role, long issuedAt, long expiresAt) {
+    }
+
+    private final JwtUtil jwtUtil;
+    private final TokenRevocationService tokenRevocationService;
+    private final BoundedCache<String, VerifiedToken> tokens;
+    private final LongSupplier clock;
+
+    @Autowired
+    public TokenVerifier(JwtUtil jwtUtil,
+                         TokenRevocationService tokenRevocationService,
+                         MeterRegistry meterRegistry,
+                         @Value("${app.token-cache.max-size:10000}") int maxSize,
+                         @Value("${app.token-cache.ttl-ms:300000}") long ttlMs) {
+        this(jwtUtil, tokenRevocationService, meterRegistry, maxSize, ttlMs, System::currentTimeMillis);
+    }
+
+    public TokenVerifier(JwtUtil jwtUtil, TokenRevocationService tokenRevocationService, MeterRegistry meterRegistry,
+                         int maxSize, long ttlMs, LongSupplier clock) {
+        this.jwtUtil = jwtUtil;
+        this.tokenRevocationService = tokenRevocationService;
+        this.tokens = new BoundedCache<>(maxSize, ttlMs, clock);
+        this.clock = clock;
+
+        FunctionCounter.builder("auth.token.cache.lookups", tokens, BoundedCache::hitCount)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("auth.token.cache.lookups", tokens, BoundedCache::missCount)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("auth.token.cache.size", tokens, BoundedCache::size)
+                .register(meterRegistry);
+    }
+
+    /** The bearer token of the request, verified at most once per request. */
+    @SuppressWarnings("unchecked")
+    public Optional<VerifiedToken> verify(HttpServletRequest request) {
+        Object cached = request.getAttribute(REQUEST_ATTRIBUTE);
+        if (cached instanceof Optional<?> result) {
+            return (Optional<VerifiedToken>) result;
+        }
+
+        String authHeader = request.getHeader("Authorization");
+        Optional<VerifiedToken> result = authHeader != null && authHeader.startsWith("Bearer ")
+                ? verify(authHeader.substring(7))
+                : Optional.empty();
+        request.setAttribute(REQUEST_ATTRIBUTE, result);
+        return result;
+    }
+
+    /** The token's claims, or empty if it is malformed, badly signed, expired, has no expiry or is revoked. */
+    public Optional<VerifiedToken> verify(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        String digest = digest(token);
+        VerifiedToken verified = tokens.getIfPresent(digest);
+        if (verified != null) {
+            return isRevoked(digest, verified) ? Optional.empty() : Optional.of(verified);
+        }
+
+        long stamp = tokens.stamp();
+        try {
+            Claims claims = jwtUtil.extractAllClaims(token);
+            if (claims.getExpiration() == null) {
+                log.debug("Rejected bearer token without an expiry");
+                return Optional.empty();
+            }
+            verified = new VerifiedToken(
+                    claims.getSubject(),
+                    claims.get("userId", String.class),
+                    claims.get("role", String.class),
+                    claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0,
+                    claims.getExpiration().getTime());
+        } catch (Exception e) {
+            log.debug("Rejected bearer token: {}", e.getMessage());
+            return Optional.empty();
+        }
+        if (verified.expiresAt() <= clock.getAsLong()) {
+            return Optional.empty();
+        }
+        tokens.putIfUnchanged(digest, verified, stamp, verified.expiresAt());
+        return isRevoked(digest, verified) ? Optional.empty() : Optional.of(verified);
+    }
+
+    /** Revokes the token if it is currently valid; returns its claims, or empty if it was not. */
+    public Optional<VerifiedToken> revoke(String token) {
+        Optional<VerifiedToken> verified = verify(token);
+        verified.ifPresent(t -> tokenRevocationService.revokeToken(digest(token), t.userId(), t.expiresAt()));
+        return verified;
+    }
+
+    private boolean isRevoked(String digest, VerifiedToken token) {
+        return tokenRevocationService.isRevoked(digest, token.userId(), token.issuedAt());
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package com.vizako.anonphobease.config.security;
 
 import com.vizako.anonphobease.model.User;
-import com.vizako.anonphobease.repository.RoleRepository;
 import com.vizako.anonphobease.repository.UserRepository;
+import com.vizako.anonphobease.service.IdentityCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -17,14 +17,16 @@ import java.util.List;
 public class UserDetailsServiceImpl implements UserDetailsService {
 
     private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
+
+    private final IdentityCache identityCache;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        // Straight from the repository: the identity cache does not hold password hashes.
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
 
-        String roleName = roleRepository.findById(user.getRoleId())
+        String roleName = identityCache.findRole(user.getRoleId())
                 .map(r -> "ROLE_" + r.getName())
                 .orElse("ROLE_USER");
 
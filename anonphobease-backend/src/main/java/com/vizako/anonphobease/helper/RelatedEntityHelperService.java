@@ -2,6 +2,7 @@ package com.vizako.anonphobease.helper;
 
 
 import com.vizako.anonphobease.model.RelatedEntityInfo;
+import com.vizako.anonphobease.model.RelatedEntityType;
 import com.vizako.anonphobease.model.UserLog;
 import com.vizako.anonphobease.service.*;
 import com.vizako.anonphobease.v1.dto.ChatDTO;
@@ -9,8 +10,16 @@ import com.vizako.anonphobease.v1.dto.LanguageDTO;
 import com.vizako.anonphobease.v1.dto.PhobiaDTO;
 import com.vizako.anonphobease.v1.dto.ReportDTO;
 import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @Service
 @RequiredArgsConstructor
 public class RelatedEntityHelperService {
@@ -59,4 +68,51 @@ public class RelatedEntityHelperService {
         }
         return new RelatedEntityInfo(relatedEntityName, relatedEntityExtra);
     }
+
+    /**
+     * Same as {@link #getRelatedEntityInfo} for a whole chunk of logs, in the same order, with one
+     * {@code $in} query per referenced entity type instead of a lookup per log.
+     */
+    public List<RelatedEntityInfo> getRelatedEntityInfos(List<UserLog> userLogs) {
+        Map<RelatedEntityType, Set<ObjectId>> ids = new EnumMap<>(RelatedEntityType.class);
+        for (UserLog userLog : userLogs) {
+            ObjectId id = userLog.getRelatedEntityType() == RelatedEntityType.USER
+                    ? userLog.getUserId()
+                    : userLog.getRelatedEntityId();
+            if (userLog.getRelatedEntityType() != null && id != null) {
+                ids.computeIfAbsent(userLog.getRelatedEntityType(), type -> new HashSet<>()).add(id);
+            }
+        }
+
+        Map<ObjectId, String> userNames = userService.getUserNamesByIds(ids.getOrDefault(RelatedEntityType.USER, Set.of()));
+        Map<ObjectId, ChatDTO> chats = chatService.findAllByIds(ids.getOrDefault(RelatedEntityType.CHAT, Set.of()));
+        Map<ObjectId, String> reasons = reportService.getReasonsByIds(ids.getOrDefault(RelatedEntityType.REPORT, Set.of()));
+        Map<ObjectId, String> phobias = phobiaService.getNamesByIds(ids.getOrDefault(RelatedEntityType.PHOBIA, Set.of()));
+        Map<ObjectId, String> languages = languageService.getNamesByIds(ids.getOrDefault(RelatedEntityType.LANGUAGE, Set.of()));
+
+        List<RelatedEntityInfo> infos = new ArrayList<>(userLogs.size());
+        for (UserLog userLog : userLogs) {
+            RelatedEntityType type = userLog.getRelatedEntityType();
+            ObjectId id = userLog.getRelatedEntityId();
+            if (type == null) {
+                infos.add(new RelatedEntityInfo(null, null));
+                continue;
+            }
+            RelatedEntityInfo info = switch (type) {
+                case USER -> new RelatedEntityInfo(userNames.getOrDefault(userLog.getUserId(), "Unknown User"), null);
+                case CHAT -> {
+                    ChatDTO chat = id != null ? chats.get(id) : null;
+                    yield chat != null
+                            ? new RelatedEntityInfo(chat.getChatName(), chat.getLanguageId())
+                            : new RelatedEntityInfo(null, null);
+                }
+                case REPORT -> new RelatedEntityInfo(id != null ? reasons.get(id) : null, null);
+                case PHOBIA -> new RelatedEntityInfo(id != null ? phobias.get(id) : null, null);
+                case LANGUAGE -> new RelatedEntityInfo(id != null ? languages.get(id) : null, null);
+                default -> new RelatedEntityInfo(null, null);
+            };
+            infos.add(info);
+        }
+        return infos;
+    }
 }
@@ -0,0 +1,78 @@
+package com.vizako.anonphobease.helper;
+
+import com.vizako.anonphobease.service.ChatService;
+import com.vizako.anonphobease.service.MessageService;
+import com.vizako.anonphobease.service.UserService;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves the users, chats and messages referenced by a whole page of reports or bans with one
+ * {@code $in} query per collection, instead of a lookup per reference. Callers register every id
+ * they will need, call {@link Batch#resolve()} once, then fill their DTOs from the result.
+ */
+@Service
+@RequiredArgsConstructor
+public class RelationBatchResolver {
+
+    private final UserService userService;
+    private final ChatService chatService;
+    private final MessageService messageService;
+
+    public Batch batch() {
+        return new Batch();
+    }
+
+    public class Batch {
+        private final Set<ObjectId> userIds = new HashSet<>();
+        private final Set<ObjectId> chatIds = new HashSet<>();
+        private final Set<ObjectId> messageIds = new HashSet<>();
+
+        private Batch() {
+        }
+
+        public Batch user(ObjectId id) {
+            if (id != null) userIds.add(id);
+            return this;
+        }
+
+        public Batch chat(ObjectId id) {
+            if (id != null) chatIds.add(id);
+            return this;
+        }
+
+        public Batch message(ObjectId id) {
+            if (id != null) messageIds.add(id);
+            return this;
+        }
+
+        public Relations resolve() {
+            return new Relations(
+                    userService.getUserNamesByIds(userIds),
+                    chatService.getChatNamesByIds(chatIds),
+                    messageService.getContentsByIds(messageIds));
+        }
+    }
+
+    public record Relations(Map<ObjectId, String> userNames,
+                            Map<ObjectId, String> chatNames,
+                            Map<ObjectId, String> messageContents) {
+
+        public String userName(ObjectId id) {
+            return id != null ? userNames.get(id) : null;
+        }
+
+        public String chatName(ObjectId id) {
+            return id != null ? chatNames.get(id) : null;
+        }
+
+        public String messageContent(ObjectId id) {
+            return id != null ? messageContents.get(id) : null;
+        }
+    }
+}
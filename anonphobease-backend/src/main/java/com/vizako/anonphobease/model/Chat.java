@@ -33,4 +33,7 @@ public class Chat {
 
     @CreatedDate
     private Date createdAt;
+
+    /** Days messages stay in Mongo before being archived; null (or 0) uses the configured default. */
+    private Integer retentionDays;
 }
@@ -8,6 +8,7 @@ import lombok.NoArgsConstructor;
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.Date;
@@ -16,6 +17,7 @@ import java.util.Date;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document("messages")
+@CompoundIndex(name = "chat_id_idx", def = "{'chatId': 1, '_id': 1}")
 public class Message {
     @Id
     private ObjectId id;
@@ -26,10 +28,13 @@ public class Message {
     @NotNull
     private ObjectId chatId;
 
-    @NotNull
+    /** Legacy Base64 ciphertext; null once the message has been moved to {@link #payload}. */
     @Size(max = 2000)
     private String content;
 
     @CreatedDate
     private Date createdAt;
+
+    /** Encrypted body in the versioned binary format of {@code EncryptionService.encryptToBytes}. */
+    private byte[] payload;
 }
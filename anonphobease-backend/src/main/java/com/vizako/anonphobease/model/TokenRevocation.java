@@ -0,0 +1,36 @@
+package com.vizako.anonphobease.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * A revoked token ({@code tokenDigest} set) or every token of a user issued before
+ * {@code revokedAt} ({@code tokenDigest} null). Kept until no token it covers can still be valid.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document("token_revocations")
+public class TokenRevocation {
+    @Id
+    private ObjectId id;
+
+    private String userId;
+
+    private String tokenDigest;
+
+    @Indexed
+    private Date revokedAt;
+
+    @Indexed
+    private Date expiresAt;
+}
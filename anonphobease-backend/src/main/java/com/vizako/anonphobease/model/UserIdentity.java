@@ -0,0 +1,21 @@
+package com.vizako.anonphobease.model;
+
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+
+/**
+ * The parts of a {@link User} needed to authorize and display it. Cached in place of the
+ * document, so the password hash is never kept in memory.
+ */
+public record UserIdentity(ObjectId id, String username, ObjectId roleId, Boolean isActive, Instant createdAt) {
+
+    public static UserIdentity of(User user) {
+        return new UserIdentity(
+                user.getId(),
+                user.getUsername(),
+                user.getRoleId(),
+                user.getIsActive(),
+                user.getCreatedAt() != null ? user.getCreatedAt().toInstant() : null);
+    }
+}
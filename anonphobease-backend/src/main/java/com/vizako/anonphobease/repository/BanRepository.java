@@ -10,5 +10,6 @@ import java.util.*;
 @Repository
 public interface BanRepository extends MongoRepository<Ban, ObjectId> {
     List<Ban> findByUserId(ObjectId userId);
+    boolean existsByUserId(ObjectId userId);
     List<Ban> findByChatId(ObjectId chatId);
 }
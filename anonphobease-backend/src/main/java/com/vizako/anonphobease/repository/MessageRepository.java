@@ -1,6 +1,8 @@
 package com.vizako.anonphobease.repository;
 
 import com.vizako.anonphobease.model.Message;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 import org.bson.types.ObjectId;
@@ -10,5 +12,9 @@ import java.util.*;
 @Repository
 public interface MessageRepository extends MongoRepository<Message, ObjectId> {
     List<Message> findByChatId(ObjectId chatId);
+    List<Message> findByChatId(ObjectId chatId, Sort sort, Limit limit);
+    List<Message> findByChatIdAndIdLessThan(ObjectId chatId, ObjectId before, Sort sort, Limit limit);
+    List<Message> findByChatIdAndIdGreaterThan(ObjectId chatId, ObjectId after, Sort sort, Limit limit);
+    List<Message> findByChatIdAndIdBetween(ObjectId chatId, ObjectId after, ObjectId before, Sort sort, Limit limit);
     List<Message> findByUserId(ObjectId userId);
 }
@@ -0,0 +1,16 @@
+package com.vizako.anonphobease.repository;
+
+import com.vizako.anonphobease.model.TokenRevocation;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface TokenRevocationRepository extends MongoRepository<TokenRevocation, ObjectId> {
+    List<TokenRevocation> findByExpiresAtAfter(Date now);
+    List<TokenRevocation> findByRevokedAtAfter(Date since);
+    long deleteByExpiresAtBefore(Date now);
+}
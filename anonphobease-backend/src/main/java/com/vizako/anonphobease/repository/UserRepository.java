@@ -12,5 +12,6 @@ public interface UserRepository extends MongoRepository<User, ObjectId> {
     Optional<User> findByUsername(String username);
     List<User> findByIsActive(Boolean isActive);
     Optional<User> findByUsernameAndIsActiveTrue(String username);
+    List<User> findByRoleId(ObjectId roleId);
 
 }
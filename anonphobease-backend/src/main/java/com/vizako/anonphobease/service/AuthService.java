@@ -1,5 +1,6 @@
 package com.vizako.anonphobease.service;
 
+import com.vizako.anonphobease.config.security.TokenVerifier;
 import com.vizako.anonphobease.model.LogType;
 import com.vizako.anonphobease.model.RelatedEntityType;
 import com.vizako.anonphobease.util.JwtUtil;
@@ -29,6 +30,7 @@ public class AuthService {
     private final UserLogService userLogService;
     private final AuthenticationManager authenticationManager;
     private final JwtUtil jwtUtil;
+    private final TokenVerifier tokenVerifier;
     private final UserService userService;
     private final RoleService roleService;
     private final PasswordEncoder passwordEncoder;
@@ -141,12 +143,11 @@ public class AuthService {
         if (token == null) {
             return false;
         }
-        String userId;
-        try {
-            userId = jwtUtil.extractUserId(token);
-        } catch (Exception e) {
+        Optional<TokenVerifier.VerifiedToken> revoked = tokenVerifier.revoke(token);
+        if (revoked.isEmpty()) {
             return false;
         }
+        String userId = revoked.get().userId();
         try {
             Optional<UserDTO> userOpt = userService.findById(userId);
             userOpt.ifPresent(user -> {
@@ -0,0 +1,155 @@
+package com.vizako.anonphobease.service;
+
+import com.vizako.anonphobease.model.Ban;
+import com.vizako.anonphobease.repository.BanRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of which users have at least one ban, so that the per-message ban check
+ * never touches Mongo. It is loaded at startup, kept current by {@link BanService} writes and
+ * periodically reconciled against the {@code bans} collection.
+ */
+@Slf4j
+@Service
+public class BanRegistry {
+
+    private final MongoTemplate mongoTemplate;
+    private final BanRepository banRepository;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter fallbacks;
+    private final Counter drift;
+
+    private final Object writeLock = new Object();
+
+    /** Ban count per user; a user is banned while present. */
+    private volatile Map<ObjectId, Integer> bannedUsers = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    private long version;
+
+    public BanRegistry(MongoTemplate mongoTemplate, BanRepository banRepository, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.banRepository = banRepository;
+
+        hits = meterRegistry.counter("bans.registry.lookups", "result", "hit");
+        misses = meterRegistry.counter("bans.registry.lookups", "result", "miss");
+        fallbacks = meterRegistry.counter("bans.registry.fallback");
+        drift = meterRegistry.counter("bans.registry.drift");
+        Gauge.builder("bans.registry.size", this, registry -> registry.bannedUsers.size())
+                .description("Users with at least one ban")
+                .register(meterRegistry);
+    }
+
+    public boolean isBanned(ObjectId userId) {
+        if (userId == null) return false;
+        if (!loaded) {
+            fallbacks.increment();
+            return banRepository.existsByUserId(userId);
+        }
+        boolean banned = bannedUsers.containsKey(userId);
+        (banned ? hits : misses).increment();
+        return banned;
+    }
+
+    public void banAdded(ObjectId userId) {
+        if (userId == null) return;
+        synchronized (writeLock) {
+            version++;
+            bannedUsers.merge(userId, 1, Integer::sum);
+        }
+    }
+
+    public void banRemoved(ObjectId userId) {
+        if (userId == null) return;
+        synchronized (writeLock) {
+            version++;
+            bannedUsers.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    public void banMoved(ObjectId previousUserId, ObjectId userId) {
+        if (Objects.equals(previousUserId, userId)) return;
+        banRemoved(previousUserId);
+        banAdded(userId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reconcile();
+    }
+
+    /**
+     * Replaces the registry with a fresh read of the {@code bans} collection and counts users
+     * whose state differed. If a ban was written while reading, the read may already be stale,
+     * so it is discarded and the next run tries again.
+     */
+    @Scheduled(initialDelayString = "${app.bans.reconcile-interval-ms:300000}",
+            fixedDelayString = "${app.bans.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        long startVersion;
+        synchronized (writeLock) {
+            startVersion = version;
+        }
+
+        Map<ObjectId, Integer> fresh;
+        try {
+            fresh = readBannedUsers();
+        } catch (RuntimeException e) {
+            log.warn("Could not load bans into registry: {}", e.getMessage());
+            return;
+        }
+
+        synchronized (writeLock) {
+            if (version != startVersion) {
+                log.debug("Bans changed during reconciliation; retrying on next run");
+                return;
+            }
+            if (loaded) {
+                long differing = countDifferences(bannedUsers, fresh);
+                if (differing > 0) {
+                    drift.increment(differing);
+                    log.warn("Ban registry was out of sync with Mongo for {} users", differing);
+                }
+            }
+            bannedUsers = fresh;
+            loaded = true;
+        }
+    }
+
+    public int size() {
+        return bannedUsers.size();
+    }
+
+    private Map<ObjectId, Integer> readBannedUsers() {
+        Query query = new Query();
+        query.fields().include("userId");
+        Map<ObjectId, Integer> users = new ConcurrentHashMap<>();
+        for (Ban ban : mongoTemplate.find(query, Ban.class)) {
+            if (ban.getUserId() != null) {
+                users.merge(ban.getUserId(), 1, Integer::sum);
+            }
+        }
+        return users;
+    }
+
+    private static long countDifferences(Map<ObjectId, Integer> current, Map<ObjectId, Integer> fresh) {
+        long missing = fresh.keySet().stream().filter(id -> !current.containsKey(id)).count();
+        long stale = current.keySet().stream().filter(id -> !fresh.containsKey(id)).count();
+        return missing + stale;
+    }
+}
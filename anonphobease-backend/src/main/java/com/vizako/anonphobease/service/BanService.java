@@ -1,9 +1,11 @@
 package com.vizako.anonphobease.service;
 
+import com.vizako.anonphobease.helper.RelationBatchResolver;
 import com.vizako.anonphobease.model.Ban;
 import com.vizako.anonphobease.v1.dto.BanDTO;
 import com.vizako.anonphobease.v1.mapper.BanMapper;
 import com.vizako.anonphobease.repository.BanRepository;
+import com.vizako.anonphobease.websocket.ModerationFeed;
 import lombok.RequiredArgsConstructor;
 import org.bson.types.ObjectId;
 import org.springframework.stereotype.Service;
@@ -18,20 +20,41 @@ public class BanService {
 
     private final BanRepository banRepository;
 
-    private final UserService userService;
+    private final BanRegistry banRegistry;
 
-    private final MessageService messageService;
+    private final RelationBatchResolver relationBatchResolver;
 
-    private final ChatService chatService;
+    private final ModerationFeed moderationFeed;
+
+    private final TokenRevocationService tokenRevocationService;
 
     public List<BanDTO> findAll() {
-        return banRepository.findAll().stream()
-                .map(this::toFullDTO)
-                .collect(Collectors.toList());
+        return toFullDTOs(banRepository.findAll());
+    }
+
+    /** Bans with user, moderator, chat and message names, with one query per referenced collection. */
+    public List<BanDTO> toFullDTOs(List<Ban> bans) {
+        RelationBatchResolver.Batch batch = relationBatchResolver.batch();
+        for (Ban ban : bans) {
+            batch.user(ban.getUserId())
+                    .user(ban.getModeratorId())
+                    .chat(ban.getChatId())
+                    .message(ban.getMessageId());
+        }
+        RelationBatchResolver.Relations relations = batch.resolve();
+
+        return bans.stream().map(ban -> {
+            BanDTO dto = BanMapper.toDTO(ban);
+            dto.setUsername(relations.userName(ban.getUserId()));
+            dto.setModeratorName(relations.userName(ban.getModeratorId()));
+            dto.setChatName(relations.chatName(ban.getChatId()));
+            dto.setMessageContent(relations.messageContent(ban.getMessageId()));
+            return dto;
+        }).collect(Collectors.toList());
     }
 
     public boolean isUserGloballyBanned(ObjectId userId) {
-        return !banRepository.findByUserId(userId).isEmpty();
+        return banRegistry.isBanned(userId);
     }
 
     public Optional<BanDTO> findById(String id) {
@@ -43,55 +66,30 @@ public class BanService {
     public BanDTO save(BanDTO dto) {
         Ban entity = BanMapper.toEntity(dto);
         Ban saved = banRepository.save(entity);
+        banRegistry.banAdded(saved.getUserId());
+        tokenRevocationService.revokeUser(saved.getUserId());
+        moderationFeed.publish(ModerationFeed.BAN_ISSUED, toFullDTOs(List.of(saved)).get(0));
         return BanMapper.toDTO(saved);
     }
 
     public Optional<BanDTO> update(String id, BanDTO dto) {
         if (dto == null) return Optional.empty();
         return banRepository.findById(new ObjectId(id)).map(existingBan -> {
+            ObjectId previousUserId = existingBan.getUserId();
             BanMapper.updateEntityFromDto(dto, existingBan);
             Ban saved = banRepository.save(existingBan);
+            banRegistry.banMoved(previousUserId, saved.getUserId());
             return BanMapper.toDTO(saved);
         });
     }
 
     public void deleteById(String id) {
         if (id != null && ObjectId.isValid(id)) {
-            banRepository.deleteById(new ObjectId(id));
-        }
-    }
-
-    public BanDTO toFullDTO(Ban ban) {
-        if (ban == null) return null;
-
-        BanDTO dto = BanMapper.toDTO(ban);
-
-        // resolve user name
-        if (ban.getUserId() != null) {
-            dto.setUserId(ban.getUserId().toString());
-            userService.findById(ban.getUserId().toString()).ifPresent(u -> dto.setUsername(u.getUsername()));
-        }
-
-        // resolve moderator name
-        if (ban.getModeratorId() != null) {
-            dto.setModeratorId(ban.getModeratorId().toString());
-            userService.findById(ban.getModeratorId().toString())
-                    .ifPresent(u -> dto.setModeratorName(u.getUsername()));
-        }
-
-        if (ban.getMessageId() != null) {
-            dto.setMessageId(ban.getMessageId().toString());
-            messageService.findById(ban.getMessageId().toString())
-                    .ifPresent(m -> dto.setMessageContent(m.getContent()));
-        }
-
-        if (ban.getChatId() != null) {
-            dto.setChatId(ban.getChatId().toHexString());
-            String chatName = chatService.findById(ban.getChatId()).map(c -> c.getChatName()).orElse(null);
-            dto.setChatName(chatName);
+            ObjectId banId = new ObjectId(id);
+            Optional<ObjectId> userId = banRepository.findById(banId).map(Ban::getUserId);
+            banRepository.deleteById(banId);
+            userId.ifPresent(banRegistry::banRemoved);
         }
-
-        return dto;
     }
 
 }
\ No newline at end of file
@@ -1,40 +1,116 @@
 package com.vizako.anonphobease.service;
 
+import com.vizako.anonphobease.util.BoundedCache;
+import com.vizako.anonphobease.util.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.http.ResponseEntity;
 
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
 
+/**
+ * Captcha check for logins. Each token is accepted at most once: it is remembered (by digest)
+ * for {@code captcha.replay-ttl-ms} from its first use, and a repeat is rejected without asking
+ * the provider. Provider failures trip a circuit breaker; while the provider is unavailable,
+ * {@code captcha.fail-open} decides whether logins are let through or refused.
+ */
+@Slf4j
 @Service
 public class CaptchaService {
 
-    @Value("${captcha.secret-key}")
-    private String secretKey;
+    private final CaptchaVerifier captchaVerifier;
+    private final CircuitBreaker circuitBreaker;
+    private final BoundedCache<String, Boolean> usedTokens;
+    private final boolean failOpen;
 
-    private static final String VERIFY_URL = "https://www.google.com/recaptcha/api/siteverify";
+    private final Counter accepted;
+    private final Counter rejected;
+    private final Counter replayed;
+    private final Counter unavailable;
 
-    public boolean verifyToken(String token) {
+    @Autowired
+    public CaptchaService(CaptchaVerifier captchaVerifier,
+                          MeterRegistry meterRegistry,
+                          @Value("${captcha.fail-open:false}") boolean failOpen,
+                          @Value("${captcha.breaker.failure-threshold:5}") int failureThreshold,
+                          @Value("${captcha.breaker.open-ms:30000}") long openMs,
+                          @Value("${captcha.replay-ttl-ms:120000}") long replayTtlMs,
+                          @Value("${captcha.replay-max-size:100000}") int replayMaxSize) {
+        this(captchaVerifier, meterRegistry, failOpen, failureThreshold, openMs, replayTtlMs, replayMaxSize,
+                System::currentTimeMillis);
+    }
+
+    public CaptchaService(CaptchaVerifier captchaVerifier, MeterRegistry meterRegistry, boolean failOpen,
+                          int failureThreshold, long openMs, long replayTtlMs, int replayMaxSize, LongSupplier clock) {
+        this.captchaVerifier = captchaVerifier;
+        this.failOpen = failOpen;
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openMs, clock);
+        this.usedTokens = new BoundedCache<>(replayMaxSize, replayTtlMs, clock);
+
+        accepted = meterRegistry.counter("captcha.verifications", "result", "accepted");
+        rejected = meterRegistry.counter("captcha.verifications", "result", "rejected");
+        replayed = meterRegistry.counter("captcha.verifications", "result", "replayed");
+        unavailable = meterRegistry.counter("captcha.verifications", "result", "unavailable");
+        Gauge.builder("captcha.breaker.open", circuitBreaker,
+                        breaker -> breaker.state() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .register(meterRegistry);
+    }
+
+    /** Completes with whether the login may proceed; never completes exceptionally. */
+    public CompletableFuture<Boolean> verifyToken(String token) {
         if (token == null || token.isBlank()) {
-            return false;
+            return CompletableFuture.completedFuture(false);
+        }
+        if (!usedTokens.putIfAbsent(digest(token), Boolean.TRUE)) {
+            replayed.increment();
+            return CompletableFuture.completedFuture(false);
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            return CompletableFuture.completedFuture(whenUnavailable());
         }
 
-        RestTemplate restTemplate = new RestTemplate();
+        CompletableFuture<Boolean> verdict;
+        try {
+            verdict = captchaVerifier.verify(token);
+        } catch (RuntimeException e) {
+            verdict = CompletableFuture.failedFuture(e);
+        }
+        return verdict.handle((success, error) -> {
+            if (error != null) {
+                circuitBreaker.onFailure();
+                log.warn("Captcha verification failed: {}", error.getMessage());
+                return whenUnavailable();
+            }
+            circuitBreaker.onSuccess();
+            (Boolean.TRUE.equals(success) ? accepted : rejected).increment();
+            return Boolean.TRUE.equals(success);
+        });
+    }
 
-        String url = VERIFY_URL + "?secret=" + secretKey + "&response=" + token;
+    public CircuitBreaker.State breakerState() {
+        return circuitBreaker.state();
+    }
 
-        try {
-            ResponseEntity<Map> response = restTemplate.postForEntity(url, null, Map.class);
+    private boolean whenUnavailable() {
+        unavailable.increment();
+        return failOpen;
+    }
 
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                Boolean success = (Boolean) response.getBody().get("success");
-                return success != null && success;
-            }
-        } catch (Exception e) {
-            System.err.println("Error verifying captcha: " + e.getMessage());
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
-
-        return false;
     }
 }
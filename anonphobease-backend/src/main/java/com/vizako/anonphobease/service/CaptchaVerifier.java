@@ -0,0 +1,13 @@
+package com.vizako.anonphobease.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asks a captcha provider whether a response token is valid. The future completes with the
+ * provider's verdict, or exceptionally when no verdict could be obtained (timeout, connection
+ * error, unexpected response), which {@link CaptchaService} counts against the provider.
+ */
+public interface CaptchaVerifier {
+
+    CompletableFuture<Boolean> verify(String token);
+}
@@ -0,0 +1,244 @@
+package com.vizako.anonphobease.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vizako.anonphobease.model.Chat;
+import com.vizako.anonphobease.model.Language;
+import com.vizako.anonphobease.model.Phobia;
+import com.vizako.anonphobease.model.Role;
+import com.vizako.anonphobease.repository.ChatRepository;
+import com.vizako.anonphobease.repository.LanguageRepository;
+import com.vizako.anonphobease.repository.PhobiaRepository;
+import com.vizako.anonphobease.repository.RoleRepository;
+import com.vizako.anonphobease.v1.dto.ChatDTO;
+import com.vizako.anonphobease.v1.dto.ChatsResponseDTO;
+import com.vizako.anonphobease.v1.dto.LanguageDTO;
+import com.vizako.anonphobease.v1.dto.PhobiaDTO;
+import com.vizako.anonphobease.v1.dto.RoleDTO;
+import com.vizako.anonphobease.v1.mapper.LanguageMapper;
+import com.vizako.anonphobease.v1.mapper.PhobiaMapper;
+import com.vizako.anonphobease.v1.mapper.RoleMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable in-memory snapshot of the reference data: chats with their resolved language code,
+ * phobia name and display name, plus languages, phobias and roles. The message path resolves
+ * chats from it without touching Mongo, and the chat catalog every user loads on entry is kept
+ * pre-serialized with an ETag. The snapshot is rebuilt and swapped in one step whenever any of
+ * these collections is written, and periodically to pick up writes made by other nodes.
+ */
+@Slf4j
+@Service
+public class ChatDirectory {
+
+    public static final String UNKNOWN_LANGUAGE_CODE = "UNK";
+    public static final String UNKNOWN_PHOBIA = "Unknown Phobia";
+
+    public record ChatEntry(String chatId, String languageId, String languageCode,
+                            String phobiaId, String phobiaName, String displayName) {
+    }
+
+    /**
+     * The {@code GET /v1/chats} response. {@code body} is its JSON and {@code etag} a strong
+     * validator derived from it, so every node serving the same data hands out the same ETag.
+     * {@code version} only moves when the content changes.
+     */
+    public record Catalog(long version, String etag, byte[] body, ChatsResponseDTO response) {
+    }
+
+    private record Snapshot(Map<String, ChatEntry> chats, List<Role> roles, Catalog catalog) {
+    }
+
+    private final ChatRepository chatRepository;
+    private final LanguageRepository languageRepository;
+    private final PhobiaRepository phobiaRepository;
+    private final RoleRepository roleRepository;
+    private final ObjectMapper objectMapper;
+    private final long missRefreshIntervalMs;
+
+    private volatile Snapshot snapshot;
+    private volatile long lastRefreshMillis;
+
+    public ChatDirectory(ChatRepository chatRepository,
+                         LanguageRepository languageRepository,
+                         PhobiaRepository phobiaRepository,
+                         RoleRepository roleRepository,
+                         ObjectMapper objectMapper,
+                         @Value("${app.chats.directory.miss-refresh-interval-ms:5000}") long missRefreshIntervalMs) {
+        this.chatRepository = chatRepository;
+        this.languageRepository = languageRepository;
+        this.phobiaRepository = phobiaRepository;
+        this.roleRepository = roleRepository;
+        this.objectMapper = objectMapper;
+        this.missRefreshIntervalMs = missRefreshIntervalMs;
+    }
+
+    public static String displayName(String languageCode, String phobiaName) {
+        return "(" + languageCode.toUpperCase() + ") " + phobiaName;
+    }
+
+    /**
+     * Looks a chat up in the current snapshot. An unknown id triggers a rebuild at most once per
+     * miss-refresh interval, so chats created on another node show up without a database read
+     * per message for ids that really do not exist.
+     */
+    public Optional<ChatEntry> find(String chatId) {
+        if (chatId == null) return Optional.empty();
+        Snapshot current = current();
+        ChatEntry entry = current.chats().get(chatId);
+        if (entry == null && System.currentTimeMillis() - lastRefreshMillis >= missRefreshIntervalMs) {
+            entry = refreshIfOlderThan(missRefreshIntervalMs).chats().get(chatId);
+        }
+        return Optional.ofNullable(entry);
+    }
+
+    public int size() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.chats().size();
+    }
+
+    public Catalog catalog() {
+        return current().catalog();
+    }
+
+    public List<RoleDTO> roles() {
+        return current().roles().stream().map(RoleMapper::toDTO).toList();
+    }
+
+    public Optional<RoleDTO> findRoleById(String id) {
+        return current().roles().stream()
+                .filter(role -> role.getId().toHexString().equals(id))
+                .findFirst()
+                .map(RoleMapper::toDTO);
+    }
+
+    public Optional<RoleDTO> findRoleByName(String name) {
+        return current().roles().stream()
+                .filter(role -> role.getName().equals(name))
+                .findFirst()
+                .map(RoleMapper::toDTO);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Could not load chat directory: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.chats.directory.refresh-interval-ms:60000}",
+            fixedDelayString = "${app.chats.directory.refresh-interval-ms:60000}")
+    public void scheduledRefresh() {
+        load();
+    }
+
+    /**
+     * Rebuilds the snapshot from Mongo. Rebuilds are serialized so a slower, older read can never
+     * replace a newer one.
+     */
+    public synchronized void refresh() {
+        rebuild();
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        return current != null ? current : refreshIfOlderThan(0);
+    }
+
+    private synchronized Snapshot refreshIfOlderThan(long maxAgeMs) {
+        Snapshot current = snapshot;
+        if (current != null && System.currentTimeMillis() - lastRefreshMillis < maxAgeMs) {
+            return current;
+        }
+        return rebuild();
+    }
+
+    private Snapshot rebuild() {
+        lastRefreshMillis = System.currentTimeMillis();
+
+        Map<ObjectId, Language> languages = new HashMap<>();
+        List<LanguageDTO> languageDTOs = new ArrayList<>();
+        for (Language language : languageRepository.findAll()) {
+            languages.put(language.getId(), language);
+            languageDTOs.add(LanguageMapper.toDTO(language));
+        }
+        Map<ObjectId, Phobia> phobias = new HashMap<>();
+        List<PhobiaDTO> phobiaDTOs = new ArrayList<>();
+        for (Phobia phobia : phobiaRepository.findAll()) {
+            phobias.put(phobia.getId(), phobia);
+            phobiaDTOs.add(PhobiaMapper.toDTO(phobia));
+        }
+
+        Map<String, ChatEntry> chats = new HashMap<>();
+        List<ChatDTO> chatDTOs = new ArrayList<>();
+        for (Chat chat : chatRepository.findAll()) {
+            Language language = languages.get(chat.getLanguageId());
+            Phobia phobia = phobias.get(chat.getPhobiaId());
+            String languageCode = language != null ? language.getCode() : UNKNOWN_LANGUAGE_CODE;
+            String phobiaName = phobia != null ? phobia.getName() : UNKNOWN_PHOBIA;
+            String chatId = chat.getId().toHexString();
+            String languageId = chat.getLanguageId() != null ? chat.getLanguageId().toHexString() : null;
+            String phobiaId = chat.getPhobiaId() != null ? chat.getPhobiaId().toHexString() : null;
+
+            chats.put(chatId, new ChatEntry(chatId, languageId, languageCode, phobiaId, phobiaName,
+                    displayName(languageCode, phobiaName)));
+            chatDTOs.add(new ChatDTO(
+                    chatId,
+                    languageId,
+                    language != null ? language.getName() : null,
+                    language != null ? language.getCode() : null,
+                    phobiaId,
+                    phobia != null ? phobia.getName() : null,
+                    chat.getName(),
+                    chat.getRetentionDays()));
+        }
+
+        List<Role> roles = List.copyOf(roleRepository.findAll());
+
+        Snapshot previous = snapshot;
+        Catalog catalog = buildCatalog(new ChatsResponseDTO(chatDTOs, phobiaDTOs, languageDTOs),
+                previous != null ? previous.catalog() : null);
+        Snapshot rebuilt = new Snapshot(Map.copyOf(chats), roles, catalog);
+        snapshot = rebuilt;
+        return rebuilt;
+    }
+
+    private Catalog buildCatalog(ChatsResponseDTO response, Catalog previous) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize chat catalog", e);
+        }
+        String etag = "\"" + HexFormat.of().formatHex(sha256(body), 0, 16) + "\"";
+        if (previous != null && previous.etag().equals(etag)) {
+            return previous;
+        }
+        return new Catalog(previous != null ? previous.version() + 1 : 1, etag, body, response);
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -5,7 +5,6 @@ import com.vizako.anonphobease.model.LogType;
 import com.vizako.anonphobease.model.RelatedEntityType;
 import com.vizako.anonphobease.repository.ChatRepository;
 import com.vizako.anonphobease.v1.dto.ChatDTO;
-import com.vizako.anonphobease.v1.dto.ChatsResponseDTO;
 import com.vizako.anonphobease.v1.dto.LanguageDTO;
 import com.vizako.anonphobease.v1.dto.PhobiaDTO;
 import com.vizako.anonphobease.v1.mapper.ChatMapper;
@@ -15,6 +14,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -32,6 +33,8 @@ public class ChatService {
 
     private final PhobiaService phobiaService;
 
+    private final ChatDirectory chatDirectory;
+
     private UserLogService userLogService;
 
     @Autowired
@@ -72,38 +75,15 @@ public class ChatService {
                 .toList();
     }
 
-    public ChatsResponseDTO getAllChatsWithFilters() {
-        List<Chat> chats = chatRepository.findAll();
-        List<LanguageDTO> languageDTOs = languageService.findAll();
-        List<PhobiaDTO> phobiaDTOs = phobiaService.findAll();
-
-        List<ChatDTO> chatDTOs = chats.stream().map(chat -> {
-            LanguageDTO langDTO = languageDTOs.stream()
-                    .filter(l -> l.getId().equals(chat.getLanguageId().toHexString()))
-                    .findFirst().orElse(null);
-            PhobiaDTO phobiaDTO = phobiaDTOs.stream()
-                    .filter(p -> p.getId().equals(chat.getPhobiaId().toHexString()))
-                    .findFirst().orElse(null);
-
-            return new ChatDTO(
-                    chat.getId().toHexString(),
-                    chat.getLanguageId().toHexString(),
-                    langDTO != null ? langDTO.getName() : null,
-                    langDTO!= null ? langDTO.getCode() : null,
-                    chat.getPhobiaId().toHexString(),
-                    phobiaDTO != null ? phobiaDTO.getName() : null,
-                    chat.getName()
-            );
-        }).toList();
-
-        return new ChatsResponseDTO(chatDTOs, phobiaDTOs, languageDTOs);
+    /** The chat catalog served to every user on entry, from the reference-data snapshot. */
+    public ChatDirectory.Catalog getCatalog() {
+        return chatDirectory.catalog();
     }
 
     public String getLanguageCodeByChatId(String chatId) {
-        return findById(new ObjectId(chatId))
-                .flatMap(chatDto -> languageService.findById(chatDto.getLanguageId()))
-                .map(LanguageDTO::getCode)
-                .orElse("UNK");
+        return chatDirectory.find(chatId)
+                .map(ChatDirectory.ChatEntry::languageCode)
+                .orElse(ChatDirectory.UNKNOWN_LANGUAGE_CODE);
     }
 
 
@@ -113,10 +93,31 @@ public class ChatService {
                 .map(ChatMapper::toDTO);
     }
 
+    /** Chats for a batch of ids in one query; unknown ids are left out. */
+    public Map<ObjectId, ChatDTO> findAllByIds(Collection<ObjectId> ids) {
+        Map<ObjectId, ChatDTO> chats = new HashMap<>();
+        if (ids.isEmpty()) return chats;
+        for (Chat chat : chatRepository.findAllById(ids)) {
+            chats.put(chat.getId(), ChatMapper.toDTO(chat));
+        }
+        return chats;
+    }
+
+    /** Stored names for a batch of chat ids in one query; unknown ids are left out. */
+    public Map<ObjectId, String> getChatNamesByIds(Collection<ObjectId> ids) {
+        Map<ObjectId, String> names = new HashMap<>();
+        if (ids.isEmpty()) return names;
+        for (Chat chat : chatRepository.findAllById(ids)) {
+            names.put(chat.getId(), chat.getName());
+        }
+        return names;
+    }
+
     public ChatDTO save(ChatDTO dto, String createdByUserId) {
         Chat entity = ChatMapper.toEntity(dto);
         entity.setName(buildChatName(dto.getLanguageId(), dto.getPhobiaId()));
         Chat saved = chatRepository.save(entity);
+        chatDirectory.refresh();
         userLogService.save(createdByUserId, LogType.CHAT_SAVE, saved.getId().toHexString(), RelatedEntityType.CHAT);
         return ChatMapper.toDTO(saved);
     }
@@ -127,14 +128,15 @@ public class ChatService {
             ChatMapper.updateEntityFromDto(dto, existingChat);
             existingChat.setName(buildChatName(dto.getLanguageId(), dto.getPhobiaId()));
             Chat saved = chatRepository.save(existingChat);
+            chatDirectory.refresh();
             userLogService.save(createdByUserId, LogType.CHAT_UPDATE, saved.getId().toHexString(), RelatedEntityType.CHAT);
             return ChatMapper.toDTO(saved);
         });
     }
 
     public String getChatNameById(String chatId) {
-        return findById(new ObjectId(chatId))
-                .map(chatDto -> buildChatName(chatDto.getLanguageId(), chatDto.getPhobiaId()))
+        return chatDirectory.find(chatId)
+                .map(ChatDirectory.ChatEntry::displayName)
                 .orElse("Unknown Chat");
     }
 
@@ -143,13 +145,13 @@ public class ChatService {
         String languageCode = languageService.findById(languageId)
                 .map(LanguageDTO::getCode)
                 .map(String::toUpperCase)         // Делаем большие буквы
-                .orElse("UNK");
+                .orElse(ChatDirectory.UNKNOWN_LANGUAGE_CODE);
 
         String phobiaName = phobiaService.findById(phobiaId)
                 .map(PhobiaDTO::getName)
-                .orElse("Unknown Phobia");
+                .orElse(ChatDirectory.UNKNOWN_PHOBIA);
 
-        return "(" + languageCode + ") " + phobiaName;
+        return ChatDirectory.displayName(languageCode, phobiaName);
     }
 
 
@@ -157,5 +159,6 @@ public class ChatService {
     public void deleteById(String id, String createdByUserId) {
         userLogService.save(createdByUserId, LogType.CHAT_DELETE, id, RelatedEntityType.CHAT);
         chatRepository.deleteById(new ObjectId(id));
+        chatDirectory.refresh();
     }
 }
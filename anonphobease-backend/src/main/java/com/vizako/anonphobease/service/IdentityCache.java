@@ -0,0 +1,170 @@
+package com.vizako.anonphobease.service;
+
+import com.vizako.anonphobease.model.Role;
+import com.vizako.anonphobease.model.User;
+import com.vizako.anonphobease.model.UserIdentity;
+import com.vizako.anonphobease.repository.RoleRepository;
+import com.vizako.anonphobease.repository.UserRepository;
+import com.vizako.anonphobease.util.BoundedCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Cache of users by id, user ids by username, and roles by id, shared by authentication and the
+ * enrichment of reports, bans, logs and chat history. {@link UserService} and {@link RoleService}
+ * invalidate entries after every write on this node; the TTL bounds how long a write made on
+ * another node can go unseen.
+ * <p>
+ * Users are kept as immutable {@link UserIdentity} records, without the password hash; the login
+ * path reads the password from the repository itself.
+ */
+@Service
+public class IdentityCache {
+
+    private final UserRepository userRepository;
+    private final RoleRepository roleRepository;
+
+    private final BoundedCache<ObjectId, UserIdentity> users;
+    private final BoundedCache<String, ObjectId> userIds;
+    private final BoundedCache<ObjectId, Role> roles;
+
+    public IdentityCache(UserRepository userRepository,
+                         RoleRepository roleRepository,
+                         MeterRegistry meterRegistry,
+                         @Value("${app.identity-cache.max-size:10000}") int maxSize,
+                         @Value("${app.identity-cache.ttl-ms:60000}") long ttlMs) {
+        this.userRepository = userRepository;
+        this.roleRepository = roleRepository;
+        this.users = new BoundedCache<>(maxSize, ttlMs);
+        this.userIds = new BoundedCache<>(maxSize, ttlMs);
+        this.roles = new BoundedCache<>(256, ttlMs);
+
+        register(meterRegistry, "user", users);
+        register(meterRegistry, "username", userIds);
+        register(meterRegistry, "role", roles);
+    }
+
+    public Optional<UserIdentity> findUser(ObjectId id) {
+        if (id == null) return Optional.empty();
+        return Optional.ofNullable(users.get(id, key -> userRepository.findById(key).map(UserIdentity::of).orElse(null)));
+    }
+
+    public Optional<UserIdentity> findUserByUsername(String username) {
+        if (username == null) return Optional.empty();
+        ObjectId id = userIds.getIfPresent(username);
+        if (id != null) {
+            Optional<UserIdentity> user = findUser(id);
+            // A rename or delete leaves the old name pointing at the wrong user until it expires.
+            if (user.isPresent() && username.equals(user.get().username())) {
+                return user;
+            }
+            userIds.invalidate(username);
+        }
+
+        long userIdsStamp = userIds.stamp();
+        long usersStamp = users.stamp();
+        Optional<UserIdentity> loaded = userRepository.findByUsername(username).map(UserIdentity::of);
+        loaded.ifPresent(user -> {
+            userIds.putIfUnchanged(username, user.id(), userIdsStamp);
+            users.putIfUnchanged(user.id(), user, usersStamp);
+        });
+        return loaded;
+    }
+
+    /** Users for a batch of ids, with one query for the ids that are not cached. */
+    public Map<ObjectId, UserIdentity> findUsers(Collection<ObjectId> ids) {
+        Map<ObjectId, UserIdentity> found = new HashMap<>();
+        List<ObjectId> missing = new ArrayList<>();
+        for (ObjectId id : ids) {
+            UserIdentity user = users.getIfPresent(id);
+            if (user != null) {
+                found.put(id, user);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) return found;
+
+        long stamp = users.stamp();
+        for (User user : userRepository.findAllById(missing)) {
+            UserIdentity identity = UserIdentity.of(user);
+            users.putIfUnchanged(user.getId(), identity, stamp);
+            found.put(user.getId(), identity);
+        }
+        return found;
+    }
+
+    /** Usernames for a batch of ids, with one query for the ids that are not cached. */
+    public Map<ObjectId, String> findUserNames(Collection<ObjectId> ids) {
+        Map<ObjectId, String> names = new HashMap<>();
+        findUsers(ids).forEach((id, user) -> names.put(id, user.username()));
+        return names;
+    }
+
+    public Optional<Role> findRole(ObjectId id) {
+        if (id == null) return Optional.empty();
+        Role role = roles.get(id, key -> roleRepository.findById(key).orElse(null));
+        return Optional.ofNullable(role).map(IdentityCache::copy);
+    }
+
+    /** Roles for a batch of ids, with one query for the ids that are not cached. */
+    public Map<ObjectId, Role> findRoles(Collection<ObjectId> ids) {
+        Map<ObjectId, Role> found = new HashMap<>();
+        List<ObjectId> missing = new ArrayList<>();
+        for (ObjectId id : ids) {
+            Role role = roles.getIfPresent(id);
+            if (role != null) {
+                found.put(id, copy(role));
+            } else if (!missing.contains(id)) {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) return found;
+
+        long stamp = roles.stamp();
+        for (Role role : roleRepository.findAllById(missing)) {
+            roles.putIfUnchanged(role.getId(), role, stamp);
+            found.put(role.getId(), copy(role));
+        }
+        return found;
+    }
+
+    /** Call after the user was written or deleted; the old username is caught on its next lookup. */
+    public void invalidateUser(ObjectId id) {
+        if (id != null) users.invalidate(id);
+    }
+
+    public void invalidateRole(ObjectId id) {
+        if (id != null) roles.invalidate(id);
+    }
+
+    private static Role copy(Role role) {
+        return new Role(role.getId(), role.getName());
+    }
+
+    private static void register(MeterRegistry meterRegistry, String name, BoundedCache<?, ?> cache) {
+        FunctionCounter.builder("identity.cache.lookups", cache, BoundedCache::hitCount)
+                .tags("cache", name, "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("identity.cache.lookups", cache, BoundedCache::missCount)
+                .tags("cache", name, "result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("identity.cache.hit.ratio", cache, BoundedCache::hitRatio)
+                .tag("cache", name)
+                .register(meterRegistry);
+        Gauge.builder("identity.cache.size", cache, BoundedCache::size)
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+}
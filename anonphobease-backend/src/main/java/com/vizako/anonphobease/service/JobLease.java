@@ -0,0 +1,85 @@
+package com.vizako.anonphobease.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Named leases in the {@code job_leases} collection, so a scheduled job runs on one node at a
+ * time. A lease is taken when it is free or expired and renewed by its holder on every call; it
+ * is never released, so the holder keeps it for as long as it keeps renewing. The holder is named
+ * by {@code app.node-id} (the hostname when unset), so a restarted node renews its own lease
+ * instead of waiting for it to expire.
+ */
+@Slf4j
+@Component
+public class JobLease {
+
+    static final String COLLECTION = "job_leases";
+    static final String OWNER = "owner";
+    static final String EXPIRES_AT = "expiresAt";
+
+    private final MongoTemplate mongoTemplate;
+    private final String owner;
+    private final Supplier<Instant> clock;
+
+    @Autowired
+    public JobLease(MongoTemplate mongoTemplate, @Value("${app.node-id:}") String nodeId) {
+        this(mongoTemplate, nodeId.isBlank() ? hostname() : nodeId, Instant::now);
+    }
+
+    JobLease(MongoTemplate mongoTemplate, String owner, Supplier<Instant> clock) {
+        this.mongoTemplate = mongoTemplate;
+        this.owner = owner;
+        this.clock = clock;
+    }
+
+    /** Takes or renews the lease for {@code ttl}; false when another node holds it. */
+    public boolean tryAcquire(String name, Duration ttl) {
+        Instant now = clock.get();
+        Query free = new Query(Criteria.where("_id").is(name).orOperator(
+                Criteria.where(OWNER).is(owner),
+                Criteria.where(EXPIRES_AT).lt(Date.from(now))));
+        Update take = new Update()
+                .set(OWNER, owner)
+                .set(EXPIRES_AT, Date.from(now.plus(ttl)));
+        try {
+            // A held lease does not match, so the upsert collides with it on _id.
+            return mongoTemplate.findAndModify(free, take, FindAndModifyOptions.options().upsert(true).returnNew(true),
+                    Document.class, COLLECTION) != null;
+        } catch (DuplicateKeyException e) {
+            log.debug("Lease {} is held by another node", name);
+            return false;
+        }
+    }
+
+    public String owner() {
+        return owner;
+    }
+
+    private static String hostname() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            String fallback = UUID.randomUUID().toString();
+            log.warn("Could not resolve the hostname; holding job leases as {} until restart, set app.node-id", fallback);
+            return fallback;
+        }
+    }
+}
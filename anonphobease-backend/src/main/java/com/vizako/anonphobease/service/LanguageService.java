@@ -12,7 +12,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -20,6 +23,7 @@ import java.util.Optional;
 public class LanguageService {
 
     private final LanguageRepository languageRepository;
+    private final ChatDirectory chatDirectory;
     private UserLogService userLogService;
 
     @Autowired
@@ -39,9 +43,20 @@ public class LanguageService {
             .map(LanguageMapper::toDTO);
     }
 
+    /** Stored names for a batch of language ids in one query; unknown ids are left out. */
+    public Map<ObjectId, String> getNamesByIds(Collection<ObjectId> ids) {
+        Map<ObjectId, String> names = new HashMap<>();
+        if (ids.isEmpty()) return names;
+        for (Language language : languageRepository.findAllById(ids)) {
+            names.put(language.getId(), language.getName());
+        }
+        return names;
+    }
+
     public LanguageDTO save(LanguageDTO dto, String createdByUserId) {
         Language entity = LanguageMapper.toEntity(dto);
         Language saved = languageRepository.save(entity);
+        chatDirectory.refresh();
         userLogService.save(createdByUserId, LogType.LANGUAGE_SAVE, saved.getId().toHexString(), RelatedEntityType.LANGUAGE);
         return LanguageMapper.toDTO(saved);
     }
@@ -51,6 +66,7 @@ public class LanguageService {
         return languageRepository.findById(new ObjectId(id)).map(existingLanguage -> {
             LanguageMapper.updateEntityFromDto(dto, existingLanguage);
             Language saved = languageRepository.save(existingLanguage);
+            chatDirectory.refresh();
             userLogService.save(createdByUserId, LogType.LANGUAGE_UPDATE, saved.getId().toHexString(), RelatedEntityType.LANGUAGE);
             return LanguageMapper.toDTO(saved);
 
@@ -59,6 +75,7 @@ public class LanguageService {
 
     public void deleteById(String id, String createdByUserId) {
         languageRepository.deleteById(new ObjectId(id));
+        chatDirectory.refresh();
         userLogService.save(createdByUserId, LogType.LANGUAGE_SAVE, id, RelatedEntityType.LANGUAGE);
 
     }
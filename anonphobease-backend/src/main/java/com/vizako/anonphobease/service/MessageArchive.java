@@ -0,0 +1,243 @@
+package com.vizako.anonphobease.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.vizako.anonphobease.model.Message;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only, compressed archive of messages moved out of Mongo. Each chat has a directory with
+ * one segment per UTC day ({@code 2024-05-01.seg}) and a small index ({@code 2024-05-01.idx})
+ * holding one line per appended block: offset, length, message count and last message id.
+ * <p>
+ * A block is a complete gzip member of NDJSON records, synced to disk before its index line is
+ * written, so the index only ever points at whole blocks. Bytes after the last indexed block are
+ * a torn write and the next append overwrites them. Bodies stay encrypted as they were in Mongo.
+ */
+@Component
+public class MessageArchive {
+
+    public record Block(long offset, long length, int count, ObjectId lastId) {
+    }
+
+    public record ArchivedMessage(ObjectId id, ObjectId userId, ObjectId chatId, Date createdAt,
+                                  byte[] payload, String content) {
+    }
+
+    private static final String SEGMENT = ".seg";
+    private static final String INDEX = ".idx";
+
+    private final Path root;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<ObjectId, Object> chatLocks = new ConcurrentHashMap<>();
+
+    public MessageArchive(@Value("${app.messages.archive.dir:./data/message-archive}") String dir) {
+        this.root = Path.of(dir);
+    }
+
+    public static LocalDate dayOf(ObjectId messageId) {
+        return LocalDate.ofInstant(messageId.getDate().toInstant(), ZoneOffset.UTC);
+    }
+
+    /**
+     * Appends messages of one chat and day, in ascending id order. Messages already in the archive
+     * are skipped, so re-running a batch after a crash is harmless; when it returns, every given
+     * message is archived. A message that arrives after newer ones of its day were archived goes
+     * into a block of its own, so within a day blocks are in append order, not strictly id order.
+     *
+     * @return how many messages were written
+     */
+    public int append(ObjectId chatId, LocalDate day, List<Message> messages) throws IOException {
+        synchronized (chatLocks.computeIfAbsent(chatId, id -> new Object())) {
+            Path dir = Files.createDirectories(root.resolve(chatId.toHexString()));
+            Path index = dir.resolve(day + INDEX);
+            List<Block> blocks = readIndex(index);
+            Block last = blocks.isEmpty() ? null : blocks.get(blocks.size() - 1);
+            ObjectId archivedUpTo = blocks.stream().map(Block::lastId).max(Comparator.naturalOrder()).orElse(null);
+
+            // Only ids at or below the newest archived one can already be there; check those against
+            // the segment instead of assuming, so a late message is not mistaken for an archived one.
+            Set<ObjectId> present = archivedUpTo != null
+                    && messages.stream().anyMatch(m -> m.getId().compareTo(archivedUpTo) <= 0)
+                    ? archivedIds(dir.resolve(day + SEGMENT), blocks)
+                    : Set.of();
+            List<Message> fresh = messages.stream()
+                    .filter(m -> !present.contains(m.getId()))
+                    .toList();
+            if (fresh.isEmpty()) {
+                return 0;
+            }
+
+            byte[] block = compress(fresh);
+            long offset = last == null ? 0 : last.offset() + last.length();
+            try (FileChannel segment = FileChannel.open(dir.resolve(day + SEGMENT),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                segment.truncate(offset);
+                segment.position(offset);
+                ByteBuffer buffer = ByteBuffer.wrap(block);
+                while (buffer.hasRemaining()) {
+                    segment.write(buffer);
+                }
+                segment.force(false);
+            }
+
+            ObjectId lastId = fresh.stream().map(Message::getId).max(Comparator.naturalOrder()).orElseThrow();
+            String line = indexLine(new Block(offset, block.length, fresh.size(), lastId));
+            try (FileChannel indexChannel = FileChannel.open(index, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                long indexEnd = indexLength(blocks);
+                indexChannel.truncate(indexEnd);
+                indexChannel.write(ByteBuffer.wrap(line.getBytes(StandardCharsets.US_ASCII)), indexEnd);
+                indexChannel.force(false);
+            }
+            return fresh.size();
+        }
+    }
+
+    /**
+     * Hands every archived message of the chat between {@code from} and {@code to} (inclusive
+     * UTC days) to {@code sink}, oldest first, holding at most one block in memory.
+     */
+    public void read(ObjectId chatId, LocalDate from, LocalDate to, Consumer<ArchivedMessage> sink) throws IOException {
+        Path dir = root.resolve(chatId.toHexString());
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            List<Block> blocks = readIndex(dir.resolve(day + INDEX));
+            if (blocks.isEmpty()) {
+                continue;
+            }
+            try (FileChannel segment = FileChannel.open(dir.resolve(day + SEGMENT), StandardOpenOption.READ)) {
+                for (Block block : blocks) {
+                    readBlock(blockBytes(segment, block, dir.resolve(day + SEGMENT)), sink);
+                }
+            }
+        }
+    }
+
+    private Set<ObjectId> archivedIds(Path segmentPath, List<Block> blocks) throws IOException {
+        Set<ObjectId> ids = new HashSet<>();
+        try (FileChannel segment = FileChannel.open(segmentPath, StandardOpenOption.READ)) {
+            for (Block block : blocks) {
+                readBlock(blockBytes(segment, block, segmentPath), message -> ids.add(message.id()));
+            }
+        }
+        return ids;
+    }
+
+    private static byte[] blockBytes(FileChannel segment, Block block, Path segmentPath) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) block.length());
+        while (buffer.hasRemaining()) {
+            if (segment.read(buffer, block.offset() + buffer.position()) < 0) {
+                throw new EOFException("Archive segment " + segmentPath + " is truncated");
+            }
+        }
+        return buffer.array();
+    }
+
+    List<Block> readIndex(Path index) throws IOException {
+        if (!Files.exists(index)) {
+            return List.of();
+        }
+        String text = Files.readString(index, StandardCharsets.US_ASCII);
+        List<Block> blocks = new ArrayList<>();
+        int start = 0;
+        for (int end = text.indexOf('\n'); end >= 0; start = end + 1, end = text.indexOf('\n', start)) {
+            String[] parts = text.substring(start, end).split(" ");
+            blocks.add(new Block(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                    Integer.parseInt(parts[2]), new ObjectId(parts[3])));
+        }
+        // Anything after the last newline is a torn line whose block was never acknowledged.
+        return blocks;
+    }
+
+    private static long indexLength(List<Block> blocks) {
+        long length = 0;
+        for (Block block : blocks) {
+            length += indexLine(block).length();
+        }
+        return length;
+    }
+
+    private static String indexLine(Block block) {
+        return block.offset() + " " + block.length() + " " + block.count() + " " + block.lastId().toHexString() + "\n";
+    }
+
+    private byte[] compress(List<Message> messages) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream gzip = new GZIPOutputStream(bytes)) {
+            for (Message message : messages) {
+                ObjectNode record = objectMapper.createObjectNode()
+                        .put("id", message.getId().toHexString())
+                        .put("userId", hex(message.getUserId()))
+                        .put("chatId", hex(message.getChatId()));
+                if (message.getCreatedAt() != null) {
+                    record.put("createdAt", message.getCreatedAt().getTime());
+                }
+                if (message.getPayload() != null) {
+                    record.put("payload", message.getPayload());
+                } else {
+                    record.put("content", message.getContent());
+                }
+                gzip.write(objectMapper.writeValueAsBytes(record));
+                gzip.write('\n');
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private void readBlock(byte[] block, Consumer<ArchivedMessage> sink) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(block)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JsonNode record = objectMapper.readTree(line);
+                sink.accept(new ArchivedMessage(
+                        new ObjectId(record.get("id").asText()),
+                        objectId(record.get("userId")),
+                        objectId(record.get("chatId")),
+                        record.hasNonNull("createdAt") ? new Date(record.get("createdAt").asLong()) : null,
+                        record.hasNonNull("payload") ? record.get("payload").binaryValue() : null,
+                        record.hasNonNull("content") ? record.get("content").asText() : null));
+            }
+        }
+    }
+
+    private static String hex(ObjectId id) {
+        return id != null ? id.toHexString() : null;
+    }
+
+    private static ObjectId objectId(JsonNode node) {
+        return node != null && !node.isNull() ? new ObjectId(node.asText()) : null;
+    }
+}
@@ -1,84 +1,95 @@
 package com.vizako.anonphobease.service;
 
 import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.regex.Pattern;
 
+@Slf4j
 @Service
 public class MessageFilterService {
 
+    private final Map<String, String> dictionaryResources = new LinkedHashMap<>();
+    private final List<String> sharedLanguages;
 
-    private final Map<String, Set<String>> bannedWordsByLang = new HashMap<>();
+    /** Chat language code -> automaton over that language's words plus the shared languages. */
+    private volatile Map<String, ProfanityAutomaton> automataByLang = Map.of();
+    /** Used when the chat language has no dictionary of its own. */
+    private volatile ProfanityAutomaton allLanguages = ProfanityAutomaton.EMPTY;
+
+    public MessageFilterService(@Value("${app.filter.shared-languages:eng}") List<String> sharedLanguages) {
+        this.sharedLanguages = List.copyOf(sharedLanguages);
+        dictionaryResources.put("eng", "profanity/bad-words_eng.txt");
+        dictionaryResources.put("est", "profanity/bad-words_est.txt");
+        dictionaryResources.put("rus", "profanity/bad-words_rus.txt");
+    }
 
     @PostConstruct
     void init() {
-        loadWords("eng", "profanity/bad-words_eng.txt");
-        loadWords("est", "profanity/bad-words_est.txt");
-        loadWords("rus", "profanity/bad-words_rus.txt");
+        Map<String, Set<String>> bannedWordsByLang = new HashMap<>();
+        dictionaryResources.forEach((lang, path) -> bannedWordsByLang.put(lang, loadWords(path)));
+
+        Set<String> shared = new HashSet<>();
+        sharedLanguages.forEach(lang -> shared.addAll(bannedWordsByLang.getOrDefault(lang, Set.of())));
+
+        Map<String, ProfanityAutomaton> automata = new HashMap<>();
+        Set<String> all = new HashSet<>();
+        bannedWordsByLang.forEach((lang, words) -> {
+            Set<String> combined = new HashSet<>(words);
+            combined.addAll(shared);
+            automata.put(lang, ProfanityAutomaton.build(combined));
+            all.addAll(words);
+        });
 
-        System.out.println("[FILTER] Loaded dictionaries:");
-        bannedWordsByLang.forEach((lang, words) ->
-                System.out.println("  " + lang + " -> " + words.size() + " sõna"));
+        automataByLang = Map.copyOf(automata);
+        allLanguages = ProfanityAutomaton.build(all);
+
+        bannedWordsByLang.forEach((lang, words) -> log.info("Loaded {} banned words for {}", words.size(), lang));
     }
 
-    private void loadWords(String langCode, String resourcePath) {
+    private Set<String> loadWords(String resourcePath) {
         Set<String> words = new HashSet<>();
-        try {
-            ClassPathResource resource = new ClassPathResource(resourcePath);
-            if (!resource.exists()) {
-                System.out.println("[FILTER] Resource not found: " + resourcePath);
-                bannedWordsByLang.put(langCode, words);
-                return;
-            }
+        ClassPathResource resource = new ClassPathResource(resourcePath);
+        if (!resource.exists()) {
+            log.warn("Profanity dictionary not found: {}", resourcePath);
+            return words;
+        }
 
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
 
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    String trimmed = line.trim();
-                    if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
-                        words.add(trimmed.toLowerCase());
-                    }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                    words.add(trimmed);
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+        } catch (IOException e) {
+            log.error("Could not read profanity dictionary {}", resourcePath, e);
         }
-
-        bannedWordsByLang.put(langCode, words);
+        return words;
     }
 
+    /**
+     * Masks banned words for the chat's language and the shared languages in a single pass.
+     * Unknown languages are checked against every dictionary.
+     */
     public String filter(String originalText, String languageCode) {
         if (originalText == null || originalText.isBlank()) {
             return originalText;
         }
 
-        Set<String> allWords = new HashSet<>();
-        bannedWordsByLang.values().forEach(allWords::addAll);
-
-        System.out.println("[FILTER] languageCode=" + languageCode
-                + ", allWords=" + allWords.size());
-
-        if (allWords.isEmpty()) {
-            return originalText;
-        }
-
-        String filtered = originalText;
-
-        for (String badWord : allWords) {
-            String regex = "(?iu)" + Pattern.quote(badWord);
-            String stars = "*".repeat(badWord.length());
-            filtered = filtered.replaceAll(regex, stars);
-        }
-
-        System.out.println("[FILTER] original='" + originalText + "', result='" + filtered + "'");
-        return filtered;
+        ProfanityAutomaton automaton = languageCode != null
+                ? automataByLang.getOrDefault(languageCode.toLowerCase(Locale.ROOT), allLanguages)
+                : allLanguages;
+        return automaton.mask(originalText);
     }
 }
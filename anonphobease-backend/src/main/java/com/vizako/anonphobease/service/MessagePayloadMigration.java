@@ -0,0 +1,149 @@
+package com.vizako.anonphobease.service;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.vizako.anonphobease.util.EncryptionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Moves message bodies from the legacy Base64 {@code content} string to the binary
+ * {@code payload} field, a batch at a time in _id order with a pause between batches. The last
+ * migrated _id is checkpointed, so a restart carries on where the previous run stopped. Reads
+ * accept both formats throughout, and a document edited while its batch is in flight is skipped
+ * because the update only matches the content that was read.
+ */
+@Slf4j
+@Service
+public class MessagePayloadMigration {
+
+    static final String MESSAGES = "messages";
+    static final String CHECKPOINTS = "migrations";
+    static final String CHECKPOINT_ID = "message-payload-v1";
+
+    private final MongoTemplate mongoTemplate;
+    private final EncryptionService encryptionService;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long pauseMs;
+    private final Counter migrated;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public MessagePayloadMigration(MongoTemplate mongoTemplate,
+                                   EncryptionService encryptionService,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.messages.payload-migration.enabled:true}") boolean enabled,
+                                   @Value("${app.messages.payload-migration.batch-size:500}") int batchSize,
+                                   @Value("${app.messages.payload-migration.pause-ms:250}") long pauseMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.encryptionService = encryptionService;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+        this.migrated = meterRegistry.counter("messages.payload.migrated");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startInBackground() {
+        if (!enabled) return;
+        running = true;
+        worker = Thread.ofVirtual().name("message-payload-migration").start(this::run);
+    }
+
+    void run() {
+        // Everything inserted from now on is written in the binary format by this version, so a
+        // finished run checkpoints here and later runs only look at newer documents.
+        ObjectId startedAt = new ObjectId();
+        ObjectId lastId = loadCheckpoint();
+        log.info("Message payload migration starting after {}", lastId);
+        try {
+            while (running) {
+                ObjectId next = migrateBatch(lastId);
+                if (next == null) {
+                    saveCheckpoint(lastId == null || lastId.compareTo(startedAt) < 0 ? startedAt : lastId, true);
+                    log.info("Message payload migration complete");
+                    return;
+                }
+                lastId = next;
+                saveCheckpoint(lastId, false);
+                Thread.sleep(pauseMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (DataAccessException e) {
+            log.warn("Message payload migration paused at {}: {}", lastId, e.getMessage());
+        }
+    }
+
+    /**
+     * Migrates the next batch of legacy documents after {@code after}.
+     *
+     * @return the last _id of the batch, or {@code null} if nothing is left
+     */
+    ObjectId migrateBatch(ObjectId after) {
+        Criteria criteria = where("content").type(JsonSchemaObject.Type.STRING);
+        if (after != null) {
+            criteria = criteria.and("_id").gt(after);
+        }
+        Query query = new Query(criteria).with(Sort.by(Sort.Direction.ASC, "_id")).limit(batchSize);
+        query.fields().include("_id", "content");
+
+        List<Document> legacy = mongoTemplate.find(query, Document.class, MESSAGES);
+        if (legacy.isEmpty()) {
+            return null;
+        }
+
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MESSAGES);
+        for (Document document : legacy) {
+            String content = document.getString("content");
+            ops.updateOne(
+                    Query.query(where("_id").is(document.getObjectId("_id")).and("content").is(content)),
+                    new Update().set("payload", encryptionService.toPayload(content)).unset("content"));
+        }
+        BulkWriteResult result = ops.execute();
+        migrated.increment(result.getModifiedCount());
+
+        return legacy.get(legacy.size() - 1).getObjectId("_id");
+    }
+
+    private ObjectId loadCheckpoint() {
+        Document checkpoint = mongoTemplate.findById(CHECKPOINT_ID, Document.class, CHECKPOINTS);
+        return checkpoint != null ? checkpoint.getObjectId("lastId") : null;
+    }
+
+    private void saveCheckpoint(ObjectId lastId, boolean complete) {
+        mongoTemplate.upsert(Query.query(where("_id").is(CHECKPOINT_ID)),
+                new Update().set("lastId", lastId).set("complete", complete).set("updatedAt", new Date()),
+                CHECKPOINTS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.vizako.anonphobease.service;
+
+import com.vizako.anonphobease.model.Chat;
+import com.vizako.anonphobease.model.Message;
+import com.vizako.anonphobease.repository.ChatRepository;
+import com.vizako.anonphobease.repository.MessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Moves messages past their chat's retention period from Mongo into the {@link MessageArchive},
+ * oldest first, in batches. A batch is deleted only after it has been written and synced to the
+ * archive; the archive skips messages it already holds, so a batch interrupted between the two
+ * steps is simply archived-and-deleted again on the next run. The job is off by default and,
+ * with no default retention, only deletes from chats that set their own. The archive is on local
+ * disk, so a run only proceeds on the node holding the {@link JobLease}.
+ */
+@Slf4j
+@Service
+public class MessageRetentionJob {
+
+    static final String LEASE = "message-retention";
+
+    private final MessageRepository messageRepository;
+    private final ChatRepository chatRepository;
+    private final MessageArchive messageArchive;
+    private final JobLease jobLease;
+    private final boolean enabled;
+    private final int defaultDays;
+    private final int batchSize;
+    private final long pauseMs;
+    private final Duration leaseTtl;
+    private final Supplier<Instant> clock;
+    private final Counter archived;
+
+    @Autowired
+    public MessageRetentionJob(MessageRepository messageRepository,
+                               ChatRepository chatRepository,
+                               MessageArchive messageArchive,
+                               JobLease jobLease,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.messages.retention.enabled:false}") boolean enabled,
+                               @Value("${app.messages.retention.default-days:0}") int defaultDays,
+                               @Value("${app.messages.retention.batch-size:500}") int batchSize,
+                               @Value("${app.messages.retention.pause-ms:100}") long pauseMs,
+                               @Value("${app.messages.retention.lease-ms:10800000}") long leaseMs) {
+        this(messageRepository, chatRepository, messageArchive, jobLease, meterRegistry, enabled, defaultDays,
+                batchSize, pauseMs, leaseMs, Instant::now);
+    }
+
+    MessageRetentionJob(MessageRepository messageRepository, ChatRepository chatRepository,
+                        MessageArchive messageArchive, JobLease jobLease, MeterRegistry meterRegistry,
+                        boolean enabled, int defaultDays, int batchSize, long pauseMs, long leaseMs,
+                        Supplier<Instant> clock) {
+        this.messageRepository = messageRepository;
+        this.chatRepository = chatRepository;
+        this.messageArchive = messageArchive;
+        this.jobLease = jobLease;
+        this.enabled = enabled;
+        this.defaultDays = defaultDays;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+        this.leaseTtl = Duration.ofMillis(leaseMs);
+        this.clock = clock;
+        this.archived = meterRegistry.counter("messages.retention.archived");
+    }
+
+    @Scheduled(initialDelayString = "${app.messages.retention.initial-delay-ms:60000}",
+            fixedDelayString = "${app.messages.retention.interval-ms:3600000}")
+    public void archiveExpired() {
+        if (!enabled) return;
+        for (Chat chat : chatRepository.findAll()) {
+            // Renewed per chat so a long run never outlives the lease.
+            if (!jobLease.tryAcquire(LEASE, leaseTtl)) {
+                log.debug("Message retention lease is held by another node");
+                return;
+            }
+            try {
+                int moved = archiveChat(chat);
+                if (moved > 0) {
+                    log.info("Archived {} messages of chat {}", moved, chat.getId());
+                }
+            } catch (IOException | DataAccessException e) {
+                log.warn("Archiving chat {} stopped: {}", chat.getId(), e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return how many messages were moved out of Mongo
+     */
+    int archiveChat(Chat chat) throws IOException, InterruptedException {
+        int days = chat.getRetentionDays() != null && chat.getRetentionDays() > 0 ? chat.getRetentionDays() : defaultDays;
+        if (days <= 0) {
+            return 0;
+        }
+        ObjectId cutoff = ObjectId.getSmallestWithDate(Date.from(clock.get().minus(Duration.ofDays(days))));
+        Sort oldestFirst = Sort.by(Sort.Direction.ASC, "id");
+
+        int moved = 0;
+        while (true) {
+            List<Message> batch = messageRepository.findByChatIdAndIdLessThan(chat.getId(), cutoff, oldestFirst,
+                    Limit.of(batchSize));
+            if (batch.isEmpty()) {
+                return moved;
+            }
+
+            Map<LocalDate, List<Message>> byDay = new LinkedHashMap<>();
+            for (Message message : batch) {
+                byDay.computeIfAbsent(MessageArchive.dayOf(message.getId()), day -> new ArrayList<>())
+                        .add(message);
+            }
+            for (Map.Entry<LocalDate, List<Message>> day : byDay.entrySet()) {
+                messageArchive.append(chat.getId(), day.getKey(), day.getValue());
+            }
+            // append returns only once every message of the batch is in the archive (written now or
+            // found there from an earlier run), so the whole batch is safe to delete.
+            messageRepository.deleteAllById(batch.stream().map(Message::getId).toList());
+
+            moved += batch.size();
+            archived.increment(batch.size());
+            if (batch.size() < batchSize) {
+                return moved;
+            }
+            Thread.sleep(pauseMs);
+        }
+    }
+}
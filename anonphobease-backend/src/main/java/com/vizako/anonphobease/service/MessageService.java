@@ -1,36 +1,155 @@
 package com.vizako.anonphobease.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.vizako.anonphobease.model.Message;
 import com.vizako.anonphobease.repository.MessageRepository;
 import com.vizako.anonphobease.util.EncryptionService;
 import com.vizako.anonphobease.v1.dto.MessageDTO;
+import com.vizako.anonphobease.v1.dto.MessagePageDTO;
 import com.vizako.anonphobease.v1.mapper.MessageMapper;
 import lombok.RequiredArgsConstructor;
 import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class MessageService {
 
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
     private final MessageRepository messageRepository;
     private final EncryptionService encryptionService;
+    private final MessageArchive messageArchive;
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${app.export.batch-size:500}")
+    private int exportBatchSize = 500;
 
     public List<MessageDTO> findAll() {
-        return messageRepository.findAll().stream()
-                .map(this::toDecryptedDto)
-                .collect(Collectors.toList());
+        return toDecryptedDtos(messageRepository.findAll());
     }
 
     public List<MessageDTO> findByChatId(String chatId) {
         ObjectId chatObjectId = new ObjectId(chatId);
-        return messageRepository.findByChatId(chatObjectId).stream()
-                .map(this::toDecryptedDto)
-                .collect(Collectors.toList());
+        return toDecryptedDtos(messageRepository.findByChatId(chatObjectId));
+    }
+
+    /**
+     * One page of a chat's history, ordered by message id. {@code before} and {@code after} are
+     * exclusive message-id bounds; only the returned page is decrypted.
+     */
+    public MessagePageDTO findPageByChatId(String chatId, String before, String after, int limit,
+                                           Sort.Direction direction) {
+        ObjectId chatObjectId = new ObjectId(chatId);
+        Sort sort = Sort.by(direction, "id");
+        // One extra row tells whether another page exists.
+        Limit fetch = Limit.of(limit + 1);
+
+        List<Message> rows;
+        if (before != null && after != null) {
+            rows = messageRepository.findByChatIdAndIdBetween(chatObjectId, new ObjectId(after), new ObjectId(before), sort, fetch);
+        } else if (before != null) {
+            rows = messageRepository.findByChatIdAndIdLessThan(chatObjectId, new ObjectId(before), sort, fetch);
+        } else if (after != null) {
+            rows = messageRepository.findByChatIdAndIdGreaterThan(chatObjectId, new ObjectId(after), sort, fetch);
+        } else {
+            rows = messageRepository.findByChatId(chatObjectId, sort, fetch);
+        }
+
+        boolean hasMore = rows.size() > limit;
+        List<Message> page = hasMore ? rows.subList(0, limit) : rows;
+        List<MessageDTO> messages = toDecryptedDtos(page);
+        String nextCursor = hasMore ? page.get(page.size() - 1).getId().toHexString() : null;
+        return new MessagePageDTO(messages, nextCursor, hasMore);
+    }
+
+    /**
+     * Streams a chat's archived messages between two UTC days to {@code out} as NDJSON, oldest
+     * first, decrypting one record at a time.
+     */
+    public void writeArchivedHistory(String chatId, LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        try {
+            messageArchive.read(new ObjectId(chatId), from, to, archived -> {
+                MessageDTO dto = new MessageDTO();
+                dto.setMessageId(archived.id().toHexString());
+                dto.setUserId(archived.userId() != null ? archived.userId().toHexString() : null);
+                dto.setChatId(archived.chatId() != null ? archived.chatId().toHexString() : null);
+                dto.setCreatedAt(archived.createdAt());
+                dto.setContent(archived.payload() != null
+                        ? encryptionService.decrypt(archived.payload())
+                        : encryptionService.decrypt(archived.content()));
+                try {
+                    out.write(objectMapper.writeValueAsBytes(dto));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Streams every stored message matching the optional filters to {@code out} as NDJSON in id
+     * order. Documents come off a Mongo cursor and are decrypted and written one batch at a time,
+     * so memory use does not grow with the size of the export.
+     */
+    public void exportMessages(String chatId, String userId, Instant from, Instant to, OutputStream out) throws IOException {
+        Query query = new Query().with(Sort.by(Sort.Direction.ASC, "_id")).cursorBatchSize(exportBatchSize);
+        if (chatId != null) query.addCriteria(Criteria.where("chatId").is(new ObjectId(chatId)));
+        if (userId != null) query.addCriteria(Criteria.where("userId").is(new ObjectId(userId)));
+        if (from != null || to != null) {
+            // Ids carry their creation second, which keeps the range on the (chatId, _id) index.
+            Criteria id = Criteria.where("_id");
+            if (from != null) id.gte(ObjectId.getSmallestWithDate(Date.from(from)));
+            if (to != null) id.lt(ObjectId.getSmallestWithDate(Date.from(to)));
+            query.addCriteria(id);
+        }
+
+        try (Stream<Message> cursor = mongoTemplate.stream(query, Message.class);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            List<Message> batch = new ArrayList<>(exportBatchSize);
+            for (Iterator<Message> it = cursor.iterator(); it.hasNext(); ) {
+                batch.add(it.next());
+                if (batch.size() == exportBatchSize || !it.hasNext()) {
+                    for (MessageDTO dto : toDecryptedDtos(batch)) {
+                        generator.writeObject(dto);
+                        generator.writeRaw('\n');
+                    }
+                    generator.flush();
+                    batch.clear();
+                }
+            }
+        }
     }
 
     public Optional<MessageDTO> findById(String id) {
@@ -38,16 +157,29 @@ public class MessageService {
                 .map(this::toDecryptedDto);
     }
 
+    /** Decrypted bodies for a batch of message ids, fetched in one query and decrypted in bulk. */
+    public Map<ObjectId, String> getContentsByIds(Collection<ObjectId> ids) {
+        Map<ObjectId, String> contents = new HashMap<>();
+        if (ids.isEmpty()) return contents;
+        List<Message> messages = messageRepository.findAllById(ids);
+        List<String> plain = encryptionService.decryptAll(messages.stream().map(MessageService::storedBody).toList());
+        for (int i = 0; i < messages.size(); i++) {
+            contents.put(messages.get(i).getId(), plain.get(i));
+        }
+        return contents;
+    }
+
     public MessageDTO save(MessageDTO dto) {
         Message entity = new Message();
         MessageMapper.updateEntityFromDto(dto, entity);
 
         if (dto.getContent() != null) {
-            entity.setContent(encryptionService.encrypt(dto.getContent()));
+            entity.setPayload(encryptionService.encryptToBytes(dto.getContent()));
+            entity.setContent(null);
         }
 
         Message saved = messageRepository.save(entity);
-        return toDecryptedDto(saved);
+        return toPlainDto(saved, dto.getContent());
     }
 
     public Optional<MessageDTO> update(String id, MessageDTO dto) {
@@ -56,11 +188,12 @@ public class MessageService {
             MessageMapper.updateEntityFromDto(dto, existingMessage);
 
             if (dto.getContent() != null) {
-                existingMessage.setContent(encryptionService.encrypt(dto.getContent()));
+                existingMessage.setPayload(encryptionService.encryptToBytes(dto.getContent()));
+                existingMessage.setContent(null);
             }
 
             Message saved = messageRepository.save(existingMessage);
-            return toDecryptedDto(saved);
+            return dto.getContent() != null ? toPlainDto(saved, dto.getContent()) : toDecryptedDto(saved);
         });
     }
 
@@ -68,11 +201,35 @@ public class MessageService {
         messageRepository.deleteById(new ObjectId(id));
     }
 
+    private MessageDTO toPlainDto(Message entity, String plainContent) {
+        MessageDTO dto = MessageMapper.toDTO(entity);
+        dto.setContent(plainContent);
+        return dto;
+    }
+
+    private List<MessageDTO> toDecryptedDtos(List<Message> entities) {
+        List<String> contents = encryptionService.decryptAll(entities.stream().map(MessageService::storedBody).toList());
+        List<MessageDTO> dtos = new ArrayList<>(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            MessageDTO dto = MessageMapper.toDTO(entities.get(i));
+            dto.setContent(contents.get(i));
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+
     private MessageDTO toDecryptedDto(Message entity) {
         MessageDTO dto = MessageMapper.toDTO(entity);
-        if (entity.getContent() != null) {
+        if (entity.getPayload() != null) {
+            dto.setContent(encryptionService.decrypt(entity.getPayload()));
+        } else if (entity.getContent() != null) {
             dto.setContent(encryptionService.decrypt(entity.getContent()));
         }
         return dto;
     }
+
+    /** Binary payload, or the legacy Base64 content of messages not migrated yet. */
+    private static Object storedBody(Message entity) {
+        return entity.getPayload() != null ? entity.getPayload() : entity.getContent();
+    }
 }
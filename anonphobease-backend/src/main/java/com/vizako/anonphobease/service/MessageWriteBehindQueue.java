@@ -0,0 +1,276 @@
+package com.vizako.anonphobease.service;
+
+import com.vizako.anonphobease.model.Message;
+import com.vizako.anonphobease.util.EncryptionService;
+import com.vizako.anonphobease.v1.dto.MessageDTO;
+import com.vizako.anonphobease.v1.mapper.MessageMapper;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind persistence for chat messages. Messages already carry their {@code ObjectId},
+ * so they can be broadcast before they are stored; this queue encrypts and inserts them in
+ * unordered bulk batches, flushed when a batch is full or the flush interval has elapsed.
+ */
+@Slf4j
+@Service
+public class MessageWriteBehindQueue {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final EncryptionService encryptionService;
+    private final BlockingQueue<Message> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final int maxRetries;
+    private final long retryBackoffMs;
+
+    private final Timer flushTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter persisted;
+    private final Counter retried;
+    private final Counter failed;
+    private final Counter backPressured;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public MessageWriteBehindQueue(MongoTemplate mongoTemplate,
+                                   EncryptionService encryptionService,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.messages.write-behind.capacity:10000}") int capacity,
+                                   @Value("${app.messages.write-behind.batch-size:500}") int batchSize,
+                                   @Value("${app.messages.write-behind.flush-interval-ms:100}") long flushIntervalMs,
+                                   @Value("${app.messages.write-behind.offer-timeout-ms:50}") long offerTimeoutMs,
+                                   @Value("${app.messages.write-behind.max-retries:3}") int maxRetries,
+                                   @Value("${app.messages.write-behind.retry-backoff-ms:200}") long retryBackoffMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.encryptionService = encryptionService;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMs = retryBackoffMs;
+
+        Gauge.builder("chat.messages.write_behind.queue.depth", queue, BlockingQueue::size)
+                .description("Messages waiting to be persisted")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("chat.messages.write_behind.flush")
+                .description("Latency of a bulk insert of queued messages")
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("chat.messages.write_behind.batch.size")
+                .register(meterRegistry);
+        persisted = meterRegistry.counter("chat.messages.write_behind.persisted");
+        retried = meterRegistry.counter("chat.messages.write_behind.retried");
+        failed = meterRegistry.counter("chat.messages.write_behind.failed");
+        backPressured = meterRegistry.counter("chat.messages.write_behind.back_pressure");
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusher = Thread.ofPlatform().daemon().name("message-write-behind").start(this::runFlushLoop);
+    }
+
+    /**
+     * Queues a message whose id and creation time are already assigned. If the queue stays full
+     * for longer than the offer timeout the caller persists the message itself, which slows the
+     * producer down instead of dropping data.
+     */
+    public void submit(MessageDTO dto) {
+        Message entity = new Message();
+        MessageMapper.updateEntityFromDto(dto, entity);
+
+        boolean queued;
+        try {
+            queued = queue.offer(entity, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            backPressured.increment();
+            persist(new ArrayList<>(List.of(entity)));
+        }
+    }
+
+    /**
+     * The chat's messages still waiting in the queue, oldest first. A batch the flusher has
+     * already taken is not included, so callers also read what is in Mongo.
+     */
+    public List<MessageDTO> pending(String chatId) {
+        List<MessageDTO> pending = new ArrayList<>();
+        for (Message message : queue) {
+            MessageDTO dto = MessageMapper.toDTO(message);
+            // Content is cleared once the flusher encrypts it.
+            if (chatId.equals(dto.getChatId()) && dto.getContent() != null) {
+                pending.add(dto);
+            }
+        }
+        return pending;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Synchronously persists everything currently queued.
+     */
+    void flushNow() {
+        List<Message> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            persist(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    private void runFlushLoop() {
+        try {
+            while (running) {
+                try {
+                    List<Message> batch = takeBatch();
+                    if (!batch.isEmpty()) {
+                        persist(batch);
+                    }
+                } catch (InterruptedException e) {
+                    // Only shutdown() interrupts this thread; it waits for the drain below.
+                    break;
+                } catch (RuntimeException e) {
+                    log.error("Unexpected error in message write-behind loop", e);
+                }
+            }
+        } finally {
+            // The final drain runs here, so no other thread ever inserts alongside the flusher.
+            Thread.interrupted();
+            flushNow();
+        }
+    }
+
+    private List<Message> takeBatch() throws InterruptedException {
+        List<Message> batch = new ArrayList<>(batchSize);
+        Message first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return batch;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                break;
+            }
+            Message next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    private void persist(List<Message> batch) {
+        for (Message message : batch) {
+            if (message.getContent() != null) {
+                message.setPayload(encryptionService.encryptToBytes(message.getContent()));
+                message.setContent(null);
+            }
+        }
+        batchSizes.record(batch.size());
+
+        List<Message> pending = batch;
+        for (int attempt = 0; !pending.isEmpty(); attempt++) {
+            if (attempt > 0) {
+                if (attempt > maxRetries) {
+                    failed.increment(pending.size());
+                    log.error("Dropping {} messages after {} failed insert attempts", pending.size(), attempt);
+                    return;
+                }
+                retried.increment(pending.size());
+                sleep(retryBackoffMs * attempt);
+            }
+            pending = insert(pending);
+        }
+    }
+
+    /**
+     * @return the messages that still need to be written
+     */
+    private List<Message> insert(List<Message> batch) {
+        long start = System.nanoTime();
+        try {
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Message.class);
+            ops.insert(batch);
+            ops.execute();
+            persisted.increment(batch.size());
+            return List.of();
+        } catch (BulkOperationException e) {
+            List<Message> retry = new ArrayList<>();
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) {
+                    retry.add(batch.get(error.getIndex()));
+                }
+            }
+            persisted.increment(batch.size() - retry.size());
+            log.warn("Bulk insert of {} messages left {} to retry", batch.size(), retry.size());
+            return retry;
+        } catch (DataAccessException e) {
+            log.warn("Bulk insert of {} messages failed: {}", batch.size(), e.getMessage());
+            return batch;
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (flusher == null) {
+            flushNow();
+            return;
+        }
+        try {
+            flusher.join(flushIntervalMs * 10);
+            if (flusher.isAlive()) {
+                // Cut short a poll or retry backoff; the flusher still does the final drain itself.
+                flusher.interrupt();
+                flusher.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Stopped waiting for the message write-behind flusher with {} messages queued", queue.size());
+        }
+    }
+}
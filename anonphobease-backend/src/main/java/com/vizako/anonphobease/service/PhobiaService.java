@@ -12,7 +12,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -20,6 +23,7 @@ import java.util.Optional;
 public class PhobiaService {
 
     private final PhobiaRepository phobiaRepository;
+    private final ChatDirectory chatDirectory;
     private UserLogService userLogService;
 
     @Autowired
@@ -39,9 +43,20 @@ public class PhobiaService {
                 .map(PhobiaMapper::toDTO);
     }
 
+    /** Stored names for a batch of phobia ids in one query; unknown ids are left out. */
+    public Map<ObjectId, String> getNamesByIds(Collection<ObjectId> ids) {
+        Map<ObjectId, String> names = new HashMap<>();
+        if (ids.isEmpty()) return names;
+        for (Phobia phobia : phobiaRepository.findAllById(ids)) {
+            names.put(phobia.getId(), phobia.getName());
+        }
+        return names;
+    }
+
     public PhobiaDTO save(PhobiaDTO dto, String createdByUserId) {
         Phobia entity = PhobiaMapper.toEntity(dto);
         Phobia saved = phobiaRepository.save(entity);
+        chatDirectory.refresh();
         userLogService.save(createdByUserId, LogType.PHOBIA_SAVE, saved.getId().toHexString(), RelatedEntityType.PHOBIA);
         return PhobiaMapper.toDTO(saved);
     }
@@ -51,6 +66,7 @@ public class PhobiaService {
         return phobiaRepository.findById(new ObjectId(id)).map(existingPhobia -> {
             PhobiaMapper.updateEntityFromDto(dto, existingPhobia);
             Phobia saved = phobiaRepository.save(existingPhobia);
+            chatDirectory.refresh();
             userLogService.save(updatedByUserId, LogType.PHOBIA_UPDATE, saved.getId().toHexString(), RelatedEntityType.PHOBIA);
             return PhobiaMapper.toDTO(saved);
         });
@@ -58,6 +74,7 @@ public class PhobiaService {
 
     public void deleteById(String id, String deletedByUserId) {
         phobiaRepository.deleteById(new ObjectId(id));
+        chatDirectory.refresh();
         userLogService.save(deletedByUserId, LogType.PHOBIA_DELETE, id, RelatedEntityType.PHOBIA);
     }
 }
@@ -0,0 +1,140 @@
+package com.vizako.anonphobease.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Immutable Aho–Corasick automaton over case-folded UTF-16 code units. Folding maps each char
+ * to exactly one char, so match positions in the folded input are positions in the original
+ * text and can be masked in place.
+ */
+final class ProfanityAutomaton {
+
+    static final ProfanityAutomaton EMPTY = build(List.of());
+
+    /** Per state: sorted transition chars and their target states. */
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] failure;
+    /** Per state: length of the longest word ending here, following failure links; 0 if none. */
+    private final int[] longestMatch;
+
+    private ProfanityAutomaton(char[][] edgeChars, int[][] edgeTargets, int[] failure, int[] longestMatch) {
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.failure = failure;
+        this.longestMatch = longestMatch;
+    }
+
+    static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    static ProfanityAutomaton build(Collection<String> words) {
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> depthOfWordEnd = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        depthOfWordEnd.add(0);
+
+        for (String word : words) {
+            if (word == null || word.isEmpty()) continue;
+            int state = 0;
+            for (int i = 0; i < word.length(); i++) {
+                char c = fold(word.charAt(i));
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    depthOfWordEnd.add(0);
+                    trie.get(state).put(c, next);
+                }
+                state = next;
+            }
+            depthOfWordEnd.set(state, word.length());
+        }
+
+        int size = trie.size();
+        char[][] edgeChars = new char[size][];
+        int[][] edgeTargets = new int[size][];
+        for (int s = 0; s < size; s++) {
+            TreeMap<Character, Integer> edges = trie.get(s);
+            edgeChars[s] = new char[edges.size()];
+            edgeTargets[s] = new int[edges.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                edgeChars[s][i] = edge.getKey();
+                edgeTargets[s][i] = edge.getValue();
+                i++;
+            }
+        }
+
+        int[] failure = new int[size];
+        int[] longestMatch = new int[size];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int target : edgeTargets[0]) {
+            queue.add(target);
+            longestMatch[target] = depthOfWordEnd.get(target);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < edgeChars[state].length; i++) {
+                char c = edgeChars[state][i];
+                int child = edgeTargets[state][i];
+                int f = failure[state];
+                int fallback;
+                while ((fallback = step(edgeChars, edgeTargets, f, c)) < 0 && f != 0) {
+                    f = failure[f];
+                }
+                failure[child] = fallback < 0 || fallback == child ? 0 : fallback;
+                longestMatch[child] = Math.max(depthOfWordEnd.get(child), longestMatch[failure[child]]);
+                queue.add(child);
+            }
+        }
+        return new ProfanityAutomaton(edgeChars, edgeTargets, failure, longestMatch);
+    }
+
+    private static int step(char[][] edgeChars, int[][] edgeTargets, int state, char c) {
+        int i = Arrays.binarySearch(edgeChars[state], c);
+        return i >= 0 ? edgeTargets[state][i] : -1;
+    }
+
+    /**
+     * Replaces every char covered by a dictionary match with {@code '*'}. Returns the input
+     * instance itself when nothing matches.
+     */
+    String mask(String text) {
+        char[] masked = null;
+        int maskedUpTo = 0;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = fold(text.charAt(i));
+            int next;
+            while ((next = step(edgeChars, edgeTargets, state, c)) < 0 && state != 0) {
+                state = failure[state];
+            }
+            state = next < 0 ? 0 : next;
+
+            int length = longestMatch[state];
+            if (length > 0) {
+                if (masked == null) {
+                    masked = text.toCharArray();
+                }
+                for (int j = Math.max(i - length + 1, maskedUpTo); j <= i; j++) {
+                    masked[j] = '*';
+                }
+                maskedUpTo = i + 1;
+            }
+        }
+        return masked == null ? text : new String(masked);
+    }
+
+    int stateCount() {
+        return failure.length;
+    }
+}
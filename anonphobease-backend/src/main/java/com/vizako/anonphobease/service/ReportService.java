@@ -1,35 +1,206 @@
 package com.vizako.anonphobease.service;
 
+import com.vizako.anonphobease.helper.RelationBatchResolver;
 import com.vizako.anonphobease.model.ActionType;
 import com.vizako.anonphobease.model.Report;
 import com.vizako.anonphobease.repository.ReportRepository;
 import com.vizako.anonphobease.v1.dto.BanDTO;
 import com.vizako.anonphobease.v1.dto.ReportActionRequestDTO;
 import com.vizako.anonphobease.v1.dto.ReportDTO;
+import com.vizako.anonphobease.v1.dto.ReportFilterDTO;
+import com.vizako.anonphobease.v1.dto.ReportPageDTO;
 import com.vizako.anonphobease.v1.mapper.ReportMapper;
+import com.vizako.anonphobease.websocket.ModerationFeed;
+import com.mongodb.client.result.UpdateResult;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
 import org.bson.types.ObjectId;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ReportService {
 
+    private static final String REPORTS = "reports";
+    private static final String CURSOR_SEPARATOR = "_";
+
     private final ReportRepository reportRepository;
     private final UserService userService;
     private final ChatService chatService;
     private final MessageService messageService;
     private final BanService banService;
+    private final RelationBatchResolver relationBatchResolver;
+    private final MongoTemplate mongoTemplate;
+    private final ModerationFeed moderationFeed;
 
     public List<ReportDTO> findAll() {
-        return reportRepository.findAll().stream()
-                .map(this::toFullDTO)
-                .collect(Collectors.toList());
+        return toFullDTOs(reportRepository.findAll());
+    }
+
+    /** Like {@link #toFullDTO} for a whole list, with one query per referenced collection. */
+    public List<ReportDTO> toFullDTOs(List<Report> reports) {
+        RelationBatchResolver.Batch batch = relationBatchResolver.batch();
+        for (Report report : reports) {
+            batch.user(report.getReporterUserId())
+                    .user(report.getReportedUserId())
+                    .user(report.getModeratorId())
+                    .chat(report.getChatId())
+                    .message(report.getMessageId());
+        }
+        RelationBatchResolver.Relations relations = batch.resolve();
+
+        return reports.stream().map(report -> {
+            ReportDTO dto = ReportMapper.toDTO(report);
+            dto.setReporterUsername(relations.userName(report.getReporterUserId()));
+            dto.setReportedUsername(relations.userName(report.getReportedUserId()));
+            dto.setModeratorName(relations.userName(report.getModeratorId()));
+            dto.setChatName(relations.chatName(report.getChatId()));
+            dto.setMessageContent(relations.messageContent(report.getMessageId()));
+            return dto;
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * One page of the moderation queue ordered by {@code createdAt}, then id. {@code after} is the
+     * {@code nextCursor} of the previous page; only the returned page is enriched. Every report is
+     * expected to have {@code createdAt}: {@link #save} sets it and {@link #backfillCreatedAt} fills
+     * in older ones.
+     */
+    public ReportPageDTO findQueue(ReportFilterDTO filter, String after, int limit, Sort.Direction direction) {
+        List<Criteria> criteria = filterCriteria(filter, true);
+        if (after != null) {
+            int separator = after.indexOf(CURSOR_SEPARATOR);
+            Date createdAt = new Date(Long.parseLong(after.substring(0, separator)));
+            ObjectId id = new ObjectId(after.substring(separator + 1));
+            boolean asc = direction.isAscending();
+            criteria.add(new Criteria().orOperator(
+                    asc ? Criteria.where("createdAt").gt(createdAt) : Criteria.where("createdAt").lt(createdAt),
+                    new Criteria().andOperator(Criteria.where("createdAt").is(createdAt),
+                            asc ? Criteria.where("_id").gt(id) : Criteria.where("_id").lt(id))));
+        }
+
+        Query query = new Query().with(Sort.by(direction, "createdAt", "_id")).limit(limit + 1);
+        if (!criteria.isEmpty()) {
+            query.addCriteria(new Criteria().andOperator(criteria));
+        }
+        List<Report> rows = mongoTemplate.find(query, Report.class);
+
+        boolean hasMore = rows.size() > limit;
+        List<Report> page = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            Report last = page.get(page.size() - 1);
+            nextCursor = createdAtOf(last).getTime() + CURSOR_SEPARATOR + last.getId().toHexString();
+        }
+        return new ReportPageDTO(toFullDTOs(page), nextCursor, hasMore);
+    }
+
+    /**
+     * Gives reports stored without {@code createdAt} the creation time of their id, so the queue's
+     * {@code (createdAt, _id)} order and cursors cover every report. Matches nothing once done.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillCreatedAt() {
+        try {
+            UpdateResult result = mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("createdAt").is(null)),
+                    AggregationUpdate.update().set("createdAt").toValue(ConvertOperators.valueOf("_id").convertToDate()),
+                    REPORTS);
+            if (result.getModifiedCount() > 0) {
+                log.info("Backfilled createdAt of {} reports from their ids", result.getModifiedCount());
+            }
+        } catch (DataAccessException e) {
+            log.warn("Backfilling report createdAt failed: {}", e.getMessage());
+        }
+    }
+
+    /** Until the backfill has run, a report without createdAt is placed by its id's timestamp. */
+    private static Date createdAtOf(Report report) {
+        return report.getCreatedAt() != null ? report.getCreatedAt() : report.getId().getDate();
+    }
+
+    public static boolean isValidCursor(String cursor) {
+        int separator = cursor.indexOf(CURSOR_SEPARATOR);
+        if (separator < 1 || !ObjectId.isValid(cursor.substring(separator + 1))) return false;
+        try {
+            Long.parseLong(cursor.substring(0, separator));
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Number of reports per {@link ActionType} under the same filters, ignoring the status ones.
+     * Grouping follows a sort on {@code actionTaken}, so an unfiltered count is a covered index scan.
+     */
+    public Map<ActionType, Long> countByStatus(ReportFilterDTO filter) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        List<Criteria> criteria = filterCriteria(filter, false);
+        if (!criteria.isEmpty()) {
+            stages.add(Aggregation.match(new Criteria().andOperator(criteria)));
+        }
+        stages.add(Aggregation.sort(Sort.Direction.ASC, "actionTaken"));
+        stages.add(Aggregation.project("actionTaken").andExclude("_id"));
+        stages.add(Aggregation.group("actionTaken").count().as("count"));
+
+        Map<ActionType, Long> counts = new EnumMap<>(ActionType.class);
+        for (ActionType type : ActionType.values()) {
+            counts.put(type, 0L);
+        }
+        for (Document row : mongoTemplate.aggregate(Aggregation.newAggregation(stages), REPORTS, Document.class)) {
+            String type = row.getString("_id");
+            if (type != null) {
+                counts.put(ActionType.valueOf(type), ((Number) row.get("count")).longValue());
+            }
+        }
+        return counts;
+    }
+
+    private static List<Criteria> filterCriteria(ReportFilterDTO filter, boolean withStatus) {
+        List<Criteria> criteria = new ArrayList<>();
+        if (withStatus && filter.getResolved() != null) {
+            criteria.add(Criteria.where("isResolved").is(filter.getResolved()));
+        }
+        if (withStatus && filter.getActionTaken() != null) {
+            criteria.add(Criteria.where("actionTaken").is(filter.getActionTaken().name()));
+        }
+        if (filter.getChatId() != null) {
+            criteria.add(Criteria.where("chatId").is(new ObjectId(filter.getChatId())));
+        }
+        if (filter.getReportedUserId() != null) {
+            criteria.add(Criteria.where("reportedUserId").is(new ObjectId(filter.getReportedUserId())));
+        }
+        if (filter.getFrom() != null || filter.getTo() != null) {
+            Criteria createdAt = Criteria.where("createdAt");
+            if (filter.getFrom() != null) createdAt.gte(Date.from(filter.getFrom()));
+            if (filter.getTo() != null) createdAt.lt(Date.from(filter.getTo()));
+            criteria.add(createdAt);
+        }
+        return criteria;
     }
 
     public Optional<ReportDTO> findById(String id) {
@@ -37,10 +208,24 @@ public class ReportService {
                 .map(ReportMapper::toDTO);
     }
 
+    /** Reasons for a batch of report ids in one query; unknown ids are left out. */
+    public Map<ObjectId, String> getReasonsByIds(Collection<ObjectId> ids) {
+        Map<ObjectId, String> reasons = new HashMap<>();
+        if (ids.isEmpty()) return reasons;
+        for (Report report : reportRepository.findAllById(ids)) {
+            reasons.put(report.getId(), report.getReason());
+        }
+        return reasons;
+    }
+
     public ReportDTO save(ReportDTO dto) {
         dto.setActionTaken(ActionType.PENDING);
         Report entity = ReportMapper.toEntity(dto);
+        if (entity.getCreatedAt() == null) {
+            entity.setCreatedAt(new Date());
+        }
         Report saved = reportRepository.save(entity);
+        moderationFeed.publish(ModerationFeed.REPORT_CREATED, toFullDTOs(List.of(saved)).get(0));
         return ReportMapper.toDTO(saved);
     }
 
@@ -108,7 +293,9 @@ public class ReportService {
             report.setIsResolved(true);
             report.setResolvedAt(new Date());
             reportRepository.save(report);
-            return Optional.of(toFullDTO(report));
+            ReportDTO resolved = toFullDTO(report);
+            moderationFeed.publish(ModerationFeed.REPORT_RESOLVED, resolved);
+            return Optional.of(resolved);
         }
         return Optional.empty();
     }
@@ -153,7 +340,9 @@ public class ReportService {
 
         banService.save(banDTO);
 
-        return Optional.of(toFullDTO(report));
+        ReportDTO resolved = toFullDTO(report);
+        moderationFeed.publish(ModerationFeed.REPORT_RESOLVED, resolved);
+        return Optional.of(resolved);
     }
 
 
@@ -3,7 +3,9 @@ package com.vizako.anonphobease.service;
 import com.vizako.anonphobease.model.LogType;
 import com.vizako.anonphobease.model.RelatedEntityType;
 import com.vizako.anonphobease.model.Role;
+import com.vizako.anonphobease.model.User;
 import com.vizako.anonphobease.repository.RoleRepository;
+import com.vizako.anonphobease.repository.UserRepository;
 import com.vizako.anonphobease.v1.dto.RoleDTO;
 import com.vizako.anonphobease.v1.mapper.RoleMapper;
 import lombok.RequiredArgsConstructor;
@@ -13,14 +15,18 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class RoleService {
 
     private final RoleRepository roleRepository;
+    private final UserRepository userRepository;
+    private final TokenRevocationService tokenRevocationService;
+    private final IdentityCache identityCache;
+    private final ChatDirectory chatDirectory;
     private UserLogService userLogService;
 
     @Autowired
@@ -30,19 +36,19 @@ public class RoleService {
 
 
     public List<RoleDTO> findAll() {
-        return roleRepository.findAll().stream()
-                .map(RoleMapper::toDTO)
-                .collect(Collectors.toList());
+        return chatDirectory.roles();
     }
 
+    /** Served from the reference-data snapshot; falls back to Mongo for roles it has not seen yet. */
     public Optional<RoleDTO> findById(String id) {
-        return roleRepository.findById(new ObjectId(id))
-                .map(RoleMapper::toDTO);
+        return chatDirectory.findRoleById(id)
+                .or(() -> roleRepository.findById(new ObjectId(id)).map(RoleMapper::toDTO));
     }
 
     public RoleDTO save(RoleDTO dto, String createdByUserId) {
         Role entity = RoleMapper.toEntity(dto);
         Role saved = roleRepository.save(entity);
+        chatDirectory.refresh();
         userLogService.save(createdByUserId, LogType.ROLE_SAVE, saved.getId().toHexString(), RelatedEntityType.ROLE);
         return RoleMapper.toDTO(saved);
     }
@@ -50,20 +56,40 @@ public class RoleService {
     public Optional<RoleDTO> update(String id, RoleDTO dto, String updatedByUserId) {
         if (dto == null) return Optional.empty();
         return roleRepository.findById(new ObjectId(id)).map(existingRole -> {
+            String previousName = existingRole.getName();
             RoleMapper.updateEntityFromDto(dto, existingRole);
             Role saved = roleRepository.save(existingRole);
+            identityCache.invalidateRole(saved.getId());
+            if (!Objects.equals(previousName, saved.getName())) {
+                revokeHolders(saved.getId());
+            }
+            chatDirectory.refresh();
             userLogService.save(updatedByUserId, LogType.ROLE_UPDATE, saved.getId().toHexString(), RelatedEntityType.ROLE);
             return RoleMapper.toDTO(saved);
         });
     }
 
     public Optional<RoleDTO> findByName(String name) {
-        return roleRepository.findByName(name)
-                .map(RoleMapper::toDTO);
+        return chatDirectory.findRoleByName(name)
+                .or(() -> roleRepository.findByName(name).map(RoleMapper::toDTO));
     }
 
     public void deleteById(String id, String deletedByUserId) {
         userLogService.save(deletedByUserId, LogType.ROLE_DELETE, id, RelatedEntityType.ROLE);
         roleRepository.deleteById(new ObjectId(id));
+        identityCache.invalidateRole(new ObjectId(id));
+        revokeHolders(new ObjectId(id));
+        chatDirectory.refresh();
+    }
+
+    /**
+     * Stateless tokens carry the role name as a claim, so a renamed or deleted role would keep
+     * authorizing its holders until their tokens expire. Revoking them forces a fresh login.
+     */
+    private void revokeHolders(ObjectId roleId) {
+        for (User user : userRepository.findByRoleId(roleId)) {
+            tokenRevocationService.revokeUser(user.getId());
+            identityCache.invalidateUser(user.getId());
+        }
     }
 }
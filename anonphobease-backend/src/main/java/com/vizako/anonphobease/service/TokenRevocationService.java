@@ -0,0 +1,163 @@
+package com.vizako.anonphobease.service;
+
+import com.vizako.anonphobease.model.TokenRevocation;
+import com.vizako.anonphobease.repository.TokenRevocationRepository;
+import com.vizako.anonphobease.util.JwtUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory denylist of tokens that must no longer authenticate, so stateless authentication can
+ * check revocation without touching Mongo. A logout revokes one token; a ban, role change or
+ * delete revokes every token the user was issued before it. Revocations are written to the
+ * {@code token_revocations} collection, loaded at startup and polled, so they survive restarts
+ * and reach other nodes within one refresh interval.
+ * <p>
+ * Token issue times have second precision, so a user-wide revocation covers tokens issued before
+ * the second it happened in. A token issued earlier in that same second stays valid, which keeps
+ * a login right after a role change from being locked out.
+ */
+@Slf4j
+@Service
+public class TokenRevocationService {
+
+    // Tolerates clock skew between the node that wrote a revocation and the one polling for it.
+    private static final long REFRESH_OVERLAP_MS = 5_000;
+
+    private final TokenRevocationRepository tokenRevocationRepository;
+    private final LongSupplier clock;
+    private final Counter rejected;
+
+    /** Expiry of each revoked token, by digest. */
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    /** Per user: tokens issued before this time (epoch ms, whole seconds) are revoked. */
+    private final Map<String, Long> userCutoffs = new ConcurrentHashMap<>();
+
+    private volatile long lastRefresh = -1;
+
+    @Autowired
+    public TokenRevocationService(TokenRevocationRepository tokenRevocationRepository, MeterRegistry meterRegistry) {
+        this(tokenRevocationRepository, meterRegistry, System::currentTimeMillis);
+    }
+
+    public TokenRevocationService(TokenRevocationRepository tokenRevocationRepository,
+                                  MeterRegistry meterRegistry,
+                                  LongSupplier clock) {
+        this.tokenRevocationRepository = tokenRevocationRepository;
+        this.clock = clock;
+
+        rejected = meterRegistry.counter("auth.revocations.rejected");
+        Gauge.builder("auth.revocations.size", this, TokenRevocationService::size)
+                .description("Revoked tokens and users held in memory")
+                .register(meterRegistry);
+    }
+
+    public boolean isRevoked(String tokenDigest, String userId, long issuedAt) {
+        boolean revoked = revokedTokens.containsKey(tokenDigest);
+        if (!revoked && userId != null) {
+            Long cutoff = userCutoffs.get(userId);
+            revoked = cutoff != null && issuedAt < cutoff;
+        }
+        if (revoked) {
+            rejected.increment();
+        }
+        return revoked;
+    }
+
+    /** Revokes a single token, e.g. on logout. */
+    public void revokeToken(String tokenDigest, String userId, long expiresAt) {
+        revokedTokens.put(tokenDigest, expiresAt);
+        persist(TokenRevocation.builder()
+                .userId(userId)
+                .tokenDigest(tokenDigest)
+                .revokedAt(new Date(clock.getAsLong()))
+                .expiresAt(new Date(expiresAt))
+                .build());
+    }
+
+    /** Revokes every token issued to the user so far; the user has to log in again. */
+    public void revokeUser(ObjectId userId) {
+        if (userId == null) return;
+        long now = clock.getAsLong();
+        applyUserCutoff(userId.toHexString(), now);
+        persist(TokenRevocation.builder()
+                .userId(userId.toHexString())
+                .revokedAt(new Date(now))
+                .expiresAt(new Date(now + JwtUtil.TOKEN_VALIDITY_MS))
+                .build());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        refresh();
+    }
+
+    /**
+     * Picks up revocations written since the last run (by any node), then forgets and deletes the
+     * ones whose tokens have all expired.
+     */
+    @Scheduled(initialDelayString = "${app.auth.revocations.refresh-ms:10000}",
+            fixedDelayString = "${app.auth.revocations.refresh-ms:10000}")
+    public void refresh() {
+        long now = clock.getAsLong();
+        try {
+            List<TokenRevocation> revocations = lastRefresh < 0
+                    ? tokenRevocationRepository.findByExpiresAtAfter(new Date(now))
+                    : tokenRevocationRepository.findByRevokedAtAfter(new Date(lastRefresh - REFRESH_OVERLAP_MS));
+            revocations.forEach(this::apply);
+            lastRefresh = now;
+        } catch (RuntimeException e) {
+            log.warn("Could not load token revocations: {}", e.getMessage());
+            return;
+        }
+
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        userCutoffs.values().removeIf(cutoff -> cutoff + JwtUtil.TOKEN_VALIDITY_MS <= now);
+        try {
+            tokenRevocationRepository.deleteByExpiresAtBefore(new Date(now));
+        } catch (RuntimeException e) {
+            log.debug("Could not delete expired token revocations: {}", e.getMessage());
+        }
+    }
+
+    public int size() {
+        return revokedTokens.size() + userCutoffs.size();
+    }
+
+    private void apply(TokenRevocation revocation) {
+        if (revocation.getExpiresAt() == null || revocation.getRevokedAt() == null) return;
+        if (revocation.getTokenDigest() != null) {
+            revokedTokens.put(revocation.getTokenDigest(), revocation.getExpiresAt().getTime());
+        } else if (revocation.getUserId() != null) {
+            applyUserCutoff(revocation.getUserId(), revocation.getRevokedAt().getTime());
+        }
+    }
+
+    private void applyUserCutoff(String userId, long revokedAt) {
+        long cutoff = revokedAt / 1000 * 1000;
+        userCutoffs.merge(userId, cutoff, Math::max);
+    }
+
+    private void persist(TokenRevocation revocation) {
+        try {
+            tokenRevocationRepository.save(revocation);
+        } catch (RuntimeException e) {
+            // Still enforced on this node; other nodes and restarts miss it.
+            log.warn("Could not persist token revocation for user {}: {}", revocation.getUserId(), e.getMessage());
+        }
+    }
+}
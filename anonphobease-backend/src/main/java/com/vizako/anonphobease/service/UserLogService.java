@@ -1,28 +1,58 @@
 package com.vizako.anonphobease.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.vizako.anonphobease.helper.RelatedEntityHelperService;
 import com.vizako.anonphobease.model.*;
 import com.vizako.anonphobease.repository.UserLogRepository;
 import com.vizako.anonphobease.v1.dto.*;
 import com.vizako.anonphobease.v1.mapper.UserLogMapper;
 import lombok.RequiredArgsConstructor;
+import org.bson.Document;
 import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class UserLogService {
 
+    private static final String USER_LOGS = "user_logs";
+
     private final UserLogRepository userLogRepository;
     private final UserService userService;
     private final RelatedEntityHelperService relatedEntityHelperService;
+    private final MongoTemplate mongoTemplate;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
 
+    @Value("${app.export.batch-size:500}")
+    private int exportBatchSize = 500;
 
 public List<UserLogDTO> findAll() {
         return userLogRepository.findAll().stream()
@@ -30,6 +60,58 @@ public List<UserLogDTO> findAll() {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * One page of the audit log, newest first, in a single aggregation: the filters and the
+     * {@code before} keyset bound are matched on the indexed fields, and the username and related
+     * entity name of each row are joined in with {@code $lookup} stages on the page only. Each
+     * entity collection is joined only for the rows that refer to it, split out by a {@code $facet}.
+     */
+    public UserLogPageDTO findPage(String before, int limit, String userId, LogType logType, Instant from, Instant to) {
+        List<Criteria> filters = new ArrayList<>();
+        // Ids carry their creation second, so the time range bounds _id like the keyset and
+        // stays on the same index as the sort.
+        ObjectId lower = from != null ? ObjectId.getSmallestWithDate(Date.from(from)) : null;
+        ObjectId upper = before != null ? new ObjectId(before) : null;
+        if (to != null) {
+            ObjectId toBound = ObjectId.getSmallestWithDate(Date.from(to));
+            if (upper == null || toBound.compareTo(upper) < 0) upper = toBound;
+        }
+        if (lower != null || upper != null) {
+            Criteria id = Criteria.where("_id");
+            if (lower != null) id.gte(lower);
+            if (upper != null) id.lt(upper);
+            filters.add(id);
+        }
+        if (userId != null) filters.add(Criteria.where("userId").is(new ObjectId(userId)));
+        if (logType != null) filters.add(Criteria.where("logType").is(logType.name()));
+
+        List<AggregationOperation> stages = new ArrayList<>();
+        if (!filters.isEmpty()) {
+            stages.add(Aggregation.match(new Criteria().andOperator(filters)));
+        }
+        stages.add(Aggregation.sort(Sort.Direction.DESC, "_id"));
+        // One extra row tells whether another page exists.
+        stages.add(Aggregation.limit(limit + 1));
+        stages.add(lookup("users", "userId", "user", "username"));
+        stages.addAll(joinRelatedEntities(new EnumMap<>(Map.of(
+                RelatedEntityType.CHAT, lookup("chats", "relatedEntityId", "chat", "name", "languageId"),
+                RelatedEntityType.REPORT, lookup("reports", "relatedEntityId", "report", "reason"),
+                RelatedEntityType.PHOBIA, lookup("phobias", "relatedEntityId", "phobia", "name"),
+                RelatedEntityType.LANGUAGE, lookup("languages", "relatedEntityId", "language", "name")))));
+
+        List<Document> rows = mongoTemplate.aggregate(Aggregation.newAggregation(stages), USER_LOGS, Document.class)
+                .getMappedResults();
+
+        boolean hasMore = rows.size() > limit;
+        List<Document> page = hasMore ? rows.subList(0, limit) : rows;
+        List<UserLogDTO> logs = new ArrayList<>(page.size());
+        for (Document row : page) {
+            logs.add(toJoinedDTO(row));
+        }
+        String nextCursor = hasMore ? logs.get(logs.size() - 1).getId() : null;
+        return new UserLogPageDTO(logs, nextCursor, hasMore);
+    }
+
     public Optional<UserLogDTO> findById(String id) {
         return userLogRepository.findById(new ObjectId(id))
                 .map(this::toEnrichedDTO);
@@ -41,6 +123,50 @@ public List<UserLogDTO> findAll() {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Streams the audit log to {@code out} as NDJSON in id order, optionally narrowed to one user,
+     * to entries about one chat and to a creation-time range. Entries are read off a Mongo cursor
+     * and enriched one batch at a time, with the usernames of a batch fetched in a single query.
+     */
+    public void exportLogs(String userId, String chatId, Instant from, Instant to, OutputStream out) throws IOException {
+        Query query = new Query().with(Sort.by(Sort.Direction.ASC, "_id")).cursorBatchSize(exportBatchSize);
+        if (userId != null) query.addCriteria(Criteria.where("userId").is(new ObjectId(userId)));
+        if (chatId != null) {
+            query.addCriteria(Criteria.where("relatedEntityType").is(RelatedEntityType.CHAT)
+                    .and("relatedEntityId").is(new ObjectId(chatId)));
+        }
+        if (from != null || to != null) {
+            Criteria createdAt = Criteria.where("createdAt");
+            if (from != null) createdAt.gte(Date.from(from));
+            if (to != null) createdAt.lt(Date.from(to));
+            query.addCriteria(createdAt);
+        }
+
+        try (Stream<UserLog> cursor = mongoTemplate.stream(query, UserLog.class);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            List<UserLog> batch = new ArrayList<>(exportBatchSize);
+            for (Iterator<UserLog> it = cursor.iterator(); it.hasNext(); ) {
+                batch.add(it.next());
+                if (batch.size() == exportBatchSize || !it.hasNext()) {
+                    Map<ObjectId, String> userNames = userService.getUserNamesByIds(
+                            batch.stream().map(UserLog::getUserId).filter(Objects::nonNull).collect(Collectors.toSet()));
+                    List<RelatedEntityInfo> infos = relatedEntityHelperService.getRelatedEntityInfos(batch);
+                    for (int i = 0; i < batch.size(); i++) {
+                        UserLog userLog = batch.get(i);
+                        RelatedEntityInfo info = infos.get(i);
+                        generator.writeObject(UserLogMapper.toDTO(userLog,
+                                userNames.getOrDefault(userLog.getUserId(), "Unknown User"), info.getName(), info.getExtra()));
+                        generator.writeRaw('\n');
+                    }
+                    generator.flush();
+                    batch.clear();
+                }
+            }
+        }
+    }
+
     public UserLogDTO save(String userId, LogType logType, String relatedEntityId, RelatedEntityType relatedEntityType) {
         UserLogDTO dto = new UserLogDTO(
                 null,
@@ -63,6 +189,84 @@ public List<UserLogDTO> findAll() {
         userLogRepository.deleteById(new ObjectId(id));
     }
 
+    /** {@code $lookup} by id that brings back only the named fields of the joined document. */
+    private static AggregationOperation lookup(String from, String localField, String as, String... fields) {
+        Document projection = new Document("_id", 0);
+        for (String field : fields) {
+            projection.append(field, 1);
+        }
+        Document lookup = new Document("from", from)
+                .append("localField", localField)
+                .append("foreignField", "_id")
+                .append("pipeline", List.of(new Document("$project", projection)))
+                .append("as", as);
+        return context -> new Document("$lookup", lookup);
+    }
+
+    /**
+     * Runs each lookup on the rows of its entity type only, passes the other rows through, and
+     * puts the page back together in {@code _id} order.
+     */
+    private static List<AggregationOperation> joinRelatedEntities(Map<RelatedEntityType, AggregationOperation> lookups) {
+        Document facets = new Document();
+        List<String> joined = new ArrayList<>();
+        List<String> parts = new ArrayList<>();
+        lookups.forEach((type, lookup) -> {
+            facets.append(type.name(), List.of(
+                    new Document("$match", new Document("relatedEntityType", type.name())),
+                    lookup.toDocument(Aggregation.DEFAULT_CONTEXT)));
+            joined.add(type.name());
+            parts.add("$" + type.name());
+        });
+        facets.append("OTHER", List.of(new Document("$match", new Document("relatedEntityType", new Document("$nin", joined)))));
+        parts.add("$OTHER");
+        return List.of(
+                context -> new Document("$facet", facets),
+                context -> new Document("$project", new Document("rows", new Document("$concatArrays", parts))),
+                context -> new Document("$unwind", "$rows"),
+                context -> new Document("$replaceRoot", new Document("newRoot", "$rows")),
+                context -> new Document("$sort", new Document("_id", -1)));
+    }
+
+    private UserLogDTO toJoinedDTO(Document row) {
+        UserLog userLog = mongoTemplate.getConverter().read(UserLog.class, row);
+        String userName = Optional.ofNullable(joined(row, "user")).map(user -> user.getString("username"))
+                .orElse("Unknown User");
+
+        String relatedEntityName = null;
+        String relatedEntityExtra = null;
+        if (userLog.getRelatedEntityType() != null) {
+            // Same names as RelatedEntityHelperService.getRelatedEntityInfo, taken from the joins.
+            switch (userLog.getRelatedEntityType()) {
+                case USER -> relatedEntityName = userName;
+                case CHAT -> {
+                    Document chat = joined(row, "chat");
+                    if (chat != null) {
+                        relatedEntityName = chat.getString("name");
+                        ObjectId languageId = chat.getObjectId("languageId");
+                        relatedEntityExtra = languageId != null ? languageId.toHexString() : null;
+                    }
+                }
+                case REPORT -> relatedEntityName = joinedString(row, "report", "reason");
+                case PHOBIA -> relatedEntityName = joinedString(row, "phobia", "name");
+                case LANGUAGE -> relatedEntityName = joinedString(row, "language", "name");
+                default -> {
+                }
+            }
+        }
+        return UserLogMapper.toDTO(userLog, userName, relatedEntityName, relatedEntityExtra);
+    }
+
+    private static Document joined(Document row, String as) {
+        List<Document> matches = row.getList(as, Document.class);
+        return matches != null && !matches.isEmpty() ? matches.get(0) : null;
+    }
+
+    private static String joinedString(Document row, String as, String field) {
+        Document document = joined(row, as);
+        return document != null ? document.getString(field) : null;
+    }
+
     private UserLogDTO toEnrichedDTO(UserLog userLog) {
         String userName = userService.getUserNameById(userLog.getUserId().toString());
         RelatedEntityInfo info = relatedEntityHelperService.getRelatedEntityInfo(userLog);
@@ -2,7 +2,7 @@ package com.vizako.anonphobease.service;
 
 import com.vizako.anonphobease.model.User;
 import com.vizako.anonphobease.model.Role;
-import com.vizako.anonphobease.repository.RoleRepository;
+import com.vizako.anonphobease.model.UserIdentity;
 import com.vizako.anonphobease.repository.UserRepository;
 import com.vizako.anonphobease.v1.dto.UserDTO;
 import com.vizako.anonphobease.v1.mapper.UserMapper;
@@ -11,8 +11,12 @@ import org.bson.types.ObjectId;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -23,34 +27,60 @@ public class UserService {
 
     private final UserRepository userRepository;
 
-    private final RoleRepository roleRepository;
-
     private final PasswordEncoder passwordEncoder;
 
+    private final IdentityCache identityCache;
+
+    private final TokenRevocationService tokenRevocationService;
+
 
     public List<UserDTO> findAll() {
-        return userRepository.findAll().stream()
+        List<User> users = userRepository.findAll();
+        Map<ObjectId, Role> roles = identityCache.findRoles(users.stream().map(User::getRoleId).distinct().toList());
+        return users.stream()
                 .map(user -> {
-                    Role role = findRoleById(user.getRoleId().toString());
+                    Role role = roles.get(user.getRoleId());
+                    if (role == null) {
+                        throw new IllegalArgumentException("Role not found: " + user.getRoleId());
+                    }
                     return UserMapper.toDTO(user, role);
                 })
                 .collect(Collectors.toList());
     }
 
     public Optional<UserDTO> findById(String id) {
-        return userRepository.findById(new ObjectId(id))
+        return identityCache.findUser(new ObjectId(id))
                 .map(user -> {
-                    Role role = findRoleById(user.getRoleId().toString());
+                    Role role = findRoleById(user.roleId().toString());
                     return UserMapper.toDTO(user, role);
                 });
     }
 
     public String getUserNameById(String id) {
-        return userRepository.findById(new ObjectId(id))
-                .map(User::getUsername)
+        return identityCache.findUser(new ObjectId(id))
+                .map(UserIdentity::username)
                 .orElse("Unknown User");
     }
 
+    /** Usernames for a batch of ids, with at most one query; ids without a user are left out. */
+    public Map<ObjectId, String> getUserNamesByIds(Collection<ObjectId> ids) {
+        if (ids.isEmpty()) return new HashMap<>();
+        return identityCache.findUserNames(ids);
+    }
+
+    /** Users with their roles for a batch of ids, with at most one query each for users and roles. */
+    public Map<ObjectId, UserDTO> findAllByIds(Collection<ObjectId> ids) {
+        if (ids.isEmpty()) return new HashMap<>();
+        Map<ObjectId, UserIdentity> users = identityCache.findUsers(ids);
+        Map<ObjectId, Role> roles = identityCache.findRoles(users.values().stream()
+                .map(UserIdentity::roleId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+        Map<ObjectId, UserDTO> found = new HashMap<>();
+        users.forEach((id, user) -> found.put(id, UserMapper.toDTO(user, roles.get(user.roleId()))));
+        return found;
+    }
+
     public UserDTO save(UserDTO dto) {
         if (dto == null) {
             throw new IllegalArgumentException("UserDTO cannot be null");
@@ -67,6 +97,7 @@ public class UserService {
         }
 
         User saved = userRepository.save(user);
+        identityCache.invalidateUser(saved.getId());
         Role role = findRoleById(saved.getRoleId().toString());
         return UserMapper.toDTO(saved, role);
     }
@@ -78,6 +109,8 @@ public class UserService {
         }
 
         return userRepository.findById(new ObjectId(id)).map(existingUser -> {
+            ObjectId previousRoleId = existingUser.getRoleId();
+            String previousUsername = existingUser.getUsername();
             UserMapper.updateEntityFromDto(dto, existingUser);
 
             if (dto.getPassword() != null && !dto.getPassword().isBlank()) {
@@ -85,6 +118,12 @@ public class UserService {
             }
 
             User saved = userRepository.save(existingUser);
+            identityCache.invalidateUser(saved.getId());
+            if (!Objects.equals(previousRoleId, saved.getRoleId())
+                    || !Objects.equals(previousUsername, saved.getUsername())) {
+                // Tokens carry the username and role, so the old ones must not keep authorizing them.
+                tokenRevocationService.revokeUser(saved.getId());
+            }
             Role role = findRoleById(saved.getRoleId().toString());
             return UserMapper.toDTO(saved, role);
         });
@@ -93,17 +132,19 @@ public class UserService {
 
     public void deleteById(ObjectId id) {
         userRepository.deleteById(id);
+        identityCache.invalidateUser(id);
+        tokenRevocationService.revokeUser(id);
     }
 
     public Role findRoleById(String roleId) {
-        return roleRepository.findById(new ObjectId(roleId))
+        return identityCache.findRole(new ObjectId(roleId))
             .orElseThrow(() -> new IllegalArgumentException("Role not found: " + roleId));
     }
 
     public Optional<UserDTO> findByUsername(String username) {
-        return userRepository.findByUsername(username)
+        return identityCache.findUserByUsername(username)
                 .map(user -> {
-                    Role role = findRoleById(user.getRoleId().toString());
+                    Role role = findRoleById(user.roleId().toString());
                     return UserMapper.toDTO(user, role);
                 });
     }
@@ -113,6 +154,7 @@ public class UserService {
                 .ifPresent(user -> {
                     user.setIsActive(isActive);
                     userRepository.save(user);
+                    identityCache.invalidateUser(user.getId());
                 });
     }
 
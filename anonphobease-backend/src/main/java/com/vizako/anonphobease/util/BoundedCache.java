@@ -0,0 +1,176 @@
+package com.vizako.anonphobease.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Size- and TTL-bounded cache. Keys are spread over independently locked LRU segments, so
+ * concurrent readers of different keys rarely contend. Null values are never cached.
+ * <p>
+ * A value loaded while an invalidation happened is returned but not stored, so a load that read
+ * the old document cannot put it back after the write that replaced it.
+ */
+public class BoundedCache<K, V> {
+
+    private static final int SEGMENTS = 16;
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    private static final class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    private final Segment<K, V>[] segments;
+    private final long ttlMs;
+    private final LongSupplier clock;
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public BoundedCache(int maxSize, long ttlMs) {
+        this(maxSize, ttlMs, System::currentTimeMillis);
+    }
+
+    @SuppressWarnings("unchecked")
+    public BoundedCache(int maxSize, long ttlMs, LongSupplier clock) {
+        this.segments = new Segment[SEGMENTS];
+        int perSegment = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>(perSegment);
+        }
+        this.ttlMs = ttlMs;
+        this.clock = clock;
+    }
+
+    /** The cached value, counted as a hit or miss; {@code null} if absent or expired. */
+    public V getIfPresent(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        long now = clock.getAsLong();
+        synchronized (segment) {
+            Entry<V> entry = segment.get(key);
+            if (entry != null && entry.expiresAt() > now) {
+                hits.increment();
+                return entry.value();
+            }
+            if (entry != null) {
+                segment.remove(key);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /** The cached value, or the loader's result, which is cached unless it is {@code null}. */
+    public V get(K key, Function<K, V> loader) {
+        V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        long stamp = stamp();
+        value = loader.apply(key);
+        putIfUnchanged(key, value, stamp);
+        return value;
+    }
+
+    /** Marks the start of a load; pass it to {@link #putIfUnchanged} with the loaded value. */
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    public void putIfUnchanged(K key, V value, long stamp) {
+        putIfUnchanged(key, value, stamp, Long.MAX_VALUE);
+    }
+
+    /** Like {@link #putIfUnchanged(Object, Object, long)}, but the entry expires no later than {@code expiresAt}. */
+    public void putIfUnchanged(K key, V value, long stamp, long expiresAt) {
+        if (value == null) {
+            return;
+        }
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            if (invalidations.get() == stamp) {
+                segment.put(key, new Entry<>(value, Math.min(expiresAt, clock.getAsLong() + ttlMs)));
+            }
+        }
+    }
+
+    /**
+     * Stores the value unless the key holds an unexpired entry; returns whether it was stored.
+     * Not counted as a lookup.
+     */
+    public boolean putIfAbsent(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        long now = clock.getAsLong();
+        synchronized (segment) {
+            Entry<V> entry = segment.get(key);
+            if (entry != null && entry.expiresAt() > now) {
+                return false;
+            }
+            segment.put(key, new Entry<>(value, now + ttlMs));
+            return true;
+        }
+    }
+
+    public void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            invalidations.incrementAndGet();
+            segment.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /** Hits over all lookups since start, or 0 before the first lookup. */
+    public double hitRatio() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+}
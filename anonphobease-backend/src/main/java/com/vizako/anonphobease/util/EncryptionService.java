@@ -9,8 +9,16 @@ import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.IntStream;
 
 @Component
 public class EncryptionService {
@@ -19,12 +27,22 @@ public class EncryptionService {
     private static final int GCM_TAG_LENGTH = 128;   // bits
     private static final int IV_LENGTH = 12;         // bytes
 
+    public static final byte PAYLOAD_V1 = 1;
+
     @Value("${app.crypto.secret}")
     private String secret;
 
+    @Value("${app.crypto.parallel-threshold:256}")
+    private int parallelThreshold = 256;
+
     private SecretKey secretKey;
     private final SecureRandom secureRandom = new SecureRandom();
 
+    // Cipher.getInstance is a provider lookup; initialized ciphers are pooled instead of held per
+    // thread, since most callers run on short-lived virtual threads.
+    private final BlockingQueue<Cipher> ciphers =
+            new ArrayBlockingQueue<>(Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+
     @PostConstruct
     public void init() {
         byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
@@ -39,53 +57,152 @@ public class EncryptionService {
         }
     }
 
+    /**
+     * Legacy storage format: Base64 of IV followed by ciphertext. Still used for values that are
+     * not message bodies; messages are stored with {@link #encryptToBytes}.
+     */
     public String encrypt(String plainText) {
         if (plainText == null) return null;
-        try {
-            byte[] iv = new byte[IV_LENGTH];
-            secureRandom.nextBytes(iv);
+        return Base64.getEncoder().encodeToString(seal(plainText, 0));
+    }
 
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey, spec);
+    /**
+     * Binary storage format: {@link #PAYLOAD_V1}, the 12-byte IV, then ciphertext and tag, stored
+     * as BSON binary without the Base64 overhead.
+     */
+    public byte[] encryptToBytes(String plainText) {
+        if (plainText == null) return null;
+        byte[] payload = seal(plainText, 1);
+        payload[0] = PAYLOAD_V1;
+        return payload;
+    }
 
-            byte[] cipherText = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
+    public String decrypt(String encrypted) {
+        if (encrypted == null) return null;
 
-            byte[] combined = new byte[iv.length + cipherText.length];
-            System.arraycopy(iv, 0, combined, 0, iv.length);
-            System.arraycopy(cipherText, 0, combined, iv.length, cipherText.length);
+        byte[] combined;
+        try {
+            combined = Base64.getDecoder().decode(encrypted);
+        } catch (IllegalArgumentException e) {
+            return encrypted;
+        }
 
-            return Base64.getEncoder().encodeToString(combined);
+        try {
+            // The decoded buffer is ours, so it is decrypted in place.
+            return open(combined, 0, true);
         } catch (Exception e) {
-            throw new IllegalStateException("Failed to encrypt message content", e);
+            throw new IllegalStateException("Failed to decrypt message content", e);
         }
     }
 
-    public String decrypt(String encrypted) {
-        if (encrypted == null) return null;
+    public String decrypt(byte[] payload) {
+        if (payload == null) return null;
+        if (payload.length == 0 || payload[0] != PAYLOAD_V1) {
+            throw new IllegalStateException("Unsupported message payload version");
+        }
+        try {
+            return open(payload, 1, false);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to decrypt message content", e);
+        }
+    }
 
+    /**
+     * Converts a legacy {@code content} value to the binary format. Base64 ciphertext is re-framed
+     * without re-encrypting; anything that does not authenticate is taken to be plaintext stored
+     * before encryption was introduced, and is encrypted.
+     */
+    public byte[] toPayload(String legacyContent) {
+        if (legacyContent == null) return null;
         try {
-            byte[] combined = Base64.getDecoder().decode(encrypted);
+            byte[] combined = Base64.getDecoder().decode(legacyContent);
+            byte[] payload = new byte[combined.length + 1];
+            payload[0] = PAYLOAD_V1;
+            System.arraycopy(combined, 0, payload, 1, combined.length);
+            open(payload, 1, false);
+            return payload;
+        } catch (IllegalArgumentException | GeneralSecurityException e) {
+            return encryptToBytes(legacyContent);
+        }
+    }
 
-            byte[] iv = new byte[IV_LENGTH];
-            byte[] cipherBytes = new byte[combined.length - IV_LENGTH];
+    /**
+     * Decrypts a batch of stored values, each either a legacy Base64 {@code String} or a binary
+     * payload, keeping order and {@code null}s. Batches of at least
+     * {@code app.crypto.parallel-threshold} values are spread across the common fork-join pool.
+     */
+    public List<String> decryptAll(List<?> encrypted) {
+        int size = encrypted.size();
+        String[] plain = new String[size];
+        if (size < parallelThreshold) {
+            for (int i = 0; i < size; i++) {
+                plain[i] = decryptStored(encrypted.get(i));
+            }
+        } else {
+            List<?> source = encrypted instanceof RandomAccess ? encrypted : new ArrayList<>(encrypted);
+            IntStream.range(0, size).parallel().forEach(i -> plain[i] = decryptStored(source.get(i)));
+        }
+        return Arrays.asList(plain);
+    }
 
-            System.arraycopy(combined, 0, iv, 0, IV_LENGTH);
-            System.arraycopy(combined, IV_LENGTH, cipherBytes, 0, cipherBytes.length);
+    private String decryptStored(Object value) {
+        return value instanceof byte[] payload ? decrypt(payload) : decrypt((String) value);
+    }
 
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_LENGTH, iv);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey, spec);
+    /**
+     * Encrypts into a new buffer laid out as {@code header} free bytes, IV, ciphertext and tag.
+     */
+    private byte[] seal(String plainText, int header) {
+        Cipher cipher = null;
+        try {
+            byte[] plainBytes = plainText.getBytes(StandardCharsets.UTF_8);
+            cipher = borrowCipher();
 
-            byte[] plainBytes = cipher.doFinal(cipherBytes);
-            return new String(plainBytes, StandardCharsets.UTF_8);
+            byte[] sealed = new byte[header + IV_LENGTH + plainBytes.length + GCM_TAG_LENGTH / 8];
+            byte[] iv = new byte[IV_LENGTH];
+            secureRandom.nextBytes(iv);
+            System.arraycopy(iv, 0, sealed, header, IV_LENGTH);
 
-        } catch (IllegalArgumentException e) {
-            return encrypted;
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+            cipher.doFinal(plainBytes, 0, plainBytes.length, sealed, header + IV_LENGTH);
+            return sealed;
         } catch (Exception e) {
-            throw new IllegalStateException("Failed to decrypt message content", e);
+            throw new IllegalStateException("Failed to encrypt message content", e);
+        } finally {
+            releaseCipher(cipher);
+        }
+    }
+
+    /**
+     * Decrypts the IV and ciphertext starting at {@code offset}. With {@code inPlace} the plaintext
+     * overwrites the buffer, which callers may only allow for buffers they own.
+     */
+    private String open(byte[] buffer, int offset, boolean inPlace) throws GeneralSecurityException {
+        if (buffer.length - offset < IV_LENGTH + GCM_TAG_LENGTH / 8) {
+            throw new GeneralSecurityException("Ciphertext too short");
+        }
+        Cipher cipher = borrowCipher();
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_LENGTH, buffer, offset, IV_LENGTH));
+            int start = offset + IV_LENGTH;
+            if (inPlace) {
+                int plainLength = cipher.doFinal(buffer, start, buffer.length - start, buffer, 0);
+                return new String(buffer, 0, plainLength, StandardCharsets.UTF_8);
+            }
+            return new String(cipher.doFinal(buffer, start, buffer.length - start), StandardCharsets.UTF_8);
+        } finally {
+            releaseCipher(cipher);
         }
     }
 
+    private Cipher borrowCipher() throws GeneralSecurityException {
+        Cipher cipher = ciphers.poll();
+        return cipher != null ? cipher : Cipher.getInstance(ALGORITHM);
+    }
 
+    private void releaseCipher(Cipher cipher) {
+        if (cipher != null) {
+            ciphers.offer(cipher);
+        }
+    }
 }
@@ -21,6 +21,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/v1/auth")
@@ -31,10 +32,15 @@ public class AuthController {
     private final CaptchaService captchaService;
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest request) {
-       if (!captchaService.verifyToken(request.getCaptcha())) {
-            return ResponseEntity.badRequest().body("Captcha verification failed");
-        }
+    public CompletableFuture<ResponseEntity<?>> login(@Valid @RequestBody LoginRequest request) {
+        // The request is released while the captcha provider answers; the login runs once it has.
+        return captchaService.verifyToken(request.getCaptcha())
+                .<ResponseEntity<?>>thenApply(valid -> valid
+                        ? authenticate(request)
+                        : ResponseEntity.badRequest().body("Captcha verification failed"));
+    }
+
+    private ResponseEntity<?> authenticate(LoginRequest request) {
         try {
             Map<String, Object> response = authService.login(request);
             return ResponseEntity.ok(response);
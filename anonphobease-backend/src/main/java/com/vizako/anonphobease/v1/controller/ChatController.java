@@ -1,16 +1,19 @@
 package com.vizako.anonphobease.v1.controller;
 
 import com.vizako.anonphobease.v1.dto.ChatDTO;
-import com.vizako.anonphobease.v1.dto.ChatsResponseDTO;
 import com.vizako.anonphobease.v1.mapper.ChatMapper;
 import com.vizako.anonphobease.model.Chat;
+import com.vizako.anonphobease.service.ChatDirectory;
 import com.vizako.anonphobease.service.ChatService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
@@ -25,10 +28,33 @@ public class ChatController {
 
     private final ChatService chatService;
 
-    @GetMapping
-    public ResponseEntity<ChatsResponseDTO> getAllChatsWithFilters() {
-        ChatsResponseDTO response = chatService.getAllChatsWithFilters();
-        return ResponseEntity.ok(response);
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getAllChatsWithFilters(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        ChatDirectory.Catalog catalog = chatService.getCatalog();
+        // no-cache: clients keep the body but revalidate it on every entry, which is a cheap 304.
+        if (matches(ifNoneMatch, catalog.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(catalog.etag())
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(catalog.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(catalog.body());
+    }
+
+    /** If-None-Match uses weak comparison, and a compressing proxy may have weakened our tag. */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(etag)) return true;
+        }
+        return false;
     }
 
 
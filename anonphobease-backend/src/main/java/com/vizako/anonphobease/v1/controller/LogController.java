@@ -1,9 +1,21 @@
  package com.vizako.anonphobease.v1.controller;
 
+import com.vizako.anonphobease.model.LogType;
 import com.vizako.anonphobease.service.UserLogService;
 import com.vizako.anonphobease.v1.dto.UserLogDTO;
+import com.vizako.anonphobease.v1.dto.UserLogPageDTO;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Instant;
 import java.util.List;
 
 @RestController
@@ -12,13 +24,47 @@ public class LogController {
 
     private final UserLogService userLogService;
 
+    @Value("${app.logs.page.max-limit:200}")
+    private int maxPageLimit = 200;
+
     public LogController(UserLogService userLogService) {
         this.userLogService = userLogService;
     }
 
     @GetMapping
-    public List<UserLogDTO> getAllLogs() {
-        return userLogService.findAll();
+    public UserLogPageDTO getLogs(@RequestParam(required = false) String before,
+                                  @RequestParam(defaultValue = "50") int limit,
+                                  @RequestParam(required = false) String userId,
+                                  @RequestParam(required = false) LogType logType,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        if ((before != null && !ObjectId.isValid(before)) || (userId != null && !ObjectId.isValid(userId))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid id");
+        }
+        if (limit < 1 || limit > maxPageLimit) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + maxPageLimit);
+        }
+        return userLogService.findPage(before, limit, userId, logType, from, to);
+    }
+
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String chatId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        if ((userId != null && !ObjectId.isValid(userId)) || (chatId != null && !ObjectId.isValid(chatId))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid id");
+        }
+        if (from != null && to != null && !to.isAfter(from)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "to must be after from");
+        }
+
+        StreamingResponseBody body = out -> userLogService.exportLogs(userId, chatId, from, to, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"logs.ndjson\"")
+                .body(body);
     }
 
     @GetMapping("/{userId}")
@@ -1,17 +1,27 @@
 package com.vizako.anonphobease.v1.controller;
 
 import com.vizako.anonphobease.v1.dto.MessageDTO;
+import com.vizako.anonphobease.v1.dto.MessagePageDTO;
 import com.vizako.anonphobease.v1.mapper.MessageMapper;
 import com.vizako.anonphobease.model.Message;
 import com.vizako.anonphobease.service.MessageService;
 import jakarta.validation.Valid;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -22,11 +32,82 @@ public class MessageController {
     @Autowired
     private MessageService messageService;
 
+    @Value("${app.messages.history.max-limit:200}")
+    private int maxHistoryLimit;
+
+    @Value("${app.messages.archive.max-days:366}")
+    private int maxArchiveDays;
+
     @GetMapping
     public List<MessageDTO> getAll() {
         return messageService.findAll();
     }
 
+    @GetMapping("/chat/{chatId}")
+    public MessagePageDTO getChatHistory(@PathVariable String chatId,
+                                         @RequestParam(required = false) String before,
+                                         @RequestParam(required = false) String after,
+                                         @RequestParam(defaultValue = "50") int limit,
+                                         @RequestParam(required = false) String order) {
+        if (!ObjectId.isValid(chatId)
+                || (before != null && !ObjectId.isValid(before))
+                || (after != null && !ObjectId.isValid(after))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid id");
+        }
+        if (limit < 1 || limit > maxHistoryLimit) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + maxHistoryLimit);
+        }
+
+        Sort.Direction direction;
+        if (order == null) {
+            // Paging forward from a cursor reads oldest-first, everything else newest-first.
+            direction = after != null && before == null ? Sort.Direction.ASC : Sort.Direction.DESC;
+        } else if (order.equalsIgnoreCase("asc") || order.equalsIgnoreCase("desc")) {
+            direction = Sort.Direction.fromString(order);
+        } else {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "order must be asc or desc");
+        }
+
+        return messageService.findPageByChatId(chatId, before, after, limit, direction);
+    }
+
+    @GetMapping(value = "/archive/{chatId}", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> getArchivedHistory(
+            @PathVariable String chatId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (!ObjectId.isValid(chatId)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid id");
+        }
+        if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= maxArchiveDays) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "from..to must be an ascending range of at most " + maxArchiveDays + " days");
+        }
+
+        StreamingResponseBody body = out -> messageService.writeArchivedHistory(chatId, from, to, out);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) String chatId,
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        if ((chatId != null && !ObjectId.isValid(chatId)) || (userId != null && !ObjectId.isValid(userId))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid id");
+        }
+        if (from != null && to != null && !to.isAfter(from)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "to must be after from");
+        }
+
+        StreamingResponseBody body = out -> messageService.exportMessages(chatId, userId, from, to, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"messages.ndjson\"")
+                .body(body);
+    }
+
     @GetMapping("/{id}")
     public MessageDTO getById(@PathVariable String id) {
         return messageService.findById(id)
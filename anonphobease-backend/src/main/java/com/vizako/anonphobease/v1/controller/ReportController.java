@@ -2,13 +2,17 @@ package com.vizako.anonphobease.v1.controller;
 
 import com.vizako.anonphobease.v1.dto.ReportActionRequestDTO;
 import com.vizako.anonphobease.v1.dto.ReportDTO;
+import com.vizako.anonphobease.v1.dto.ReportFilterDTO;
+import com.vizako.anonphobease.v1.dto.ReportPageDTO;
 import com.vizako.anonphobease.v1.mapper.ReportMapper;
+import com.vizako.anonphobease.model.ActionType;
 import com.vizako.anonphobease.model.Report;
 import com.vizako.anonphobease.service.ReportService;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,6 +20,7 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -30,6 +35,40 @@ public class ReportController {
         return reportService.findAll();
     }
 
+    @GetMapping("/queue")
+    public ReportPageDTO getQueue(@ModelAttribute ReportFilterDTO filter,
+                                  @RequestParam(required = false) String after,
+                                  @RequestParam(defaultValue = "50") int limit,
+                                  @RequestParam(defaultValue = "asc") String order) {
+        validate(filter);
+        if (after != null && !ReportService.isValidCursor(after)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+        if (limit < 1 || limit > 200) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and 200");
+        }
+        if (!order.equalsIgnoreCase("asc") && !order.equalsIgnoreCase("desc")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "order must be asc or desc");
+        }
+        return reportService.findQueue(filter, after, limit, Sort.Direction.fromString(order));
+    }
+
+    @GetMapping("/queue/counts")
+    public Map<ActionType, Long> getQueueCounts(@ModelAttribute ReportFilterDTO filter) {
+        validate(filter);
+        return reportService.countByStatus(filter);
+    }
+
+    private static void validate(ReportFilterDTO filter) {
+        if ((filter.getChatId() != null && !ObjectId.isValid(filter.getChatId()))
+                || (filter.getReportedUserId() != null && !ObjectId.isValid(filter.getReportedUserId()))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid id");
+        }
+        if (filter.getFrom() != null && filter.getTo() != null && !filter.getTo().isAfter(filter.getFrom())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "to must be after from");
+        }
+    }
+
     @GetMapping("/{id}")
     public ReportDTO getById(@PathVariable String id) {
         return reportService.findById(id)
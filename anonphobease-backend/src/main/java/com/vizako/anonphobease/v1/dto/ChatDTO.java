@@ -1,5 +1,6 @@
 package com.vizako.anonphobease.v1.dto;
 
+import jakarta.validation.constraints.PositiveOrZero;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -15,4 +16,7 @@ public class ChatDTO {
     private String phobiaId;
     private String phobiaName;
     private String chatName;
+    /** Overrides the default retention; 0 clears the override, null leaves it unchanged on update. */
+    @PositiveOrZero
+    private Integer retentionDays;
 }
@@ -0,0 +1,17 @@
+package com.vizako.anonphobease.v1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MessagePageDTO {
+    private List<MessageDTO> messages;
+    /** Message id to pass as {@code before} (newest-first) or {@code after} (oldest-first) for the next page. */
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,26 @@
+package com.vizako.anonphobease.v1.dto;
+
+import com.vizako.anonphobease.model.ActionType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.Instant;
+
+/** Moderation queue filters, bound from query parameters; every field is optional. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportFilterDTO {
+    private Boolean resolved;
+    private String chatId;
+    private String reportedUserId;
+    private ActionType actionTaken;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private Instant from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private Instant to;
+}
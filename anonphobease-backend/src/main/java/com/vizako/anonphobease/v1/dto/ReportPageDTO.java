@@ -0,0 +1,17 @@
+package com.vizako.anonphobease.v1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReportPageDTO {
+    private List<ReportDTO> reports;
+    /** Opaque position to pass as {@code after} for the next page. */
+    private String nextCursor;
+    private boolean hasMore;
+}
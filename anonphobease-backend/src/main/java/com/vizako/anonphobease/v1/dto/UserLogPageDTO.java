@@ -0,0 +1,17 @@
+package com.vizako.anonphobease.v1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserLogPageDTO {
+    private List<UserLogDTO> logs;
+    /** Log id to pass as {@code before} for the next (older) page. */
+    private String nextCursor;
+    private boolean hasMore;
+}
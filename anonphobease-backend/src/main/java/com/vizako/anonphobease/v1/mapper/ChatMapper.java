@@ -13,6 +13,7 @@ public class ChatMapper {
         dto.setLanguageId(entity.getLanguageId() != null ? entity.getLanguageId().toString() : null);
         dto.setPhobiaId(entity.getPhobiaId() != null ? entity.getPhobiaId().toString() : null);
         dto.setChatName(entity.getName() != null ? entity.getName() : null);
+        dto.setRetentionDays(entity.getRetentionDays());
         return dto;
 
     }
@@ -32,6 +33,7 @@ public class ChatMapper {
         if (dto.getChatName() != null && ObjectId.isValid(dto.getChatName())) {
             entity.setName(dto.getChatName());
         }
+        entity.setRetentionDays(retentionOverride(dto.getRetentionDays()));
         return entity;
     }
 
@@ -47,5 +49,13 @@ public class ChatMapper {
         if (dto.getChatName() != null && !dto.getChatName().equals(entity.getName())) {
             entity.setName(dto.getChatName());
         }
+        if (dto.getRetentionDays() != null) {
+            entity.setRetentionDays(retentionOverride(dto.getRetentionDays()));
+        }
+    }
+
+    /** 0 stands for "use the default", stored as no override. */
+    private static Integer retentionOverride(Integer retentionDays) {
+        return retentionDays != null && retentionDays > 0 ? retentionDays : null;
     }
 }
@@ -2,10 +2,13 @@ package com.vizako.anonphobease.v1.mapper;
 
 import com.vizako.anonphobease.model.Role;
 import com.vizako.anonphobease.model.User;
+import com.vizako.anonphobease.model.UserIdentity;
 import com.vizako.anonphobease.v1.dto.RoleDTO;
 import com.vizako.anonphobease.v1.dto.UserDTO;
 import org.bson.types.ObjectId;
 
+import java.util.Date;
+
 public class UserMapper {
 
     public static UserDTO toDTO(User entity, Role role) {
@@ -24,6 +27,22 @@ public class UserMapper {
         return dto;
     }
 
+    public static UserDTO toDTO(UserIdentity identity, Role role) {
+        if (identity == null) return null;
+
+        UserDTO dto = new UserDTO();
+        dto.setId(identity.id() != null ? identity.id().toString() : null);
+        dto.setUsername(identity.username());
+        dto.setIsActive(identity.isActive());
+        dto.setCreatedAt(identity.createdAt() != null ? Date.from(identity.createdAt()) : null);
+
+        if (role != null) {
+            dto.setRole(new RoleDTO(role.getId().toString(), role.getName()));
+        }
+
+        return dto;
+    }
+
     public static User toEntity(UserDTO dto) {
         if (dto == null) return null;
 
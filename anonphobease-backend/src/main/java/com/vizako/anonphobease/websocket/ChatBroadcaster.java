@@ -0,0 +1,113 @@
+package com.vizako.anonphobease.websocket;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Node-local registry of chat sessions. A broadcast is serialized once into a single
+ * immutable frame which is then handed to every recipient's bounded outbound queue,
+ * so a slow client never delays delivery to the others.
+ */
+@Slf4j
+@Component
+public class ChatBroadcaster {
+
+    private final Map<String, Map<String, OutboundSession>> chats = new ConcurrentHashMap<>();
+    private final Map<String, OutboundSession> sessionsById = new ConcurrentHashMap<>();
+
+    private final int queueCapacity;
+    private final OutboundOverflowPolicy overflowPolicy;
+    private final Executor executor;
+
+    @Autowired
+    public ChatBroadcaster(@Value("${app.ws.outbound.queue-capacity:256}") int queueCapacity,
+                           @Value("${app.ws.outbound.overflow-policy:DROP_OLDEST}") OutboundOverflowPolicy overflowPolicy) {
+        this(queueCapacity, overflowPolicy,
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ws-outbound-", 0).factory()));
+    }
+
+    public ChatBroadcaster(int queueCapacity, OutboundOverflowPolicy overflowPolicy, Executor executor) {
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.executor = executor;
+    }
+
+    public void register(String chatId, WebSocketSession session) {
+        OutboundSession outbound = new OutboundSession(session, queueCapacity, overflowPolicy, executor);
+        sessionsById.put(session.getId(), outbound);
+        chats.computeIfAbsent(chatId, key -> new ConcurrentHashMap<>())
+                .put(session.getId(), outbound);
+    }
+
+    public void unregister(String chatId, WebSocketSession session) {
+        OutboundSession outbound = sessionsById.remove(session.getId());
+        if (outbound != null) {
+            outbound.markClosed();
+        }
+        chats.computeIfPresent(chatId, (key, sessions) -> {
+            sessions.remove(session.getId());
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+
+    public void broadcast(String chatId, String payload) {
+        Map<String, OutboundSession> sessions = chats.get(chatId);
+        if (sessions == null || sessions.isEmpty()) {
+            return;
+        }
+        TextMessage frame = new TextMessage(payload);
+        for (OutboundSession outbound : sessions.values()) {
+            outbound.enqueue(frame);
+        }
+    }
+
+    /**
+     * Sends a frame to a single session through its outbound queue, so it never races with broadcasts.
+     */
+    public void send(WebSocketSession session, TextMessage frame) {
+        OutboundSession outbound = sessionsById.get(session.getId());
+        if (outbound != null) {
+            outbound.enqueue(frame);
+        } else {
+            log.debug("Dropping frame for unregistered session {}", session.getId());
+        }
+    }
+
+    public Collection<WebSocketSession> getSessions(String chatId) {
+        Map<String, OutboundSession> sessions = chats.get(chatId);
+        if (sessions == null) {
+            return List.of();
+        }
+        return sessions.values().stream().map(OutboundSession::getSession).toList();
+    }
+
+    public boolean hasSessions(String chatId) {
+        Map<String, OutboundSession> sessions = chats.get(chatId);
+        return sessions != null && !sessions.isEmpty();
+    }
+
+    public void forEachSession(Consumer<WebSocketSession> action) {
+        sessionsById.values().forEach(outbound -> action.accept(outbound.getSession()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService service) {
+            service.shutdown();
+        }
+    }
+}
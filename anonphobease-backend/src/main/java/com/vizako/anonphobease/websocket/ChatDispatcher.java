@@ -0,0 +1,143 @@
+package com.vizako.anonphobease.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs inbound chat work off the servlet thread. Every chat has its own serial lane, so frames
+ * in one chat are processed in arrival order while different chats run in parallel on virtual
+ * threads. The number of queued frames is bounded globally and per chat.
+ */
+@Slf4j
+@Component
+public class ChatDispatcher {
+
+    private static final class Lane {
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        boolean scheduled;
+    }
+
+    private final Executor executor;
+    private final Semaphore permits;
+    private final int maxPendingPerChat;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    private final Timer queueWait;
+    private final Counter rejected;
+
+    @Autowired
+    public ChatDispatcher(@Value("${app.ws.dispatch.max-pending:10000}") int maxPending,
+                          @Value("${app.ws.dispatch.max-pending-per-chat:500}") int maxPendingPerChat,
+                          MeterRegistry meterRegistry) {
+        this(maxPending, maxPendingPerChat, meterRegistry,
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ws-chat-", 0).factory()));
+    }
+
+    public ChatDispatcher(int maxPending, int maxPendingPerChat, MeterRegistry meterRegistry, Executor executor) {
+        this.executor = executor;
+        this.permits = new Semaphore(maxPending);
+        this.maxPendingPerChat = maxPendingPerChat;
+
+        queueWait = Timer.builder("chat.dispatch.queue.wait")
+                .description("Time a frame waits in its chat lane before processing starts")
+                .register(meterRegistry);
+        rejected = meterRegistry.counter("chat.dispatch.rejected");
+        Gauge.builder("chat.dispatch.pending", permits, p -> maxPending - p.availablePermits())
+                .register(meterRegistry);
+        Gauge.builder("chat.dispatch.active_chats", lanes, Map::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues a task behind earlier tasks of the same chat.
+     *
+     * @return {@code false} if the dispatcher or the chat lane is full and the task was not queued
+     */
+    public boolean submit(String chatId, Runnable task) {
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            return false;
+        }
+
+        long enqueuedAt = System.nanoTime();
+        Runnable timed = () -> {
+            queueWait.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("Chat task failed for chat {}", chatId, e);
+            } finally {
+                permits.release();
+            }
+        };
+
+        boolean[] accepted = new boolean[1];
+        boolean[] schedule = new boolean[1];
+        lanes.compute(chatId, (id, lane) -> {
+            if (lane == null) lane = new Lane();
+            if (lane.tasks.size() >= maxPendingPerChat) return lane;
+            lane.tasks.add(timed);
+            accepted[0] = true;
+            if (!lane.scheduled) {
+                lane.scheduled = true;
+                schedule[0] = true;
+            }
+            return lane;
+        });
+
+        if (!accepted[0]) {
+            permits.release();
+            rejected.increment();
+            return false;
+        }
+        if (schedule[0]) {
+            executor.execute(() -> drain(chatId));
+        }
+        return true;
+    }
+
+    private void drain(String chatId) {
+        while (true) {
+            Runnable[] next = new Runnable[1];
+            lanes.compute(chatId, (id, lane) -> {
+                if (lane == null) return null;
+                next[0] = lane.tasks.poll();
+                if (next[0] == null) {
+                    lane.scheduled = false;
+                    return null;
+                }
+                return lane;
+            });
+            if (next[0] == null) return;
+            next[0].run();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService service) {
+            service.shutdown();
+            try {
+                service.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
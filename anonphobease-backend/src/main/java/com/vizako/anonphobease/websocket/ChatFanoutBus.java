@@ -0,0 +1,14 @@
+package com.vizako.anonphobease.websocket;
+
+/**
+ * Delivers chat frames to every backend node. Each node hands the frames it receives to its
+ * own {@link ChatBroadcaster} and records them in its {@link RecentMessageBuffer}, so a chat
+ * works the same whichever node a user is connected to.
+ */
+public interface ChatFanoutBus {
+
+    /**
+     * Broadcasts a serialized frame to all sessions of the chat on every node, starting with this one.
+     */
+    void publish(String chatId, String messageId, String payload);
+}
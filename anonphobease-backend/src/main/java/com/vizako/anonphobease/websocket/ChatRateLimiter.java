@@ -0,0 +1,137 @@
+package com.vizako.anonphobease.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets for inbound chat frames, one per (user, chat). Moderators and admins get their
+ * own burst size and refill rate. A user who keeps hitting the limit can be disconnected.
+ */
+@Component
+public class ChatRateLimiter {
+
+    public enum Decision {
+        ALLOWED, REJECTED, DISCONNECT
+    }
+
+    /** Bucket settings: {@code burst} tokens at most, refilled at {@code perSecond}. */
+    public record Limit(int burst, double perSecond) {
+    }
+
+    private static final Set<String> PRIVILEGED_ROLES = Set.of("MODERATOR", "ADMIN");
+
+    private final Limit userLimit;
+    private final Limit privilegedLimit;
+    private final int disconnectAfter;
+    private final long violationWindowNanos;
+    private final long idleNanos;
+    private final LongSupplier clock;
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private final Counter rejected;
+    private final Counter disconnected;
+
+    @Autowired
+    public ChatRateLimiter(@Value("${app.ws.rate-limit.user.burst:10}") int userBurst,
+                           @Value("${app.ws.rate-limit.user.per-second:2}") double userPerSecond,
+                           @Value("${app.ws.rate-limit.privileged.burst:30}") int privilegedBurst,
+                           @Value("${app.ws.rate-limit.privileged.per-second:10}") double privilegedPerSecond,
+                           @Value("${app.ws.rate-limit.disconnect-after:20}") int disconnectAfter,
+                           @Value("${app.ws.rate-limit.violation-window-ms:60000}") long violationWindowMs,
+                           @Value("${app.ws.rate-limit.idle-ms:600000}") long idleMs,
+                           MeterRegistry meterRegistry) {
+        this(new Limit(userBurst, userPerSecond), new Limit(privilegedBurst, privilegedPerSecond),
+                disconnectAfter, violationWindowMs, idleMs, meterRegistry, System::nanoTime);
+    }
+
+    public ChatRateLimiter(Limit userLimit, Limit privilegedLimit, int disconnectAfter, long violationWindowMs,
+                           long idleMs, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.userLimit = userLimit;
+        this.privilegedLimit = privilegedLimit;
+        this.disconnectAfter = disconnectAfter;
+        this.violationWindowNanos = TimeUnit.MILLISECONDS.toNanos(violationWindowMs);
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMs);
+        this.clock = clock;
+
+        rejected = meterRegistry.counter("chat.rate_limit.rejected");
+        disconnected = meterRegistry.counter("chat.rate_limit.disconnected");
+        Gauge.builder("chat.rate_limit.buckets", buckets, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Takes one token for a frame from this principal. {@link Decision#DISCONNECT} is returned
+     * once {@code disconnect-after} frames have been rejected without a quiet period of
+     * {@code violation-window-ms} in between; a value of 0 disables disconnecting.
+     */
+    public Decision tryAcquire(ChatSessionPrincipal principal) {
+        Limit limit = principal.role() != null && PRIVILEGED_ROLES.contains(principal.role())
+                ? privilegedLimit : userLimit;
+        Bucket bucket = buckets.computeIfAbsent(principal.userId() + ':' + principal.chatId(),
+                key -> new Bucket(limit, clock.getAsLong()));
+
+        Decision decision = bucket.tryConsume(limit, clock.getAsLong());
+        if (decision != Decision.ALLOWED) {
+            rejected.increment();
+            if (decision == Decision.DISCONNECT) {
+                disconnected.increment();
+            }
+        }
+        return decision;
+    }
+
+    @Scheduled(fixedDelayString = "${app.ws.rate-limit.sweep-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = clock.getAsLong();
+        buckets.values().removeIf(bucket -> bucket.isIdle(now, idleNanos));
+    }
+
+    int bucketCount() {
+        return buckets.size();
+    }
+
+    private final class Bucket {
+        private double tokens;
+        private long refilledAt;
+        private int violations;
+        private long lastViolationAt;
+
+        Bucket(Limit limit, long now) {
+            this.tokens = limit.burst();
+            this.refilledAt = now;
+        }
+
+        synchronized Decision tryConsume(Limit limit, long now) {
+            double elapsedSeconds = (now - refilledAt) / 1_000_000_000.0;
+            tokens = Math.min(limit.burst(), tokens + elapsedSeconds * limit.perSecond());
+            refilledAt = now;
+
+            if (tokens >= 1) {
+                tokens -= 1;
+                return Decision.ALLOWED;
+            }
+
+            if (now - lastViolationAt > violationWindowNanos) {
+                violations = 0;
+            }
+            violations++;
+            lastViolationAt = now;
+            return disconnectAfter > 0 && violations >= disconnectAfter ? Decision.DISCONNECT : Decision.REJECTED;
+        }
+
+        synchronized boolean isIdle(long now, long idleNanos) {
+            return now - refilledAt > idleNanos;
+        }
+    }
+}
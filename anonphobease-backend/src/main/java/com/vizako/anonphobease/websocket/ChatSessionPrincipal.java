@@ -0,0 +1,16 @@
+package com.vizako.anonphobease.websocket;
+
+import java.time.Instant;
+
+public record ChatSessionPrincipal(String userId,
+                                   String username,
+                                   String role,
+                                   String chatId,
+                                   Instant expiresAt) {
+
+    public static final String ATTRIBUTE = "chatSessionPrincipal";
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !now.isBefore(expiresAt);
+    }
+}
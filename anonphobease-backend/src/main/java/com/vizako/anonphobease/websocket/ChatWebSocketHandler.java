@@ -3,24 +3,20 @@ package com.vizako.anonphobease.websocket;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.vizako.anonphobease.model.LogType;
-import com.vizako.anonphobease.model.Message;
 import com.vizako.anonphobease.model.RelatedEntityType;
 import com.vizako.anonphobease.service.*;
 import com.vizako.anonphobease.v1.dto.MessageDTO;
-import com.vizako.anonphobease.v1.dto.UserLogDTO;
-import com.vizako.anonphobease.v1.mapper.MessageMapper;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bson.types.ObjectId;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.*;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
-import com.vizako.anonphobease.util.JwtUtil;
 import java.io.IOException;
+import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @Component
@@ -28,60 +24,112 @@ import java.util.concurrent.ConcurrentHashMap;
 @Data
 public class ChatWebSocketHandler extends TextWebSocketHandler {
 
-    private final Map<String, Set<WebSocketSession>> chatSessions = new ConcurrentHashMap<>();
+    private static final CloseStatus TOKEN_EXPIRED = CloseStatus.POLICY_VIOLATION.withReason("Token expired");
 
-    private final MessageService messageService;
-    private final JwtUtil jwtUtil;
+    private static final CloseStatus RATE_LIMIT_EXCEEDED = CloseStatus.POLICY_VIOLATION.withReason("Rate limit exceeded");
+
+    private static final TextMessage USER_BANNED_FRAME = new TextMessage(
+            "{\"type\":\"error\",\"code\":\"USER_BANNED\",\"message\":\"You are banned from the platform.\"}");
+
+    private static final TextMessage SERVER_BUSY_FRAME = new TextMessage(
+            "{\"type\":\"error\",\"code\":\"SERVER_BUSY\",\"message\":\"Server is busy, message was not sent.\"}");
+
+    private static final TextMessage RATE_LIMITED_FRAME = new TextMessage(
+            "{\"type\":\"error\",\"code\":\"RATE_LIMITED\",\"message\":\"You are sending messages too fast.\"}");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ChatBroadcaster chatBroadcaster;
+    private final ChatFanoutBus chatFanoutBus;
+    private final ChatDispatcher chatDispatcher;
+    private final ChatRateLimiter chatRateLimiter;
+    private final RecentMessageBuffer recentMessageBuffer;
+    private final MessageWriteBehindQueue messageWriteBehindQueue;
     private final UserLogService userLogService;
     private final ChatService chatService;
     private final MessageFilterService messageFilterService;
     private final BanService banService;
+    private final ModerationFeed moderationFeed;
 
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) {
-        System.out.println("🔧 New connection: " + session.getUri());
-
-        String chatId = getChatId(session);
-        if (chatId == null) {
-            System.out.println("❌ No chatId found. Closing.");
-            closeSession(session, CloseStatus.BAD_DATA);
+        ChatSessionPrincipal principal = getPrincipal(session);
+        if (principal == null) {
+            log.warn("WebSocket session {} has no authenticated principal. Closing.", session.getId());
+            closeSession(session, CloseStatus.POLICY_VIOLATION);
+            return;
+        }
+        if (principal.isExpired(Instant.now())) {
+            closeSession(session, TOKEN_EXPIRED);
             return;
         }
-        String token = getTokenFromQuery(session.getUri().getQuery());
-        String userId = jwtUtil.extractUserId(token);
-        String userName = jwtUtil.extractUserName(token);
-        userLogService.save( userId, LogType.CONNECTION_ESTABLISHED, chatId, RelatedEntityType.CHAT);
 
+        String chatId = principal.chatId();
+        userLogService.save(principal.userId(), LogType.CONNECTION_ESTABLISHED, chatId, RelatedEntityType.CHAT);
+
+        // Joining runs on the chat's dispatch lane, so a message processed on the lane reaches the
+        // session either inside the history frame or after it, never both.
+        Runnable join = () -> {
+            if (!session.isOpen()) return;
+            chatBroadcaster.register(chatId, session);
+            chatBroadcaster.send(session, new TextMessage(recentMessageBuffer.historyFrame(chatId)));
+        };
+        if (!chatDispatcher.submit(chatId, join)) {
+            join.run();
+        }
+    }
+
+    @Override
+    public void handleTextMessage(WebSocketSession session, TextMessage message) {
+        ChatSessionPrincipal principal = getPrincipal(session);
+        if (principal == null) return;
 
-        chatSessions
-                .computeIfAbsent(chatId, key -> ConcurrentHashMap.newKeySet())
-                .add(session);
+        if (principal.isExpired(Instant.now())) {
+            closeSession(session, TOKEN_EXPIRED);
+            return;
+        }
+
+        switch (chatRateLimiter.tryAcquire(principal)) {
+            case REJECTED -> {
+                chatBroadcaster.send(session, RATE_LIMITED_FRAME);
+                return;
+            }
+            case DISCONNECT -> {
+                log.info("Disconnecting user {} from chat {} for flooding", principal.userId(), principal.chatId());
+                closeSession(session, RATE_LIMIT_EXCEEDED);
+                return;
+            }
+            case ALLOWED -> {
+            }
+        }
 
+        String payload = message.getPayload();
+        if (!chatDispatcher.submit(principal.chatId(), () -> processMessage(session, principal, payload))) {
+            chatBroadcaster.send(session, SERVER_BUSY_FRAME);
+        }
     }
 
-    @Override
-    public void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
-        String chatId = getChatId(session);
-        if (chatId == null) return;
+    private void processMessage(WebSocketSession session, ChatSessionPrincipal principal, String payload) {
+        try {
+            publishMessage(session, principal, payload);
+        } catch (IOException e) {
+            log.warn("Dropping unreadable frame from session {}: {}", session.getId(), e.getMessage());
+        }
+    }
 
-        String token = getTokenFromQuery(session.getUri().getQuery());
-        String userId = jwtUtil.extractUserId(token);
-        String username = jwtUtil.extractUsername(token);
+    private void publishMessage(WebSocketSession session, ChatSessionPrincipal principal, String payload)
+            throws IOException {
+        String chatId = principal.chatId();
+        String userId = principal.userId();
+        String username = principal.username();
 
         if (banService != null && banService.isUserGloballyBanned(new ObjectId(userId))) {
-            ObjectMapper om = new ObjectMapper();
-            ObjectNode error = om.createObjectNode();
-            error.put("type", "error");
-            error.put("code", "USER_BANNED");
-            error.put("message", "You are banned from the platform."); // можно оставить как debug
-
-            session.sendMessage(new TextMessage(error.toString()));
+            chatBroadcaster.send(session, USER_BANNED_FRAME);
             return;
         }
 
-        ObjectMapper objectMapper = new ObjectMapper();
-        ObjectNode json = (ObjectNode) objectMapper.readTree(message.getPayload());
+        ObjectNode json = (ObjectNode) objectMapper.readTree(payload);
 
         json.put("userId", userId);
         json.put("username", username);
@@ -96,72 +144,57 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
 
         String originalText = dto.getContent();
         String filteredText = messageFilterService.filter(originalText, languageCode);
-
-        MessageDTO saved = messageService.save(dto);
-        saved.setRole(jwtUtil.extractUserRole(token));
-        saved.setUsername(username);
-        saved.setContent(filteredText);
-
-        String response = objectMapper.writeValueAsString(saved);
-        Set<WebSocketSession> sessions = chatSessions.get(chatId);
-        if (sessions != null) {
-            for (WebSocketSession s : sessions) {
-                if (s.isOpen()) {
-                    s.sendMessage(new TextMessage(response));
-                }
-            }
+        if (!Objects.equals(originalText, filteredText)) {
+            moderationFeed.recordFilterHit(userId, username, chatId);
         }
 
+        MessageDTO outgoing = new MessageDTO(
+                dto.getMessageId(),
+                filteredText,
+                userId,
+                username,
+                principal.role(),
+                chatId,
+                dto.getCreatedAt()
+        );
+        chatFanoutBus.publish(chatId, outgoing.getMessageId(), objectMapper.writeValueAsString(outgoing));
+
+        messageWriteBehindQueue.submit(dto);
+
     }
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
-        String chatId = getChatId(session);
-        if (chatId == null) return;
+        ChatSessionPrincipal principal = getPrincipal(session);
+        if (principal == null) return;
 
-        String token = getTokenFromQuery(session.getUri().getQuery());
-        String userId = jwtUtil.extractUserId(token);
+        String chatId = principal.chatId();
+        userLogService.save(principal.userId(), LogType.CONNECTION_CLOSED, chatId, RelatedEntityType.CHAT);
 
-        userLogService.save(userId, LogType.CONNECTION_CLOSED, chatId, RelatedEntityType.CHAT);
+        chatBroadcaster.unregister(chatId, session);
+    }
 
-        Set<WebSocketSession> sessions = chatSessions.get(chatId);
-        if (sessions != null) {
-            sessions.remove(session);
-            if (sessions.isEmpty()) {
-                chatSessions.remove(chatId);
+    @Scheduled(fixedDelayString = "${app.ws.expiry-sweep-ms:30000}")
+    public void closeExpiredSessions() {
+        Instant now = Instant.now();
+        chatBroadcaster.forEachSession(session -> {
+            ChatSessionPrincipal principal = getPrincipal(session);
+            if (principal != null && principal.isExpired(now) && session.isOpen()) {
+                closeSession(session, TOKEN_EXPIRED);
             }
-        }
+        });
     }
 
-    private String getChatId(WebSocketSession session) {
-        return Optional.ofNullable(session.getUri())
-                .map(uri -> {
-                    String[] params = uri.getQuery().split("&");
-                    for (String param : params) {
-                        if (param.startsWith("chatId=")) {
-                            return param.substring("chatId=".length());
-                        }
-                    }
-                    return null;
-                })
-                .orElse(null);
+    private ChatSessionPrincipal getPrincipal(WebSocketSession session) {
+        Object principal = session.getAttributes().get(ChatSessionPrincipal.ATTRIBUTE);
+        return principal instanceof ChatSessionPrincipal p ? p : null;
     }
 
     private void closeSession(WebSocketSession session, CloseStatus status) {
         try {
             session.close(status);
         } catch (IOException e) {
-            System.err.println("Error closing session: " + e.getMessage());
-        }
-    }
-
-    private String getTokenFromQuery(String query) {
-        if (query == null) return null;
-        for (String param : query.split("&")) {
-            if (param.startsWith("token=")) {
-                return param.substring("token=".length());
-            }
+            log.warn("Error closing session: {}", e.getMessage());
         }
-        return null;
     }
 
 
@@ -0,0 +1,51 @@
+package com.vizako.anonphobease.websocket;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the last sequence number seen for every (node, chat) pair so that frames
+ * replayed after a cursor reconnect, or delivered out of order, are dropped.
+ * <p>
+ * Entries are stamped with the frame time (its {@code _id} timestamp). Replays never reach
+ * further back than the resume window, so an entry older than {@code staleAfterMs} no longer
+ * rejects anything: it is dropped by {@link #prune}, and a publisher that went quiet on a chat
+ * (or a node that is gone) may start that chat's sequence over.
+ */
+class FanoutSequenceTracker {
+
+    private record Seen(long seq, long at) {
+    }
+
+    private final Map<String, Seen> lastSeen = new ConcurrentHashMap<>();
+    private final long staleAfterMs;
+
+    FanoutSequenceTracker(long staleAfterMs) {
+        this.staleAfterMs = staleAfterMs;
+    }
+
+    /**
+     * @return {@code true} if the frame is newer than anything seen from that node for that chat
+     */
+    boolean accept(String nodeId, String chatId, long seq, long at) {
+        boolean[] accepted = new boolean[1];
+        lastSeen.compute(nodeId + ':' + chatId, (key, last) -> {
+            if (last == null || seq > last.seq() || last.at() < at - staleAfterMs) {
+                accepted[0] = true;
+                return new Seen(seq, at);
+            }
+            return last;
+        });
+        return accepted[0];
+    }
+
+    /** Forgets pairs whose last frame is older than {@code staleAfterMs} before {@code now}. */
+    void prune(long now) {
+        long cutoff = now - staleAfterMs;
+        lastSeen.values().removeIf(seen -> seen.at() < cutoff);
+    }
+
+    int size() {
+        return lastSeen.size();
+    }
+}
@@ -0,0 +1,23 @@
+package com.vizako.anonphobease.websocket;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Single-node fan-out: frames only reach sessions connected to this JVM.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.ws.fanout.type", havingValue = "in-process", matchIfMissing = true)
+public class InProcessChatFanoutBus implements ChatFanoutBus {
+
+    private final ChatBroadcaster chatBroadcaster;
+    private final RecentMessageBuffer recentMessageBuffer;
+
+    @Override
+    public void publish(String chatId, String messageId, String payload) {
+        recentMessageBuffer.append(chatId, messageId, payload);
+        chatBroadcaster.broadcast(chatId, payload);
+    }
+}
@@ -0,0 +1,27 @@
+package com.vizako.anonphobease.websocket;
+
+import com.vizako.anonphobease.config.security.TokenVerifier;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+
+/**
+ * Admits any authenticated user to the chat given by the {@code chatId} query parameter.
+ */
+@Component
+public class JwtHandshakeInterceptor extends TokenHandshakeInterceptor {
+
+    public JwtHandshakeInterceptor(TokenVerifier tokenVerifier) {
+        super(tokenVerifier);
+    }
+
+    @Override
+    protected boolean acceptsParams(MultiValueMap<String, String> params) {
+        String chatId = params.getFirst("chatId");
+        return chatId != null && !chatId.isBlank();
+    }
+
+    @Override
+    protected String chatId(MultiValueMap<String, String> params) {
+        return params.getFirst("chatId");
+    }
+}
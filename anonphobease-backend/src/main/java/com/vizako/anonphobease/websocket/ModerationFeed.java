@@ -0,0 +1,217 @@
+package com.vizako.anonphobease.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Node-local stream of moderation events for connected moderators. Every event gets the next
+ * sequence number of this feed and is kept in a bounded history, so a client that reconnects with
+ * the {@code epoch} and last {@code seq} it saw receives exactly what it missed. If the gap is no
+ * longer in the history, or the feed restarted in between (new epoch), the client is told to
+ * {@code resync} and reloads its lists over REST instead.
+ */
+@Slf4j
+@Component
+public class ModerationFeed {
+
+    public static final String REPORT_CREATED = "report_created";
+    public static final String REPORT_RESOLVED = "report_resolved";
+    public static final String BAN_ISSUED = "ban_issued";
+    public static final String FILTER_HITS = "filter_hits";
+
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private final String epoch = new ObjectId().toHexString();
+    private final Map<String, OutboundSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Deque<Long>> filterHits = new ConcurrentHashMap<>();
+
+    private final int historySize;
+    private final int queueCapacity;
+    private final int filterHitThreshold;
+    private final long filterHitWindowMs;
+    private final Executor executor;
+    private final LongSupplier clock;
+
+    // Guarded by this: the history, the sequence and fan-out, so every session sees events in seq order.
+    private final Deque<Event> history = new ArrayDeque<>();
+    private long lastSeq;
+
+    private record Event(long seq, TextMessage frame) {
+    }
+
+    @Autowired
+    public ModerationFeed(@Value("${app.ws.moderation.history:1000}") int historySize,
+                          @Value("${app.ws.outbound.queue-capacity:256}") int queueCapacity,
+                          @Value("${app.moderation.filter-hits.threshold:3}") int filterHitThreshold,
+                          @Value("${app.moderation.filter-hits.window-ms:600000}") long filterHitWindowMs) {
+        this(historySize, queueCapacity, filterHitThreshold, filterHitWindowMs,
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ws-moderation-", 0).factory()),
+                System::currentTimeMillis);
+    }
+
+    public ModerationFeed(int historySize, int queueCapacity, int filterHitThreshold, long filterHitWindowMs,
+                          Executor executor, LongSupplier clock) {
+        this.historySize = historySize;
+        this.queueCapacity = queueCapacity;
+        this.filterHitThreshold = filterHitThreshold;
+        this.filterHitWindowMs = filterHitWindowMs;
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Registers a moderator session. It first gets a {@code hello} frame with the current epoch and
+     * seq, then, when resuming, either the events after {@code lastSeq} or a {@code resync} frame.
+     *
+     * @param resumeEpoch epoch the client last saw, or {@code null} for a fresh subscription
+     * @param resumeSeq   last seq the client saw, or {@code null} for a fresh subscription
+     */
+    public synchronized void register(WebSocketSession session, String resumeEpoch, Long resumeSeq) {
+        // Slow moderators are disconnected rather than silently losing events; they resume on reconnect.
+        OutboundSession outbound = new OutboundSession(session, queueCapacity, OutboundOverflowPolicy.DISCONNECT, executor);
+        outbound.enqueue(controlFrame("hello"));
+
+        if (resumeSeq != null) {
+            if (canResume(resumeEpoch, resumeSeq)) {
+                for (Event event : history) {
+                    if (event.seq() > resumeSeq) {
+                        outbound.enqueue(event.frame());
+                    }
+                }
+            } else {
+                outbound.enqueue(controlFrame("resync"));
+            }
+        }
+        sessions.put(session.getId(), outbound);
+    }
+
+    public void unregister(WebSocketSession session) {
+        OutboundSession outbound = sessions.remove(session.getId());
+        if (outbound != null) {
+            outbound.markClosed();
+        }
+    }
+
+    public void forEachSession(Consumer<WebSocketSession> action) {
+        sessions.values().forEach(outbound -> action.accept(outbound.getSession()));
+    }
+
+    /**
+     * Appends an event to the feed and pushes it to every moderator. The data is serialized once.
+     */
+    public void publish(String event, Object data) {
+        ObjectNode node = objectMapper.createObjectNode()
+                .put("type", "moderation")
+                .put("event", event)
+                .put("epoch", epoch);
+        node.set("data", objectMapper.valueToTree(data));
+
+        synchronized (this) {
+            long seq = ++lastSeq;
+            node.put("seq", seq);
+            TextMessage frame;
+            try {
+                frame = new TextMessage(objectMapper.writeValueAsString(node));
+            } catch (JsonProcessingException e) {
+                log.warn("Failed to serialize moderation event {}: {}", event, e.getMessage());
+                lastSeq--;
+                return;
+            }
+
+            history.addLast(new Event(seq, frame));
+            while (history.size() > historySize) {
+                history.pollFirst();
+            }
+            for (OutboundSession outbound : sessions.values()) {
+                outbound.enqueue(frame);
+            }
+        }
+    }
+
+    /**
+     * Counts a message the filter had to change. Crossing the threshold within the window
+     * publishes one {@link #FILTER_HITS} event; further hits in the same window do not repeat it.
+     */
+    public void recordFilterHit(String userId, String username, String chatId) {
+        long now = clock.getAsLong();
+        Deque<Long> window = filterHits.computeIfAbsent(userId, key -> new ArrayDeque<>());
+        int hits;
+        synchronized (window) {
+            evictBefore(window, now - filterHitWindowMs);
+            window.addLast(now);
+            hits = window.size();
+        }
+        if (hits == filterHitThreshold) {
+            publish(FILTER_HITS, Map.of(
+                    "userId", userId,
+                    "username", username != null ? username : "",
+                    "chatId", chatId,
+                    "hits", hits,
+                    "windowMs", filterHitWindowMs));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.moderation.filter-hits.sweep-ms:60000}")
+    public void pruneFilterHits() {
+        long cutoff = clock.getAsLong() - filterHitWindowMs;
+        filterHits.entrySet().removeIf(entry -> {
+            Deque<Long> window = entry.getValue();
+            synchronized (window) {
+                evictBefore(window, cutoff);
+                return window.isEmpty();
+            }
+        });
+    }
+
+    private boolean canResume(String resumeEpoch, long resumeSeq) {
+        if (!epoch.equals(resumeEpoch) || resumeSeq > lastSeq) {
+            return false;
+        }
+        return resumeSeq == lastSeq || (!history.isEmpty() && history.peekFirst().seq() <= resumeSeq + 1);
+    }
+
+    private TextMessage controlFrame(String type) {
+        return new TextMessage("{\"type\":\"" + type + "\",\"epoch\":\"" + epoch + "\",\"seq\":" + lastSeq + "}");
+    }
+
+    private static void evictBefore(Deque<Long> window, long cutoff) {
+        while (!window.isEmpty() && window.peekFirst() <= cutoff) {
+            window.pollFirst();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService service) {
+            service.shutdown();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.vizako.anonphobease.websocket;
+
+import com.vizako.anonphobease.config.security.TokenVerifier;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Admits only moderators and admins to the moderation feed. Optional {@code epoch} and
+ * {@code lastSeq} parameters are kept so the handler can resume the feed where the client
+ * left off.
+ */
+@Component
+public class ModerationHandshakeInterceptor extends TokenHandshakeInterceptor {
+
+    public static final String RESUME_EPOCH = "moderationResumeEpoch";
+    public static final String RESUME_SEQ = "moderationResumeSeq";
+
+    private static final Set<String> ALLOWED_ROLES = Set.of("MODERATOR", "ADMIN");
+
+    public ModerationHandshakeInterceptor(TokenVerifier tokenVerifier) {
+        super(tokenVerifier);
+    }
+
+    @Override
+    protected boolean acceptsParams(MultiValueMap<String, String> params) {
+        String lastSeq = params.getFirst("lastSeq");
+        if (lastSeq == null) {
+            return true;
+        }
+        try {
+            Long.parseLong(lastSeq);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    @Override
+    protected boolean admits(ChatSessionPrincipal principal) {
+        return ALLOWED_ROLES.contains(principal.role());
+    }
+
+    @Override
+    protected void addAttributes(MultiValueMap<String, String> params, Map<String, Object> attributes) {
+        String lastSeq = params.getFirst("lastSeq");
+        if (lastSeq != null) {
+            attributes.put(RESUME_SEQ, Long.parseLong(lastSeq));
+            String epoch = params.getFirst("epoch");
+            if (epoch != null) {
+                attributes.put(RESUME_EPOCH, epoch);
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.vizako.anonphobease.websocket;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Push-only channel for {@link ModerationFeed}; anything the client sends is ignored.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ModerationWebSocketHandler extends TextWebSocketHandler {
+
+    private static final CloseStatus TOKEN_EXPIRED = CloseStatus.POLICY_VIOLATION.withReason("Token expired");
+
+    private final ModerationFeed moderationFeed;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        ChatSessionPrincipal principal = getPrincipal(session);
+        if (principal == null) {
+            closeSession(session, CloseStatus.POLICY_VIOLATION);
+            return;
+        }
+        if (principal.isExpired(Instant.now())) {
+            closeSession(session, TOKEN_EXPIRED);
+            return;
+        }
+
+        Object epoch = session.getAttributes().get(ModerationHandshakeInterceptor.RESUME_EPOCH);
+        Object lastSeq = session.getAttributes().get(ModerationHandshakeInterceptor.RESUME_SEQ);
+        moderationFeed.register(session,
+                epoch instanceof String e ? e : null,
+                lastSeq instanceof Long seq ? seq : null);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        moderationFeed.unregister(session);
+    }
+
+    @Scheduled(fixedDelayString = "${app.ws.expiry-sweep-ms:30000}")
+    public void closeExpiredSessions() {
+        Instant now = Instant.now();
+        moderationFeed.forEachSession(session -> {
+            ChatSessionPrincipal principal = getPrincipal(session);
+            if (principal != null && principal.isExpired(now) && session.isOpen()) {
+                closeSession(session, TOKEN_EXPIRED);
+            }
+        });
+    }
+
+    private ChatSessionPrincipal getPrincipal(WebSocketSession session) {
+        Object principal = session.getAttributes().get(ChatSessionPrincipal.ATTRIBUTE);
+        return principal instanceof ChatSessionPrincipal p ? p : null;
+    }
+
+    private void closeSession(WebSocketSession session, CloseStatus status) {
+        try {
+            session.close(status);
+        } catch (IOException e) {
+            log.warn("Error closing session: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.vizako.anonphobease.websocket;
+
+import com.mongodb.CursorType;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fan-out through a capped Mongo collection. Every node appends the frames it publishes and
+ * follows the collection with a tailable cursor, delivering frames written by other nodes to
+ * its local sessions. Frames carry a per-node, per-chat sequence number; publishing for one
+ * chat is serialized on this node, so insertion order matches sequence order and a frame whose
+ * sequence does not advance is a replay and is skipped. That lets a reconnecting cursor resume
+ * a little before the last frame it saw, which covers clock skew between nodes generating ids.
+ * <p>
+ * Publishing never waits on Mongo: frames are queued in sequence order under the chat's lock
+ * and a single publisher thread inserts them in ordered batches. When the outbox is full, the
+ * frame still reaches local sessions but not other nodes.
+ * <p>
+ * Neither side keeps state for chats that went quiet: the tracker forgets (node, chat) pairs
+ * whose last frame is two resume windows behind the cursor, and a chat's sequence counter is
+ * dropped once it has been idle well past that, so its next frame starts over at 1.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.ws.fanout.type", havingValue = "mongo")
+public class MongoChatFanoutBus implements ChatFanoutBus {
+
+    static final String NODE_ID = "nodeId";
+    static final String CHAT_ID = "chatId";
+    static final String SEQ = "seq";
+    static final String MESSAGE_ID = "messageId";
+    static final String PAYLOAD = "payload";
+
+    private static final int PUBLISH_BATCH = 500;
+
+    private final ChatBroadcaster chatBroadcaster;
+    private final RecentMessageBuffer recentMessageBuffer;
+    private final MongoTemplate mongoTemplate;
+    private final String collectionName;
+    private final long cappedSizeBytes;
+    private final long maxAwaitMs;
+    private final long reconnectBackoffMs;
+    private final long resumeWindowMs;
+    private final String nodeId;
+    private final BlockingQueue<Document> outbox;
+
+    private final Map<String, ChatSequence> sequences = new ConcurrentHashMap<>();
+    private final FanoutSequenceTracker tracker;
+
+    private volatile boolean running;
+    private long trackerPrunedAt;
+    private long sequencesPrunedAt;
+    private volatile ObjectId lastSeenId;
+    private Thread tailer;
+    private Thread publisher;
+
+    @Autowired
+    public MongoChatFanoutBus(ChatBroadcaster chatBroadcaster,
+                              RecentMessageBuffer recentMessageBuffer,
+                              MongoTemplate mongoTemplate,
+                              @Value("${app.ws.fanout.collection:chat_fanout}") String collectionName,
+                              @Value("${app.ws.fanout.capped-size-bytes:16777216}") long cappedSizeBytes,
+                              @Value("${app.ws.fanout.max-await-ms:1000}") long maxAwaitMs,
+                              @Value("${app.ws.fanout.reconnect-backoff-ms:1000}") long reconnectBackoffMs,
+                              @Value("${app.ws.fanout.resume-window-ms:5000}") long resumeWindowMs,
+                              @Value("${app.ws.fanout.outbox-capacity:10000}") int outboxCapacity) {
+        this(chatBroadcaster, recentMessageBuffer, mongoTemplate, collectionName, cappedSizeBytes, maxAwaitMs, reconnectBackoffMs,
+                resumeWindowMs, outboxCapacity, UUID.randomUUID().toString());
+    }
+
+    MongoChatFanoutBus(ChatBroadcaster chatBroadcaster, RecentMessageBuffer recentMessageBuffer,
+                       MongoTemplate mongoTemplate, String collectionName, long cappedSizeBytes, long maxAwaitMs,
+                       long reconnectBackoffMs, long resumeWindowMs, int outboxCapacity, String nodeId) {
+        this.chatBroadcaster = chatBroadcaster;
+        this.recentMessageBuffer = recentMessageBuffer;
+        this.mongoTemplate = mongoTemplate;
+        this.collectionName = collectionName;
+        this.cappedSizeBytes = cappedSizeBytes;
+        this.maxAwaitMs = maxAwaitMs;
+        this.reconnectBackoffMs = reconnectBackoffMs;
+        this.resumeWindowMs = resumeWindowMs;
+        this.nodeId = nodeId;
+        this.outbox = new ArrayBlockingQueue<>(outboxCapacity);
+        this.tracker = new FanoutSequenceTracker(2 * resumeWindowMs);
+    }
+
+    /** Guarded by its own monitor; once evicted it is out of the map and must not be used. */
+    private static final class ChatSequence {
+        private long last;
+        private long lastPublishAt;
+        private boolean evicted;
+    }
+
+    @PostConstruct
+    public void start() {
+        lastSeenId = new ObjectId();
+        running = true;
+        tailer = Thread.ofPlatform().daemon().name("chat-fanout-tailer").start(this::runTailLoop);
+        publisher = Thread.ofPlatform().daemon().name("chat-fanout-publisher").start(this::runPublishLoop);
+        log.info("Chat fan-out over Mongo collection '{}' started as node {}", collectionName, nodeId);
+    }
+
+    @Override
+    public void publish(String chatId, String messageId, String payload) {
+        while (true) {
+            ChatSequence sequence = sequences.computeIfAbsent(chatId, id -> new ChatSequence());
+            synchronized (sequence) {
+                if (sequence.evicted) {
+                    continue;
+                }
+                sequence.lastPublishAt = System.currentTimeMillis();
+                recentMessageBuffer.append(chatId, messageId, payload);
+                chatBroadcaster.broadcast(chatId, payload);
+                Document frame = new Document(NODE_ID, nodeId)
+                        .append(CHAT_ID, chatId)
+                        .append(SEQ, ++sequence.last)
+                        .append(MESSAGE_ID, messageId)
+                        .append(PAYLOAD, payload);
+                // Queued under the lock so the outbox keeps each chat's frames in sequence order.
+                if (!outbox.offer(frame)) {
+                    log.warn("Fan-out outbox full, frame for chat {} not published to other nodes", chatId);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drops the counters of chats idle for four resume windows. Their last frames are then over
+     * two windows older than any new one, so other nodes' trackers accept a sequence restarting
+     * at 1 even if they have not pruned yet.
+     */
+    void pruneSequences(long now) {
+        long cutoff = now - 4 * resumeWindowMs;
+        for (Map.Entry<String, ChatSequence> entry : sequences.entrySet()) {
+            ChatSequence sequence = entry.getValue();
+            synchronized (sequence) {
+                if (sequence.lastPublishAt < cutoff) {
+                    sequence.evicted = true;
+                    sequences.remove(entry.getKey(), sequence);
+                }
+            }
+        }
+    }
+
+    int sequenceCount() {
+        return sequences.size();
+    }
+
+    /**
+     * Inserts everything currently queued, in order.
+     */
+    void flushOutbox() {
+        List<Document> batch = new ArrayList<>(PUBLISH_BATCH);
+        while (outbox.drainTo(batch, PUBLISH_BATCH) > 0) {
+            insert(batch);
+            batch = new ArrayList<>(PUBLISH_BATCH);
+        }
+    }
+
+    private void runPublishLoop() {
+        try {
+            while (running) {
+                try {
+                    long now = System.currentTimeMillis();
+                    if (now - sequencesPrunedAt >= resumeWindowMs) {
+                        pruneSequences(now);
+                        sequencesPrunedAt = now;
+                    }
+                    Document first = outbox.poll(maxAwaitMs, TimeUnit.MILLISECONDS);
+                    if (first == null) continue;
+                    List<Document> batch = new ArrayList<>(PUBLISH_BATCH);
+                    batch.add(first);
+                    outbox.drainTo(batch, PUBLISH_BATCH - 1);
+                    insert(batch);
+                } catch (InterruptedException e) {
+                    // Only shutdown() interrupts this thread; it waits for the drain below.
+                    break;
+                }
+            }
+        } finally {
+            Thread.interrupted();
+            flushOutbox();
+        }
+    }
+
+    private void insert(List<Document> batch) {
+        try {
+            mongoTemplate.getCollection(collectionName).insertMany(batch, new InsertManyOptions().ordered(true));
+        } catch (RuntimeException e) {
+            log.warn("Could not publish {} frames to other nodes: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Hands a frame read from the collection to local sessions unless it originated on this node
+     * (already delivered by {@link #publish}) or has been seen before.
+     */
+    void deliver(Document frame) {
+        String origin = frame.getString(NODE_ID);
+        String chatId = frame.getString(CHAT_ID);
+        Number seq = frame.get(SEQ, Number.class);
+        if (origin == null || chatId == null || seq == null || nodeId.equals(origin)) {
+            return;
+        }
+        ObjectId id = frame.getObjectId("_id");
+        long at = id != null ? id.getDate().getTime() : System.currentTimeMillis();
+        if (!tracker.accept(origin, chatId, seq.longValue(), at)) {
+            return;
+        }
+        String payload = frame.getString(PAYLOAD);
+        recentMessageBuffer.append(chatId, frame.getString(MESSAGE_ID), payload);
+        if (chatBroadcaster.hasSessions(chatId)) {
+            chatBroadcaster.broadcast(chatId, payload);
+        }
+    }
+
+    private void runTailLoop() {
+        while (running) {
+            try {
+                tail(ensureCollection());
+            } catch (DataAccessException | com.mongodb.MongoException e) {
+                log.warn("Chat fan-out cursor lost, reconnecting: {}", e.getMessage());
+            } catch (RuntimeException e) {
+                log.error("Unexpected error in chat fan-out tailer", e);
+            }
+            if (running) {
+                sleep(reconnectBackoffMs);
+            }
+        }
+    }
+
+    private void tail(MongoCollection<Document> collection) {
+        try (MongoCursor<Document> cursor = collection.find(Filters.gt("_id", resumeFrom()))
+                .cursorType(CursorType.TailableAwait)
+                .maxAwaitTime(maxAwaitMs, TimeUnit.MILLISECONDS)
+                .iterator()) {
+            // A tailable cursor over an empty result dies straight away; the loop reopens it.
+            while (running && cursor.getServerCursor() != null) {
+                Document frame = cursor.tryNext();
+                if (frame != null) {
+                    lastSeenId = frame.getObjectId("_id");
+                    deliver(frame);
+                    pruneTracker(lastSeenId.getDate().getTime());
+                }
+            }
+        }
+    }
+
+    /** Runs on the tailer at most once per resume window of cursor time. */
+    private void pruneTracker(long position) {
+        if (position - trackerPrunedAt >= resumeWindowMs) {
+            tracker.prune(position);
+            trackerPrunedAt = position;
+        }
+    }
+
+    private ObjectId resumeFrom() {
+        return new ObjectId(new Date(lastSeenId.getDate().getTime() - resumeWindowMs));
+    }
+
+    private MongoCollection<Document> ensureCollection() {
+        if (!mongoTemplate.collectionExists(collectionName)) {
+            try {
+                mongoTemplate.createCollection(collectionName, CollectionOptions.empty().capped().size(cappedSizeBytes));
+            } catch (DataAccessException e) {
+                // Another node created it first.
+                log.debug("Capped collection {} not created: {}", collectionName, e.getMessage());
+            }
+        }
+        return mongoTemplate.getCollection(collectionName);
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (publisher != null) {
+            publisher.interrupt();
+            try {
+                publisher.join(maxAwaitMs + reconnectBackoffMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (tailer != null) {
+            tailer.interrupt();
+            try {
+                tailer.join(maxAwaitMs + reconnectBackoffMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
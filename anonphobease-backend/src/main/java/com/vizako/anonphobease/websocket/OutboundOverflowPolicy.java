@@ -0,0 +1,8 @@
+package com.vizako.anonphobease.websocket;
+
+public enum OutboundOverflowPolicy {
+    /** Discard the oldest queued frame to make room for the new one. */
+    DROP_OLDEST,
+    /** Close the session of a consumer that cannot keep up. */
+    DISCONNECT
+}
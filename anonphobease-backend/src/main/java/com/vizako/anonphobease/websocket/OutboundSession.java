@@ -0,0 +1,141 @@
+package com.vizako.anonphobease.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Bounded, non-blocking outbound queue for a single WebSocket session.
+ * Producers only enqueue; at most one drain task writes to the socket at a time.
+ */
+@Slf4j
+class OutboundSession {
+
+    private final WebSocketSession session;
+    private final int capacity;
+    private final OutboundOverflowPolicy overflowPolicy;
+    private final Executor executor;
+
+    private final Deque<WebSocketMessage<?>> queue = new ArrayDeque<>();
+    private boolean draining;
+    private boolean closed;
+    private long dropped;
+
+    OutboundSession(WebSocketSession session, int capacity, OutboundOverflowPolicy overflowPolicy, Executor executor) {
+        this.session = session;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.executor = executor;
+    }
+
+    WebSocketSession getSession() {
+        return session;
+    }
+
+    /**
+     * @return {@code false} if the frame was not accepted because the session is closed
+     *         or was disconnected for being too slow
+     */
+    boolean enqueue(WebSocketMessage<?> frame) {
+        boolean startDrain = false;
+        boolean disconnect = false;
+
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            if (queue.size() >= capacity) {
+                if (overflowPolicy == OutboundOverflowPolicy.DROP_OLDEST) {
+                    queue.pollFirst();
+                    dropped++;
+                } else {
+                    closed = true;
+                    queue.clear();
+                    disconnect = true;
+                }
+            }
+            if (!disconnect) {
+                queue.addLast(frame);
+                if (!draining) {
+                    draining = true;
+                    startDrain = true;
+                }
+            }
+        }
+
+        if (disconnect) {
+            log.warn("Disconnecting slow WebSocket consumer {} (outbound queue full)", session.getId());
+            execute(() -> close(CloseStatus.SESSION_NOT_RELIABLE));
+            return false;
+        }
+        if (startDrain) {
+            execute(this::drain);
+        }
+        return true;
+    }
+
+    synchronized int size() {
+        return queue.size();
+    }
+
+    synchronized long getDropped() {
+        return dropped;
+    }
+
+    void markClosed() {
+        synchronized (this) {
+            closed = true;
+            queue.clear();
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            WebSocketMessage<?> next;
+            synchronized (this) {
+                next = queue.pollFirst();
+                if (next == null) {
+                    draining = false;
+                    return;
+                }
+            }
+            try {
+                if (session.isOpen()) {
+                    session.sendMessage(next);
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Failed to send to WebSocket session {}: {}", session.getId(), e.getMessage());
+                markClosed();
+                close(CloseStatus.SESSION_NOT_RELIABLE);
+            }
+        }
+    }
+
+    private void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                draining = false;
+            }
+            log.warn("Outbound executor rejected task for session {}", session.getId());
+        }
+    }
+
+    private void close(CloseStatus status) {
+        try {
+            if (session.isOpen()) {
+                session.close(status);
+            }
+        } catch (IOException e) {
+            log.debug("Error closing session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.vizako.anonphobease.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vizako.anonphobease.service.ChatService;
+import com.vizako.anonphobease.service.MessageFilterService;
+import com.vizako.anonphobease.service.MessageService;
+import com.vizako.anonphobease.service.MessageWriteBehindQueue;
+import com.vizako.anonphobease.service.UserService;
+import com.vizako.anonphobease.v1.dto.MessageDTO;
+import com.vizako.anonphobease.v1.dto.UserDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Node-local ring of the last few broadcast frames per chat, so a joining session receives recent
+ * history in its first frame without a Mongo read or a decryption. Frames are kept exactly as they
+ * were broadcast (already filtered and serialized) and are concatenated into the history frame.
+ * <p>
+ * A chat's ring is created, and warmed from Mongo once, when the first session joins it on this
+ * node; from then on the fan-out path keeps it current. Total size is capped across all chats and
+ * the least recently used chats are dropped first when the cap is exceeded.
+ */
+@Slf4j
+@Component
+public class RecentMessageBuffer {
+
+    private static final String HISTORY_PREFIX = "{\"type\":\"history\",\"messages\":[";
+    private static final String HISTORY_SUFFIX = "]}";
+
+    private record Entry(String messageId, String frame) {
+
+        long bytes() {
+            // UTF-16 chars plus the entry and string headers.
+            return 2L * frame.length() + 64;
+        }
+    }
+
+    private final class Ring {
+        private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+        private long bytes;
+        private boolean warmed;
+        private boolean evicted;
+        private volatile long lastAccess;
+
+        synchronized void append(Entry entry) {
+            if (evicted) {
+                return;
+            }
+            entries.addLast(entry);
+            bytes += entry.bytes();
+            totalBytes.addAndGet(entry.bytes());
+            while (entries.size() > perChat) {
+                Entry dropped = entries.removeFirst();
+                bytes -= dropped.bytes();
+                totalBytes.addAndGet(-dropped.bytes());
+            }
+        }
+
+        synchronized void release() {
+            totalBytes.addAndGet(-bytes);
+            bytes = 0;
+            entries.clear();
+        }
+
+        synchronized void evict() {
+            evicted = true;
+            release();
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+
+    private final MessageService messageService;
+    private final MessageWriteBehindQueue messageWriteBehindQueue;
+    private final UserService userService;
+    private final ChatService chatService;
+    private final MessageFilterService messageFilterService;
+    private final int perChat;
+    private final long maxBytes;
+    private final LongSupplier clock;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final Counter evictions;
+    private final Counter warmups;
+
+    public RecentMessageBuffer(MessageService messageService,
+                               MessageWriteBehindQueue messageWriteBehindQueue,
+                               UserService userService,
+                               ChatService chatService,
+                               MessageFilterService messageFilterService,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.ws.recent.per-chat:50}") int perChat,
+                               @Value("${app.ws.recent.max-bytes:33554432}") long maxBytes) {
+        this(messageService, messageWriteBehindQueue, userService, chatService, messageFilterService, meterRegistry,
+                perChat, maxBytes, System::nanoTime);
+    }
+
+    RecentMessageBuffer(MessageService messageService, MessageWriteBehindQueue messageWriteBehindQueue,
+                        UserService userService, ChatService chatService, MessageFilterService messageFilterService,
+                        MeterRegistry meterRegistry, int perChat, long maxBytes, LongSupplier clock) {
+        this.messageService = messageService;
+        this.messageWriteBehindQueue = messageWriteBehindQueue;
+        this.userService = userService;
+        this.chatService = chatService;
+        this.messageFilterService = messageFilterService;
+        this.perChat = perChat;
+        this.maxBytes = maxBytes;
+        this.clock = clock;
+
+        Gauge.builder("chat.recent.chats", rings, Map::size).register(meterRegistry);
+        Gauge.builder("chat.recent.bytes", totalBytes, AtomicLong::get).baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("chat.recent.frames", this, RecentMessageBuffer::frameCount).register(meterRegistry);
+        this.evictions = meterRegistry.counter("chat.recent.evictions");
+        this.warmups = meterRegistry.counter("chat.recent.warmups");
+    }
+
+    /**
+     * Records a frame that has just been broadcast to the chat. Chats nobody has joined on this
+     * node have no ring and are skipped.
+     */
+    public void append(String chatId, String messageId, String frame) {
+        Ring ring = rings.get(chatId);
+        if (ring == null) {
+            return;
+        }
+        ring.lastAccess = clock.getAsLong();
+        ring.append(new Entry(messageId, frame));
+        evictIfOverCap();
+    }
+
+    /**
+     * Returns the {@code history} frame for a joining session, warming the chat from Mongo first
+     * if this is the first join on this node.
+     */
+    public String historyFrame(String chatId) {
+        Ring ring = rings.computeIfAbsent(chatId, id -> new Ring());
+        ring.lastAccess = clock.getAsLong();
+
+        StringBuilder frame = new StringBuilder(HISTORY_PREFIX);
+        synchronized (ring) {
+            if (!ring.warmed) {
+                warm(chatId, ring);
+            }
+            boolean first = true;
+            for (Entry entry : ring.entries) {
+                if (!first) {
+                    frame.append(',');
+                }
+                frame.append(entry.frame());
+                first = false;
+            }
+        }
+        evictIfOverCap();
+        return frame.append(HISTORY_SUFFIX).toString();
+    }
+
+    /**
+     * Loads the newest persisted messages, together with any still queued for writing, and puts
+     * them ahead of any frames broadcast while the ring was being created. Caller holds the ring's
+     * lock. A failed load leaves the ring cold so the next join retries.
+     */
+    private void warm(String chatId, Ring ring) {
+        // Ids sort by creation time, so the map keeps the messages oldest first.
+        TreeMap<String, MessageDTO> byId = new TreeMap<>();
+        try {
+            messageService.findPageByChatId(chatId, null, null, perChat, Sort.Direction.DESC)
+                    .getMessages()
+                    .forEach(message -> byId.put(message.getMessageId(), message));
+        } catch (RuntimeException e) {
+            log.warn("Could not warm recent messages for chat {}: {}", chatId, e.getMessage());
+            return;
+        }
+        messageWriteBehindQueue.pending(chatId).forEach(message -> byId.putIfAbsent(message.getMessageId(), message));
+        while (byId.size() > perChat) {
+            byId.pollFirstEntry();
+        }
+
+        List<Entry> live = new ArrayList<>(ring.entries);
+        Set<String> liveIds = new HashSet<>();
+        live.forEach(entry -> liveIds.add(entry.messageId()));
+
+        String languageCode = byId.isEmpty() ? null : chatService.getLanguageCodeByChatId(chatId);
+        Map<ObjectId, UserDTO> authors = userService.findAllByIds(byId.values().stream()
+                .map(MessageDTO::getUserId)
+                .filter(id -> id != null && ObjectId.isValid(id))
+                .map(ObjectId::new)
+                .collect(Collectors.toSet()));
+        List<Entry> persisted = new ArrayList<>();
+        for (MessageDTO message : byId.values()) {
+            if (liveIds.contains(message.getMessageId())) {
+                continue;
+            }
+            String frame = toFrame(message, languageCode, authors);
+            if (frame != null) {
+                persisted.add(new Entry(message.getMessageId(), frame));
+            }
+        }
+
+        ring.release();
+        persisted.forEach(ring::append);
+        live.forEach(ring::append);
+        ring.warmed = true;
+        warmups.increment();
+    }
+
+    private String toFrame(MessageDTO message, String languageCode, Map<ObjectId, UserDTO> authors) {
+        UserDTO author = message.getUserId() == null || !ObjectId.isValid(message.getUserId()) ? null
+                : authors.get(new ObjectId(message.getUserId()));
+        MessageDTO outgoing = new MessageDTO(
+                message.getMessageId(),
+                message.getContent() == null ? null : messageFilterService.filter(message.getContent(), languageCode),
+                message.getUserId(),
+                author != null ? author.getUsername() : null,
+                author != null && author.getRole() != null ? author.getRole().getName() : null,
+                message.getChatId(),
+                message.getCreatedAt()
+        );
+        try {
+            return objectMapper.writeValueAsString(outgoing);
+        } catch (JsonProcessingException e) {
+            log.warn("Skipping message {} in recent history: {}", message.getMessageId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void evictIfOverCap() {
+        if (totalBytes.get() <= maxBytes) {
+            return;
+        }
+        synchronized (rings) {
+            if (totalBytes.get() <= maxBytes) {
+                return;
+            }
+            // Drop whole chats, oldest first, down to 90% of the cap so this does not run on every append.
+            long target = maxBytes - maxBytes / 10;
+            List<Map.Entry<String, Ring>> byAge = new ArrayList<>(rings.entrySet());
+            byAge.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            for (Map.Entry<String, Ring> oldest : byAge) {
+                if (totalBytes.get() <= target) {
+                    break;
+                }
+                if (rings.remove(oldest.getKey(), oldest.getValue())) {
+                    oldest.getValue().evict();
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    int chatCount() {
+        return rings.size();
+    }
+
+    long totalBytes() {
+        return totalBytes.get();
+    }
+
+    private double frameCount() {
+        long frames = 0;
+        for (Ring ring : rings.values()) {
+            frames += ring.size();
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,95 @@
+package com.vizako.anonphobease.websocket;
+
+import com.vizako.anonphobease.config.security.TokenVerifier;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Verifies the JWT passed in the {@code token} query parameter once, before the upgrade, with the
+ * same {@link TokenVerifier} as the REST filters (so revoked tokens are refused too), and stores
+ * the resulting {@link ChatSessionPrincipal} in the session attributes. Subclasses check their
+ * own query parameters and decide which callers are admitted.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public abstract class TokenHandshakeInterceptor implements HandshakeInterceptor {
+
+    private final TokenVerifier tokenVerifier;
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request,
+                                   ServerHttpResponse response,
+                                   WebSocketHandler wsHandler,
+                                   Map<String, Object> attributes) {
+        MultiValueMap<String, String> params = UriComponentsBuilder.fromUri(request.getURI())
+                .build()
+                .getQueryParams();
+
+        if (!acceptsParams(params)) {
+            response.setStatusCode(HttpStatus.BAD_REQUEST);
+            return false;
+        }
+        String token = params.getFirst("token");
+        if (token == null || token.isBlank()) {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+
+        Optional<TokenVerifier.VerifiedToken> verified = tokenVerifier.verify(token);
+        if (verified.isEmpty() || verified.get().userId() == null) {
+            log.debug("Rejected handshake on {}: invalid or revoked token", request.getURI().getPath());
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+        TokenVerifier.VerifiedToken claims = verified.get();
+        ChatSessionPrincipal principal = new ChatSessionPrincipal(
+                claims.userId(),
+                claims.username(),
+                claims.role(),
+                chatId(params),
+                Instant.ofEpochMilli(claims.expiresAt())
+        );
+        if (!admits(principal)) {
+            response.setStatusCode(HttpStatus.FORBIDDEN);
+            return false;
+        }
+
+        addAttributes(params, attributes);
+        attributes.put(ChatSessionPrincipal.ATTRIBUTE, principal);
+        return true;
+    }
+
+    /** Whether the query parameters are well-formed; checked before the token. */
+    protected abstract boolean acceptsParams(MultiValueMap<String, String> params);
+
+    /** The chat the session joins, or null for endpoints not tied to one. */
+    protected String chatId(MultiValueMap<String, String> params) {
+        return null;
+    }
+
+    /** Whether the authenticated caller may open this endpoint. */
+    protected boolean admits(ChatSessionPrincipal principal) {
+        return true;
+    }
+
+    protected void addAttributes(MultiValueMap<String, String> params, Map<String, Object> attributes) {
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request,
+                               ServerHttpResponse response,
+                               WebSocketHandler wsHandler,
+                               Exception exception) {
+    }
+}
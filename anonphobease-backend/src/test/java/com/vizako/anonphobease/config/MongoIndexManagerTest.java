@@ -0,0 +1,108 @@
+package com.vizako.anonphobease.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MongoIndexManagerTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private IndexOperations indexOperations;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private MongoIndexManager manager;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        manager = new MongoIndexManager(mongoTemplate, meterRegistry, true);
+        when(mongoTemplate.indexOps(anyString())).thenReturn(indexOperations);
+    }
+
+    private static IndexInfo index(String name, boolean unique, String... keys) {
+        List<IndexField> fields = new ArrayList<>();
+        for (String key : keys) {
+            fields.add(IndexField.create(key, Sort.Direction.ASC));
+        }
+        return new IndexInfo(fields, name, unique, false, null);
+    }
+
+    @Test
+    void reconcile_createsEveryDeclaredIndexOnEmptyDatabase() {
+        when(indexOperations.getIndexInfo()).thenReturn(List.of(index("_id_", true, "_id")));
+
+        MongoIndexManager.ReconcileReport report = manager.reconcile();
+
+        assertEquals(MongoIndexManager.DECLARED.size(), report.created().size());
+        assertTrue(report.drifted().isEmpty());
+        assertTrue(report.unmanaged().isEmpty());
+
+        ArgumentCaptor<IndexDefinition> definitions = ArgumentCaptor.forClass(IndexDefinition.class);
+        verify(indexOperations, times(MongoIndexManager.DECLARED.size())).ensureIndex(definitions.capture());
+        IndexDefinition chatHistory = definitions.getAllValues().stream()
+                .filter(d -> "chat_id_idx".equals(d.getIndexOptions().get("name")))
+                .findFirst().orElseThrow();
+        assertEquals(List.of("chatId", "_id"), new ArrayList<>(chatHistory.getIndexKeys().keySet()));
+    }
+
+    @Test
+    void reconcile_existingIndexesAreLeftAloneAndDriftIsReported() {
+        when(indexOperations.getIndexInfo()).thenReturn(List.of(
+                index("_id_", true, "_id"),
+                index("userId", false, "userId"),
+                index("chatId", false, "somethingElse"),
+                index("code", false, "code"),
+                index("legacy", false, "legacyField")));
+
+        MongoIndexManager.ReconcileReport report = manager.reconcile();
+
+        assertTrue(report.drifted().stream().anyMatch(d -> d.startsWith("bans.chatId has keys")));
+        assertTrue(report.drifted().stream().anyMatch(d -> d.startsWith("languages.code unique=false")));
+        assertTrue(report.unmanaged().contains("bans.legacy"));
+        assertTrue(report.created().stream().noneMatch(spec -> spec.collection().equals("bans")));
+        assertTrue(meterRegistry.counter("mongo.indexes.drift").count() > 0);
+    }
+
+    @Test
+    void reconcile_keyOrderMatters() {
+        when(indexOperations.getIndexInfo()).thenReturn(List.of(index("reversed", false, "_id", "chatId")));
+
+        MongoIndexManager.ReconcileReport report = manager.reconcile();
+
+        assertTrue(report.created().stream().anyMatch(spec -> spec.name().equals("chat_id_idx")));
+    }
+
+    @Test
+    void reconcileInBackground_disabledDoesNothing() {
+        MongoIndexManager disabled = new MongoIndexManager(mongoTemplate, meterRegistry, false);
+        reset(mongoTemplate);
+
+        disabled.reconcileInBackground();
+
+        verifyNoInteractions(mongoTemplate);
+        verify(indexOperations, never()).ensureIndex(any());
+    }
+}
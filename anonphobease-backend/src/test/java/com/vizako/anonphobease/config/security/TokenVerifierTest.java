@@ -0,0 +1,142 @@
+package com.vizako.anonphobease.config.security;
+
+import com.vizako.anonphobease.service.TokenRevocationService;
+import com.vizako.anonphobease.util.JwtUtil;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TokenVerifierTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-123456";
+
+    private final AtomicLong now = new AtomicLong(System.currentTimeMillis());
+    private JwtUtil jwtUtil;
+    private TokenRevocationService tokenRevocationService;
+    private TokenVerifier tokenVerifier;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = spy(new JwtUtil());
+        ReflectionTestUtils.setField(jwtUtil, "SECRET_KEY", SECRET);
+        tokenRevocationService = mock(TokenRevocationService.class);
+        tokenVerifier = new TokenVerifier(jwtUtil, tokenRevocationService, new SimpleMeterRegistry(), 100, 300_000, now::get);
+    }
+
+    @Test
+    void verify_validToken_parsesOnceAndServesRepeatsFromCache() {
+        String token = jwtUtil.generateToken("user1", "USER", "user-id-1");
+
+        Optional<TokenVerifier.VerifiedToken> first = tokenVerifier.verify(token);
+        Optional<TokenVerifier.VerifiedToken> second = tokenVerifier.verify(token);
+
+        assertTrue(first.isPresent());
+        assertEquals("user1", first.get().username());
+        assertEquals("user-id-1", first.get().userId());
+        assertEquals("USER", first.get().role());
+        assertEquals(first, second);
+        verify(jwtUtil, times(1)).extractAllClaims(token);
+    }
+
+    @Test
+    void verify_invalidToken_returnsEmpty() {
+        String token = jwtUtil.generateToken("user1", "USER", "user-id-1");
+
+        assertTrue(tokenVerifier.verify(token + "x").isEmpty());
+        assertTrue(tokenVerifier.verify("not-a-jwt").isEmpty());
+        assertTrue(tokenVerifier.verify((String) null).isEmpty());
+    }
+
+    @Test
+    void verify_tokenWithoutExpiry_returnsEmpty() {
+        String token = Jwts.builder()
+                .setSubject("user1")
+                .claim("userId", "user-id-1")
+                .claim("role", "USER")
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertTrue(tokenVerifier.verify(token).isEmpty());
+    }
+
+    @Test
+    void verify_cachedTokenIsDroppedWhenItExpires() {
+        long expiresAt = now.get() + 60_000;
+        String token = Jwts.builder()
+                .setSubject("user1")
+                .claim("userId", "user-id-1")
+                .claim("role", "USER")
+                .setExpiration(new Date(expiresAt))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertTrue(tokenVerifier.verify(token).isPresent());
+
+        now.set(expiresAt + 1_000);
+
+        assertTrue(tokenVerifier.verify(token).isEmpty());
+        verify(jwtUtil, times(2)).extractAllClaims(token);
+    }
+
+    @Test
+    void verify_revokedTokenIsRejectedEvenWhenCached() {
+        String token = jwtUtil.generateToken("user1", "USER", "user-id-1");
+        assertTrue(tokenVerifier.verify(token).isPresent());
+
+        when(tokenRevocationService.isRevoked(anyString(), eq("user-id-1"), anyLong())).thenReturn(true);
+
+        assertTrue(tokenVerifier.verify(token).isEmpty());
+        verify(jwtUtil, times(1)).extractAllClaims(token);
+    }
+
+    @Test
+    void revoke_validToken_revokesItUntilItExpires() {
+        String token = jwtUtil.generateToken("user1", "USER", "user-id-1");
+
+        Optional<TokenVerifier.VerifiedToken> revoked = tokenVerifier.revoke(token);
+
+        assertTrue(revoked.isPresent());
+        verify(tokenRevocationService).revokeToken(anyString(), eq("user-id-1"), eq(revoked.get().expiresAt()));
+    }
+
+    @Test
+    void revoke_invalidToken_returnsEmpty() {
+        assertTrue(tokenVerifier.revoke("not-a-jwt").isEmpty());
+        verify(tokenRevocationService, never()).revokeToken(anyString(), any(), anyLong());
+    }
+
+    @Test
+    void verify_request_verifiesBearerTokenOncePerRequest() {
+        String token = jwtUtil.generateToken("user1", "USER", "user-id-1");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+
+        Optional<TokenVerifier.VerifiedToken> first = tokenVerifier.verify(request);
+        Optional<TokenVerifier.VerifiedToken> second = tokenVerifier.verify(request);
+
+        assertTrue(first.isPresent());
+        assertSame(first, second);
+        verify(jwtUtil, times(1)).extractAllClaims(token);
+    }
+
+    @Test
+    void verify_requestWithoutBearerToken_returnsEmpty() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        assertTrue(tokenVerifier.verify(request).isEmpty());
+        verify(jwtUtil, never()).extractAllClaims(anyString());
+    }
+}
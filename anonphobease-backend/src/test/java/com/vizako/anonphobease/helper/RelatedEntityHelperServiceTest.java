@@ -0,0 +1,90 @@
+package com.vizako.anonphobease.helper;
+
+import com.vizako.anonphobease.model.LogType;
+import com.vizako.anonphobease.model.RelatedEntityInfo;
+import com.vizako.anonphobease.model.RelatedEntityType;
+import com.vizako.anonphobease.model.UserLog;
+import com.vizako.anonphobease.service.ChatService;
+import com.vizako.anonphobease.service.LanguageService;
+import com.vizako.anonphobease.service.PhobiaService;
+import com.vizako.anonphobease.service.ReportService;
+import com.vizako.anonphobease.service.UserService;
+import com.vizako.anonphobease.v1.dto.ChatDTO;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RelatedEntityHelperServiceTest {
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private ChatService chatService;
+
+    @Mock
+    private PhobiaService phobiaService;
+
+    @Mock
+    private LanguageService languageService;
+
+    @Mock
+    private ReportService reportService;
+
+    @InjectMocks
+    private RelatedEntityHelperService relatedEntityHelperService;
+
+    private UserLog log(ObjectId userId, ObjectId relatedEntityId, RelatedEntityType type) {
+        return new UserLog(new ObjectId(), userId, LogType.CONNECTION_ESTABLISHED, new Date(), "msg", relatedEntityId, type);
+    }
+
+    @Test
+    void getRelatedEntityInfos_runsOneQueryPerTypeAndKeepsOrder() {
+        ObjectId userId = new ObjectId();
+        ObjectId chatA = new ObjectId();
+        ObjectId chatB = new ObjectId();
+        ObjectId phobiaId = new ObjectId();
+        ObjectId reportId = new ObjectId();
+        ChatDTO chat = new ChatDTO();
+        chat.setChatName("Spiders");
+        chat.setLanguageId("lang-1");
+
+        when(userService.getUserNamesByIds(Set.of(userId))).thenReturn(Map.of(userId, "alice"));
+        when(chatService.findAllByIds(Set.of(chatA, chatB))).thenReturn(Map.of(chatA, chat));
+        when(phobiaService.getNamesByIds(Set.of(phobiaId))).thenReturn(Map.of(phobiaId, "Heights"));
+        when(reportService.getReasonsByIds(Set.of(reportId))).thenReturn(Map.of(reportId, "spam"));
+        when(languageService.getNamesByIds(Set.of())).thenReturn(Map.of());
+
+        List<RelatedEntityInfo> infos = relatedEntityHelperService.getRelatedEntityInfos(List.of(
+                log(userId, chatA, RelatedEntityType.CHAT),
+                log(userId, chatB, RelatedEntityType.CHAT),
+                log(userId, null, RelatedEntityType.USER),
+                log(userId, phobiaId, RelatedEntityType.PHOBIA),
+                log(userId, reportId, RelatedEntityType.REPORT),
+                log(userId, null, null)));
+
+        assertEquals(6, infos.size());
+        assertEquals("Spiders", infos.get(0).getName());
+        assertEquals("lang-1", infos.get(0).getExtra());
+        assertNull(infos.get(1).getName());
+        assertEquals("alice", infos.get(2).getName());
+        assertEquals("Heights", infos.get(3).getName());
+        assertEquals("spam", infos.get(4).getName());
+        assertNull(infos.get(5).getName());
+        verify(chatService, never()).findById(any());
+        verify(userService, never()).getUserNameById(any());
+    }
+}
@@ -9,6 +9,8 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 
@@ -194,4 +196,26 @@ class MessageRepositoryTest {
         Date createdAt = saved.getCreatedAt();
         assertNotNull(createdAt);
     }
+
+    @Test
+    void findByChatIdAndIdLessThan_returnsKeysetPageNewestFirst() {
+        ObjectId chatId = new ObjectId();
+        List<Message> saved = new java.util.ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Message message = new Message();
+            message.setId(new ObjectId());
+            message.setUserId(new ObjectId());
+            message.setChatId(chatId);
+            message.setContent("m" + i);
+            saved.add(messageRepository.save(message));
+        }
+
+        Sort newestFirst = Sort.by(Sort.Direction.DESC, "id");
+        List<Message> firstPage = messageRepository.findByChatId(chatId, newestFirst, Limit.of(2));
+        List<Message> secondPage = messageRepository.findByChatIdAndIdLessThan(
+                chatId, firstPage.get(1).getId(), newestFirst, Limit.of(2));
+
+        assertEquals(List.of("m4", "m3"), firstPage.stream().map(Message::getContent).toList());
+        assertEquals(List.of("m2", "m1"), secondPage.stream().map(Message::getContent).toList());
+    }
 }
@@ -0,0 +1,175 @@
+package com.vizako.anonphobease.repository;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.vizako.anonphobease.config.DataSeeder;
+import com.vizako.anonphobease.config.MongoConfig;
+import com.vizako.anonphobease.config.MongoIndexManager;
+import com.vizako.anonphobease.helper.RelatedEntityHelperService;
+import com.vizako.anonphobease.service.UserLogService;
+import com.vizako.anonphobease.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.repository.Repository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs every query method declared in this package against a live Mongo, captures the commands
+ * the driver sends, and explains each one (derived deletes included, by their filter). A method
+ * whose winning plan contains a COLLSCAN is missing an index in {@link MongoIndexManager#DECLARED}.
+ * Queries the services build themselves, like the log export filters, are explained the same way.
+ */
+@DataMongoTest
+@Import({MongoConfig.class, MongoIndexManager.class, RepositoryQueryPlanTest.CommandCapture.class})
+@ActiveProfiles("test")
+class RepositoryQueryPlanTest {
+
+    private static final Set<String> QUERY_COMMANDS = Set.of("find", "count", "aggregate", "distinct", "delete");
+    private static final Set<String> SESSION_FIELDS = Set.of("$db", "lsid", "$clusterTime", "txnNumber",
+            "$readPreference", "apiVersion", "apiStrict", "apiDeprecationErrors");
+
+    @TestConfiguration
+    static class CommandCapture {
+
+        static final List<BsonDocument> COMMANDS = new CopyOnWriteArrayList<>();
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        MongoClientSettingsBuilderCustomizer commandCaptureCustomizer() {
+            return builder -> builder.addCommandListener(new CommandListener() {
+                @Override
+                public void commandStarted(CommandStartedEvent event) {
+                    if (QUERY_COMMANDS.contains(event.getCommandName())) {
+                        COMMANDS.add(event.getCommand().clone());
+                    }
+                }
+            });
+        }
+    }
+
+    @MockitoBean
+    private DataSeeder dataSeeder;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private MongoIndexManager mongoIndexManager;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    void everyRepositoryQueryUsesAnIndex() throws Exception {
+        mongoIndexManager.reconcile();
+
+        List<String> failures = new ArrayList<>();
+        int checked = 0;
+        for (Object repository : applicationContext.getBeansOfType(Repository.class).values()) {
+            for (Class<?> repositoryInterface : repository.getClass().getInterfaces()) {
+                if (!repositoryInterface.getPackageName().equals(getClass().getPackageName())) continue;
+
+                for (Method method : repositoryInterface.getDeclaredMethods()) {
+                    CommandCapture.COMMANDS.clear();
+                    method.invoke(repository, argumentsFor(method));
+
+                    String name = repositoryInterface.getSimpleName() + "." + method.getName();
+                    if (CommandCapture.COMMANDS.isEmpty()) {
+                        failures.add(name + " issued no query command");
+                    }
+                    for (BsonDocument command : CommandCapture.COMMANDS) {
+                        if (usesCollectionScan(explain(command))) {
+                            failures.add(name + " -> COLLSCAN for " + command.toJson());
+                        }
+                    }
+                    checked++;
+                }
+            }
+        }
+
+        assertTrue(checked > 0, "no repository methods found");
+        assertTrue(failures.isEmpty(), String.join("\n", failures));
+    }
+
+    @Test
+    void logExportQueriesUseAnIndex() throws Exception {
+        mongoIndexManager.reconcile();
+        UserLogService userLogService = new UserLogService(applicationContext.getBean(UserLogRepository.class),
+                mock(UserService.class), mock(RelatedEntityHelperService.class), mongoTemplate);
+        String probe = new ObjectId().toHexString();
+
+        CommandCapture.COMMANDS.clear();
+        userLogService.exportLogs(null, probe, null, null, new ByteArrayOutputStream());
+        userLogService.exportLogs(probe, null, null, null, new ByteArrayOutputStream());
+
+        assertEquals(2, CommandCapture.COMMANDS.size());
+        for (BsonDocument command : CommandCapture.COMMANDS) {
+            assertFalse(usesCollectionScan(explain(command)), "COLLSCAN for " + command.toJson());
+        }
+    }
+
+    private Object[] argumentsFor(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        Object[] args = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            Class<?> type = types[i];
+            if (type == ObjectId.class) args[i] = new ObjectId();
+            else if (type == String.class) args[i] = "probe";
+            else if (type == Boolean.class || type == boolean.class) args[i] = Boolean.TRUE;
+            else if (type == Date.class) args[i] = new Date();
+            else if (type == Sort.class) args[i] = Sort.by(Sort.Direction.DESC, "id");
+            else if (type == Limit.class) args[i] = Limit.of(10);
+            else fail("No probe value for parameter type " + type + " of " + method);
+        }
+        return args;
+    }
+
+    private Document explain(BsonDocument command) {
+        BsonDocument explainable = new BsonDocument();
+        command.forEach((key, value) -> {
+            if (!SESSION_FIELDS.contains(key)) explainable.put(key, value);
+        });
+        return mongoTemplate.getDb().runCommand(new Document("explain", explainable).append("verbosity", "queryPlanner"));
+    }
+
+    private static boolean usesCollectionScan(Object node) {
+        if (node instanceof Document document) {
+            if ("COLLSCAN".equals(document.get("stage"))) return true;
+            return document.values().stream().anyMatch(RepositoryQueryPlanTest::usesCollectionScan);
+        }
+        if (node instanceof List<?> list) {
+            return list.stream().anyMatch(RepositoryQueryPlanTest::usesCollectionScan);
+        }
+        return false;
+    }
+}
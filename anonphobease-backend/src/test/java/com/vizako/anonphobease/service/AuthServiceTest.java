@@ -1,5 +1,6 @@
 package com.vizako.anonphobease.service;
 
+import com.vizako.anonphobease.config.security.TokenVerifier;
 import com.vizako.anonphobease.model.LogType;
 import com.vizako.anonphobease.model.RelatedEntityType;
 import com.vizako.anonphobease.util.JwtUtil;
@@ -33,6 +34,9 @@ class AuthServiceTest {
     @Mock
     private JwtUtil jwtUtil;
 
+    @Mock
+    private TokenVerifier tokenVerifier;
+
     @Mock
     private UserService userService;
 
@@ -210,8 +214,8 @@ class AuthServiceTest {
                 .isActive(true)
                 .build();
 
-        when(jwtUtil.extractUserId(token))
-                .thenReturn(userId);
+        when(tokenVerifier.revoke(token))
+                .thenReturn(Optional.of(new TokenVerifier.VerifiedToken("user1", userId, "USER", 0, Long.MAX_VALUE)));
 
         when(userService.findById(userId))
                 .thenReturn(Optional.of(user));
@@ -239,7 +243,7 @@ class AuthServiceTest {
 
         // then
         assertFalse(result);
-        verifyNoInteractions(jwtUtil);
+        verifyNoInteractions(tokenVerifier);
         verifyNoInteractions(userService);
         verifyNoInteractions(userLogService);
     }
@@ -249,8 +253,8 @@ class AuthServiceTest {
         // given
         String token = "bad-token";
 
-        when(jwtUtil.extractUserId(token))
-                .thenThrow(new RuntimeException("invalid token"));
+        when(tokenVerifier.revoke(token))
+                .thenReturn(Optional.empty());
 
         // when
         boolean result = authService.deactivateUserByToken(token);
@@ -0,0 +1,125 @@
+package com.vizako.anonphobease.service;
+
+import com.vizako.anonphobease.model.Ban;
+import com.vizako.anonphobease.repository.BanRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BanRegistryTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BanRepository banRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private BanRegistry banRegistry;
+
+    private final ObjectId userId = new ObjectId();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        banRegistry = new BanRegistry(mongoTemplate, banRepository, meterRegistry);
+    }
+
+    private Ban banOf(ObjectId user) {
+        Ban ban = new Ban();
+        ban.setId(new ObjectId());
+        ban.setUserId(user);
+        return ban;
+    }
+
+    @Test
+    void isBanned_beforeLoad_fallsBackToRepository() {
+        when(banRepository.existsByUserId(userId)).thenReturn(true);
+
+        assertTrue(banRegistry.isBanned(userId));
+        assertEquals(1.0, meterRegistry.counter("bans.registry.fallback").count());
+    }
+
+    @Test
+    void load_readsBannedUsersAndAnswersFromMemory() {
+        when(mongoTemplate.find(any(Query.class), eq(Ban.class))).thenReturn(List.of(banOf(userId)));
+
+        banRegistry.load();
+
+        assertTrue(banRegistry.isBanned(userId));
+        assertFalse(banRegistry.isBanned(new ObjectId()));
+        verifyNoInteractions(banRepository);
+        assertEquals(1.0, meterRegistry.counter("bans.registry.lookups", "result", "hit").count());
+        assertEquals(1.0, meterRegistry.counter("bans.registry.lookups", "result", "miss").count());
+    }
+
+    @Test
+    void banRemoved_keepsUserBannedWhileOtherBansRemain() {
+        when(mongoTemplate.find(any(Query.class), eq(Ban.class))).thenReturn(List.of());
+        banRegistry.load();
+
+        banRegistry.banAdded(userId);
+        banRegistry.banAdded(userId);
+        banRegistry.banRemoved(userId);
+        assertTrue(banRegistry.isBanned(userId));
+
+        banRegistry.banRemoved(userId);
+        assertFalse(banRegistry.isBanned(userId));
+    }
+
+    @Test
+    void banMoved_transfersBanToNewUser() {
+        when(mongoTemplate.find(any(Query.class), eq(Ban.class))).thenReturn(List.of());
+        banRegistry.load();
+        ObjectId otherUserId = new ObjectId();
+        banRegistry.banAdded(userId);
+
+        banRegistry.banMoved(userId, otherUserId);
+
+        assertFalse(banRegistry.isBanned(userId));
+        assertTrue(banRegistry.isBanned(otherUserId));
+    }
+
+    @Test
+    void reconcile_countsDriftAndAdoptsMongoState() {
+        ObjectId missedUserId = new ObjectId();
+        when(mongoTemplate.find(any(Query.class), eq(Ban.class)))
+                .thenReturn(List.of(banOf(userId)))
+                .thenReturn(List.of(banOf(missedUserId)));
+        banRegistry.load();
+
+        banRegistry.reconcile();
+
+        assertFalse(banRegistry.isBanned(userId));
+        assertTrue(banRegistry.isBanned(missedUserId));
+        assertEquals(2.0, meterRegistry.counter("bans.registry.drift").count());
+    }
+
+    @Test
+    void reconcile_discardsReadWhenBansChangeMeanwhile() {
+        when(mongoTemplate.find(any(Query.class), eq(Ban.class))).thenAnswer(inv -> {
+            banRegistry.banAdded(userId);
+            return List.of();
+        });
+
+        banRegistry.reconcile();
+
+        assertEquals(1, banRegistry.size());
+        assertEquals(0.0, meterRegistry.counter("bans.registry.drift").count());
+    }
+}
@@ -7,6 +7,8 @@ import com.vizako.anonphobease.v1.dto.ChatDTO;
 import com.vizako.anonphobease.v1.dto.MessageDTO;
 import com.vizako.anonphobease.v1.dto.UserDTO;
 import com.vizako.anonphobease.v1.mapper.BanMapper;
+import com.vizako.anonphobease.helper.RelationBatchResolver;
+import com.vizako.anonphobease.websocket.ModerationFeed;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,10 +17,13 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -38,6 +43,15 @@ class BanServiceTest {
     @Mock
     private ChatService chatService;
 
+    @Mock
+    private BanRegistry banRegistry;
+
+    @Mock
+    private ModerationFeed moderationFeed;
+
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
     @InjectMocks
     private BanService banService;
 
@@ -70,31 +84,12 @@ class BanServiceTest {
 
         when(banRepository.findAll()).thenReturn(List.of(ban));
 
-        // user (banned)
-        UserDTO userDto = UserDTO.builder()
-                .id(userId.toHexString())
-                .username("bannedUser")
-                .build();
-        when(userService.findById(userId.toString())).thenReturn(Optional.of(userDto));
-
-        // moderator
-        UserDTO moderatorDto = UserDTO.builder()
-                .id(moderatorId.toHexString())
-                .username("moderatorUser")
-                .build();
-        when(userService.findById(moderatorId.toString())).thenReturn(Optional.of(moderatorDto));
-
-        // message
-        MessageDTO messageDto = new MessageDTO();
-        messageDto.setMessageId(messageId.toHexString());
-        messageDto.setContent("Offensive message");
-        when(messageService.findById(messageId.toString())).thenReturn(Optional.of(messageDto));
-
-        // chat
-        ChatDTO chatDto = new ChatDTO();
-        chatDto.setId(chatId.toHexString());
-        chatDto.setChatName("(EN) Social phobia");
-        when(chatService.findById(chatId)).thenReturn(Optional.of(chatDto));
+        ReflectionTestUtils.setField(banService, "relationBatchResolver",
+                new RelationBatchResolver(userService, chatService, messageService));
+        when(userService.getUserNamesByIds(Set.of(userId, moderatorId)))
+                .thenReturn(Map.of(userId, "bannedUser", moderatorId, "moderatorUser"));
+        when(messageService.getContentsByIds(Set.of(messageId))).thenReturn(Map.of(messageId, "Offensive message"));
+        when(chatService.getChatNamesByIds(Set.of(chatId))).thenReturn(Map.of(chatId, "(EN) Social phobia"));
 
         List<BanDTO> result = banService.findAll();
 
@@ -123,30 +118,6 @@ class BanServiceTest {
     }
 
 
-    @Test
-    void toFullDTO_handlesNullRelatedIds() {
-        Ban ban = new Ban();
-        ban.setId(banId);
-        ban.setBanReason("Reason");
-
-
-        BanDTO dto = banService.toFullDTO(ban);
-
-        assertEquals(banId.toHexString(), dto.getId());
-        assertEquals("Reason", dto.getBanReason());
-        assertNull(dto.getUserId());
-        assertNull(dto.getUsername());
-        assertNull(dto.getModeratorId());
-        assertNull(dto.getModeratorName());
-        assertNull(dto.getMessageId());
-        assertNull(dto.getMessageContent());
-        assertNull(dto.getChatId());
-        assertNull(dto.getChatName());
-
-        verifyNoInteractions(userService, messageService, chatService);
-    }
-
-
     @Test
     void findById_returnsDtoWhenFound() {
         Ban ban = new Ban();
@@ -192,6 +163,9 @@ class BanServiceTest {
         savedEntity.setBanReason("Reason");
 
         when(banRepository.save(any(Ban.class))).thenReturn(savedEntity);
+        ReflectionTestUtils.setField(banService, "relationBatchResolver",
+                new RelationBatchResolver(userService, chatService, messageService));
+        when(userService.getUserNamesByIds(Set.of(userId))).thenReturn(Map.of(userId, "bannedUser"));
 
         BanDTO result = banService.save(dto);
 
@@ -204,6 +178,38 @@ class BanServiceTest {
         assertEquals(userId, toSave.getUserId());
         assertEquals(chatId, toSave.getChatId());
         assertEquals("Reason", toSave.getBanReason());
+        verify(banRegistry).banAdded(userId);
+        verify(tokenRevocationService).revokeUser(userId);
+
+        ArgumentCaptor<BanDTO> event = ArgumentCaptor.forClass(BanDTO.class);
+        verify(moderationFeed).publish(eq(ModerationFeed.BAN_ISSUED), event.capture());
+        assertEquals("bannedUser", event.getValue().getUsername());
+    }
+
+    @Test
+    void isUserGloballyBanned_delegatesToRegistry() {
+        when(banRegistry.isBanned(userId)).thenReturn(true);
+
+        assertTrue(banService.isUserGloballyBanned(userId));
+        verifyNoInteractions(banRepository);
+    }
+
+    @Test
+    void update_whenUserChanges_movesBanInRegistry() {
+        ObjectId otherUserId = new ObjectId();
+        Ban existing = new Ban();
+        existing.setId(banId);
+        existing.setUserId(userId);
+
+        BanDTO dto = new BanDTO();
+        dto.setUserId(otherUserId.toHexString());
+
+        when(banRepository.findById(banId)).thenReturn(Optional.of(existing));
+        when(banRepository.save(any(Ban.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        banService.update(banId.toHexString(), dto);
+
+        verify(banRegistry).banMoved(userId, otherUserId);
     }
 
 
@@ -265,9 +271,22 @@ class BanServiceTest {
         assertEquals(banId.toHexString(), captor.getValue().toHexString());
     }
 
+    @Test
+    void deleteById_whenBanExists_removesItFromRegistry() {
+        Ban existing = new Ban();
+        existing.setId(banId);
+        existing.setUserId(userId);
+        when(banRepository.findById(banId)).thenReturn(Optional.of(existing));
+
+        banService.deleteById(banId.toHexString());
+
+        verify(banRepository).deleteById(banId);
+        verify(banRegistry).banRemoved(userId);
+    }
+
     @Test
     void deleteById_withInvalidId_doesNothing() {
         banService.deleteById("not-an-objectid");
-        verifyNoInteractions(banRepository);
+        verifyNoInteractions(banRepository, banRegistry);
     }
 }
@@ -0,0 +1,103 @@
+package com.vizako.anonphobease.service;
+
+import com.vizako.anonphobease.util.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CaptchaServiceTest {
+
+    @Mock
+    private CaptchaVerifier captchaVerifier;
+
+    private final AtomicLong now = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CaptchaService service(boolean failOpen) {
+        return new CaptchaService(captchaVerifier, meterRegistry, failOpen, 2, 30_000, 120_000, 100, now::get);
+    }
+
+    @Test
+    void verifyToken_returnsProviderVerdict() {
+        when(captchaVerifier.verify("good")).thenReturn(CompletableFuture.completedFuture(true));
+        when(captchaVerifier.verify("bad")).thenReturn(CompletableFuture.completedFuture(false));
+        CaptchaService captchaService = service(false);
+
+        assertTrue(captchaService.verifyToken("good").join());
+        assertFalse(captchaService.verifyToken("bad").join());
+        assertEquals(1.0, meterRegistry.counter("captcha.verifications", "result", "accepted").count());
+        assertEquals(1.0, meterRegistry.counter("captcha.verifications", "result", "rejected").count());
+    }
+
+    @Test
+    void verifyToken_blankToken_isRejectedWithoutProviderCall() {
+        CaptchaService captchaService = service(true);
+
+        assertFalse(captchaService.verifyToken(null).join());
+        assertFalse(captchaService.verifyToken(" ").join());
+        verifyNoInteractions(captchaVerifier);
+    }
+
+    @Test
+    void verifyToken_reusedToken_isRejectedUntilReplayWindowEnds() {
+        when(captchaVerifier.verify("token")).thenReturn(CompletableFuture.completedFuture(true));
+        CaptchaService captchaService = service(false);
+
+        assertTrue(captchaService.verifyToken("token").join());
+        assertFalse(captchaService.verifyToken("token").join());
+        verify(captchaVerifier, times(1)).verify("token");
+
+        now.addAndGet(120_000);
+        assertTrue(captchaService.verifyToken("token").join());
+    }
+
+    @Test
+    void verifyToken_providerFailures_openBreakerAndFailClosed() {
+        when(captchaVerifier.verify(anyString())).thenReturn(CompletableFuture.failedFuture(new IOException("timeout")));
+        CaptchaService captchaService = service(false);
+
+        assertFalse(captchaService.verifyToken("a").join());
+        assertFalse(captchaService.verifyToken("b").join());
+        assertEquals(CircuitBreaker.State.OPEN, captchaService.breakerState());
+
+        assertFalse(captchaService.verifyToken("c").join());
+        verify(captchaVerifier, never()).verify("c");
+        assertEquals(3.0, meterRegistry.counter("captcha.verifications", "result", "unavailable").count());
+    }
+
+    @Test
+    void verifyToken_failOpen_letsLoginsThroughWhileProviderIsDown() {
+        when(captchaVerifier.verify(anyString())).thenThrow(new IllegalStateException("no route"));
+        CaptchaService captchaService = service(true);
+
+        assertTrue(captchaService.verifyToken("a").join());
+        assertTrue(captchaService.verifyToken("b").join());
+        // Still single use, even unverified.
+        assertFalse(captchaService.verifyToken("a").join());
+    }
+
+    @Test
+    void verifyToken_successfulProbeClosesBreaker() {
+        when(captchaVerifier.verify(anyString())).thenReturn(CompletableFuture.failedFuture(new IOException("timeout")));
+        CaptchaService captchaService = service(false);
+        captchaService.verifyToken("a").join();
+        captchaService.verifyToken("b").join();
+
+        now.addAndGet(30_000);
+        doReturn(CompletableFuture.completedFuture(true)).when(captchaVerifier).verify("probe");
+
+        assertTrue(captchaService.verifyToken("probe").join());
+        assertEquals(CircuitBreaker.State.CLOSED, captchaService.breakerState());
+    }
+}
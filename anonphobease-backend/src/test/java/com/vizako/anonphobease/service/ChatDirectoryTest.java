@@ -0,0 +1,149 @@
+package com.vizako.anonphobease.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vizako.anonphobease.model.Chat;
+import com.vizako.anonphobease.model.Language;
+import com.vizako.anonphobease.model.Phobia;
+import com.vizako.anonphobease.model.Role;
+import com.vizako.anonphobease.repository.ChatRepository;
+import com.vizako.anonphobease.repository.LanguageRepository;
+import com.vizako.anonphobease.repository.PhobiaRepository;
+import com.vizako.anonphobease.repository.RoleRepository;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChatDirectoryTest {
+
+    @Mock
+    private ChatRepository chatRepository;
+
+    @Mock
+    private LanguageRepository languageRepository;
+
+    @Mock
+    private PhobiaRepository phobiaRepository;
+
+    @Mock
+    private RoleRepository roleRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ObjectId chatId = new ObjectId();
+    private final ObjectId languageId = new ObjectId();
+    private final ObjectId phobiaId = new ObjectId();
+
+    @BeforeEach
+    void setUp() {
+        when(languageRepository.findAll()).thenReturn(List.of(new Language(languageId, "Estonian", "est")));
+        when(phobiaRepository.findAll()).thenReturn(List.of(new Phobia(phobiaId, "Claustrophobia", null)));
+        when(chatRepository.findAll()).thenReturn(List.of(new Chat(chatId, languageId, phobiaId, null, null, null)));
+    }
+
+    @Test
+    void find_buildsEntriesFromChatsLanguagesAndPhobias() {
+        ChatDirectory directory = new ChatDirectory(chatRepository, languageRepository, phobiaRepository, roleRepository, objectMapper, 60_000);
+
+        Optional<ChatDirectory.ChatEntry> entry = directory.find(chatId.toHexString());
+
+        assertTrue(entry.isPresent());
+        assertEquals("est", entry.get().languageCode());
+        assertEquals("Claustrophobia", entry.get().phobiaName());
+        assertEquals("(EST) Claustrophobia", entry.get().displayName());
+    }
+
+    @Test
+    void find_servesRepeatedLookupsFromSnapshot() {
+        ChatDirectory directory = new ChatDirectory(chatRepository, languageRepository, phobiaRepository, roleRepository, objectMapper, 60_000);
+        directory.refresh();
+
+        directory.find(chatId.toHexString());
+        directory.find(chatId.toHexString());
+        directory.find(new ObjectId().toHexString());
+
+        verify(chatRepository, times(1)).findAll();
+    }
+
+    @Test
+    void find_unknownChatRefreshesOnceIntervalHasPassed() {
+        ChatDirectory directory = new ChatDirectory(chatRepository, languageRepository, phobiaRepository, roleRepository, objectMapper, 0);
+        directory.refresh();
+        ObjectId newChatId = new ObjectId();
+        when(chatRepository.findAll()).thenReturn(List.of(
+                new Chat(chatId, languageId, phobiaId, null, null, null),
+                new Chat(newChatId, languageId, new ObjectId(), null, null, null)));
+
+        Optional<ChatDirectory.ChatEntry> entry = directory.find(newChatId.toHexString());
+
+        assertTrue(entry.isPresent());
+        assertEquals("(EST) Unknown Phobia", entry.get().displayName());
+    }
+
+    @Test
+    void refresh_replacesSnapshotAfterLanguageChange() {
+        ChatDirectory directory = new ChatDirectory(chatRepository, languageRepository, phobiaRepository, roleRepository, objectMapper, 60_000);
+        directory.refresh();
+        when(languageRepository.findAll()).thenReturn(List.of(new Language(languageId, "Russian", "rus")));
+
+        directory.refresh();
+
+        assertEquals("rus", directory.find(chatId.toHexString()).orElseThrow().languageCode());
+    }
+
+    @Test
+    void catalog_isPreSerializedWithStableEtag() throws Exception {
+        ChatDirectory directory = new ChatDirectory(chatRepository, languageRepository, phobiaRepository, roleRepository, objectMapper, 60_000);
+
+        ChatDirectory.Catalog catalog = directory.catalog();
+
+        JsonNode body = objectMapper.readTree(catalog.body());
+        assertEquals(chatId.toHexString(), body.get("chats").get(0).get("id").asText());
+        assertEquals("Estonian", body.get("chats").get(0).get("languageName").asText());
+        assertEquals("Claustrophobia", body.get("chats").get(0).get("phobiaName").asText());
+        assertEquals("est", body.get("languages").get(0).get("code").asText());
+        assertEquals(1, body.get("phobias").size());
+        assertTrue(catalog.etag().matches("\"[0-9a-f]{32}\""));
+
+        directory.refresh();
+        assertSame(catalog, directory.catalog());
+        assertEquals(1, directory.catalog().version());
+    }
+
+    @Test
+    void catalog_getsNewVersionAndEtagWhenContentChanges() {
+        ChatDirectory directory = new ChatDirectory(chatRepository, languageRepository, phobiaRepository, roleRepository, objectMapper, 60_000);
+        ChatDirectory.Catalog before = directory.catalog();
+        when(phobiaRepository.findAll()).thenReturn(List.of(new Phobia(phobiaId, "Acrophobia", null)));
+
+        directory.refresh();
+
+        ChatDirectory.Catalog after = directory.catalog();
+        assertEquals(before.version() + 1, after.version());
+        assertNotEquals(before.etag(), after.etag());
+        assertEquals("Acrophobia", after.response().getChats().get(0).getPhobiaName());
+    }
+
+    @Test
+    void roles_areServedFromSnapshot() {
+        ObjectId roleId = new ObjectId();
+        when(roleRepository.findAll()).thenReturn(List.of(new Role(roleId, "MODERATOR")));
+        ChatDirectory directory = new ChatDirectory(chatRepository, languageRepository, phobiaRepository, roleRepository, objectMapper, 60_000);
+
+        assertEquals("MODERATOR", directory.findRoleById(roleId.toHexString()).orElseThrow().getName());
+        assertEquals(roleId.toHexString(), directory.findRoleByName("MODERATOR").orElseThrow().getId());
+        assertTrue(directory.findRoleByName("ADMIN").isEmpty());
+        assertEquals(1, directory.roles().size());
+        verify(roleRepository, times(1)).findAll();
+    }
+}
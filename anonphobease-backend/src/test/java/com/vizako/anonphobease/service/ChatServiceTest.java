@@ -6,8 +6,6 @@ import com.vizako.anonphobease.model.RelatedEntityType;
 import com.vizako.anonphobease.repository.ChatRepository;
 import com.vizako.anonphobease.v1.dto.ChatDTO;
 import com.vizako.anonphobease.v1.dto.ChatsResponseDTO;
-import com.vizako.anonphobease.v1.dto.LanguageDTO;
-import com.vizako.anonphobease.v1.dto.PhobiaDTO;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,7 +14,6 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.test.context.bean.override.mockito.MockitoBean;
 
 import java.util.List;
 import java.util.Optional;
@@ -27,18 +24,21 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class ChatServiceTest {
 
-    @MockitoBean
+    @Mock
     private ChatRepository chatRepository;
 
-    @MockitoBean
+    @Mock
     private LanguageService languageService;
 
-    @MockitoBean
+    @Mock
     private PhobiaService phobiaService;
 
-    @MockitoBean
+    @Mock
     private UserLogService userLogService;
 
+    @Mock
+    private ChatDirectory chatDirectory;
+
     @InjectMocks
     private ChatService chatService;
 
@@ -71,41 +71,13 @@ class ChatServiceTest {
     }
 
     @Test
-    void getAllChatsWithFilters_returnsChatsWithLanguageAndPhobiaNames() {
-        ObjectId chatId = new ObjectId();
-        ObjectId langId = new ObjectId();
-        ObjectId phobiaId = new ObjectId();
-
-        Chat chat = new Chat();
-        chat.setId(chatId);
-        chat.setLanguageId(langId);
-        chat.setPhobiaId(phobiaId);
-
-        LanguageDTO langDTO = new LanguageDTO();
-        langDTO.setId(langId.toHexString());
-        langDTO.setName("English");
-
-        PhobiaDTO phobiaDTO = new PhobiaDTO();
-        phobiaDTO.setId(phobiaId.toHexString());
-        phobiaDTO.setName("Social phobia");
-
-        when(chatRepository.findAll()).thenReturn(List.of(chat));
-        when(languageService.findAll()).thenReturn(List.of(langDTO));
-        when(phobiaService.findAll()).thenReturn(List.of(phobiaDTO));
-
-        ChatsResponseDTO result = chatService.getAllChatsWithFilters();
-
-        assertEquals(1, result.getChats().size());
-        ChatDTO dto = result.getChats().get(0);
+    void getCatalog_isServedFromDirectory() {
+        ChatDirectory.Catalog catalog = new ChatDirectory.Catalog(3, "\"etag\"", new byte[0],
+                new ChatsResponseDTO(List.of(), List.of(), List.of()));
+        when(chatDirectory.catalog()).thenReturn(catalog);
 
-        assertEquals(chatId.toHexString(), dto.getId());
-        assertEquals(langId.toHexString(), dto.getLanguageId());
-        assertEquals("English", dto.getLanguageName());
-        assertEquals(phobiaId.toHexString(), dto.getPhobiaId());
-        assertEquals("Social phobia", dto.getPhobiaName());
-
-        assertEquals(1, result.getLanguages().size());
-        assertEquals(1, result.getPhobias().size());
+        assertSame(catalog, chatService.getCatalog());
+        verifyNoInteractions(chatRepository, languageService, phobiaService);
     }
 
     @Test
@@ -211,6 +183,25 @@ class ChatServiceTest {
         );
     }
 
+    @Test
+    void update_zeroRetention_clearsTheOverride() {
+        ObjectId chatId = new ObjectId();
+        Chat existing = new Chat();
+        existing.setId(chatId);
+        existing.setRetentionDays(7);
+
+        ChatDTO keep = new ChatDTO();
+        ChatDTO clear = new ChatDTO();
+        clear.setRetentionDays(0);
+
+        when(chatRepository.findById(chatId)).thenReturn(Optional.of(existing));
+        when(chatRepository.save(any(Chat.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertEquals(7, chatService.update(chatId.toHexString(), keep, "admin").orElseThrow().getRetentionDays());
+        assertNull(chatService.update(chatId.toHexString(), clear, "admin").orElseThrow().getRetentionDays());
+        assertNull(existing.getRetentionDays());
+    }
+
     @Test
     void update_whenChatNotFound_returnsEmptyAndDoesNotLog() {
         String chatIdStr = new ObjectId().toHexString();
@@ -234,78 +225,45 @@ class ChatServiceTest {
     }
 
     @Test
-    void getChatName_returnsLanguageAndPhobiaName() {
-        ChatDTO chatDTO = new ChatDTO();
-        chatDTO.setLanguageId(new ObjectId().toHexString());
-        chatDTO.setPhobiaId(new ObjectId().toHexString());
-
-        LanguageDTO langDTO = new LanguageDTO();
-        langDTO.setId(chatDTO.getLanguageId());
-        langDTO.setName("English");
-
-        PhobiaDTO phobiaDTO = new PhobiaDTO();
-        phobiaDTO.setId(chatDTO.getPhobiaId());
-        phobiaDTO.setName("Social phobia");
-
-        when(languageService.findById(chatDTO.getLanguageId())).thenReturn(Optional.of(langDTO));
-        when(phobiaService.findById(chatDTO.getPhobiaId())).thenReturn(Optional.of(phobiaDTO));
+    void getChatNameById_returnsDisplayNameFromDirectory() {
+        String chatId = new ObjectId().toHexString();
+        when(chatDirectory.find(chatId)).thenReturn(Optional.of(new ChatDirectory.ChatEntry(
+                chatId, new ObjectId().toHexString(), "eng", new ObjectId().toHexString(), "Social phobia",
+                "(ENG) Social phobia")));
 
-        String name = chatService.getChatNameById(chatDTO.getId());
+        String result = chatService.getChatNameById(chatId);
 
-        assertEquals("English - Social phobia", name);
+        assertEquals("(ENG) Social phobia", result);
+        verifyNoInteractions(chatRepository, languageService, phobiaService);
     }
 
     @Test
-    void getChatName_usesDefaultsWhenLanguageOrPhobiaNotFound() {
-        ChatDTO chatDTO = new ChatDTO();
-        chatDTO.setLanguageId(new ObjectId().toHexString());
-        chatDTO.setPhobiaId(new ObjectId().toHexString());
+    void getChatNameById_returnsUnknownChatWhenNotFound() {
+        String chatIdStr = new ObjectId().toHexString();
 
-        when(languageService.findById(chatDTO.getLanguageId())).thenReturn(Optional.empty());
-        when(phobiaService.findById(chatDTO.getPhobiaId())).thenReturn(Optional.empty());
+        when(chatDirectory.find(chatIdStr)).thenReturn(Optional.empty());
 
-        String name = chatService.getChatNameById(chatDTO.getId());
+        String result = chatService.getChatNameById(chatIdStr);
 
-        assertEquals("Unknown Language - Unknown Phobia", name);
+        assertEquals("Unknown Chat", result);
     }
 
     @Test
-    void getChatNameById_returnsChatNameWhenChatExists() {
-        ObjectId chatId = new ObjectId();
-        ObjectId langId = new ObjectId();
-        ObjectId phobiaId = new ObjectId();
-
-        Chat chat = new Chat();
-        chat.setId(chatId);
-        chat.setLanguageId(langId);
-        chat.setPhobiaId(phobiaId);
-
-        LanguageDTO langDTO = new LanguageDTO();
-        langDTO.setId(langId.toHexString());
-        langDTO.setName("English");
-
-        PhobiaDTO phobiaDTO = new PhobiaDTO();
-        phobiaDTO.setId(phobiaId.toHexString());
-        phobiaDTO.setName("Social phobia");
-
-        when(chatRepository.findById(chatId)).thenReturn(Optional.of(chat));
-        when(languageService.findById(langId.toHexString())).thenReturn(Optional.of(langDTO));
-        when(phobiaService.findById(phobiaId.toHexString())).thenReturn(Optional.of(phobiaDTO));
-
-        String result = chatService.getChatNameById(chatId.toHexString());
+    void getLanguageCodeByChatId_readsDirectoryWithoutDatabaseAccess() {
+        String chatId = new ObjectId().toHexString();
+        when(chatDirectory.find(chatId)).thenReturn(Optional.of(new ChatDirectory.ChatEntry(
+                chatId, null, "est", null, "Claustrophobia", "(EST) Claustrophobia")));
 
-        assertEquals("English - Social phobia", result);
+        assertEquals("est", chatService.getLanguageCodeByChatId(chatId));
+        verifyNoInteractions(chatRepository, languageService, phobiaService);
     }
 
     @Test
-    void getChatNameById_returnsUnknownChatWhenNotFound() {
-        String chatIdStr = new ObjectId().toHexString();
-
-        when(chatRepository.findById(any(ObjectId.class))).thenReturn(Optional.empty());
+    void getLanguageCodeByChatId_returnsUnknownWhenChatMissing() {
+        String chatId = new ObjectId().toHexString();
+        when(chatDirectory.find(chatId)).thenReturn(Optional.empty());
 
-        String result = chatService.getChatNameById(chatIdStr);
-
-        assertEquals("Unknown Chat", result);
+        assertEquals("UNK", chatService.getLanguageCodeByChatId(chatId));
     }
 
     @Test
@@ -0,0 +1,84 @@
+package com.vizako.anonphobease.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Runs the verifier against a local stand-in for the provider's siteverify endpoint. */
+class HttpCaptchaVerifierTest {
+
+    private HttpServer server;
+    private final AtomicReference<String> lastForm = new AtomicReference<>();
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final AtomicInteger delayMs = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/siteverify", exchange -> {
+            String form = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            lastForm.set(URLDecoder.decode(form, StandardCharsets.UTF_8));
+            try {
+                Thread.sleep(delayMs.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("{\"success\": " + form.contains("response=valid") + "}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status.get(), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private HttpCaptchaVerifier verifier(long requestTimeoutMs) {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/siteverify";
+        return new HttpCaptchaVerifier(url, "s3cret&x", 1_000, requestTimeoutMs);
+    }
+
+    @Test
+    void verify_postsSecretAndTokenAsFormAndReadsVerdict() {
+        HttpCaptchaVerifier verifier = verifier(2_000);
+
+        assertTrue(verifier.verify("valid").join());
+        assertEquals("secret=s3cret&x&response=valid", lastForm.get());
+        assertFalse(verifier.verify("other").join());
+        verifier.shutdown();
+    }
+
+    @Test
+    void verify_providerError_completesExceptionally() {
+        status.set(500);
+        HttpCaptchaVerifier verifier = verifier(2_000);
+
+        assertThrows(CompletionException.class, () -> verifier.verify("valid").join());
+        verifier.shutdown();
+    }
+
+    @Test
+    void verify_slowProvider_timesOut() {
+        delayMs.set(1_000);
+        HttpCaptchaVerifier verifier = verifier(100);
+
+        assertThrows(CompletionException.class, () -> verifier.verify("valid").join());
+        verifier.shutdown();
+    }
+}
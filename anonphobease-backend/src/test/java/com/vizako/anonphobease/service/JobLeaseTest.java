@@ -0,0 +1,73 @@
+package com.vizako.anonphobease.service;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JobLeaseTest {
+
+    private static final Instant NOW = Instant.parse("2024-06-01T00:00:00Z");
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private JobLease jobLease;
+
+    @BeforeEach
+    void setUp() {
+        jobLease = new JobLease(mongoTemplate, "node-a", () -> NOW);
+    }
+
+    @Test
+    void tryAcquire_FreeOrOwnLease_TakesItUntilTtl() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(JobLease.COLLECTION))).thenReturn(new Document());
+
+        assertTrue(jobLease.tryAcquire("job", Duration.ofMinutes(5)));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        ArgumentCaptor<FindAndModifyOptions> options = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), options.capture(),
+                eq(Document.class), eq(JobLease.COLLECTION));
+        Document criteria = query.getValue().getQueryObject();
+        assertEquals("job", criteria.get("_id"));
+        assertTrue(criteria.toJson().contains("node-a"));
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertEquals("node-a", set.get(JobLease.OWNER));
+        assertEquals(Date.from(NOW.plusSeconds(300)), set.get(JobLease.EXPIRES_AT));
+        assertTrue(options.getValue().isUpsert());
+    }
+
+    @Test
+    void tryAcquire_HeldByAnotherNode_ReturnsFalse() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(JobLease.COLLECTION))).thenThrow(new DuplicateKeyException("E11000"));
+
+        assertFalse(jobLease.tryAcquire("job", Duration.ofMinutes(5)));
+    }
+
+    @Test
+    void owner_StableAcrossRestarts() {
+        assertEquals("node-1", new JobLease(mongoTemplate, "node-1").owner());
+        assertEquals(new JobLease(mongoTemplate, "").owner(), new JobLease(mongoTemplate, " ").owner());
+    }
+}
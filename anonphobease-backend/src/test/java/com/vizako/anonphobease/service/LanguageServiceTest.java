@@ -28,6 +28,9 @@ class LanguageServiceTest {
     @Mock
     private UserLogService userLogService;
 
+    @Mock
+    private ChatDirectory chatDirectory;
+
     @InjectMocks
     private LanguageService languageService;
 
@@ -119,6 +122,7 @@ class LanguageServiceTest {
         assertEquals("English", result.getName());
         assertEquals("en", result.getCode());
 
+        verify(chatDirectory).refresh();
         verify(userLogService).save(
                 eq(userId),
                 eq(LogType.LANGUAGE_SAVE),
@@ -0,0 +1,110 @@
+package com.vizako.anonphobease.service;
+
+import com.vizako.anonphobease.model.Message;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageArchiveTest {
+
+    @TempDir
+    Path dir;
+
+    private MessageArchive archive;
+    private final ObjectId chatId = new ObjectId();
+
+    @BeforeEach
+    void setUp() {
+        archive = new MessageArchive(dir.toString());
+    }
+
+    private Message message(LocalDate day, int second, byte[] payload, String content) {
+        Date at = Date.from(day.atStartOfDay().plusSeconds(second).toInstant(ZoneOffset.UTC));
+        return new Message(new ObjectId(at), new ObjectId(), chatId, content, at, payload);
+    }
+
+    private List<MessageArchive.ArchivedMessage> readAll(LocalDate from, LocalDate to) throws IOException {
+        List<MessageArchive.ArchivedMessage> read = new ArrayList<>();
+        archive.read(chatId, from, to, read::add);
+        return read;
+    }
+
+    @Test
+    void appendThenRead_RoundTripsBothBodyFormatsAcrossDays() throws IOException {
+        LocalDate day1 = LocalDate.of(2024, 5, 1);
+        LocalDate day2 = day1.plusDays(1);
+        Message binary = message(day1, 10, new byte[]{1, 2, 3}, null);
+        Message legacy = message(day1, 20, null, "bGVnYWN5");
+        Message nextDay = message(day2, 5, new byte[]{4}, null);
+
+        assertEquals(2, archive.append(chatId, day1, List.of(binary, legacy)));
+        assertEquals(1, archive.append(chatId, day2, List.of(nextDay)));
+
+        List<MessageArchive.ArchivedMessage> read = readAll(day1, day2);
+        assertEquals(3, read.size());
+        assertEquals(binary.getId(), read.get(0).id());
+        assertArrayEquals(new byte[]{1, 2, 3}, read.get(0).payload());
+        assertEquals("bGVnYWN5", read.get(1).content());
+        assertEquals(legacy.getCreatedAt(), read.get(1).createdAt());
+        assertEquals(nextDay.getId(), read.get(2).id());
+        assertEquals(1, readAll(day2, day2).size());
+        assertTrue(readAll(day2.plusDays(1), day2.plusDays(3)).isEmpty());
+    }
+
+    @Test
+    void append_SameBatchTwice_SkipsAlreadyArchivedMessages() throws IOException {
+        LocalDate day = LocalDate.of(2024, 5, 1);
+        Message first = message(day, 1, new byte[]{1}, null);
+        Message second = message(day, 2, new byte[]{2}, null);
+
+        archive.append(chatId, day, List.of(first));
+        assertEquals(1, archive.append(chatId, day, List.of(first, second)));
+        assertEquals(0, archive.append(chatId, day, List.of(first, second)));
+
+        assertEquals(List.of(first.getId(), second.getId()), readAll(day, day).stream().map(MessageArchive.ArchivedMessage::id).toList());
+    }
+
+    @Test
+    void append_LateMessageOlderThanArchived_IsWrittenNotSkipped() throws IOException {
+        LocalDate day = LocalDate.of(2024, 5, 1);
+        Message early = message(day, 1, new byte[]{1}, null);
+        Message late = message(day, 2, new byte[]{2}, null);
+        Message newer = message(day, 3, new byte[]{3}, null);
+
+        archive.append(chatId, day, List.of(early, newer));
+        assertEquals(1, archive.append(chatId, day, List.of(early, late)));
+        assertEquals(0, archive.append(chatId, day, List.of(late)));
+
+        assertEquals(List.of(early.getId(), newer.getId(), late.getId()),
+                readAll(day, day).stream().map(MessageArchive.ArchivedMessage::id).toList());
+    }
+
+    @Test
+    void append_AfterTornWrite_OverwritesUnacknowledgedBytes() throws IOException {
+        LocalDate day = LocalDate.of(2024, 5, 1);
+        archive.append(chatId, day, List.of(message(day, 1, new byte[]{1}, null)));
+        Path chatDir = dir.resolve(chatId.toHexString());
+        Files.write(chatDir.resolve(day + ".seg"), new byte[]{9, 9, 9, 9}, StandardOpenOption.APPEND);
+        Files.writeString(chatDir.resolve(day + ".idx"), "123 4", StandardCharsets.US_ASCII, StandardOpenOption.APPEND);
+
+        archive.append(chatId, day, List.of(message(day, 2, new byte[]{2}, null)));
+
+        List<MessageArchive.ArchivedMessage> read = readAll(day, day);
+        assertEquals(2, read.size());
+        assertArrayEquals(new byte[]{2}, read.get(1).payload());
+    }
+}
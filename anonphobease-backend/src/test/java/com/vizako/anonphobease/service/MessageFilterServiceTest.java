@@ -0,0 +1,53 @@
+package com.vizako.anonphobease.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageFilterServiceTest {
+
+    private MessageFilterService messageFilterService;
+
+    @BeforeEach
+    void setUp() {
+        messageFilterService = new MessageFilterService(List.of("eng"));
+        messageFilterService.init();
+    }
+
+    @Test
+    void filter_masksWordsOfChatLanguageIgnoringCase() {
+        assertEquals("Sa oled ****!", messageFilterService.filter("Sa oled LOLL!", "est"));
+        assertEquals("ты *****", messageFilterService.filter("ты Дурак", "rus"));
+    }
+
+    @Test
+    void filter_appliesSharedLanguageToEveryChat() {
+        assertEquals("Sa oled *****", messageFilterService.filter("Sa oled idiot", "est"));
+    }
+
+    @Test
+    void filter_ignoresOtherNonSharedLanguages() {
+        assertEquals("дурак", messageFilterService.filter("дурак", "est"));
+    }
+
+    @Test
+    void filter_unknownLanguageUsesAllDictionaries() {
+        assertEquals("***** ****", messageFilterService.filter("дурак loll", "UNK"));
+        assertEquals("***** ****", messageFilterService.filter("дурак loll", null));
+    }
+
+    @Test
+    void filter_returnsSameInstanceWhenClean() {
+        String text = "Hello there";
+        assertSame(text, messageFilterService.filter(text, "eng"));
+    }
+
+    @Test
+    void filter_blankOrNullIsReturnedAsIs() {
+        assertNull(messageFilterService.filter(null, "eng"));
+        assertEquals("  ", messageFilterService.filter("  ", "eng"));
+    }
+}
@@ -0,0 +1,111 @@
+package com.vizako.anonphobease.service;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.vizako.anonphobease.util.EncryptionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessagePayloadMigrationTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private EncryptionService encryptionService;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Mock
+    private BulkWriteResult bulkWriteResult;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MessagePayloadMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        migration = new MessagePayloadMigration(mongoTemplate, encryptionService, meterRegistry, true, 2, 0);
+    }
+
+    private Document legacy(ObjectId id, String content) {
+        return new Document("_id", id).append("content", content);
+    }
+
+    @Test
+    void migrateBatch_RewritesLegacyDocumentsGuardedByTheirContent() {
+        ObjectId first = new ObjectId();
+        ObjectId second = new ObjectId();
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("messages")))
+                .thenReturn(List.of(legacy(first, "b64-1"), legacy(second, "b64-2")));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, "messages")).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(bulkWriteResult);
+        when(bulkWriteResult.getModifiedCount()).thenReturn(2);
+        when(encryptionService.toPayload(anyString())).thenReturn(new byte[]{1, 2, 3});
+
+        ObjectId last = migration.migrateBatch(null);
+
+        assertEquals(second, last);
+        ArgumentCaptor<Query> filters = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(2)).updateOne(filters.capture(), updates.capture());
+        assertEquals("b64-1", filters.getAllValues().get(0).getQueryObject().get("content"));
+        Document update = updates.getAllValues().get(0).getUpdateObject();
+        assertTrue(update.get("$set", Document.class).containsKey("payload"));
+        assertTrue(update.get("$unset", Document.class).containsKey("content"));
+        assertEquals(2.0, meterRegistry.get("messages.payload.migrated").counter().count());
+    }
+
+    @Test
+    void migrateBatch_NothingLeft_ReturnsNull() {
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("messages"))).thenReturn(List.of());
+
+        assertNull(migration.migrateBatch(new ObjectId()));
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), anyString());
+    }
+
+    @Test
+    void run_ResumesAfterCheckpointAndRecordsCompletion() {
+        ObjectId checkpoint = new ObjectId();
+        ObjectId migrated = new ObjectId();
+        when(mongoTemplate.findById("message-payload-v1", Document.class, "migrations"))
+                .thenReturn(new Document("_id", "message-payload-v1").append("lastId", checkpoint));
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("messages")))
+                .thenReturn(List.of(legacy(migrated, "b64")))
+                .thenReturn(List.of());
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, "messages")).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(bulkWriteResult);
+
+        ReflectionTestUtils.setField(migration, "running", true);
+        migration.run();
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(queries.capture(), eq(Document.class), eq("messages"));
+        Document firstFilter = queries.getAllValues().get(0).getQueryObject();
+        assertEquals(checkpoint, firstFilter.get("_id", Document.class).get("$gt"));
+        assertEquals(migrated, queries.getAllValues().get(1).getQueryObject().get("_id", Document.class).get("$gt"));
+
+        ArgumentCaptor<Update> checkpoints = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).upsert(any(Query.class), checkpoints.capture(), eq("migrations"));
+        Document done = checkpoints.getAllValues().get(1).getUpdateObject().get("$set", Document.class);
+        assertEquals(true, done.get("complete"));
+    }
+}
@@ -0,0 +1,133 @@
+package com.vizako.anonphobease.service;
+
+import com.vizako.anonphobease.model.Chat;
+import com.vizako.anonphobease.model.Message;
+import com.vizako.anonphobease.repository.ChatRepository;
+import com.vizako.anonphobease.repository.MessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageRetentionJobTest {
+
+    private static final Instant NOW = Instant.parse("2024-06-01T00:00:00Z");
+    private static final Sort OLDEST_FIRST = Sort.by(Sort.Direction.ASC, "id");
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private ChatRepository chatRepository;
+
+    @Mock
+    private MessageArchive messageArchive;
+
+    @Mock
+    private JobLease jobLease;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MessageRetentionJob job;
+    private final ObjectId chatId = new ObjectId();
+
+    @BeforeEach
+    void setUp() {
+        job = new MessageRetentionJob(messageRepository, chatRepository, messageArchive, jobLease, meterRegistry,
+                true, 30, 2, 0, 10_800_000, () -> NOW);
+    }
+
+    private Chat chat(Integer retentionDays) {
+        Chat chat = new Chat();
+        chat.setId(chatId);
+        chat.setRetentionDays(retentionDays);
+        return chat;
+    }
+
+    private Message message(String at) {
+        Message message = new Message();
+        message.setId(new ObjectId(Date.from(Instant.parse(at))));
+        message.setChatId(chatId);
+        return message;
+    }
+
+    @Test
+    void archiveChat_ArchivesByDayThenDeletesEachBatch() throws Exception {
+        Message a = message("2024-01-01T10:00:00Z");
+        Message b = message("2024-01-02T10:00:00Z");
+        Message c = message("2024-01-03T10:00:00Z");
+        ObjectId cutoff = ObjectId.getSmallestWithDate(Date.from(Instant.parse("2024-05-02T00:00:00Z")));
+        when(messageRepository.findByChatIdAndIdLessThan(chatId, cutoff, OLDEST_FIRST, Limit.of(2)))
+                .thenReturn(List.of(a, b))
+                .thenReturn(List.of(c));
+
+        int moved = job.archiveChat(chat(null));
+
+        assertEquals(3, moved);
+        InOrder order = inOrder(messageArchive, messageRepository);
+        order.verify(messageArchive).append(chatId, LocalDate.of(2024, 1, 1), List.of(a));
+        order.verify(messageArchive).append(chatId, LocalDate.of(2024, 1, 2), List.of(b));
+        order.verify(messageRepository).deleteAllById(List.of(a.getId(), b.getId()));
+        order.verify(messageArchive).append(chatId, LocalDate.of(2024, 1, 3), List.of(c));
+        order.verify(messageRepository).deleteAllById(List.of(c.getId()));
+        assertEquals(3.0, meterRegistry.get("messages.retention.archived").counter().count());
+    }
+
+    @Test
+    void archiveChat_UsesPerChatRetentionAndZeroFallsBackToDefault() throws Exception {
+        ObjectId defaultCutoff = ObjectId.getSmallestWithDate(Date.from(NOW.minusSeconds(30 * 86400)));
+        when(messageRepository.findByChatIdAndIdLessThan(chatId, defaultCutoff, OLDEST_FIRST, Limit.of(2))).thenReturn(List.of());
+        assertEquals(0, job.archiveChat(chat(0)));
+
+        ObjectId cutoff = ObjectId.getSmallestWithDate(Date.from(NOW.minusSeconds(7 * 86400)));
+        when(messageRepository.findByChatIdAndIdLessThan(chatId, cutoff, OLDEST_FIRST, Limit.of(2))).thenReturn(List.of());
+
+        assertEquals(0, job.archiveChat(chat(7)));
+    }
+
+    @Test
+    void archiveChat_ArchiveFailure_LeavesMessagesInMongo() throws Exception {
+        Message a = message("2024-01-01T10:00:00Z");
+        when(messageRepository.findByChatIdAndIdLessThan(eq(chatId), any(), any(), any())).thenReturn(List.of(a));
+        when(messageArchive.append(any(), any(), anyList())).thenThrow(new IOException("disk full"));
+
+        assertThrows(IOException.class, () -> job.archiveChat(chat(null)));
+        verify(messageRepository, never()).deleteAllById(any());
+    }
+
+    @Test
+    void archiveExpired_LeaseHeldElsewhere_DoesNothing() {
+        when(chatRepository.findAll()).thenReturn(List.of(chat(7)));
+        when(jobLease.tryAcquire(MessageRetentionJob.LEASE, Duration.ofMillis(10_800_000))).thenReturn(false);
+
+        job.archiveExpired();
+
+        verifyNoInteractions(messageRepository, messageArchive);
+    }
+
+    @Test
+    void archiveExpired_Disabled_NeverTakesTheLease() {
+        new MessageRetentionJob(messageRepository, chatRepository, messageArchive, jobLease, meterRegistry,
+                false, 30, 2, 0, 10_800_000, () -> NOW).archiveExpired();
+
+        verifyNoInteractions(jobLease, chatRepository, messageRepository);
+    }
+}
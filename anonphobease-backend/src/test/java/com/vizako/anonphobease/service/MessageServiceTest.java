@@ -2,7 +2,9 @@ package com.vizako.anonphobease.service;
 
 import com.vizako.anonphobease.model.Message;
 import com.vizako.anonphobease.repository.MessageRepository;
+import com.vizako.anonphobease.util.EncryptionService;
 import com.vizako.anonphobease.v1.dto.MessageDTO;
+import com.vizako.anonphobease.v1.dto.MessagePageDTO;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,12 +12,25 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,9 +39,76 @@ class MessageServiceTest {
     @Mock
     private MessageRepository messageRepository;
 
+    @Mock
+    private EncryptionService encryptionService;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
     @InjectMocks
     private MessageService messageService;
 
+    private Message storedMessage(ObjectId chatId, String content) {
+        Message message = new Message();
+        message.setId(new ObjectId());
+        message.setUserId(new ObjectId());
+        message.setChatId(chatId);
+        message.setContent(content);
+        return message;
+    }
+
+    @Test
+    void findPageByChatId_fetchesOneExtraRowAndDecryptsOnlyThePage() {
+        ObjectId chatId = new ObjectId();
+        Message m1 = storedMessage(chatId, "enc-3");
+        Message m2 = storedMessage(chatId, "enc-2");
+        Message m3 = storedMessage(chatId, "enc-1");
+        Sort sort = Sort.by(Sort.Direction.DESC, "id");
+        when(messageRepository.findByChatId(chatId, sort, Limit.of(3))).thenReturn(List.of(m1, m2, m3));
+        when(encryptionService.decryptAll(anyList())).thenAnswer(inv -> inv.<List<String>>getArgument(0).stream()
+                .map(content -> "plain-" + content).toList());
+
+        MessagePageDTO page = messageService.findPageByChatId(chatId.toHexString(), null, null, 2, Sort.Direction.DESC);
+
+        assertEquals(2, page.getMessages().size());
+        assertEquals("plain-enc-3", page.getMessages().get(0).getContent());
+        assertTrue(page.isHasMore());
+        assertEquals(m2.getId().toHexString(), page.getNextCursor());
+        verify(encryptionService).decryptAll(List.of("enc-3", "enc-2"));
+    }
+
+    @Test
+    void findPageByChatId_lastPageHasNoCursor() {
+        ObjectId chatId = new ObjectId();
+        ObjectId before = new ObjectId();
+        Message m1 = storedMessage(chatId, "enc");
+        Sort sort = Sort.by(Sort.Direction.DESC, "id");
+        when(messageRepository.findByChatIdAndIdLessThan(chatId, before, sort, Limit.of(51))).thenReturn(List.of(m1));
+        when(encryptionService.decryptAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        MessagePageDTO page = messageService.findPageByChatId(chatId.toHexString(), before.toHexString(), null, 50,
+                Sort.Direction.DESC);
+
+        assertEquals(1, page.getMessages().size());
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void findPageByChatId_usesRangeQueryWhenBothCursorsGiven() {
+        ObjectId chatId = new ObjectId();
+        ObjectId after = new ObjectId();
+        ObjectId before = new ObjectId();
+        Sort sort = Sort.by(Sort.Direction.ASC, "id");
+        when(messageRepository.findByChatIdAndIdBetween(chatId, after, before, sort, Limit.of(11))).thenReturn(List.of());
+
+        MessagePageDTO page = messageService.findPageByChatId(chatId.toHexString(), before.toHexString(),
+                after.toHexString(), 10, Sort.Direction.ASC);
+
+        assertTrue(page.getMessages().isEmpty());
+        assertFalse(page.isHasMore());
+    }
+
     @Test
     void findAll_returnsMappedDtos() {
         ObjectId id1 = new ObjectId();
@@ -51,6 +133,7 @@ class MessageServiceTest {
         m2.setCreatedAt(new Date());
 
         when(messageRepository.findAll()).thenReturn(List.of(m1, m2));
+        when(encryptionService.decryptAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
 
         List<MessageDTO> result = messageService.findAll();
 
@@ -210,4 +293,43 @@ class MessageServiceTest {
 
         assertEquals(idStr, captor.getValue().toHexString());
     }
+
+    @Test
+    void exportMessages_writesOneJsonLinePerMessageDecryptingInBatches() throws Exception {
+        ReflectionTestUtils.setField(messageService, "exportBatchSize", 2);
+        ObjectId chatId = new ObjectId();
+        Message m1 = storedMessage(chatId, "enc-1");
+        Message m2 = storedMessage(chatId, "enc-2");
+        Message m3 = storedMessage(chatId, "enc-3");
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.stream(query.capture(), eq(Message.class))).thenReturn(Stream.of(m1, m2, m3));
+        when(encryptionService.decryptAll(anyList())).thenAnswer(inv -> inv.<List<String>>getArgument(0).stream()
+                .map(content -> "plain-" + content).toList());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        messageService.exportMessages(chatId.toHexString(), null, Instant.parse("2024-01-01T00:00:00Z"), null, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].contains("\"content\":\"plain-enc-1\""));
+        assertTrue(lines[2].contains("\"messageId\":\"" + m3.getId().toHexString() + "\""));
+        verify(encryptionService, times(2)).decryptAll(anyList());
+        assertEquals(chatId, query.getValue().getQueryObject().get("chatId"));
+        assertEquals(2, query.getValue().getMeta().getCursorBatchSize());
+    }
+
+    @Test
+    void getContentsByIds_fetchesAllIdsInOneQueryAndDecryptsInBulk() {
+        ObjectId chatId = new ObjectId();
+        Message m1 = storedMessage(chatId, "enc-1");
+        Message m2 = storedMessage(chatId, "enc-2");
+        Set<ObjectId> ids = Set.of(m1.getId(), m2.getId(), new ObjectId());
+        when(messageRepository.findAllById(ids)).thenReturn(List.of(m1, m2));
+        when(encryptionService.decryptAll(List.of("enc-1", "enc-2"))).thenReturn(List.of("one", "two"));
+
+        Map<ObjectId, String> contents = messageService.getContentsByIds(ids);
+
+        assertEquals(Map.of(m1.getId(), "one", m2.getId(), "two"), contents);
+        verify(messageRepository, never()).findById(any());
+    }
 }
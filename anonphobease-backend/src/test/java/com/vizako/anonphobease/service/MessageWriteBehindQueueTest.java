@@ -0,0 +1,203 @@
+package com.vizako.anonphobease.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteResult;
+import com.vizako.anonphobease.model.Message;
+import com.vizako.anonphobease.util.EncryptionService;
+import com.vizako.anonphobease.v1.dto.MessageDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageWriteBehindQueueTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private EncryptionService encryptionService;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lenient().when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Message.class)).thenReturn(bulkOperations);
+        lenient().when(encryptionService.encryptToBytes(anyString()))
+                .thenAnswer(inv -> ("enc:" + inv.getArgument(0)).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private MessageWriteBehindQueue queue(int capacity, int batchSize) {
+        return new MessageWriteBehindQueue(mongoTemplate, encryptionService, meterRegistry,
+                capacity, batchSize, 10, 0, 2, 0);
+    }
+
+    private MessageDTO message(String content) {
+        return new MessageDTO(new ObjectId().toHexString(), content, new ObjectId().toHexString(),
+                null, null, new ObjectId().toHexString(), new Date());
+    }
+
+    @Test
+    void pending_returnsTheChatsQueuedMessagesUntilFlushed() {
+        MessageWriteBehindQueue queue = queue(100, 10);
+        MessageDTO first = message("one");
+        MessageDTO second = new MessageDTO(new ObjectId().toHexString(), "two", first.getUserId(),
+                null, null, first.getChatId(), new Date());
+        queue.submit(first);
+        queue.submit(message("elsewhere"));
+        queue.submit(second);
+
+        List<MessageDTO> pending = queue.pending(first.getChatId());
+
+        assertEquals(List.of(first.getMessageId(), second.getMessageId()),
+                pending.stream().map(MessageDTO::getMessageId).toList());
+        assertEquals("one", pending.get(0).getContent());
+        queue.flushNow();
+        assertTrue(queue.pending(first.getChatId()).isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushNow_insertsQueuedMessagesInBatchesWithEncryptedContent() {
+        MessageWriteBehindQueue queue = queue(100, 2);
+        MessageDTO first = message("one");
+        queue.submit(first);
+        queue.submit(message("two"));
+        queue.submit(message("three"));
+
+        assertEquals(3, queue.getQueueDepth());
+        queue.flushNow();
+
+        ArgumentCaptor<List<Message>> batches = ArgumentCaptor.forClass(List.class);
+        verify(bulkOperations, times(2)).insert(batches.capture());
+        assertEquals(2, batches.getAllValues().get(0).size());
+        assertEquals(1, batches.getAllValues().get(1).size());
+
+        Message stored = batches.getAllValues().get(0).get(0);
+        assertEquals(first.getMessageId(), stored.getId().toHexString());
+        assertArrayEquals("enc:one".getBytes(StandardCharsets.UTF_8), stored.getPayload());
+        assertNull(stored.getContent());
+        assertEquals(0, queue.getQueueDepth());
+        assertEquals(3.0, meterRegistry.counter("chat.messages.write_behind.persisted").count());
+    }
+
+    @Test
+    void submit_persistsOnCallerThreadWhenQueueIsFull() {
+        MessageWriteBehindQueue queue = queue(1, 10);
+        queue.submit(message("queued"));
+        queue.submit(message("overflow"));
+
+        verify(bulkOperations, times(1)).insert(anyList());
+        assertEquals(1, queue.getQueueDepth());
+        assertEquals(1.0, meterRegistry.counter("chat.messages.write_behind.back_pressure").count());
+    }
+
+    @Test
+    void flushNow_retriesFailedInsertsAndEncryptsOnlyOnce() {
+        when(bulkOperations.execute())
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenReturn(null);
+        MessageWriteBehindQueue queue = queue(10, 10);
+        queue.submit(message("hello"));
+
+        queue.flushNow();
+
+        verify(bulkOperations, times(2)).execute();
+        verify(encryptionService, times(1)).encryptToBytes("hello");
+        assertEquals(1.0, meterRegistry.counter("chat.messages.write_behind.retried").count());
+        assertEquals(1.0, meterRegistry.counter("chat.messages.write_behind.persisted").count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushNow_treatsDuplicateKeysAsAlreadyWrittenAndRetriesOthers() {
+        BulkWriteError duplicate = new BulkWriteError(11000, "dup", new BsonDocument(), 0);
+        BulkWriteError transientError = new BulkWriteError(91, "shutdown", new BsonDocument(), 1);
+        BulkOperationException partial = new BulkOperationException("partial",
+                new MongoBulkWriteException(BulkWriteResult.unacknowledged(), List.of(duplicate, transientError),
+                        null, new ServerAddress(), java.util.Set.of()));
+        when(bulkOperations.execute()).thenThrow(partial).thenReturn(null);
+
+        MessageWriteBehindQueue queue = queue(10, 10);
+        queue.submit(message("a"));
+        MessageDTO second = message("b");
+        queue.submit(second);
+
+        queue.flushNow();
+
+        ArgumentCaptor<List<Message>> batches = ArgumentCaptor.forClass(List.class);
+        verify(bulkOperations, times(2)).insert(batches.capture());
+        List<Message> retry = batches.getAllValues().get(1);
+        assertEquals(1, retry.size());
+        assertEquals(second.getMessageId(), retry.get(0).getId().toHexString());
+    }
+
+    @Test
+    void flushNow_givesUpAfterMaxRetries() {
+        when(bulkOperations.execute()).thenThrow(new DataAccessResourceFailureException("down"));
+        MessageWriteBehindQueue queue = queue(10, 10);
+        queue.submit(message("lost"));
+
+        queue.flushNow();
+
+        verify(bulkOperations, times(3)).execute();
+        assertEquals(1.0, meterRegistry.counter("chat.messages.write_behind.failed").count());
+    }
+
+    @Test
+    void shutdown_slowFlush_finalDrainRunsOnFlusherOnly() {
+        MessageWriteBehindQueue queue = queue(100, 10);
+        List<String> threads = new CopyOnWriteArrayList<>();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(bulkOperations.execute()).thenAnswer(inv -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            threads.add(Thread.currentThread().getName());
+            // Outlasts shutdown's first join and ignores the interrupt, like a slow bulk insert.
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+            inFlight.decrementAndGet();
+            return null;
+        });
+
+        queue.start();
+        queue.submit(message("first"));
+        verify(bulkOperations, timeout(1_000)).execute();
+        queue.submit(message("second"));
+        queue.shutdown();
+
+        assertEquals(1, maxInFlight.get());
+        assertEquals(List.of("message-write-behind", "message-write-behind"), threads);
+        assertEquals(0, queue.getQueueDepth());
+        assertEquals(2.0, meterRegistry.counter("chat.messages.write_behind.persisted").count());
+    }
+}
@@ -28,6 +28,9 @@ class PhobiaServiceTest {
     @Mock
     private UserLogService userLogService;
 
+    @Mock
+    private ChatDirectory chatDirectory;
+
     @InjectMocks
     private PhobiaService phobiaService;
 
@@ -210,6 +213,7 @@ class PhobiaServiceTest {
         phobiaService.deleteById(idStr, userId);
 
         verify(phobiaRepository).deleteById(eq(id));
+        verify(chatDirectory).refresh();
         verify(userLogService).save(
                 eq(userId),
                 eq(LogType.PHOBIA_DELETE),
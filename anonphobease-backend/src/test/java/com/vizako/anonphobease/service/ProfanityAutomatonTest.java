@@ -0,0 +1,45 @@
+package com.vizako.anonphobease.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfanityAutomatonTest {
+
+    @Test
+    void mask_masksEveryOccurrenceInOnePass() {
+        ProfanityAutomaton automaton = ProfanityAutomaton.build(List.of("bad", "worse"));
+
+        assertEquals("*** and ***** and ***", automaton.mask("bad and worse and BaD"));
+    }
+
+    @Test
+    void mask_coversOverlappingAndNestedMatches() {
+        ProfanityAutomaton automaton = ProfanityAutomaton.build(List.of("he", "she", "hers", "his"));
+
+        assertEquals("u*****", automaton.mask("ushers"));
+        assertEquals("a***", automaton.mask("ahis"));
+    }
+
+    @Test
+    void mask_matchesSubstringsInsideWords() {
+        ProfanityAutomaton automaton = ProfanityAutomaton.build(List.of("moron"));
+
+        assertEquals("*****ic", automaton.mask("moronic"));
+    }
+
+    @Test
+    void mask_foldsUnicodeCase() {
+        ProfanityAutomaton automaton = ProfanityAutomaton.build(List.of("tõbras", "урод"));
+
+        assertEquals("****** ****", automaton.mask("TÕBRAS УРОД"));
+    }
+
+    @Test
+    void mask_emptyAutomatonLeavesTextUntouched() {
+        assertEquals("anything", ProfanityAutomaton.EMPTY.mask("anything"));
+        assertEquals(1, ProfanityAutomaton.EMPTY.stateCount());
+    }
+}
@@ -4,6 +4,10 @@ import com.vizako.anonphobease.model.ActionType;
 import com.vizako.anonphobease.model.Report;
 import com.vizako.anonphobease.repository.ReportRepository;
 import com.vizako.anonphobease.v1.dto.*;
+import com.vizako.anonphobease.helper.RelationBatchResolver;
+import com.vizako.anonphobease.websocket.ModerationFeed;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,9 +16,19 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -34,6 +48,12 @@ class ReportServiceTest {
     @Mock
     private MessageService messageService;
 
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ModerationFeed moderationFeed;
+
     @InjectMocks
     private ReportService reportService;
 
@@ -69,37 +89,14 @@ class ReportServiceTest {
 
         when(reportRepository.findAll()).thenReturn(List.of(report));
 
-        // reporter
-        UserDTO reporterDto = UserDTO.builder()
-                .id(reporterId.toHexString())
-                .username("reporterUser")
-                .build();
-
-        // reported
-        UserDTO reportedDto = UserDTO.builder()
-                .id(reportedId.toHexString())
-                .username("reportedUser")
-                .build();
-
-        // moderator
-        UserDTO moderatorDto = UserDTO.builder()
-                .id(moderatorId.toHexString())
-                .username("moderatorUser")
-                .build();
-
-        when(userService.findById(reporterId.toString())).thenReturn(Optional.of(reporterDto));
-        when(userService.findById(reportedId.toString())).thenReturn(Optional.of(reportedDto));
-        when(userService.findById(moderatorId.toString())).thenReturn(Optional.of(moderatorDto));
-
-        ChatDTO chatDto = new ChatDTO();
-        chatDto.setId(chatId.toHexString());
-        chatDto.setChatName("(EN) Social phobia");
-        when(chatService.findById(chatId)).thenReturn(Optional.of(chatDto));
-
-        MessageDTO messageDTO = new MessageDTO();
-        messageDTO.setMessageId(messageId.toHexString());
-        messageDTO.setContent("Offensive message");
-        when(messageService.findById(messageId.toString())).thenReturn(Optional.of(messageDTO));
+        ReflectionTestUtils.setField(reportService, "relationBatchResolver",
+                new RelationBatchResolver(userService, chatService, messageService));
+        when(userService.getUserNamesByIds(Set.of(reporterId, reportedId, moderatorId))).thenReturn(Map.of(
+                reporterId, "reporterUser",
+                reportedId, "reportedUser",
+                moderatorId, "moderatorUser"));
+        when(chatService.getChatNamesByIds(Set.of(chatId))).thenReturn(Map.of(chatId, "(EN) Social phobia"));
+        when(messageService.getContentsByIds(Set.of(messageId))).thenReturn(Map.of(messageId, "Offensive message"));
 
         List<ReportDTO> result = reportService.findAll();
 
@@ -123,6 +120,36 @@ class ReportServiceTest {
         assertEquals("moderatorUser", dto.getModeratorName());
     }
 
+    @Test
+    void findAll_resolvesRelationsOfAllReportsWithOneLookupPerCollection() {
+        Report first = new Report();
+        first.setId(reportId);
+        first.setReporterUserId(reporterId);
+        first.setChatId(chatId);
+        Report second = new Report();
+        second.setId(new ObjectId());
+        second.setReporterUserId(reportedId);
+        second.setChatId(chatId);
+        second.setMessageId(messageId);
+        when(reportRepository.findAll()).thenReturn(List.of(first, second));
+        ReflectionTestUtils.setField(reportService, "relationBatchResolver",
+                new RelationBatchResolver(userService, chatService, messageService));
+        when(userService.getUserNamesByIds(Set.of(reporterId, reportedId)))
+                .thenReturn(Map.of(reporterId, "first", reportedId, "second"));
+        when(chatService.getChatNamesByIds(Set.of(chatId))).thenReturn(Map.of(chatId, "(EN) Spiders"));
+        when(messageService.getContentsByIds(Set.of(messageId))).thenReturn(Map.of());
+
+        List<ReportDTO> result = reportService.findAll();
+
+        assertEquals("first", result.get(0).getReporterUsername());
+        assertEquals("second", result.get(1).getReporterUsername());
+        assertEquals("(EN) Spiders", result.get(1).getChatName());
+        assertNull(result.get(1).getMessageContent());
+        verify(userService, never()).findById(any());
+        verify(chatService, never()).findById(any());
+        verify(messageService, never()).findById(any());
+    }
+
     // ---------- findById ----------
 
     @Test
@@ -169,6 +196,10 @@ class ReportServiceTest {
         savedEntity.setActionTaken(ActionType.PENDING);
 
         when(reportRepository.save(any(Report.class))).thenReturn(savedEntity);
+        ReflectionTestUtils.setField(reportService, "relationBatchResolver",
+                new RelationBatchResolver(userService, chatService, messageService));
+        when(userService.getUserNamesByIds(Set.of(reporterId, reportedId)))
+                .thenReturn(Map.of(reporterId, "reporterUser", reportedId, "reportedUser"));
 
         ReportDTO result = reportService.save(dto);
 
@@ -178,6 +209,11 @@ class ReportServiceTest {
         ArgumentCaptor<Report> captor = ArgumentCaptor.forClass(Report.class);
         verify(reportRepository).save(captor.capture());
         assertEquals(ActionType.PENDING, captor.getValue().getActionTaken());
+
+        ArgumentCaptor<ReportDTO> event = ArgumentCaptor.forClass(ReportDTO.class);
+        verify(moderationFeed).publish(eq(ModerationFeed.REPORT_CREATED), event.capture());
+        assertEquals(reportId.toHexString(), event.getValue().getId());
+        assertEquals("reportedUser", event.getValue().getReportedUsername());
     }
 
 
@@ -330,6 +366,7 @@ class ReportServiceTest {
         assertEquals("No violation", saved.getActionReason());
         assertEquals(moderatorId, saved.getModeratorId());
         assertNotNull(saved.getResolvedAt());
+        verify(moderationFeed).publish(ModerationFeed.REPORT_RESOLVED, dto);
     }
 
 
@@ -435,4 +472,76 @@ class ReportServiceTest {
         assertTrue(result.isEmpty());
         verify(reportRepository, never()).save(any());
     }
+
+    @Test
+    void findQueue_appliesKeysetAfterCursorAndReturnsNextCursor() {
+        ReflectionTestUtils.setField(reportService, "relationBatchResolver",
+                new RelationBatchResolver(userService, chatService, messageService));
+        Report first = new Report();
+        first.setId(new ObjectId());
+        first.setCreatedAt(new Date(1_000));
+        Report second = new Report();
+        second.setId(reportId);
+        second.setCreatedAt(new Date(2_000));
+        Report extra = new Report();
+        extra.setId(new ObjectId());
+        extra.setCreatedAt(new Date(3_000));
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        when(mongoTemplate.find(query.capture(), eq(Report.class))).thenReturn(List.of(first, second, extra));
+        ReportFilterDTO filter = new ReportFilterDTO(false, chatId.toHexString(), null, null, null, null);
+        String after = "500_" + new ObjectId().toHexString();
+
+        ReportPageDTO page = reportService.findQueue(filter, after, 2, Sort.Direction.ASC);
+
+        assertEquals(2, page.getReports().size());
+        assertTrue(page.isHasMore());
+        assertEquals("2000_" + reportId.toHexString(), page.getNextCursor());
+        assertEquals(3, query.getValue().getLimit());
+        assertEquals(new Document("createdAt", 1).append("_id", 1), query.getValue().getSortObject());
+        String json = query.getValue().getQueryObject().toJson();
+        assertTrue(json.contains("\"isResolved\": false"));
+        assertTrue(json.contains(chatId.toHexString()));
+        assertTrue(json.contains("$or"));
+    }
+
+    @Test
+    void findQueue_lastReportWithoutCreatedAt_usesIdTimestampForCursor() {
+        ReflectionTestUtils.setField(reportService, "relationBatchResolver",
+                new RelationBatchResolver(userService, chatService, messageService));
+        Report legacy = new Report();
+        legacy.setId(reportId);
+        Report extra = new Report();
+        extra.setId(new ObjectId());
+        extra.setCreatedAt(new Date());
+        when(mongoTemplate.find(any(Query.class), eq(Report.class))).thenReturn(List.of(legacy, extra));
+
+        ReportPageDTO page = reportService.findQueue(new ReportFilterDTO(), null, 1, Sort.Direction.ASC);
+
+        assertEquals(reportId.getDate().getTime() + "_" + reportId.toHexString(), page.getNextCursor());
+    }
+
+    @Test
+    void backfillCreatedAt_setsMissingDatesFromIds() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+        when(mongoTemplate.updateMulti(query.capture(), update.capture(), eq("reports")))
+                .thenReturn(UpdateResult.acknowledged(2, 2L, null));
+
+        reportService.backfillCreatedAt();
+
+        assertEquals(new Document("createdAt", null), query.getValue().getQueryObject());
+        assertTrue(update.getValue().getUpdateObject().toJson().contains("$toDate"));
+    }
+
+    @Test
+    void countByStatus_fillsEveryActionTypeFromGroupedCounts() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("reports"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(
+                        new Document("_id", "PENDING").append("count", 4),
+                        new Document("_id", "BANNED").append("count", 1L)), new Document()));
+
+        Map<ActionType, Long> counts = reportService.countByStatus(new ReportFilterDTO());
+
+        assertEquals(Map.of(ActionType.PENDING, 4L, ActionType.BANNED, 1L, ActionType.NOT_BANNED, 0L), counts);
+    }
 }
@@ -3,7 +3,9 @@ package com.vizako.anonphobease.service;
 import com.vizako.anonphobease.model.LogType;
 import com.vizako.anonphobease.model.RelatedEntityType;
 import com.vizako.anonphobease.model.Role;
+import com.vizako.anonphobease.model.User;
 import com.vizako.anonphobease.repository.RoleRepository;
+import com.vizako.anonphobease.repository.UserRepository;
 import com.vizako.anonphobease.v1.dto.RoleDTO;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
@@ -25,9 +27,21 @@ class RoleServiceTest {
     @Mock
     private RoleRepository roleRepository;
 
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
     @Mock
     private UserLogService userLogService;
 
+    @Mock
+    private IdentityCache identityCache;
+
+    @Mock
+    private ChatDirectory chatDirectory;
+
     @InjectMocks
     private RoleService roleService;
 
@@ -38,22 +52,27 @@ class RoleServiceTest {
 
 
     @Test
-    void findAll_returnsMappedDtos() {
-        Role r1 = new Role();
-        r1.setId(new ObjectId());
-        r1.setName("USER");
-
-        Role r2 = new Role();
-        r2.setId(new ObjectId());
-        r2.setName("ADMIN");
+    void findAll_returnsRolesFromSnapshot() {
+        RoleDTO r1 = RoleDTO.builder().id(new ObjectId().toHexString()).name("USER").build();
+        RoleDTO r2 = RoleDTO.builder().id(new ObjectId().toHexString()).name("ADMIN").build();
 
-        when(roleRepository.findAll()).thenReturn(List.of(r1, r2));
+        when(chatDirectory.roles()).thenReturn(List.of(r1, r2));
 
         List<RoleDTO> result = roleService.findAll();
 
         assertEquals(2, result.size());
         assertEquals("USER", result.get(0).getName());
         assertEquals("ADMIN", result.get(1).getName());
+        verifyNoInteractions(roleRepository);
+    }
+
+    @Test
+    void findByName_prefersSnapshot() {
+        RoleDTO user = RoleDTO.builder().id(new ObjectId().toHexString()).name("USER").build();
+        when(chatDirectory.findRoleByName("USER")).thenReturn(Optional.of(user));
+
+        assertEquals(user.getId(), roleService.findByName("USER").orElseThrow().getId());
+        verify(roleRepository, never()).findByName(any());
     }
 
 
@@ -114,6 +133,7 @@ class RoleServiceTest {
                 eq(savedId.toHexString()),
                 eq(RelatedEntityType.ROLE)
         );
+        verify(chatDirectory).refresh();
     }
 
 
@@ -136,12 +156,17 @@ class RoleServiceTest {
         savedAfterUpdate.setId(id);
         savedAfterUpdate.setName("NEW_ROLE");
 
+        User holder = User.builder().id(new ObjectId()).roleId(id).build();
+
         when(roleRepository.findById(id)).thenReturn(Optional.of(existing));
         when(roleRepository.save(any(Role.class))).thenReturn(savedAfterUpdate);
+        when(userRepository.findByRoleId(id)).thenReturn(List.of(holder));
 
         Optional<RoleDTO> result = roleService.update(idStr, dto, userId);
 
         assertTrue(result.isPresent());
+        verify(tokenRevocationService).revokeUser(holder.getId());
+        verify(identityCache).invalidateUser(holder.getId());
         RoleDTO updated = result.get();
         assertEquals(idStr, updated.getId());
         assertEquals("NEW_ROLE", updated.getName());
@@ -152,6 +177,23 @@ class RoleServiceTest {
                 eq(idStr),
                 eq(RelatedEntityType.ROLE)
         );
+        verify(identityCache).invalidateRole(id);
+        verify(chatDirectory).refresh();
+    }
+
+    @Test
+    void update_whenNameUnchanged_keepsHoldersTokens() {
+        ObjectId id = new ObjectId();
+        Role existing = new Role();
+        existing.setId(id);
+        existing.setName("USER");
+
+        when(roleRepository.findById(id)).thenReturn(Optional.of(existing));
+        when(roleRepository.save(existing)).thenReturn(existing);
+
+        roleService.update(id.toHexString(), RoleDTO.builder().name("USER").build(), new ObjectId().toHexString());
+
+        verifyNoInteractions(userRepository, tokenRevocationService);
     }
 
     @Test
@@ -217,9 +259,13 @@ class RoleServiceTest {
         ObjectId id = new ObjectId();
         String idStr = id.toHexString();
         String userId = new ObjectId().toHexString();
+        User holder = User.builder().id(new ObjectId()).roleId(id).build();
+        when(userRepository.findByRoleId(id)).thenReturn(List.of(holder));
 
         roleService.deleteById(idStr, userId);
 
+        verify(tokenRevocationService).revokeUser(holder.getId());
+
         verify(userLogService).save(
                 eq(userId),
                 eq(LogType.ROLE_DELETE),
@@ -227,5 +273,7 @@ class RoleServiceTest {
                 eq(RelatedEntityType.ROLE)
         );
         verify(roleRepository).deleteById(eq(id));
+        verify(identityCache).invalidateRole(id);
+        verify(chatDirectory).refresh();
     }
 }
@@ -0,0 +1,114 @@
+package com.vizako.anonphobease.service;
+
+import com.vizako.anonphobease.model.TokenRevocation;
+import com.vizako.anonphobease.repository.TokenRevocationRepository;
+import com.vizako.anonphobease.util.JwtUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationServiceTest {
+
+    @Mock
+    private TokenRevocationRepository tokenRevocationRepository;
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_500L);
+
+    private TokenRevocationService tokenRevocationService;
+
+    private final ObjectId userId = new ObjectId();
+
+    @BeforeEach
+    void setUp() {
+        tokenRevocationService = new TokenRevocationService(tokenRevocationRepository, new SimpleMeterRegistry(), now::get);
+    }
+
+    @Test
+    void revokeToken_rejectsOnlyThatTokenAndPersistsIt() {
+        tokenRevocationService.revokeToken("digest-1", userId.toHexString(), now.get() + 60_000);
+
+        assertTrue(tokenRevocationService.isRevoked("digest-1", userId.toHexString(), 0));
+        assertFalse(tokenRevocationService.isRevoked("digest-2", userId.toHexString(), 0));
+
+        ArgumentCaptor<TokenRevocation> captor = ArgumentCaptor.forClass(TokenRevocation.class);
+        verify(tokenRevocationRepository).save(captor.capture());
+        assertEquals("digest-1", captor.getValue().getTokenDigest());
+        assertEquals(new Date(now.get() + 60_000), captor.getValue().getExpiresAt());
+    }
+
+    @Test
+    void revokeUser_rejectsTokensIssuedBeforeTheSecondOfRevocation() {
+        long revocationSecond = now.get() / 1000 * 1000;
+
+        tokenRevocationService.revokeUser(userId);
+
+        assertTrue(tokenRevocationService.isRevoked("a", userId.toHexString(), revocationSecond - 1000));
+        // Same second: a login right after the revocation keeps working.
+        assertFalse(tokenRevocationService.isRevoked("b", userId.toHexString(), revocationSecond));
+        assertFalse(tokenRevocationService.isRevoked("c", new ObjectId().toHexString(), 0));
+    }
+
+    @Test
+    void revokeUser_whenPersistFails_stillRevokesLocally() {
+        when(tokenRevocationRepository.save(any())).thenThrow(new RuntimeException("down"));
+
+        tokenRevocationService.revokeUser(userId);
+
+        assertTrue(tokenRevocationService.isRevoked("a", userId.toHexString(), 0));
+    }
+
+    @Test
+    void refresh_loadsPersistedRevocationsThenPollsForNewOnes() {
+        TokenRevocation token = TokenRevocation.builder()
+                .userId(userId.toHexString())
+                .tokenDigest("digest-1")
+                .revokedAt(new Date(now.get() - 1_000))
+                .expiresAt(new Date(now.get() + 60_000))
+                .build();
+        when(tokenRevocationRepository.findByExpiresAtAfter(new Date(now.get()))).thenReturn(List.of(token));
+
+        tokenRevocationService.load();
+
+        assertTrue(tokenRevocationService.isRevoked("digest-1", userId.toHexString(), 0));
+
+        ObjectId otherUser = new ObjectId();
+        TokenRevocation user = TokenRevocation.builder()
+                .userId(otherUser.toHexString())
+                .revokedAt(new Date(now.get() + 2_000))
+                .expiresAt(new Date(now.get() + 2_000 + JwtUtil.TOKEN_VALIDITY_MS))
+                .build();
+        when(tokenRevocationRepository.findByRevokedAtAfter(any())).thenReturn(List.of(user));
+        now.addAndGet(10_000);
+
+        tokenRevocationService.refresh();
+
+        assertTrue(tokenRevocationService.isRevoked("x", otherUser.toHexString(), 0));
+        assertEquals(2, tokenRevocationService.size());
+    }
+
+    @Test
+    void refresh_dropsRevocationsWhoseTokensHaveExpired() {
+        tokenRevocationService.revokeToken("digest-1", userId.toHexString(), now.get() + 60_000);
+        tokenRevocationService.revokeUser(userId);
+
+        now.addAndGet(JwtUtil.TOKEN_VALIDITY_MS + 1_000);
+        tokenRevocationService.refresh();
+
+        assertEquals(0, tokenRevocationService.size());
+        verify(tokenRevocationRepository).deleteByExpiresAtBefore(new Date(now.get()));
+    }
+}
@@ -4,6 +4,8 @@ import com.vizako.anonphobease.helper.RelatedEntityHelperService;
 import com.vizako.anonphobease.model.*;
 import com.vizako.anonphobease.repository.UserLogRepository;
 import com.vizako.anonphobease.v1.dto.UserLogDTO;
+import com.vizako.anonphobease.v1.dto.UserLogPageDTO;
+import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,12 +14,26 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,6 +48,9 @@ class UserLogServiceTest {
     @Mock
     private RelatedEntityHelperService relatedEntityHelperService;
 
+    @Mock
+    private MongoTemplate mongoTemplate;
+
     @InjectMocks
     private UserLogService userLogService;
 
@@ -209,4 +228,100 @@ class UserLogServiceTest {
 
         assertEquals(logId.toHexString(), captor.getValue().toHexString());
     }
+
+    @Test
+    void exportLogs_looksUpNamesOncePerBatch() throws Exception {
+        ReflectionTestUtils.setField(userLogService, "exportBatchSize", 2);
+        ObjectId otherUserId = new ObjectId();
+        UserLog first = new UserLog(new ObjectId(), userId, LogType.CONNECTION_ESTABLISHED, new Date(), "joined", relatedEntityId, RelatedEntityType.CHAT);
+        UserLog second = new UserLog(new ObjectId(), otherUserId, LogType.CONNECTION_ESTABLISHED, new Date(), "joined", relatedEntityId, RelatedEntityType.CHAT);
+        UserLog third = new UserLog(new ObjectId(), userId, LogType.CONNECTION_ESTABLISHED, new Date(), "joined", null, null);
+        when(mongoTemplate.stream(any(Query.class), eq(UserLog.class))).thenReturn(Stream.of(first, second, third));
+        when(userService.getUserNamesByIds(anyCollection())).thenReturn(Map.of(userId, "alice"));
+        when(relatedEntityHelperService.getRelatedEntityInfos(List.of(first, second)))
+                .thenReturn(List.of(new RelatedEntityInfo("Spiders", null), new RelatedEntityInfo("Spiders", null)));
+        when(relatedEntityHelperService.getRelatedEntityInfos(List.of(third)))
+                .thenReturn(List.of(new RelatedEntityInfo(null, null)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        userLogService.exportLogs(null, relatedEntityId.toHexString(), null, null, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].contains("\"userName\":\"alice\""));
+        assertTrue(lines[0].contains("\"relatedEntityName\":\"Spiders\""));
+        assertTrue(lines[1].contains("\"userName\":\"Unknown User\""));
+        assertTrue(lines[2].contains("\"relatedEntityName\":null"));
+        verify(userService, times(2)).getUserNamesByIds(anyCollection());
+        verify(userService, never()).getUserNameById(any());
+        verify(relatedEntityHelperService, never()).getRelatedEntityInfo(any());
+    }
+
+    @Test
+    void findPage_runsOneAggregationAndMapsJoinedNames() {
+        ObjectId languageId = new ObjectId();
+        ObjectId olderId = new ObjectId();
+        Document chatRow = new Document("_id", logId)
+                .append("userId", userId)
+                .append("logType", "CHAT_SAVE")
+                .append("details", "Chat saved")
+                .append("relatedEntityId", relatedEntityId)
+                .append("relatedEntityType", "CHAT")
+                .append("user", List.of(new Document("username", "alice")))
+                .append("chat", List.of(new Document("name", "(EN) Spiders").append("languageId", languageId)));
+        Document orphanRow = new Document("_id", olderId)
+                .append("userId", new ObjectId())
+                .append("logType", "USER_LOGIN")
+                .append("user", List.of());
+        Document extraRow = new Document("_id", new ObjectId()).append("userId", userId);
+        when(mongoTemplate.getConverter()).thenReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext()));
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        when(mongoTemplate.aggregate(aggregation.capture(), eq("user_logs"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(chatRow, orphanRow, extraRow), new Document()));
+
+        String before = new ObjectId().toHexString();
+        UserLogPageDTO page = userLogService.findPage(before, 2, userId.toHexString(), LogType.CHAT_SAVE, null, null);
+
+        assertTrue(page.isHasMore());
+        assertEquals(olderId.toHexString(), page.getNextCursor());
+        UserLogDTO first = page.getLogs().get(0);
+        assertEquals("alice", first.getUserName());
+        assertEquals("(EN) Spiders", first.getRelatedEntityName());
+        assertEquals(languageId.toHexString(), first.getRelatedEntityExtra());
+        assertEquals(RelatedEntityType.CHAT, first.getRelatedEntityType());
+        assertEquals("Unknown User", page.getLogs().get(1).getUserName());
+
+        List<Document> pipeline = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        String match = pipeline.get(0).toJson();
+        assertTrue(match.contains("CHAT_SAVE"));
+        assertTrue(match.contains(before));
+        assertEquals(3, pipeline.get(2).get("$limit", Number.class).intValue());
+        assertEquals(1, pipeline.stream().filter(stage -> stage.containsKey("$lookup")).count());
+        Document facets = pipeline.stream().filter(stage -> stage.containsKey("$facet")).findFirst()
+                .orElseThrow().get("$facet", Document.class);
+        List<Document> chatFacet = facets.getList("CHAT", Document.class);
+        assertEquals(new Document("relatedEntityType", "CHAT"), chatFacet.get(0).get("$match"));
+        assertEquals("chats", chatFacet.get(1).get("$lookup", Document.class).getString("from"));
+        assertFalse(facets.getList("OTHER", Document.class).toString().contains("$lookup"));
+        verifyNoInteractions(userService, relatedEntityHelperService);
+    }
+
+    @Test
+    void findPage_timeRangeBoundsIdsInsteadOfCreatedAt() {
+        Instant from = Instant.parse("2024-06-01T00:00:00Z");
+        Instant to = Instant.parse("2024-06-02T00:00:00Z");
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        when(mongoTemplate.aggregate(aggregation.capture(), eq("user_logs"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(), new Document()));
+
+        String before = new ObjectId().toHexString();
+        userLogService.findPage(before, 20, null, null, from, to);
+
+        Document match = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$match", Document.class);
+        assertFalse(match.toJson().contains("createdAt"));
+        Document id = match.getList("$and", Document.class).get(0).get("_id", Document.class);
+        assertEquals(ObjectId.getSmallestWithDate(Date.from(from)), id.get("$gte"));
+        // The earlier of the keyset cursor and the end of the range wins.
+        assertEquals(ObjectId.getSmallestWithDate(Date.from(to)), id.get("$lt"));
+    }
 }
@@ -6,12 +6,15 @@ import com.vizako.anonphobease.repository.RoleRepository;
 import com.vizako.anonphobease.repository.UserRepository;
 import com.vizako.anonphobease.v1.dto.RoleDTO;
 import com.vizako.anonphobease.v1.dto.UserDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.*;
 
@@ -27,9 +30,17 @@ class UserServiceTest {
     @Mock
     private RoleRepository roleRepository;
 
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
     @InjectMocks
     private UserService userService;
 
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(userService, "identityCache",
+                new IdentityCache(userRepository, roleRepository, new SimpleMeterRegistry(), 100, 60_000));
+    }
 
     @Test
     void findAll_returnsDtosWithRoles() {
@@ -55,12 +66,12 @@ class UserServiceTest {
         role2.setName("ROLE_ADMIN");
 
         when(userRepository.findAll()).thenReturn(List.of(user1, user2));
-        when(roleRepository.findById(roleId1)).thenReturn(Optional.of(role1));
-        when(roleRepository.findById(roleId2)).thenReturn(Optional.of(role2));
+        when(roleRepository.findAllById(List.of(roleId1, roleId2))).thenReturn(List.of(role1, role2));
 
         List<UserDTO> result = userService.findAll();
 
         assertEquals(2, result.size());
+        verify(roleRepository, never()).findById(any());
 
         UserDTO dto1 = result.get(0);
         UserDTO dto2 = result.get(1);
@@ -204,6 +215,66 @@ class UserServiceTest {
 
         assertEquals("newName", updated.getUsername());
         assertEquals("ROLE_USER", updated.getRole().getName());
+        verify(tokenRevocationService).revokeUser(userId);
+    }
+
+    @Test
+    void update_sameUsernameAndRole_keepsTokens() {
+        ObjectId userId = new ObjectId();
+        ObjectId roleId = new ObjectId();
+
+        User existing = new User();
+        existing.setId(userId);
+        existing.setUsername("alice");
+        existing.setRoleId(roleId);
+        existing.setIsActive(true);
+
+        UserDTO dto = UserDTO.builder()
+                .id(userId.toHexString())
+                .isActive(false)
+                .build();
+
+        Role role = new Role();
+        role.setId(roleId);
+        role.setName("ROLE_USER");
+
+        when(userRepository.findById(userId)).thenReturn(Optional.of(existing));
+        when(userRepository.save(existing)).thenReturn(existing);
+        when(roleRepository.findById(roleId)).thenReturn(Optional.of(role));
+
+        Optional<UserDTO> result = userService.update(userId.toHexString(), dto);
+
+        assertTrue(result.isPresent());
+        verify(tokenRevocationService, never()).revokeUser(any());
+    }
+
+    @Test
+    void update_roleChange_revokesTokens() {
+        ObjectId userId = new ObjectId();
+        ObjectId oldRoleId = new ObjectId();
+        ObjectId newRoleId = new ObjectId();
+
+        User existing = new User();
+        existing.setId(userId);
+        existing.setUsername("alice");
+        existing.setRoleId(oldRoleId);
+
+        UserDTO dto = UserDTO.builder()
+                .id(userId.toHexString())
+                .role(RoleDTO.builder().id(newRoleId.toHexString()).name("MODERATOR").build())
+                .build();
+
+        Role role = new Role();
+        role.setId(newRoleId);
+        role.setName("MODERATOR");
+
+        when(userRepository.findById(userId)).thenReturn(Optional.of(existing));
+        when(userRepository.save(existing)).thenReturn(existing);
+        when(roleRepository.findById(newRoleId)).thenReturn(Optional.of(role));
+
+        userService.update(userId.toHexString(), dto);
+
+        verify(tokenRevocationService).revokeUser(userId);
     }
 
     @Test
@@ -241,6 +312,7 @@ class UserServiceTest {
         userService.deleteById(id);
 
         verify(userRepository).deleteById(id);
+        verify(tokenRevocationService).revokeUser(id);
     }
 
 
@@ -304,4 +376,111 @@ class UserServiceTest {
 
         assertTrue(result.isEmpty());
     }
+
+    @Test
+    void findById_isServedFromCacheUntilUserIsUpdated() {
+        ObjectId userId = new ObjectId();
+        ObjectId roleId = new ObjectId();
+
+        User user = new User();
+        user.setId(userId);
+        user.setUsername("alice");
+        user.setRoleId(roleId);
+
+        Role role = new Role();
+        role.setId(roleId);
+        role.setName("ROLE_USER");
+
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(roleRepository.findById(roleId)).thenReturn(Optional.of(role));
+
+        userService.findById(userId.toHexString());
+        assertEquals("alice", userService.getUserNameById(userId.toHexString()));
+        verify(userRepository, times(1)).findById(userId);
+        verify(roleRepository, times(1)).findById(roleId);
+
+        userService.updateIsActive(userId.toHexString(), true);
+        userService.findById(userId.toHexString());
+        verify(userRepository, times(3)).findById(userId);
+    }
+
+    @Test
+    void findByUsername_reloadsAfterRename() {
+        ObjectId userId = new ObjectId();
+        ObjectId roleId = new ObjectId();
+
+        User user = new User();
+        user.setId(userId);
+        user.setUsername("alice");
+        user.setRoleId(roleId);
+
+        User renamed = new User();
+        renamed.setId(userId);
+        renamed.setUsername("alicia");
+        renamed.setRoleId(roleId);
+
+        Role role = new Role();
+        role.setId(roleId);
+        role.setName("ROLE_USER");
+
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user), Optional.empty());
+        when(roleRepository.findById(roleId)).thenReturn(Optional.of(role));
+        when(userRepository.save(any(User.class))).thenReturn(renamed);
+
+        assertTrue(userService.findByUsername("alice").isPresent());
+        assertTrue(userService.findByUsername("alice").isPresent());
+        verify(userRepository, times(1)).findByUsername("alice");
+
+        userService.save(UserDTO.builder().id(userId.toHexString()).username("alicia")
+                .role(RoleDTO.builder().id(roleId.toHexString()).build()).build());
+        when(userRepository.findById(userId)).thenReturn(Optional.of(renamed));
+
+        assertTrue(userService.findByUsername("alice").isEmpty());
+    }
+
+    @Test
+    void getUserNamesByIds_queriesOnlyUncachedIds() {
+        ObjectId cachedId = new ObjectId();
+        ObjectId otherId = new ObjectId();
+
+        User cached = new User();
+        cached.setId(cachedId);
+        cached.setUsername("alice");
+
+        User other = new User();
+        other.setId(otherId);
+        other.setUsername("bob");
+
+        when(userRepository.findById(cachedId)).thenReturn(Optional.of(cached));
+        when(userRepository.findAllById(List.of(otherId))).thenReturn(List.of(other));
+
+        userService.getUserNameById(cachedId.toHexString());
+        Map<ObjectId, String> names = userService.getUserNamesByIds(List.of(cachedId, otherId));
+
+        assertEquals(Map.of(cachedId, "alice", otherId, "bob"), names);
+        verify(userRepository).findAllById(List.of(otherId));
+    }
+
+    @Test
+    void findAllByIds_loadsUsersAndTheirRolesInBatches() {
+        ObjectId userId = new ObjectId();
+        ObjectId roleId = new ObjectId();
+        User user = new User();
+        user.setId(userId);
+        user.setUsername("alice");
+        user.setRoleId(roleId);
+        Role role = new Role();
+        role.setId(roleId);
+        role.setName("USER");
+
+        when(userRepository.findAllById(List.of(userId))).thenReturn(List.of(user));
+        when(roleRepository.findAllById(List.of(roleId))).thenReturn(List.of(role));
+
+        Map<ObjectId, UserDTO> users = userService.findAllByIds(Set.of(userId));
+
+        assertEquals("alice", users.get(userId).getUsername());
+        assertEquals("USER", users.get(userId).getRole().getName());
+        verify(userRepository, never()).findById(any());
+        verify(roleRepository, never()).findById(any());
+    }
 }
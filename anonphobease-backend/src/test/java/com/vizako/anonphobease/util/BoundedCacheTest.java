@@ -0,0 +1,97 @@
+package com.vizako.anonphobease.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void get_loadsOnceAndCountsHits() {
+        BoundedCache<String, String> cache = new BoundedCache<>(100, 1_000, now::get);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("v", cache.get("k", key -> { loads.incrementAndGet(); return "v"; }));
+        assertEquals("v", cache.get("k", key -> { loads.incrementAndGet(); return "v"; }));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(0.5, cache.hitRatio());
+    }
+
+    @Test
+    void entriesExpireAfterTtl() {
+        BoundedCache<String, String> cache = new BoundedCache<>(100, 1_000, now::get);
+        cache.get("k", key -> "v");
+
+        now.addAndGet(1_000);
+
+        assertNull(cache.getIfPresent("k"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void entryWithOwnExpiryExpiresBeforeTtl() {
+        BoundedCache<String, String> cache = new BoundedCache<>(100, 1_000, now::get);
+        cache.putIfUnchanged("k", "v", cache.stamp(), 200);
+
+        now.addAndGet(199);
+        assertEquals("v", cache.getIfPresent("k"));
+
+        now.addAndGet(1);
+        assertNull(cache.getIfPresent("k"));
+    }
+
+    @Test
+    void putIfAbsent_storesOnlyUntilTheEntryExpires() {
+        BoundedCache<String, String> cache = new BoundedCache<>(100, 1_000, now::get);
+
+        assertTrue(cache.putIfAbsent("k", "a"));
+        assertFalse(cache.putIfAbsent("k", "b"));
+
+        now.addAndGet(1_000);
+        assertTrue(cache.putIfAbsent("k", "c"));
+        assertEquals("c", cache.getIfPresent("k"));
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedWhenSegmentIsFull() {
+        // 16 segments of one entry each: keys in the same segment evict each other.
+        BoundedCache<Integer, String> cache = new BoundedCache<>(16, 60_000, now::get);
+        cache.get(0, key -> "a");
+        cache.get(16, key -> "b");
+
+        assertNull(cache.getIfPresent(0));
+        assertEquals("b", cache.getIfPresent(16));
+    }
+
+    @Test
+    void loadRacingAnInvalidationIsNotStored() {
+        BoundedCache<String, String> cache = new BoundedCache<>(100, 60_000, now::get);
+
+        String value = cache.get("k", key -> {
+            cache.invalidate("k");
+            return "stale";
+        });
+
+        assertEquals("stale", value);
+        assertNull(cache.getIfPresent("k"));
+    }
+
+    @Test
+    void nullIsNotCached() {
+        BoundedCache<String, String> cache = new BoundedCache<>(100, 60_000, now::get);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("k", key -> { loads.incrementAndGet(); return null; });
+        cache.get("k", key -> { loads.incrementAndGet(); return null; });
+
+        assertEquals(2, loads.get());
+    }
+}
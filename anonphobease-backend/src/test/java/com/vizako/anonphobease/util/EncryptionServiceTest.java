@@ -0,0 +1,127 @@
+package com.vizako.anonphobease.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncryptionServiceTest {
+
+    private static final String SECRET = "dev-encryption-secret";
+
+    private EncryptionService encryptionService;
+
+    @BeforeEach
+    void setUp() {
+        encryptionService = new EncryptionService();
+        ReflectionTestUtils.setField(encryptionService, "secret", SECRET);
+        encryptionService.init();
+    }
+
+    @Test
+    void encryptThenDecrypt_RoundTripsUnicode() {
+        String plain = "Привіт, world! 😀";
+
+        String encrypted = encryptionService.encrypt(plain);
+
+        assertNotEquals(plain, encrypted);
+        assertNotEquals(encrypted, encryptionService.encrypt(plain));
+        assertEquals(plain, encryptionService.decrypt(encrypted));
+        assertEquals("", encryptionService.decrypt(encryptionService.encrypt("")));
+    }
+
+    @Test
+    void decrypt_ReadsValuesWrittenByPlainJceCipher() throws Exception {
+        byte[] key = Arrays.copyOf(SECRET.getBytes(StandardCharsets.UTF_8), 32);
+        byte[] iv = new byte[12];
+        iv[0] = 7;
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(128, iv));
+        byte[] cipherText = cipher.doFinal("stored earlier".getBytes(StandardCharsets.UTF_8));
+        byte[] combined = new byte[iv.length + cipherText.length];
+        System.arraycopy(iv, 0, combined, 0, iv.length);
+        System.arraycopy(cipherText, 0, combined, iv.length, cipherText.length);
+
+        assertEquals("stored earlier", encryptionService.decrypt(Base64.getEncoder().encodeToString(combined)));
+    }
+
+    @Test
+    void decrypt_PlainTextIsReturnedAsIs() {
+        assertEquals("not base64!", encryptionService.decrypt("not base64!"));
+        assertNull(encryptionService.decrypt((String) null));
+    }
+
+    @Test
+    void decrypt_TamperedValue_Throws() {
+        byte[] combined = Base64.getDecoder().decode(encryptionService.encrypt("hello"));
+        combined[combined.length - 1] ^= 1;
+
+        assertThrows(IllegalStateException.class,
+                () -> encryptionService.decrypt(Base64.getEncoder().encodeToString(combined)));
+    }
+
+    @Test
+    void encryptToBytes_VersionedPayloadIsSmallerThanBase64AndRoundTrips() {
+        String plain = "binary payloads skip the Base64 overhead";
+
+        byte[] payload = encryptionService.encryptToBytes(plain);
+
+        assertEquals(EncryptionService.PAYLOAD_V1, payload[0]);
+        assertTrue(payload.length < encryptionService.encrypt(plain).length());
+        assertEquals(plain, encryptionService.decrypt(payload));
+        assertEquals(plain, encryptionService.decrypt(payload));
+    }
+
+    @Test
+    void decrypt_UnknownPayloadVersion_Throws() {
+        byte[] payload = encryptionService.encryptToBytes("hello");
+        payload[0] = 9;
+
+        assertThrows(IllegalStateException.class, () -> encryptionService.decrypt(payload));
+    }
+
+    @Test
+    void toPayload_ReframesLegacyCiphertextAndEncryptsLegacyPlaintext() {
+        String legacy = encryptionService.encrypt("old message");
+
+        byte[] reframed = encryptionService.toPayload(legacy);
+        byte[] fromPlain = encryptionService.toPayload("abcd");
+
+        assertArrayEquals(Base64.getDecoder().decode(legacy), Arrays.copyOfRange(reframed, 1, reframed.length));
+        assertEquals("old message", encryptionService.decrypt(reframed));
+        assertEquals("abcd", encryptionService.decrypt(fromPlain));
+    }
+
+    @Test
+    void decryptAll_MixedFormats_DecryptsEach() {
+        List<Object> stored = Arrays.asList(encryptionService.encrypt("legacy"), encryptionService.encryptToBytes("binary"), null);
+
+        assertEquals(Arrays.asList("legacy", "binary", null), encryptionService.decryptAll(stored));
+    }
+
+    @Test
+    void decryptAll_ParallelBatch_KeepsOrderAndNulls() {
+        ReflectionTestUtils.setField(encryptionService, "parallelThreshold", 8);
+        List<String> encrypted = new LinkedList<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String plain = i % 50 == 0 ? null : "message " + i;
+            expected.add(plain);
+            encrypted.add(encryptionService.encrypt(plain));
+        }
+
+        assertEquals(expected, encryptionService.decryptAll(encrypted));
+        assertEquals(expected.subList(0, 5), encryptionService.decryptAll(encrypted.subList(0, 5)));
+    }
+}
@@ -1,6 +1,7 @@
 package com.vizako.anonphobease.v1.controller;
 
 import com.vizako.anonphobease.config.security.UserDetailsServiceImpl;
+import com.vizako.anonphobease.config.security.TokenVerifier;
 import com.vizako.anonphobease.service.AuthService;
 import com.vizako.anonphobease.service.CaptchaService;
 import com.vizako.anonphobease.util.JwtUtil;
@@ -11,11 +12,16 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -29,6 +35,9 @@ class AuthControllerTest {
     @MockitoBean
     private JwtUtil jwtUtil;
 
+    @MockitoBean
+    private TokenVerifier tokenVerifier;
+
     @MockitoBean
     private UserDetailsServiceImpl userDetailsService;
 
@@ -40,23 +49,52 @@ class AuthControllerTest {
 
     @Test
     void login_success_returnsToken() throws Exception {
+        when(captchaService.verifyToken("captcha-token"))
+                .thenReturn(CompletableFuture.completedFuture(true));
         when(authService.login(any()))
                 .thenReturn(Map.of("token", "test-token"));
 
         String json = """
             {
               "username": "testuser",
-              "password": "secret"
+              "password": "secret",
+              "captcha": "captcha-token"
             }
             """;
 
-        mvc.perform(post("/v1/auth/login")
+        MvcResult result = mvc.perform(post("/v1/auth/login")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(json))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.token").value("test-token"));
     }
 
+    @Test
+    void login_captchaRejected_returnsBadRequestWithoutLogin() throws Exception {
+        when(captchaService.verifyToken("captcha-token"))
+                .thenReturn(CompletableFuture.completedFuture(false));
+
+        String json = """
+            {
+              "username": "testuser",
+              "captcha": "captcha-token"
+            }
+            """;
+
+        MvcResult result = mvc.perform(post("/v1/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest());
+        verify(authService, never()).login(any());
+    }
+
     @Test
     void login_withEmptyUsername_returnsBadRequest() throws Exception {
         String json = """
@@ -3,6 +3,7 @@ package com.vizako.anonphobease.v1.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vizako.anonphobease.config.security.JwtAdminIdFilter;
 import com.vizako.anonphobease.config.security.UserDetailsServiceImpl;
+import com.vizako.anonphobease.config.security.TokenVerifier;
 import com.vizako.anonphobease.service.BanService;
 import com.vizako.anonphobease.util.JwtUtil;
 import com.vizako.anonphobease.v1.dto.BanDTO;
@@ -48,6 +49,9 @@ class BanControllerTest {
     @MockitoBean
     private JwtUtil jwtUtil;
 
+    @MockitoBean
+    private TokenVerifier tokenVerifier;
+
     @MockitoBean
     private UserDetailsServiceImpl userDetailsService;
 
@@ -4,6 +4,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vizako.anonphobease.config.MongoConfig;
 import com.vizako.anonphobease.config.security.JwtAdminIdFilter;
 import com.vizako.anonphobease.config.security.UserDetailsServiceImpl;
+import com.vizako.anonphobease.config.security.TokenVerifier;
+import com.vizako.anonphobease.service.ChatDirectory;
 import com.vizako.anonphobease.service.ChatService;
 import com.vizako.anonphobease.util.JwtUtil;
 import com.vizako.anonphobease.v1.dto.ChatDTO;
@@ -56,6 +58,9 @@ class ChatControllerTest {
     @MockitoBean
     private JwtUtil jwtUtil;
 
+    @MockitoBean
+    private TokenVerifier tokenVerifier;
+
     @MockitoBean
     private UserDetailsServiceImpl userDetailsService;
 
@@ -68,13 +73,14 @@ class ChatControllerTest {
                 new ObjectId().toHexString(), "English",
                 "eng",
                 new ObjectId().toHexString(), "Social Phobia",
-                "(EN) Social Phobia"
+                "(EN) Social Phobia",
+                null
         );
     }
 
 
     @Test
-    @DisplayName("GET /v1/chats returns ChatsResponseDTO")
+    @DisplayName("GET /v1/chats returns the pre-serialized catalog with its ETag")
     void getAllChatsWithFilters_returnsResponse() throws Exception {
         ChatDTO chat1 = createChatDto(new ObjectId().toHexString());
         ChatDTO chat2 = createChatDto(new ObjectId().toHexString());
@@ -84,15 +90,33 @@ class ChatControllerTest {
                 List.of()    // languages
         );
 
-        when(chatService.getAllChatsWithFilters()).thenReturn(responseDTO);
+        when(chatService.getCatalog()).thenReturn(catalog(responseDTO, "\"v1\""));
 
         mockMvc.perform(get("/v1/chats"))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"v1\""))
                 .andExpect(jsonPath("$.chats.length()").value(2));
 
-        verify(chatService).getAllChatsWithFilters();
+        verify(chatService).getCatalog();
+    }
+
+    @Test
+    @DisplayName("GET /v1/chats with a matching If-None-Match returns 304 without a body")
+    void getAllChatsWithFilters_notModified() throws Exception {
+        when(chatService.getCatalog()).thenReturn(catalog(new ChatsResponseDTO(List.of(), List.of(), List.of()), "\"v1\""));
+
+        mockMvc.perform(get("/v1/chats").header("If-None-Match", "W/\"v1\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"v1\""))
+                .andExpect(content().string(""));
+
+        mockMvc.perform(get("/v1/chats").header("If-None-Match", "\"v0\""))
+                .andExpect(status().isOk());
     }
 
+    private ChatDirectory.Catalog catalog(ChatsResponseDTO response, String etag) throws Exception {
+        return new ChatDirectory.Catalog(1, etag, objectMapper.writeValueAsBytes(response), response);
+    }
 
     @Test
     @DisplayName("GET /v1/chats/{id} if chat exists returns ChatDTO")
@@ -166,6 +190,21 @@ class ChatControllerTest {
         verify(chatService).update(eq(chatId), ArgumentMatchers.any(ChatDTO.class), eq(adminId));
     }
 
+    @Test
+    @DisplayName("PUT /v1/chats/{id} with negative retentionDays returns 400")
+    void update_negativeRetention_returns400() throws Exception {
+        ChatDTO requestDto = createChatDto(null);
+        requestDto.setRetentionDays(-1);
+
+        mockMvc.perform(put("/v1/chats/{id}", new ObjectId().toHexString())
+                        .requestAttr("adminId", "admin-456")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(chatService);
+    }
+
     @Test
     @DisplayName("PUT /v1/chats/{id} for non-existing chat returns 404")
     void update_notExistingChat_returns404() throws Exception {
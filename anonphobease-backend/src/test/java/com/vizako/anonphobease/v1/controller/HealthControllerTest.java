@@ -2,6 +2,7 @@ package com.vizako.anonphobease.v1.controller;
 
 import com.vizako.anonphobease.util.JwtUtil;
 import com.vizako.anonphobease.config.security.UserDetailsServiceImpl;
+import com.vizako.anonphobease.config.security.TokenVerifier;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -23,6 +24,9 @@ class HealthControllerTest {
     @MockitoBean
     private JwtUtil jwtUtil;
 
+    @MockitoBean
+    private TokenVerifier tokenVerifier;
+
     @MockitoBean
     private UserDetailsServiceImpl userDetailsService;
 
@@ -3,9 +3,13 @@ package com.vizako.anonphobease.v1.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vizako.anonphobease.config.security.JwtAdminIdFilter;
 import com.vizako.anonphobease.config.security.UserDetailsServiceImpl;
+import com.vizako.anonphobease.config.security.TokenVerifier;
+import com.vizako.anonphobease.model.LogType;
 import com.vizako.anonphobease.service.UserLogService;
 import com.vizako.anonphobease.util.JwtUtil;
 import com.vizako.anonphobease.v1.dto.UserLogDTO;
+import com.vizako.anonphobease.v1.dto.UserLogPageDTO;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,11 +18,17 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 
 import java.util.List;
 
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(controllers = LogController.class)
@@ -37,6 +47,9 @@ class LogControllerTest {
     @MockitoBean
     private JwtUtil jwtUtil;
 
+    @MockitoBean
+    private TokenVerifier tokenVerifier;
+
     @MockitoBean
     private UserDetailsServiceImpl userDetailsService;
 
@@ -50,19 +63,48 @@ class LogControllerTest {
 
 
     @Test
-    @DisplayName("GET /v1/logs returns all logs")
-    void getAllLogs_returnsList() throws Exception {
+    @DisplayName("GET /v1/logs returns the first page of logs")
+    void getLogs_returnsFirstPage() throws Exception {
         UserLogDTO log1 = createLogDto("user-1");
         UserLogDTO log2 = createLogDto("user-2");
 
-        when(userLogService.findAll()).thenReturn(List.of(log1, log2));
+        when(userLogService.findPage(null, 50, null, null, null, null))
+                .thenReturn(new UserLogPageDTO(List.of(log1, log2), null, false));
 
         mockMvc.perform(get("/v1/logs")
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.length()").value(2));
+                .andExpect(jsonPath("$.logs.length()").value(2))
+                .andExpect(jsonPath("$.hasMore").value(false));
+
+        verify(userLogService).findPage(null, 50, null, null, null, null);
+    }
 
-        verify(userLogService).findAll();
+    @Test
+    @DisplayName("GET /v1/logs passes cursor and filters to the service")
+    void getLogs_passesCursorAndFilters() throws Exception {
+        String before = new ObjectId().toHexString();
+        String userId = new ObjectId().toHexString();
+        when(userLogService.findPage(before, 20, userId, LogType.USER_LOGIN, Instant.parse("2024-01-01T00:00:00Z"), null))
+                .thenReturn(new UserLogPageDTO(List.of(createLogDto(userId)), "next", true));
+
+        mockMvc.perform(get("/v1/logs")
+                        .param("before", before)
+                        .param("limit", "20")
+                        .param("userId", userId)
+                        .param("logType", "USER_LOGIN")
+                        .param("from", "2024-01-01T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextCursor").value("next"))
+                .andExpect(jsonPath("$.hasMore").value(true));
+    }
+
+    @Test
+    @DisplayName("GET /v1/logs rejects an out-of-range limit")
+    void getLogs_limitTooLarge_returns400() throws Exception {
+        mockMvc.perform(get("/v1/logs").param("limit", "1000"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(userLogService);
     }
 
     @Test
@@ -97,4 +139,35 @@ class LogControllerTest {
 
         verify(userLogService).findByUserId(userId);
     }
+
+    @Test
+    @DisplayName("GET /v1/logs/export streams filtered logs as NDJSON")
+    void exportLogs_streamsNdjson() throws Exception {
+        String userId = new ObjectId().toHexString();
+        doAnswer(inv -> {
+            OutputStream out = inv.getArgument(4);
+            out.write("{\"id\":\"1\"}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(userLogService).exportLogs(eq(userId), isNull(), eq(Instant.parse("2024-01-01T00:00:00Z")), isNull(), any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(get("/v1/logs/export")
+                        .param("userId", userId)
+                        .param("from", "2024-01-01T00:00:00Z"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"logs.ndjson\""))
+                .andExpect(content().string("{\"id\":\"1\"}\n"));
+    }
+
+    @Test
+    @DisplayName("GET /v1/logs/export rejects an invalid user id")
+    void exportLogs_invalidUserId_returns400() throws Exception {
+        mockMvc.perform(get("/v1/logs/export").param("userId", "not-an-id"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(userLogService);
+    }
 }
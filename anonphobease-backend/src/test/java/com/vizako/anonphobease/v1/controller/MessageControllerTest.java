@@ -3,24 +3,34 @@ package com.vizako.anonphobease.v1.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vizako.anonphobease.config.security.JwtAdminIdFilter;
 import com.vizako.anonphobease.config.security.UserDetailsServiceImpl;
+import com.vizako.anonphobease.config.security.TokenVerifier;
 import com.vizako.anonphobease.service.MessageService;
 import com.vizako.anonphobease.util.JwtUtil;
 import com.vizako.anonphobease.v1.dto.MessageDTO;
+import com.vizako.anonphobease.v1.dto.MessagePageDTO;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -42,6 +52,9 @@ class MessageControllerTest {
     @MockitoBean
     private JwtUtil jwtUtil;
 
+    @MockitoBean
+    private TokenVerifier tokenVerifier;
+
     @MockitoBean
     private UserDetailsServiceImpl userDetailsService;
 
@@ -74,6 +87,56 @@ class MessageControllerTest {
     }
 
 
+    @Test
+    @DisplayName("GET /v1/messages/chat/{chatId} returns a newest-first history page")
+    void getChatHistory_returnsPage() throws Exception {
+        String chatId = new ObjectId().toHexString();
+        String before = new ObjectId().toHexString();
+        MessageDTO m1 = createMessageDto(new ObjectId().toHexString());
+        MessagePageDTO page = new MessagePageDTO(List.of(m1), m1.getMessageId(), true);
+
+        when(messageService.findPageByChatId(chatId, before, null, 20, Sort.Direction.DESC)).thenReturn(page);
+
+        mockMvc.perform(get("/v1/messages/chat/{chatId}", chatId)
+                        .param("before", before)
+                        .param("limit", "20")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.messages.length()").value(1))
+                .andExpect(jsonPath("$.nextCursor").value(m1.getMessageId()))
+                .andExpect(jsonPath("$.hasMore").value(true));
+    }
+
+    @Test
+    @DisplayName("GET /v1/messages/chat/{chatId} with only an after cursor pages oldest-first")
+    void getChatHistory_afterCursorDefaultsToAscending() throws Exception {
+        String chatId = new ObjectId().toHexString();
+        String after = new ObjectId().toHexString();
+        when(messageService.findPageByChatId(chatId, null, after, 50, Sort.Direction.ASC))
+                .thenReturn(new MessagePageDTO(List.of(), null, false));
+
+        mockMvc.perform(get("/v1/messages/chat/{chatId}", chatId).param("after", after))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hasMore").value(false));
+
+        verify(messageService).findPageByChatId(chatId, null, after, 50, Sort.Direction.ASC);
+    }
+
+    @Test
+    @DisplayName("GET /v1/messages/chat/{chatId} rejects invalid cursors and limits")
+    void getChatHistory_invalidParams_returnsBadRequest() throws Exception {
+        String chatId = new ObjectId().toHexString();
+
+        mockMvc.perform(get("/v1/messages/chat/{chatId}", chatId).param("before", "nope"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/messages/chat/{chatId}", chatId).param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/messages/chat/{chatId}", chatId).param("limit", "10000"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/messages/chat/{chatId}", chatId).param("order", "sideways"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("GET /v1/messages/{id} for existing id returns MessageDTO")
     void getById_returnsMessage() throws Exception {
@@ -173,4 +236,67 @@ class MessageControllerTest {
 
         verify(messageService).deleteById(messageId);
     }
+
+    @Test
+    @DisplayName("GET /v1/messages/archive/{chatId} streams archived messages as NDJSON")
+    void getArchivedHistory_streamsNdjson() throws Exception {
+        String chatId = new ObjectId().toHexString();
+        doAnswer(inv -> {
+            OutputStream out = inv.getArgument(3);
+            out.write("{\"messageId\":\"a\"}\n{\"messageId\":\"b\"}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(messageService).writeArchivedHistory(eq(chatId), eq(LocalDate.of(2024, 1, 1)),
+                eq(LocalDate.of(2024, 1, 31)), any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(get("/v1/messages/archive/{chatId}", chatId)
+                        .param("from", "2024-01-01")
+                        .param("to", "2024-01-31"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"messageId\":\"a\"}\n{\"messageId\":\"b\"}\n"));
+    }
+
+    @Test
+    @DisplayName("GET /v1/messages/archive/{chatId} rejects a descending range")
+    void getArchivedHistory_descendingRange_returns400() throws Exception {
+        mockMvc.perform(get("/v1/messages/archive/{chatId}", new ObjectId().toHexString())
+                        .param("from", "2024-02-01")
+                        .param("to", "2024-01-01"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /v1/messages/export streams filtered messages as NDJSON")
+    void exportMessages_streamsNdjson() throws Exception {
+        String chatId = new ObjectId().toHexString();
+        doAnswer(inv -> {
+            OutputStream out = inv.getArgument(4);
+            out.write("{\"messageId\":\"a\"}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(messageService).exportMessages(eq(chatId), isNull(), isNull(), eq(Instant.parse("2024-02-01T00:00:00Z")), any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(get("/v1/messages/export")
+                        .param("chatId", chatId)
+                        .param("to", "2024-02-01T00:00:00Z"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"messageId\":\"a\"}\n"));
+    }
+
+    @Test
+    @DisplayName("GET /v1/messages/export rejects an empty time range")
+    void exportMessages_emptyRange_returns400() throws Exception {
+        mockMvc.perform(get("/v1/messages/export")
+                        .param("from", "2024-02-01T00:00:00Z")
+                        .param("to", "2024-02-01T00:00:00Z"))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -3,6 +3,7 @@ package com.vizako.anonphobease.v1.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vizako.anonphobease.config.security.JwtAdminIdFilter;
 import com.vizako.anonphobease.config.security.UserDetailsServiceImpl;
+import com.vizako.anonphobease.config.security.TokenVerifier;
 import com.vizako.anonphobease.service.PhobiaService;
 import com.vizako.anonphobease.util.JwtUtil;
 import com.vizako.anonphobease.v1.dto.PhobiaDTO;
@@ -44,6 +45,9 @@ class PhobiaControllerTest {
     @MockitoBean
     private JwtUtil jwtUtil;
 
+    @MockitoBean
+    private TokenVerifier tokenVerifier;
+
     @MockitoBean
     private UserDetailsServiceImpl userDetailsService;
 
@@ -4,9 +4,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vizako.anonphobease.config.security.JwtAdminIdFilter;
 import com.vizako.anonphobease.util.JwtUtil;
 import com.vizako.anonphobease.config.security.UserDetailsServiceImpl;
+import com.vizako.anonphobease.config.security.TokenVerifier;
 import com.vizako.anonphobease.service.ReportService;
 import com.vizako.anonphobease.v1.dto.ReportActionRequestDTO;
 import com.vizako.anonphobease.v1.dto.ReportDTO;
+import com.vizako.anonphobease.v1.dto.ReportFilterDTO;
+import com.vizako.anonphobease.v1.dto.ReportPageDTO;
+import com.vizako.anonphobease.model.ActionType;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -14,20 +18,28 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -44,6 +56,9 @@ class ReportControllerTest {
     @MockitoBean
     private JwtUtil jwtUtil;
 
+    @MockitoBean
+    private TokenVerifier tokenVerifier;
+
     @MockitoBean
     private UserDetailsServiceImpl userDetailsService;
 
@@ -300,4 +315,53 @@ class ReportControllerTest {
         verify(reportService, times(1))
                 .banReport(eq(id), any(ReportActionRequestDTO.class));
     }
+
+    @Test
+    @DisplayName("GET /v1/reports/queue binds filters and returns one page")
+    void getQueue_bindsFiltersAndReturnsPage() throws Exception {
+        String chatId = "65a000000000000000000001";
+        ReportPageDTO page = new ReportPageDTO(List.of(createSampleReportDto()), "1700000000000_65a000000000000000000002", true);
+        when(reportService.findQueue(any(ReportFilterDTO.class), isNull(), eq(25), eq(Sort.Direction.ASC))).thenReturn(page);
+
+        mockMvc.perform(get("/v1/reports/queue")
+                        .param("resolved", "false")
+                        .param("chatId", chatId)
+                        .param("actionTaken", "PENDING")
+                        .param("from", "2024-01-01T00:00:00Z")
+                        .param("limit", "25"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reports.length()").value(1))
+                .andExpect(jsonPath("$.hasMore").value(true))
+                .andExpect(jsonPath("$.nextCursor").value("1700000000000_65a000000000000000000002"));
+
+        ArgumentCaptor<ReportFilterDTO> filter = ArgumentCaptor.forClass(ReportFilterDTO.class);
+        verify(reportService).findQueue(filter.capture(), isNull(), eq(25), eq(Sort.Direction.ASC));
+        assertEquals(false, filter.getValue().getResolved());
+        assertEquals(chatId, filter.getValue().getChatId());
+        assertEquals(ActionType.PENDING, filter.getValue().getActionTaken());
+        assertEquals(Instant.parse("2024-01-01T00:00:00Z"), filter.getValue().getFrom());
+    }
+
+    @Test
+    @DisplayName("GET /v1/reports/queue rejects a malformed cursor")
+    void getQueue_invalidCursor_returns400() throws Exception {
+        mockMvc.perform(get("/v1/reports/queue").param("after", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(reportService);
+    }
+
+    @Test
+    @DisplayName("GET /v1/reports/queue/counts returns counts per action")
+    void getQueueCounts_returnsCountsPerAction() throws Exception {
+        Map<ActionType, Long> counts = new EnumMap<>(ActionType.class);
+        counts.put(ActionType.BANNED, 2L);
+        counts.put(ActionType.NOT_BANNED, 0L);
+        counts.put(ActionType.PENDING, 7L);
+        when(reportService.countByStatus(any(ReportFilterDTO.class))).thenReturn(counts);
+
+        mockMvc.perform(get("/v1/reports/queue/counts"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.PENDING").value(7))
+                .andExpect(jsonPath("$.BANNED").value(2));
+    }
 }
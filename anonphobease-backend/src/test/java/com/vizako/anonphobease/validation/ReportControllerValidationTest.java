@@ -3,6 +3,7 @@ package com.vizako.anonphobease.validation;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vizako.anonphobease.config.security.JwtAdminIdFilter;
 import com.vizako.anonphobease.config.security.UserDetailsServiceImpl;
+import com.vizako.anonphobease.config.security.TokenVerifier;
 import com.vizako.anonphobease.service.ReportService;
 import com.vizako.anonphobease.util.JwtUtil;
 import com.vizako.anonphobease.v1.controller.ReportController;
@@ -37,6 +38,9 @@ class ReportControllerValidationTest {
     @MockitoBean
     private JwtUtil jwtUtil;
 
+    @MockitoBean
+    private TokenVerifier tokenVerifier;
+
     @MockitoBean
     private UserDetailsServiceImpl userDetailsService;
 
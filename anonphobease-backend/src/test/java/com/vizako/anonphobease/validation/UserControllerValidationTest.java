@@ -3,6 +3,7 @@ package com.vizako.anonphobease.validation;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vizako.anonphobease.config.security.JwtAdminIdFilter;
 import com.vizako.anonphobease.config.security.UserDetailsServiceImpl;
+import com.vizako.anonphobease.config.security.TokenVerifier;
 import com.vizako.anonphobease.service.UserService;
 import com.vizako.anonphobease.util.JwtUtil;
 import com.vizako.anonphobease.v1.controller.UserController;
@@ -38,6 +39,9 @@ class UserControllerValidationTest {
     @MockitoBean
     private JwtUtil jwtUtil;
 
+    @MockitoBean
+    private TokenVerifier tokenVerifier;
+
     @MockitoBean
     private UserDetailsServiceImpl userDetailsService;
 
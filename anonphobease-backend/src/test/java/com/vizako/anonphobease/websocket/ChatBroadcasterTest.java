@@ -0,0 +1,105 @@
+package com.vizako.anonphobease.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ChatBroadcasterTest {
+
+    /** Collects drain tasks so the test decides when the "socket" is written. */
+    private final List<Runnable> pending = new ArrayList<>();
+
+    private void runPending() {
+        while (!pending.isEmpty()) {
+            pending.remove(0).run();
+        }
+    }
+
+    private WebSocketSession openSession(String id) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        return session;
+    }
+
+    @Test
+    void broadcast_sharesOneFrameAcrossRecipients() throws Exception {
+        ChatBroadcaster broadcaster = new ChatBroadcaster(8, OutboundOverflowPolicy.DROP_OLDEST, Runnable::run);
+        WebSocketSession first = openSession("s1");
+        WebSocketSession second = openSession("s2");
+        broadcaster.register("chat", first);
+        broadcaster.register("chat", second);
+
+        broadcaster.broadcast("chat", "{\"content\":\"hi\"}");
+
+        var firstFrame = org.mockito.ArgumentCaptor.forClass(WebSocketMessage.class);
+        var secondFrame = org.mockito.ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(first).sendMessage(firstFrame.capture());
+        verify(second).sendMessage(secondFrame.capture());
+        assertSame(firstFrame.getValue(), secondFrame.getValue());
+    }
+
+    @Test
+    void dropOldest_keepsNewestFramesWhenQueueIsFull() throws Exception {
+        ChatBroadcaster broadcaster = new ChatBroadcaster(2, OutboundOverflowPolicy.DROP_OLDEST, pending::add);
+        WebSocketSession session = openSession("s1");
+        broadcaster.register("chat", session);
+
+        broadcaster.broadcast("chat", "1");
+        broadcaster.broadcast("chat", "2");
+        broadcaster.broadcast("chat", "3");
+        runPending();
+
+        var frames = org.mockito.ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(session, times(2)).sendMessage(frames.capture());
+        assertEquals(List.of("2", "3"), frames.getAllValues().stream().map(WebSocketMessage::getPayload).toList());
+        verify(session, never()).close(any(CloseStatus.class));
+    }
+
+    @Test
+    void disconnect_closesSlowConsumerWithoutAffectingOthers() throws Exception {
+        ChatBroadcaster broadcaster = new ChatBroadcaster(1, OutboundOverflowPolicy.DISCONNECT, pending::add);
+        WebSocketSession slow = openSession("slow");
+        broadcaster.register("chat", slow);
+
+        broadcaster.broadcast("chat", "1");
+        broadcaster.broadcast("chat", "2");
+        runPending();
+
+        verify(slow).close(CloseStatus.SESSION_NOT_RELIABLE);
+        verify(slow, never()).sendMessage(any());
+    }
+
+    @Test
+    void send_goesThroughTheSessionQueue() throws Exception {
+        ChatBroadcaster broadcaster = new ChatBroadcaster(4, OutboundOverflowPolicy.DROP_OLDEST, Runnable::run);
+        WebSocketSession session = openSession("s1");
+        broadcaster.register("chat", session);
+        TextMessage frame = new TextMessage("{\"type\":\"error\"}");
+
+        broadcaster.send(session, frame);
+
+        verify(session).sendMessage(frame);
+    }
+
+    @Test
+    void unregister_removesEmptyChat() {
+        ChatBroadcaster broadcaster = new ChatBroadcaster(4, OutboundOverflowPolicy.DROP_OLDEST, Runnable::run);
+        WebSocketSession session = openSession("s1");
+        broadcaster.register("chat", session);
+
+        broadcaster.unregister("chat", session);
+
+        assertFalse(broadcaster.hasSessions("chat"));
+        assertTrue(broadcaster.getSessions("chat").isEmpty());
+    }
+}
@@ -0,0 +1,126 @@
+package com.vizako.anonphobease.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatDispatcherTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    /** Executor that only runs tasks when the test says so. */
+    private final Queue<Runnable> scheduled = new ArrayDeque<>();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private void runScheduled() {
+        Runnable next;
+        while ((next = scheduled.poll()) != null) {
+            next.run();
+        }
+    }
+
+    @Test
+    void submit_sameChat_runsInSubmissionOrderOnOneLane() {
+        ChatDispatcher dispatcher = new ChatDispatcher(100, 100, meterRegistry, scheduled::add);
+        List<Integer> order = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            int n = i;
+            assertTrue(dispatcher.submit("chat-1", () -> order.add(n)));
+        }
+
+        assertEquals(1, scheduled.size());
+        runScheduled();
+        assertEquals(List.of(0, 1, 2, 3, 4), order);
+        assertEquals(5, meterRegistry.timer("chat.dispatch.queue.wait").count());
+    }
+
+    @Test
+    void submit_differentChats_getSeparateLanes() {
+        ChatDispatcher dispatcher = new ChatDispatcher(100, 100, meterRegistry, scheduled::add);
+
+        dispatcher.submit("chat-1", () -> { });
+        dispatcher.submit("chat-2", () -> { });
+
+        assertEquals(2, scheduled.size());
+    }
+
+    @Test
+    void submit_rejectsWhenGlobalLimitReached() {
+        ChatDispatcher dispatcher = new ChatDispatcher(2, 100, meterRegistry, scheduled::add);
+
+        assertTrue(dispatcher.submit("chat-1", () -> { }));
+        assertTrue(dispatcher.submit("chat-2", () -> { }));
+        assertFalse(dispatcher.submit("chat-3", () -> { }));
+
+        runScheduled();
+        assertTrue(dispatcher.submit("chat-3", () -> { }));
+        assertEquals(1.0, meterRegistry.counter("chat.dispatch.rejected").count());
+    }
+
+    @Test
+    void submit_rejectsWhenChatLaneFull() {
+        ChatDispatcher dispatcher = new ChatDispatcher(100, 1, meterRegistry, scheduled::add);
+
+        assertTrue(dispatcher.submit("chat-1", () -> { }));
+        assertFalse(dispatcher.submit("chat-1", () -> { }));
+        assertTrue(dispatcher.submit("chat-2", () -> { }));
+    }
+
+    @Test
+    void submit_failingTaskDoesNotStopLane() {
+        ChatDispatcher dispatcher = new ChatDispatcher(1, 100, meterRegistry, Runnable::run);
+        List<String> ran = new ArrayList<>();
+
+        dispatcher.submit("chat-1", () -> { throw new IllegalStateException("boom"); });
+        assertTrue(dispatcher.submit("chat-1", () -> ran.add("after")));
+
+        assertEquals(List.of("after"), ran);
+    }
+
+    @Test
+    void submit_onVirtualThreads_keepsPerChatOrderUnderConcurrency() throws Exception {
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        ChatDispatcher dispatcher = new ChatDispatcher(10_000, 10_000, meterRegistry, executor);
+        int chats = 8;
+        int perChat = 200;
+        List<List<Integer>> seen = new ArrayList<>();
+        for (int c = 0; c < chats; c++) seen.add(new CopyOnWriteArrayList<>());
+        CountDownLatch done = new CountDownLatch(chats * perChat);
+
+        for (int i = 0; i < perChat; i++) {
+            for (int c = 0; c < chats; c++) {
+                int chat = c;
+                int n = i;
+                assertTrue(dispatcher.submit("chat-" + c, () -> {
+                    seen.get(chat).add(n);
+                    done.countDown();
+                }));
+            }
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (List<Integer> chatOrder : seen) {
+            for (int i = 0; i < perChat; i++) {
+                assertEquals(i, chatOrder.get(i));
+            }
+        }
+        executor.shutdown();
+    }
+}
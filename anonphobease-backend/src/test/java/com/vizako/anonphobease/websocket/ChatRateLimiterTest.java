@@ -0,0 +1,104 @@
+package com.vizako.anonphobease.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static com.vizako.anonphobease.websocket.ChatRateLimiter.Decision.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatRateLimiterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private long now;
+    private ChatRateLimiter limiter;
+
+    private final ChatSessionPrincipal user =
+            new ChatSessionPrincipal("user-1", "user", "USER", "chat-1", Instant.MAX);
+    private final ChatSessionPrincipal moderator =
+            new ChatSessionPrincipal("mod-1", "mod", "MODERATOR", "chat-1", Instant.MAX);
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        now = 0;
+        limiter = new ChatRateLimiter(new ChatRateLimiter.Limit(3, 1), new ChatRateLimiter.Limit(6, 5),
+                4, 10_000, 60_000, meterRegistry, () -> now);
+    }
+
+    private void advanceMillis(long millis) {
+        now += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Test
+    void tryAcquire_allowsBurstThenRejects() {
+        assertEquals(ALLOWED, limiter.tryAcquire(user));
+        assertEquals(ALLOWED, limiter.tryAcquire(user));
+        assertEquals(ALLOWED, limiter.tryAcquire(user));
+        assertEquals(REJECTED, limiter.tryAcquire(user));
+        assertEquals(1.0, meterRegistry.counter("chat.rate_limit.rejected").count());
+    }
+
+    @Test
+    void tryAcquire_refillsAtSustainedRate() {
+        for (int i = 0; i < 3; i++) limiter.tryAcquire(user);
+
+        advanceMillis(999);
+        assertEquals(REJECTED, limiter.tryAcquire(user));
+        advanceMillis(1);
+        assertEquals(ALLOWED, limiter.tryAcquire(user));
+    }
+
+    @Test
+    void tryAcquire_privilegedRolesGetTheirOwnLimit() {
+        for (int i = 0; i < 6; i++) {
+            assertEquals(ALLOWED, limiter.tryAcquire(moderator));
+        }
+        assertEquals(REJECTED, limiter.tryAcquire(moderator));
+    }
+
+    @Test
+    void tryAcquire_bucketsAreKeyedByUserAndChat() {
+        for (int i = 0; i < 3; i++) limiter.tryAcquire(user);
+
+        ChatSessionPrincipal otherChat = new ChatSessionPrincipal("user-1", "user", "USER", "chat-2", Instant.MAX);
+        assertEquals(ALLOWED, limiter.tryAcquire(otherChat));
+    }
+
+    @Test
+    void tryAcquire_disconnectsAfterRepeatedViolations() {
+        for (int i = 0; i < 3; i++) limiter.tryAcquire(user);
+
+        assertEquals(REJECTED, limiter.tryAcquire(user));
+        assertEquals(REJECTED, limiter.tryAcquire(user));
+        assertEquals(REJECTED, limiter.tryAcquire(user));
+        assertEquals(DISCONNECT, limiter.tryAcquire(user));
+        assertEquals(1.0, meterRegistry.counter("chat.rate_limit.disconnected").count());
+    }
+
+    @Test
+    void tryAcquire_violationCountResetsAfterQuietWindow() {
+        for (int i = 0; i < 3; i++) limiter.tryAcquire(user);
+        for (int i = 0; i < 3; i++) limiter.tryAcquire(user);
+
+        advanceMillis(10_001);
+        for (int i = 0; i < 3; i++) limiter.tryAcquire(user);
+
+        assertEquals(REJECTED, limiter.tryAcquire(user));
+    }
+
+    @Test
+    void evictIdleBuckets_removesOnlyIdleBuckets() {
+        limiter.tryAcquire(user);
+        advanceMillis(30_000);
+        limiter.tryAcquire(moderator);
+        advanceMillis(30_001);
+
+        limiter.evictIdleBuckets();
+
+        assertEquals(1, limiter.bucketCount());
+    }
+}
@@ -3,8 +3,9 @@ package com.vizako.anonphobease.websocket;
 import com.vizako.anonphobease.model.LogType;
 import com.vizako.anonphobease.model.RelatedEntityType;
 import com.vizako.anonphobease.service.*;
-import com.vizako.anonphobease.util.JwtUtil;
 import com.vizako.anonphobease.v1.dto.MessageDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -14,10 +15,10 @@ import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
-import java.io.IOException;
-import java.net.URI;
-import java.util.Collections;
-import java.util.Set;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -27,10 +28,7 @@ import static org.mockito.Mockito.*;
 class ChatWebSocketHandlerTest {
 
     @Mock
-    private MessageService messageService;
-
-    @Mock
-    private JwtUtil jwtUtil;
+    private MessageWriteBehindQueue messageWriteBehindQueue;
 
     @Mock
     private UserLogService userLogService;
@@ -46,98 +44,183 @@ class ChatWebSocketHandlerTest {
     @Mock
     private BanService banService;
 
+    @Mock
+    private RecentMessageBuffer recentMessageBuffer;
+
     @Captor
     private ArgumentCaptor<TextMessage> textMessageCaptor;
 
+    private ChatBroadcaster chatBroadcaster;
+
+    @Mock
+    private ModerationFeed moderationFeed;
+
     private ChatWebSocketHandler handler;
 
+    private final String chatId = new ObjectId().toHexString();
+    private final String userId = new ObjectId().toHexString();
+
 
     @BeforeEach
     void setUp() {
-        handler = new ChatWebSocketHandler(messageService, jwtUtil, userLogService, chatService, messageFilterService, banService);
+        chatBroadcaster = new ChatBroadcaster(16, OutboundOverflowPolicy.DROP_OLDEST, Runnable::run);
+        handler = new ChatWebSocketHandler(chatBroadcaster, new InProcessChatFanoutBus(chatBroadcaster, recentMessageBuffer),
+                new ChatDispatcher(100, 100, new SimpleMeterRegistry(), Runnable::run), rateLimiter(10), recentMessageBuffer, messageWriteBehindQueue, userLogService, chatService, messageFilterService, banService, moderationFeed);
+    }
+
+    private ChatRateLimiter rateLimiter(int burst) {
+        ChatRateLimiter.Limit limit = new ChatRateLimiter.Limit(burst, 0);
+        return new ChatRateLimiter(limit, limit, 2, 60_000, 60_000, new SimpleMeterRegistry(), () -> 0L);
+    }
+
+    private Map<String, Object> attributesWith(ChatSessionPrincipal principal) {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(ChatSessionPrincipal.ATTRIBUTE, principal);
+        return attributes;
+    }
+
+    private ChatSessionPrincipal principal(String role, Instant expiresAt) {
+        return new ChatSessionPrincipal(userId, "userName", role, chatId, expiresAt);
     }
 
 
     @Test
-    @DisplayName("afterConnectionEstablished closes session if chatId missing")
-    void afterConnectionEstablished_NoChatId_ClosesSession() throws Exception {
-        URI uri = new URI("ws://localhost/ws?token=abc");
-        when(session.getUri()).thenReturn(uri);
+    @DisplayName("afterConnectionEstablished closes session if no principal was stored at handshake")
+    void afterConnectionEstablished_NoPrincipal_ClosesSession() throws Exception {
+        when(session.getAttributes()).thenReturn(new HashMap<>());
 
         handler.afterConnectionEstablished(session);
 
-        verify(session, times(1)).close(eq(CloseStatus.BAD_DATA));
-        verifyNoInteractions(jwtUtil, userLogService, messageService);
-        assertTrue(handler.getChatSessions().isEmpty());
+        verify(session, times(1)).close(eq(CloseStatus.POLICY_VIOLATION));
+        verifyNoInteractions(userLogService, messageWriteBehindQueue, recentMessageBuffer);
+        assertFalse(chatBroadcaster.hasSessions(chatId));
     }
 
     @Test
-    @DisplayName("afterConnectionEstablished adds session and logs when valid")
+    @DisplayName("afterConnectionEstablished adds session, sends recent history and logs when valid")
     void afterConnectionEstablished_Valid_AddsSessionAndLogs() throws Exception {
-        String chatId = "chat123";
-        String token = "jwt-token";
-        String userId = "user-1";
-
-        URI uri = new URI("ws://localhost/ws?chatId=" + chatId + "&token=" + token);
-        when(session.getUri()).thenReturn(uri);
+        when(session.getAttributes()).thenReturn(attributesWith(principal("USER", Instant.now().plusSeconds(600))));
         when(session.getId()).thenReturn("session-1");
-
-        when(jwtUtil.extractUserId(token)).thenReturn(userId);
-        when(jwtUtil.extractUserName(token)).thenReturn("Test User");
+        when(session.isOpen()).thenReturn(true);
+        when(recentMessageBuffer.historyFrame(chatId)).thenReturn("{\"type\":\"history\",\"messages\":[]}");
 
         handler.afterConnectionEstablished(session);
 
+        verify(session).sendMessage(textMessageCaptor.capture());
+        assertTrue(textMessageCaptor.getValue().getPayload().startsWith("{\"type\":\"history\""));
+
         verify(userLogService, times(1))
                 .save(eq(userId), eq(LogType.CONNECTION_ESTABLISHED), eq(chatId), eq(RelatedEntityType.CHAT));
 
-        assertTrue(handler.getChatSessions().containsKey(chatId));
-        Set<WebSocketSession> sessions = handler.getChatSessions().get(chatId);
+        assertTrue(chatBroadcaster.hasSessions(chatId));
+        Collection<WebSocketSession> sessions = chatBroadcaster.getSessions(chatId);
         assertEquals(1, sessions.size());
         assertTrue(sessions.contains(session));
     }
 
     @Test
-    @DisplayName("handleTextMessage saves message and broadcasts to chat sessions")
-    void handleTextMessage_SavesAndBroadcasts() throws Exception {
-        String chatId = "chat123";
-        String token = "jwt-token";
-        String userId = "user-1";
+    @DisplayName("handleTextMessage broadcasts the filtered message and queues the original for persistence")
+    void handleTextMessage_BroadcastsAndQueues() throws Exception {
         String username = "userName";
         String role = "USER";
 
-        URI uri = new URI("ws://localhost/ws?chatId=" + chatId + "&token=" + token);
-        when(session.getUri()).thenReturn(uri);
+        when(session.getAttributes()).thenReturn(attributesWith(principal(role, Instant.now().plusSeconds(600))));
         when(session.isOpen()).thenReturn(true);
+        when(session.getId()).thenReturn("session-1");
 
-        handler.getChatSessions().put(chatId, Collections.newSetFromMap(new java.util.concurrent.ConcurrentHashMap<>()));
-        handler.getChatSessions().get(chatId).add(session);
-
-        when(jwtUtil.extractUserId(token)).thenReturn(userId);
-        when(jwtUtil.extractUsername(token)).thenReturn(username);
-        when(jwtUtil.extractUserRole(token)).thenReturn(role);
+        chatBroadcaster.register(chatId, session);
 
-        MessageDTO savedDto = new MessageDTO();
-        savedDto.setMessageId("msg-1");
-        savedDto.setChatId(chatId);
-        savedDto.setUserId(userId);
-        savedDto.setUsername("willOverwrite");
-        when(messageService.save(any(MessageDTO.class))).thenReturn(savedDto);
+        when(chatService.getLanguageCodeByChatId(chatId)).thenReturn("eng");
+        when(messageFilterService.filter("Hello idiot", "eng")).thenReturn("Hello *****");
 
-        TextMessage incoming = new TextMessage("{\"content\":\"Hello\"}");
+        TextMessage incoming = new TextMessage("{\"content\":\"Hello idiot\"}");
 
         handler.handleTextMessage(session, incoming);
 
-        verify(messageService, times(1)).save(any(MessageDTO.class));
-
-        verify(jwtUtil, times(1)).extractUserRole(token);
+        ArgumentCaptor<MessageDTO> queued = ArgumentCaptor.forClass(MessageDTO.class);
+        verify(messageWriteBehindQueue, times(1)).submit(queued.capture());
+        assertEquals("Hello idiot", queued.getValue().getContent());
+        assertTrue(ObjectId.isValid(queued.getValue().getMessageId()));
+        assertNotNull(queued.getValue().getCreatedAt());
 
         verify(session, times(1)).sendMessage(textMessageCaptor.capture());
         String payload = textMessageCaptor.getValue().getPayload();
 
         assertTrue(payload.contains("\"chatId\":\"" + chatId + "\""));
-        assertTrue(payload.contains("\"messageId\":\"msg-1\""));
+        assertTrue(payload.contains("\"messageId\":\"" + queued.getValue().getMessageId() + "\""));
+        assertTrue(payload.contains("\"content\":\"Hello *****\""));
         assertTrue(payload.contains("\"username\":\"" + username + "\""));
         assertTrue(payload.contains("\"role\":\"" + role + "\""));
+        verify(recentMessageBuffer).append(chatId, queued.getValue().getMessageId(), payload);
+        verify(moderationFeed).recordFilterHit(userId, username, chatId);
+    }
+
+    @Test
+    @DisplayName("handleTextMessage answers SERVER_BUSY when the dispatcher is full")
+    void handleTextMessage_DispatcherFull_SendsServerBusy() throws Exception {
+        handler = new ChatWebSocketHandler(chatBroadcaster, new InProcessChatFanoutBus(chatBroadcaster, recentMessageBuffer),
+                new ChatDispatcher(0, 100, new SimpleMeterRegistry(), Runnable::run), rateLimiter(10), recentMessageBuffer, messageWriteBehindQueue,
+                userLogService, chatService, messageFilterService, banService, moderationFeed);
+        when(session.getAttributes()).thenReturn(attributesWith(principal("USER", Instant.now().plusSeconds(600))));
+        when(session.isOpen()).thenReturn(true);
+        when(session.getId()).thenReturn("session-1");
+        chatBroadcaster.register(chatId, session);
+
+        handler.handleTextMessage(session, new TextMessage("{\"content\":\"Hello\"}"));
+
+        verify(session).sendMessage(textMessageCaptor.capture());
+        assertTrue(textMessageCaptor.getValue().getPayload().contains("SERVER_BUSY"));
+        verifyNoInteractions(messageWriteBehindQueue, banService, chatService, messageFilterService);
+    }
+
+    @Test
+    @DisplayName("handleTextMessage rejects frames over the rate limit and disconnects repeat offenders")
+    void handleTextMessage_OverRateLimit_RejectsThenDisconnects() throws Exception {
+        handler = new ChatWebSocketHandler(chatBroadcaster, new InProcessChatFanoutBus(chatBroadcaster, recentMessageBuffer),
+                new ChatDispatcher(100, 100, new SimpleMeterRegistry(), Runnable::run), rateLimiter(0), recentMessageBuffer,
+                messageWriteBehindQueue, userLogService, chatService, messageFilterService, banService, moderationFeed);
+        when(session.getAttributes()).thenReturn(attributesWith(principal("USER", Instant.now().plusSeconds(600))));
+        when(session.isOpen()).thenReturn(true);
+        when(session.getId()).thenReturn("session-1");
+        chatBroadcaster.register(chatId, session);
+
+        handler.handleTextMessage(session, new TextMessage("{\"content\":\"Hello\"}"));
+        handler.handleTextMessage(session, new TextMessage("{\"content\":\"Hello\"}"));
+
+        verify(session).sendMessage(textMessageCaptor.capture());
+        assertTrue(textMessageCaptor.getValue().getPayload().contains("RATE_LIMITED"));
+        verify(session).close(argThat(status -> status.getCode() == CloseStatus.POLICY_VIOLATION.getCode()));
+        verifyNoInteractions(messageWriteBehindQueue, banService, chatService, messageFilterService);
+    }
+
+    @Test
+    @DisplayName("handleTextMessage closes the session once the token has expired")
+    void handleTextMessage_ExpiredToken_ClosesSession() throws Exception {
+        when(session.getAttributes()).thenReturn(attributesWith(principal("USER", Instant.now().minusSeconds(1))));
+
+        handler.handleTextMessage(session, new TextMessage("{\"content\":\"Hello\"}"));
+
+        verify(session).close(argThat(status -> status.getCode() == CloseStatus.POLICY_VIOLATION.getCode()));
+        verifyNoInteractions(messageWriteBehindQueue, banService, chatService, messageFilterService);
+    }
+
+    @Test
+    @DisplayName("closeExpiredSessions closes only sessions whose token has expired")
+    void closeExpiredSessions_ClosesExpiredSessions() throws Exception {
+        WebSocketSession fresh = mock(WebSocketSession.class);
+        when(fresh.getId()).thenReturn("session-2");
+        when(fresh.getAttributes()).thenReturn(attributesWith(principal("USER", Instant.now().plusSeconds(600))));
+        when(session.getId()).thenReturn("session-1");
+        when(session.getAttributes()).thenReturn(attributesWith(principal("USER", Instant.now().minusSeconds(1))));
+        when(session.isOpen()).thenReturn(true);
+
+        chatBroadcaster.register(chatId, session);
+        chatBroadcaster.register(chatId, fresh);
+
+        handler.closeExpiredSessions();
+
+        verify(session).close(any(CloseStatus.class));
+        verify(fresh, never()).close(any(CloseStatus.class));
     }
 
 
@@ -145,22 +228,16 @@ class ChatWebSocketHandlerTest {
     @Test
     @DisplayName("afterConnectionClosed saves log and removes session")
     void afterConnectionClosed_RemovesSessionAndLogs() throws Exception {
-        String chatId = "chat123";
-        String token = "jwt-token";
-        String userId = "user-1";
-
-        URI uri = new URI("ws://localhost/ws?chatId=" + chatId + "&token=" + token);
-        when(session.getUri()).thenReturn(uri);
-        when(jwtUtil.extractUserId(token)).thenReturn(userId);
+        when(session.getAttributes()).thenReturn(attributesWith(principal("USER", Instant.now().plusSeconds(600))));
+        when(session.getId()).thenReturn("session-1");
 
-        handler.getChatSessions().put(chatId, Collections.newSetFromMap(new java.util.concurrent.ConcurrentHashMap<>()));
-        handler.getChatSessions().get(chatId).add(session);
+        chatBroadcaster.register(chatId, session);
 
         handler.afterConnectionClosed(session, CloseStatus.NORMAL);
 
         verify(userLogService, times(1))
                 .save(eq(userId), eq(LogType.CONNECTION_CLOSED), eq(chatId), eq(RelatedEntityType.CHAT));
 
-        assertFalse(handler.getChatSessions().containsKey(chatId));
+        assertFalse(chatBroadcaster.hasSessions(chatId));
     }
 }
@@ -0,0 +1,52 @@
+package com.vizako.anonphobease.websocket;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FanoutSequenceTrackerTest {
+
+    private static final long STALE_MS = 10_000;
+    private static final long NOW = 1_000_000;
+
+    private final FanoutSequenceTracker tracker = new FanoutSequenceTracker(STALE_MS);
+
+    @Test
+    void accept_AdvancingSequence_Accepted() {
+        assertTrue(tracker.accept("node-a", "chat-1", 1, NOW));
+        assertTrue(tracker.accept("node-a", "chat-1", 2, NOW));
+        assertTrue(tracker.accept("node-a", "chat-1", 5, NOW));
+    }
+
+    @Test
+    void accept_ReplayedOrOlderSequence_Rejected() {
+        assertTrue(tracker.accept("node-a", "chat-1", 3, NOW));
+        assertFalse(tracker.accept("node-a", "chat-1", 3, NOW));
+        assertFalse(tracker.accept("node-a", "chat-1", 2, NOW));
+    }
+
+    @Test
+    void accept_TracksEachNodeAndChatIndependently() {
+        assertTrue(tracker.accept("node-a", "chat-1", 7, NOW));
+        assertTrue(tracker.accept("node-b", "chat-1", 1, NOW));
+        assertTrue(tracker.accept("node-a", "chat-2", 1, NOW));
+    }
+
+    @Test
+    void accept_StaleEntry_AcceptsRestartedSequence() {
+        assertTrue(tracker.accept("node-a", "chat-1", 40, NOW));
+        assertFalse(tracker.accept("node-a", "chat-1", 1, NOW + STALE_MS));
+        assertTrue(tracker.accept("node-a", "chat-1", 1, NOW + STALE_MS + 1));
+    }
+
+    @Test
+    void prune_ForgetsPairsNotSeenWithinTheWindow() {
+        tracker.accept("node-gone", "chat-1", 1, NOW);
+        tracker.accept("node-a", "chat-1", 1, NOW + STALE_MS);
+
+        tracker.prune(NOW + STALE_MS + 1);
+
+        assertEquals(1, tracker.size());
+        assertFalse(tracker.accept("node-a", "chat-1", 1, NOW + STALE_MS));
+    }
+}
@@ -0,0 +1,129 @@
+package com.vizako.anonphobease.websocket;
+
+import com.vizako.anonphobease.config.security.TokenVerifier;
+import com.vizako.anonphobease.service.TokenRevocationService;
+import com.vizako.anonphobease.util.JwtUtil;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JwtHandshakeInterceptorTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-123456";
+
+    private JwtHandshakeInterceptor interceptor;
+    private JwtUtil jwtUtil;
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "SECRET_KEY", SECRET);
+        tokenRevocationService = mock(TokenRevocationService.class);
+        interceptor = new JwtHandshakeInterceptor(new TokenVerifier(jwtUtil, tokenRevocationService, new SimpleMeterRegistry(),
+                100, 300_000, System::currentTimeMillis));
+    }
+
+    private boolean handshake(String query, MockHttpServletResponse servletResponse, Map<String, Object> attributes) {
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/api/ws");
+        servletRequest.setQueryString(query);
+        return interceptor.beforeHandshake(
+                new ServletServerHttpRequest(servletRequest),
+                new ServletServerHttpResponse(servletResponse),
+                mock(org.springframework.web.socket.WebSocketHandler.class),
+                attributes);
+    }
+
+    @Test
+    void validToken_storesPrincipal() {
+        String userId = new ObjectId().toHexString();
+        String chatId = new ObjectId().toHexString();
+        String token = jwtUtil.generateToken("alice", "MODERATOR", userId);
+        Map<String, Object> attributes = new HashMap<>();
+
+        assertTrue(handshake("chatId=" + chatId + "&token=" + token, new MockHttpServletResponse(), attributes));
+
+        ChatSessionPrincipal principal = (ChatSessionPrincipal) attributes.get(ChatSessionPrincipal.ATTRIBUTE);
+        assertNotNull(principal);
+        assertEquals(userId, principal.userId());
+        assertEquals("alice", principal.username());
+        assertEquals("MODERATOR", principal.role());
+        assertEquals(chatId, principal.chatId());
+        assertNotNull(principal.expiresAt());
+    }
+
+    @Test
+    void missingChatId_rejectsWithBadRequest() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        String token = jwtUtil.generateToken("alice", "USER", new ObjectId().toHexString());
+
+        assertFalse(handshake("token=" + token, response, new HashMap<>()));
+        assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+    }
+
+    @Test
+    void invalidSignature_rejectsWithUnauthorized() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        String forged = Jwts.builder()
+                .setSubject("alice")
+                .claim("userId", new ObjectId().toHexString())
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor("another-secret-another-secret-another-1234".getBytes(StandardCharsets.UTF_8)),
+                        SignatureAlgorithm.HS256)
+                .compact();
+        Map<String, Object> attributes = new HashMap<>();
+
+        assertFalse(handshake("chatId=c1&token=" + forged, response, attributes));
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), response.getStatus());
+        assertTrue(attributes.isEmpty());
+    }
+
+    @Test
+    void expiredToken_rejectsWithUnauthorized() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        String expired = Jwts.builder()
+                .setSubject("alice")
+                .claim("userId", new ObjectId().toHexString())
+                .setExpiration(new Date(System.currentTimeMillis() - 60_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertFalse(handshake("chatId=c1&token=" + expired, response, new HashMap<>()));
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), response.getStatus());
+    }
+
+    @Test
+    void revokedToken_rejectsWithUnauthorized() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        String userId = new ObjectId().toHexString();
+        String token = jwtUtil.generateToken("alice", "USER", userId);
+        when(tokenRevocationService.isRevoked(any(), eq(userId), anyLong())).thenReturn(true);
+        Map<String, Object> attributes = new HashMap<>();
+
+        assertFalse(handshake("chatId=c1&token=" + token, response, attributes));
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), response.getStatus());
+        assertTrue(attributes.isEmpty());
+    }
+}
@@ -0,0 +1,141 @@
+package com.vizako.anonphobease.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ModerationFeedTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    private ModerationFeed feed(int history, int threshold) {
+        return new ModerationFeed(history, 16, threshold, 60_000, Runnable::run, now::get);
+    }
+
+    private WebSocketSession openSession(String id) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        return session;
+    }
+
+    private List<JsonNode> framesSentTo(WebSocketSession session) throws Exception {
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session, atLeast(0)).sendMessage(captor.capture());
+        return captor.getAllValues().stream().map(frame -> {
+            try {
+                return objectMapper.readTree(frame.getPayload());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }).toList();
+    }
+
+    @Test
+    void publish_pushesSequencedEventToModerators() throws Exception {
+        ModerationFeed feed = feed(10, 3);
+        WebSocketSession session = openSession("m1");
+        feed.register(session, null, null);
+
+        feed.publish(ModerationFeed.REPORT_CREATED, Map.of("id", "r1"));
+
+        List<JsonNode> frames = framesSentTo(session);
+        assertEquals(2, frames.size());
+        assertEquals("hello", frames.get(0).get("type").asText());
+        assertEquals(0, frames.get(0).get("seq").asLong());
+        assertEquals("moderation", frames.get(1).get("type").asText());
+        assertEquals(ModerationFeed.REPORT_CREATED, frames.get(1).get("event").asText());
+        assertEquals(1, frames.get(1).get("seq").asLong());
+        assertEquals(feed.getEpoch(), frames.get(1).get("epoch").asText());
+        assertEquals("r1", frames.get(1).get("data").get("id").asText());
+    }
+
+    @Test
+    void register_replaysEventsMissedSinceLastSeq() throws Exception {
+        ModerationFeed feed = feed(10, 3);
+        feed.publish(ModerationFeed.REPORT_CREATED, Map.of("id", "r1"));
+        feed.publish(ModerationFeed.REPORT_CREATED, Map.of("id", "r2"));
+        feed.publish(ModerationFeed.REPORT_RESOLVED, Map.of("id", "r1"));
+
+        WebSocketSession session = openSession("m1");
+        feed.register(session, feed.getEpoch(), 1L);
+
+        List<JsonNode> frames = framesSentTo(session);
+        assertEquals(List.of("hello", "moderation", "moderation"), frames.stream().map(f -> f.get("type").asText()).toList());
+        assertEquals(2, frames.get(1).get("seq").asLong());
+        assertEquals(3, frames.get(2).get("seq").asLong());
+    }
+
+    @Test
+    void register_asksForResyncWhenGapIsNoLongerInHistory() throws Exception {
+        ModerationFeed feed = feed(2, 3);
+        for (int i = 0; i < 5; i++) {
+            feed.publish(ModerationFeed.BAN_ISSUED, Map.of("id", "b" + i));
+        }
+
+        WebSocketSession session = openSession("m1");
+        feed.register(session, feed.getEpoch(), 1L);
+
+        List<JsonNode> frames = framesSentTo(session);
+        assertEquals(List.of("hello", "resync"), frames.stream().map(f -> f.get("type").asText()).toList());
+        assertEquals(5, frames.get(1).get("seq").asLong());
+    }
+
+    @Test
+    void register_asksForResyncAfterEpochChange() throws Exception {
+        ModerationFeed feed = feed(10, 3);
+        feed.publish(ModerationFeed.BAN_ISSUED, Map.of("id", "b1"));
+
+        WebSocketSession session = openSession("m1");
+        feed.register(session, "previous-epoch", 1L);
+
+        List<JsonNode> frames = framesSentTo(session);
+        assertEquals("resync", frames.get(frames.size() - 1).get("type").asText());
+    }
+
+    @Test
+    void unregister_stopsDelivery() throws Exception {
+        ModerationFeed feed = feed(10, 3);
+        WebSocketSession session = openSession("m1");
+        feed.register(session, null, null);
+        feed.unregister(session);
+
+        feed.publish(ModerationFeed.REPORT_CREATED, Map.of("id", "r1"));
+
+        assertEquals(1, framesSentTo(session).size());
+    }
+
+    @Test
+    void recordFilterHit_publishesOnceWhenThresholdIsReachedWithinWindow() throws Exception {
+        ModerationFeed feed = feed(10, 3);
+        WebSocketSession session = openSession("m1");
+        feed.register(session, null, null);
+
+        feed.recordFilterHit("u1", "alice", "c1");
+        feed.recordFilterHit("u1", "alice", "c1");
+        now.addAndGet(61_000);
+        feed.recordFilterHit("u1", "alice", "c1");
+        feed.recordFilterHit("u1", "alice", "c1");
+        assertEquals(1, framesSentTo(session).size());
+
+        feed.recordFilterHit("u1", "alice", "c1");
+        feed.recordFilterHit("u1", "alice", "c1");
+
+        List<JsonNode> frames = framesSentTo(session);
+        assertEquals(2, frames.size());
+        assertEquals(ModerationFeed.FILTER_HITS, frames.get(1).get("event").asText());
+        assertEquals("alice", frames.get(1).get("data").get("username").asText());
+        assertEquals(3, frames.get(1).get("data").get("hits").asInt());
+    }
+}
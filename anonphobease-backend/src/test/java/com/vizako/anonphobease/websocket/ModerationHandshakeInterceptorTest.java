@@ -0,0 +1,105 @@
+package com.vizako.anonphobease.websocket;
+
+import com.vizako.anonphobease.config.security.TokenVerifier;
+import com.vizako.anonphobease.service.TokenRevocationService;
+import com.vizako.anonphobease.util.JwtUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ModerationHandshakeInterceptorTest {
+
+    private ModerationHandshakeInterceptor interceptor;
+    private JwtUtil jwtUtil;
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "SECRET_KEY", "test-secret-test-secret-test-secret-123456");
+        tokenRevocationService = mock(TokenRevocationService.class);
+        interceptor = new ModerationHandshakeInterceptor(new TokenVerifier(jwtUtil, tokenRevocationService, new SimpleMeterRegistry(),
+                100, 300_000, System::currentTimeMillis));
+    }
+
+    private boolean handshake(String query, MockHttpServletResponse servletResponse, Map<String, Object> attributes) {
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/api/ws/moderation");
+        servletRequest.setQueryString(query);
+        return interceptor.beforeHandshake(
+                new ServletServerHttpRequest(servletRequest),
+                new ServletServerHttpResponse(servletResponse),
+                mock(org.springframework.web.socket.WebSocketHandler.class),
+                attributes);
+    }
+
+    @Test
+    void moderator_isAdmittedWithResumePosition() {
+        String userId = new ObjectId().toHexString();
+        String token = jwtUtil.generateToken("mod", "MODERATOR", userId);
+        Map<String, Object> attributes = new HashMap<>();
+
+        assertTrue(handshake("token=" + token + "&epoch=e1&lastSeq=42", new MockHttpServletResponse(), attributes));
+
+        ChatSessionPrincipal principal = (ChatSessionPrincipal) attributes.get(ChatSessionPrincipal.ATTRIBUTE);
+        assertEquals(userId, principal.userId());
+        assertEquals("MODERATOR", principal.role());
+        assertEquals("e1", attributes.get(ModerationHandshakeInterceptor.RESUME_EPOCH));
+        assertEquals(42L, attributes.get(ModerationHandshakeInterceptor.RESUME_SEQ));
+    }
+
+    @Test
+    void regularUser_isRejectedWithForbidden() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        String token = jwtUtil.generateToken("alice", "USER", new ObjectId().toHexString());
+        Map<String, Object> attributes = new HashMap<>();
+
+        assertFalse(handshake("token=" + token, response, attributes));
+        assertEquals(HttpStatus.FORBIDDEN.value(), response.getStatus());
+        assertTrue(attributes.isEmpty());
+    }
+
+    @Test
+    void missingToken_isRejectedWithUnauthorized() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertFalse(handshake("lastSeq=1", response, new HashMap<>()));
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), response.getStatus());
+    }
+
+    @Test
+    void malformedLastSeq_isRejectedWithBadRequest() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        String token = jwtUtil.generateToken("mod", "MODERATOR", new ObjectId().toHexString());
+
+        assertFalse(handshake("token=" + token + "&lastSeq=abc", response, new HashMap<>()));
+        assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+    }
+
+    @Test
+    void revokedModeratorToken_isRejectedWithUnauthorized() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        String userId = new ObjectId().toHexString();
+        String token = jwtUtil.generateToken("mod", "MODERATOR", userId);
+        when(tokenRevocationService.isRevoked(any(), eq(userId), anyLong())).thenReturn(true);
+
+        assertFalse(handshake("token=" + token, response, new HashMap<>()));
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), response.getStatus());
+    }
+}
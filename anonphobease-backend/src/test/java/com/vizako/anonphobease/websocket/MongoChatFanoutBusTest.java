@@ -0,0 +1,150 @@
+package com.vizako.anonphobease.websocket;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MongoChatFanoutBusTest {
+
+    private static final String NODE = "node-a";
+
+    @Mock
+    private ChatBroadcaster chatBroadcaster;
+
+    @Mock
+    private RecentMessageBuffer recentMessageBuffer;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private MongoCollection<Document> collection;
+
+    private MongoChatFanoutBus bus;
+
+    @BeforeEach
+    void setUp() {
+        bus = new MongoChatFanoutBus(chatBroadcaster, recentMessageBuffer, mongoTemplate, "chat_fanout", 1024, 10, 10, 1000, 100, NODE);
+    }
+
+    private Document frame(String node, String chatId, long seq, String payload) {
+        return new Document(MongoChatFanoutBus.NODE_ID, node)
+                .append(MongoChatFanoutBus.CHAT_ID, chatId)
+                .append(MongoChatFanoutBus.SEQ, seq)
+                .append(MongoChatFanoutBus.MESSAGE_ID, "m-" + seq)
+                .append(MongoChatFanoutBus.PAYLOAD, payload);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publish_BroadcastsLocallyAndQueuesSequencedFramesForOneBatchInsert() {
+        when(mongoTemplate.getCollection("chat_fanout")).thenReturn(collection);
+
+        bus.publish("chat-1", "m-1", "first");
+        bus.publish("chat-1", "m-2", "second");
+        bus.publish("chat-2", "m-3", "other");
+
+        verify(chatBroadcaster).broadcast("chat-1", "first");
+        verify(chatBroadcaster).broadcast("chat-1", "second");
+        verify(recentMessageBuffer).append("chat-1", "m-1", "first");
+        verifyNoInteractions(collection);
+
+        bus.flushOutbox();
+
+        ArgumentCaptor<List<Document>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(collection).insertMany(inserted.capture(), any(InsertManyOptions.class));
+        List<Document> frames = inserted.getValue();
+        assertEquals(3, frames.size());
+        assertEquals(1L, frames.get(0).get(MongoChatFanoutBus.SEQ));
+        assertEquals(2L, frames.get(1).get(MongoChatFanoutBus.SEQ));
+        assertEquals(1L, frames.get(2).get(MongoChatFanoutBus.SEQ));
+        assertEquals(NODE, frames.get(0).getString(MongoChatFanoutBus.NODE_ID));
+        assertEquals("m-2", frames.get(1).getString(MongoChatFanoutBus.MESSAGE_ID));
+    }
+
+    @Test
+    void publish_MongoFailure_StillDeliversLocally() {
+        when(mongoTemplate.getCollection("chat_fanout")).thenThrow(new IllegalStateException("down"));
+
+        bus.publish("chat-1", "m-1", "hello");
+        bus.flushOutbox();
+
+        verify(chatBroadcaster).broadcast("chat-1", "hello");
+    }
+
+    @Test
+    void publish_OutboxFull_StillDeliversLocallyWithoutBlocking() {
+        MongoChatFanoutBus small = new MongoChatFanoutBus(chatBroadcaster, recentMessageBuffer, mongoTemplate,
+                "chat_fanout", 1024, 10, 10, 1000, 1, NODE);
+
+        small.publish("chat-1", "m-1", "first");
+        small.publish("chat-1", "m-2", "second");
+
+        verify(chatBroadcaster).broadcast("chat-1", "second");
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void pruneSequences_IdleChat_RestartsItsSequence() {
+        when(mongoTemplate.getCollection("chat_fanout")).thenReturn(collection);
+
+        bus.publish("chat-1", "m-1", "first");
+        bus.publish("chat-1", "m-2", "second");
+        bus.pruneSequences(System.currentTimeMillis());
+        assertEquals(1, bus.sequenceCount());
+
+        bus.pruneSequences(System.currentTimeMillis() + 4 * 1000 + 1);
+        assertEquals(0, bus.sequenceCount());
+        bus.publish("chat-1", "m-3", "third");
+        bus.flushOutbox();
+
+        ArgumentCaptor<List<Document>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(collection).insertMany(inserted.capture(), any(InsertManyOptions.class));
+        assertEquals(1L, inserted.getValue().get(2).get(MongoChatFanoutBus.SEQ));
+    }
+
+    @Test
+    void deliver_OwnFrame_Skipped() {
+        bus.deliver(frame(NODE, "chat-1", 1, "mine"));
+
+        verifyNoInteractions(chatBroadcaster, recentMessageBuffer);
+    }
+
+    @Test
+    void deliver_RemoteFrame_BroadcastOnceEvenIfReplayed() {
+        when(chatBroadcaster.hasSessions("chat-1")).thenReturn(true);
+
+        bus.deliver(frame("node-b", "chat-1", 1, "hello"));
+        bus.deliver(frame("node-b", "chat-1", 1, "hello"));
+        bus.deliver(frame("node-b", "chat-1", 2, "again"));
+
+        verify(chatBroadcaster, times(1)).broadcast("chat-1", "hello");
+        verify(chatBroadcaster, times(1)).broadcast("chat-1", "again");
+        verify(recentMessageBuffer, times(1)).append("chat-1", "m-1", "hello");
+    }
+
+    @Test
+    void deliver_NoLocalSessions_RecordedButNotBroadcast() {
+        when(chatBroadcaster.hasSessions("chat-1")).thenReturn(false);
+
+        bus.deliver(frame("node-b", "chat-1", 1, "hello"));
+
+        verify(chatBroadcaster, never()).broadcast(anyString(), anyString());
+        verify(recentMessageBuffer).append("chat-1", "m-1", "hello");
+    }
+}
@@ -0,0 +1,168 @@
+package com.vizako.anonphobease.websocket;
+
+import com.vizako.anonphobease.service.ChatService;
+import com.vizako.anonphobease.service.MessageFilterService;
+import com.vizako.anonphobease.service.MessageService;
+import com.vizako.anonphobease.service.MessageWriteBehindQueue;
+import com.vizako.anonphobease.service.UserService;
+import com.vizako.anonphobease.v1.dto.MessageDTO;
+import com.vizako.anonphobease.v1.dto.MessagePageDTO;
+import com.vizako.anonphobease.v1.dto.RoleDTO;
+import com.vizako.anonphobease.v1.dto.UserDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecentMessageBufferTest {
+
+    @Mock
+    private MessageService messageService;
+
+    @Mock
+    private MessageWriteBehindQueue messageWriteBehindQueue;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private ChatService chatService;
+
+    @Mock
+    private MessageFilterService messageFilterService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private long now;
+    private RecentMessageBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new RecentMessageBuffer(messageService, messageWriteBehindQueue, userService, chatService, messageFilterService,
+                meterRegistry, 3, 1_000_000, () -> now);
+    }
+
+    private void noHistory(String chatId) {
+        when(messageService.findPageByChatId(chatId, null, null, 3, Sort.Direction.DESC))
+                .thenReturn(new MessagePageDTO(List.of(), null, false));
+    }
+
+    @Test
+    void historyFrame_FirstJoin_WarmsFromMongoOldestFirstAndOnlyOnce() {
+        ObjectId authorId = new ObjectId();
+        String olderId = new ObjectId(new Date(1000)).toHexString();
+        String newerId = new ObjectId(new Date(2000)).toHexString();
+        MessageDTO older = new MessageDTO(olderId, "you idiot", authorId.toHexString(), null, null, "chat-1", new Date(1000));
+        MessageDTO newer = new MessageDTO(newerId, "hi", authorId.toHexString(), null, null, "chat-1", new Date(2000));
+        when(messageService.findPageByChatId("chat-1", null, null, 3, Sort.Direction.DESC))
+                .thenReturn(new MessagePageDTO(List.of(newer, older), null, false));
+        when(chatService.getLanguageCodeByChatId("chat-1")).thenReturn("eng");
+        when(messageFilterService.filter(anyString(), eq("eng"))).thenAnswer(inv -> {
+            String text = inv.getArgument(0);
+            return text.replace("idiot", "*****");
+        });
+        UserDTO author = new UserDTO();
+        author.setUsername("alice");
+        author.setRole(new RoleDTO("r-1", "USER"));
+        when(userService.findAllByIds(Set.of(authorId))).thenReturn(Map.of(authorId, author));
+
+        String first = buffer.historyFrame("chat-1");
+        String second = buffer.historyFrame("chat-1");
+
+        assertTrue(first.startsWith("{\"type\":\"history\",\"messages\":[{"));
+        assertTrue(first.indexOf(olderId) < first.indexOf(newerId));
+        assertTrue(first.contains("\"content\":\"you *****\""));
+        assertTrue(first.contains("\"username\":\"alice\""));
+        assertTrue(first.contains("\"role\":\"USER\""));
+        assertEquals(first, second);
+        verify(messageService, times(1)).findPageByChatId(any(), any(), any(), anyInt(), any());
+        verify(userService, times(1)).findAllByIds(any());
+        verify(userService, never()).findById(any());
+        assertEquals(1.0, meterRegistry.get("chat.recent.warmups").counter().count());
+    }
+
+    @Test
+    void historyFrame_MergesMessagesStillQueuedForWriting() {
+        String persistedId = new ObjectId(new Date(1000)).toHexString();
+        String queuedId = new ObjectId(new Date(2000)).toHexString();
+        String newestId = new ObjectId(new Date(3000)).toHexString();
+        MessageDTO persisted = new MessageDTO(persistedId, "a", null, null, null, "chat-1", new Date(1000));
+        MessageDTO queued = new MessageDTO(queuedId, "b", null, null, null, "chat-1", new Date(2000));
+        MessageDTO newest = new MessageDTO(newestId, "c", null, null, null, "chat-1", new Date(3000));
+        when(messageService.findPageByChatId("chat-1", null, null, 3, Sort.Direction.DESC))
+                .thenReturn(new MessagePageDTO(List.of(queued, persisted), null, false));
+        when(messageWriteBehindQueue.pending("chat-1")).thenReturn(List.of(queued, newest));
+        when(messageFilterService.filter(anyString(), any())).thenAnswer(inv -> inv.getArgument(0));
+
+        String history = buffer.historyFrame("chat-1");
+
+        assertTrue(history.indexOf(persistedId) < history.indexOf(queuedId));
+        assertTrue(history.indexOf(queuedId) < history.indexOf(newestId));
+        assertEquals(history.indexOf(queuedId), history.lastIndexOf(queuedId));
+    }
+
+    @Test
+    void append_KeepsLastFramesOfJoinedChatsOnly() {
+        noHistory("chat-1");
+        buffer.append("chat-1", "m-0", "{\"n\":0}");
+        buffer.historyFrame("chat-1");
+
+        for (int i = 1; i <= 4; i++) {
+            buffer.append("chat-1", "m-" + i, "{\"n\":" + i + "}");
+        }
+        buffer.append("chat-2", "x", "{\"n\":99}");
+
+        assertEquals("{\"type\":\"history\",\"messages\":[{\"n\":2},{\"n\":3},{\"n\":4}]}", buffer.historyFrame("chat-1"));
+        assertEquals(1, buffer.chatCount());
+        assertEquals(3.0, meterRegistry.get("chat.recent.frames").gauge().value());
+    }
+
+    @Test
+    void historyFrame_WarmUpFails_ServesLiveFramesAndRetriesNextJoin() {
+        when(messageService.findPageByChatId("chat-1", null, null, 3, Sort.Direction.DESC))
+                .thenThrow(new IllegalStateException("mongo down"))
+                .thenReturn(new MessagePageDTO(List.of(), null, false));
+
+        assertEquals("{\"type\":\"history\",\"messages\":[]}", buffer.historyFrame("chat-1"));
+        buffer.append("chat-1", "m-1", "{\"n\":1}");
+        assertEquals("{\"type\":\"history\",\"messages\":[{\"n\":1}]}", buffer.historyFrame("chat-1"));
+
+        verify(messageService, times(2)).findPageByChatId(any(), any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void append_OverByteCap_EvictsLeastRecentlyUsedChat() {
+        buffer = new RecentMessageBuffer(messageService, messageWriteBehindQueue, userService, chatService, messageFilterService,
+                meterRegistry, 3, 600, () -> now);
+        noHistory("idle");
+        noHistory("busy");
+        String frame = "x".repeat(100);
+
+        now = 1;
+        buffer.historyFrame("idle");
+        buffer.append("idle", "i-1", frame);
+        now = 2;
+        buffer.historyFrame("busy");
+        buffer.append("busy", "b-1", frame);
+        now = 3;
+        buffer.append("busy", "b-2", frame);
+
+        assertEquals(1, buffer.chatCount());
+        assertTrue(buffer.totalBytes() <= 600);
+        assertEquals(1.0, meterRegistry.get("chat.recent.evictions").counter().count());
+        assertTrue(buffer.historyFrame("busy").contains(frame));
+    }
+}